@@ -25,9 +25,14 @@ import org.osgi.service.event.EventHandler;
 
 public class Activator implements BundleActivator {
 
+    static final String BUFFER_SIZE = "karaf.event.buffer.size";
+    static final String CONSUMER_QUEUE_SIZE = "karaf.event.consumer.queue.size";
+
     @Override
     public void start(BundleContext context) throws Exception {
-        EventCollector collector = new EventCollector();
+        EventCollector collector = new EventCollector(
+                getInt(context, BUFFER_SIZE, EventCollector.DEFAULT_MAX_SIZE),
+                getInt(context, CONSUMER_QUEUE_SIZE, EventCollector.DEFAULT_CONSUMER_QUEUE_SIZE));
         Dictionary<String, String> props = new Hashtable<>();
         props.put("event.topics", "*");
         String[] ifAr = new String[]{EventHandler.class.getName(), EventCollector.class.getName()};
@@ -38,4 +43,9 @@ public class Activator implements BundleActivator {
     public void stop(BundleContext context) throws Exception {
     }
 
+    private static int getInt(BundleContext context, String key, int def) {
+        String value = context.getProperty(key);
+        return value != null ? Integer.parseInt(value.trim()) : def;
+    }
+
 }
@@ -16,47 +16,168 @@
  */
 package org.apache.karaf.event.service;
 
-import java.util.Deque;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 
+/**
+ * Keeps the last events in a fixed size ring and hands the new events to the consumers.
+ * Each consumer gets its own bounded queue and thread, so that a slow consumer does not slow
+ * down the event delivery: when its queue is full, the events are dropped and counted.
+ */
 public class EventCollector implements EventHandler {
-    private Deque<Event> events;
-    private int maxSize;
-    private Set<Consumer<Event>> consumers;
-    
+
+    public static final int DEFAULT_MAX_SIZE = 100;
+    public static final int DEFAULT_CONSUMER_QUEUE_SIZE = 1000;
+
+    private final AtomicReferenceArray<Slot> events;
+    private final AtomicLong sequence = new AtomicLong();
+    private final int consumerQueueSize;
+    private final List<ConsumerQueue> consumers = new CopyOnWriteArrayList<>();
+    // the events are handled concurrently, adding a consumer excludes them to replay the ring consistently
+    private final ReadWriteLock consumersLock = new ReentrantReadWriteLock();
+
     public EventCollector() {
-        events = new ConcurrentLinkedDeque<>();
-        maxSize = 100;
-        consumers = new HashSet<>();
+        this(DEFAULT_MAX_SIZE, DEFAULT_CONSUMER_QUEUE_SIZE);
+    }
+
+    public EventCollector(int maxSize, int consumerQueueSize) {
+        this.events = new AtomicReferenceArray<>(maxSize);
+        this.consumerQueueSize = consumerQueueSize;
     }
 
     @Override
-    public synchronized void handleEvent(Event event) {
-        events.addLast(event);
-        if (events.size() > maxSize) {
-            events.removeFirst();
+    public void handleEvent(Event event) {
+        consumersLock.readLock().lock();
+        try {
+            long seq = sequence.getAndIncrement();
+            events.set((int) (seq % events.length()), new Slot(seq, event));
+            for (ConsumerQueue consumer : consumers) {
+                consumer.offer(event);
+            }
+        } finally {
+            consumersLock.readLock().unlock();
         }
-        consumers.forEach(c -> c.accept(event));
     }
 
     public Stream<Event> getEvents() {
-        return events.stream();
+        return snapshot().stream();
+    }
+
+    private List<Event> snapshot() {
+        long last = sequence.get();
+        long first = Math.max(0, last - events.length());
+        List<Event> result = new ArrayList<>();
+        for (long seq = first; seq < last; seq++) {
+            Slot slot = events.get((int) (seq % events.length()));
+            // skip the slots not yet written or already overwritten by newer events
+            if (slot != null && slot.seq == seq) {
+                result.add(slot.event);
+            }
+        }
+        return result;
+    }
+
+    public void addConsumer(Consumer<Event> eventConsumer) {
+        ConsumerQueue queue = new ConsumerQueue(eventConsumer, Math.max(consumerQueueSize, events.length()));
+        consumersLock.writeLock().lock();
+        try {
+            snapshot().forEach(queue::offer);
+            consumers.add(queue);
+        } finally {
+            consumersLock.writeLock().unlock();
+        }
+        queue.start();
+    }
+
+    public void removeConsumer(Consumer<Event> eventConsumer) {
+        for (ConsumerQueue queue : consumers) {
+            if (queue.consumer.equals(eventConsumer)) {
+                consumers.remove(queue);
+                queue.stop();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events dropped because a consumer did not keep up.
+     */
+    public long getDroppedEvents(Consumer<Event> eventConsumer) {
+        long dropped = 0;
+        for (ConsumerQueue queue : consumers) {
+            if (queue.consumer.equals(eventConsumer)) {
+                dropped += queue.dropped.get();
+            }
+        }
+        return dropped;
     }
-    
-    public synchronized void addConsumer(Consumer<Event> eventConsumer) {
-        events.forEach(eventConsumer);
-        consumers.add(eventConsumer);
+
+    private static class Slot {
+        final long seq;
+        final Event event;
+
+        Slot(long seq, Event event) {
+            this.seq = seq;
+            this.event = event;
+        }
     }
-    
-    public synchronized void removeConsumer(Consumer<Event> eventConsumer) {
-        consumers.remove(eventConsumer);
+
+    private static class ConsumerQueue implements Runnable {
+        final Consumer<Event> consumer;
+        final BlockingQueue<Event> queue;
+        final AtomicLong dropped = new AtomicLong();
+        volatile boolean running = true;
+        Thread thread;
+
+        ConsumerQueue(Consumer<Event> consumer, int size) {
+            this.consumer = consumer;
+            this.queue = new ArrayBlockingQueue<>(size);
+        }
+
+        void offer(Event event) {
+            if (!queue.offer(event)) {
+                dropped.incrementAndGet();
+            }
+        }
+
+        void start() {
+            thread = new Thread(this, "Karaf event consumer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() {
+            running = false;
+            thread.interrupt();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    Event event = queue.poll(1, TimeUnit.SECONDS);
+                    if (event != null) {
+                        consumer.accept(event);
+                    }
+                } catch (InterruptedException e) {
+                    // stopped
+                } catch (RuntimeException e) {
+                    // a failing consumer must not stop the delivery of the next events
+                }
+            }
+        }
     }
 
 }
@@ -16,25 +16,60 @@
  */
 package org.apache.karaf.event.service;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import org.osgi.service.event.Event;
 
+/**
+ * Matches the event topics against a filter where <code>*</code> matches any sequence of characters.
+ * The filters are compiled once and shared.
+ */
 public class TopicPredicate implements Predicate<Event> {
-    private Pattern pattern;
+
+    private static final int MAX_CACHED_FILTERS = 256;
+    private static final Map<String, TopicPredicate> PREDICATES = new ConcurrentHashMap<>();
+
+    private final Predicate<String> matcher;
 
     private TopicPredicate(String topicFilter) {
-        pattern = Pattern.compile(topicFilter.replace("*", ".*"));
+        int star = topicFilter.indexOf('*');
+        if (topicFilter.equals("*")) {
+            matcher = topic -> true;
+        } else if (star < 0) {
+            matcher = topicFilter::equals;
+        } else if (star == topicFilter.length() - 1) {
+            String prefix = topicFilter.substring(0, star);
+            matcher = topic -> topic.startsWith(prefix);
+        } else {
+            StringBuilder regex = new StringBuilder();
+            int start = 0;
+            for (; star >= 0; star = topicFilter.indexOf('*', start)) {
+                regex.append(Pattern.quote(topicFilter.substring(start, star))).append(".*");
+                start = star + 1;
+            }
+            regex.append(Pattern.quote(topicFilter.substring(start)));
+            Pattern pattern = Pattern.compile(regex.toString());
+            matcher = topic -> pattern.matcher(topic).matches();
+        }
     }
-    
+
     @Override
     public boolean test(Event event) {
-        return pattern.matcher(event.getTopic()).matches();
+        return matcher.test(event.getTopic());
     }
- 
+
     public static Predicate<Event> matchTopic(String topicFilter) {
-        return new TopicPredicate(topicFilter);
+        TopicPredicate predicate = PREDICATES.get(topicFilter);
+        if (predicate == null) {
+            if (PREDICATES.size() >= MAX_CACHED_FILTERS) {
+                PREDICATES.clear();
+            }
+            predicate = PREDICATES.computeIfAbsent(topicFilter, TopicPredicate::new);
+        }
+        return predicate;
     }
 
 }
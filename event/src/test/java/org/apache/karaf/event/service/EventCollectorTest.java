@@ -21,6 +21,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
@@ -53,22 +54,58 @@ public class EventCollectorTest {
     }
 
     @Test
-    public void testAddRemoveConsumer() {
+    public void testAddRemoveConsumer() throws Exception {
         final AtomicInteger count = new AtomicInteger();
         Consumer<Event> countingConsumer = event -> count.incrementAndGet();
         EventCollector collector = new EventCollector();
         collector.handleEvent(event("myTopic"));
         collector.addConsumer(countingConsumer);
-        assertThat(count.get(), equalTo(1));
+        awaitCount(count, 1);
 
         collector.handleEvent(event("another"));
-        assertThat(count.get(), equalTo(2));
+        awaitCount(count, 2);
 
         collector.removeConsumer(countingConsumer);
         collector.handleEvent(event("and/another"));
+        Thread.sleep(100);
         assertThat(count.get(), equalTo(2));
     }
 
+    @Test
+    public void testMaxSize() {
+        EventCollector collector = new EventCollector(10, 10);
+        IntStream.range(0, 25).forEach(c -> collector.handleEvent(event("topic" + c)));
+        assertThat(collector.getEvents().count(), equalTo(10l));
+        assertThat(collector.getEvents().findFirst().get().getTopic(), equalTo("topic15"));
+    }
+
+    @Test
+    public void testSlowConsumerDropsEvents() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        Consumer<Event> blockedConsumer = event -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                // stopped
+            }
+        };
+        EventCollector collector = new EventCollector(10, 10);
+        collector.addConsumer(blockedConsumer);
+        // the first event blocks the consumer, the next ones fill its queue
+        IntStream.range(0, 21).forEach(c -> collector.handleEvent(event("myTopic")));
+        Thread.sleep(100);
+        assertTrue(collector.getDroppedEvents(blockedConsumer) >= 10);
+        latch.countDown();
+        collector.removeConsumer(blockedConsumer);
+    }
+
+    private void awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && count.get() < expected; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(count.get(), equalTo(expected));
+    }
+
     private Event event(String topic) {
         return new Event(topic, new HashMap<>());
     }
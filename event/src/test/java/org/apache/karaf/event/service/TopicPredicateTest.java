@@ -18,6 +18,7 @@ package org.apache.karaf.event.service;
 
 import static org.apache.karaf.event.service.TopicPredicate.matchTopic;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
@@ -51,6 +52,15 @@ public class TopicPredicateTest {
         assertFalse(matcher.test(event("my/other")));
     }
 
+    @Test
+    public void testMatchWildcardInside() {
+        Predicate<Event> matcher = matchTopic("org/osgi/*/STARTED");
+        assertTrue(matcher.test(event("org/osgi/framework/BundleEvent/STARTED")));
+        assertFalse(matcher.test(event("org/osgi/framework/BundleEvent/STOPPED")));
+        assertFalse("Only * is a wildcard", matchTopic("my.topic").test(event("myXtopic")));
+        assertSame(matcher, matchTopic("org/osgi/*/STARTED"));
+    }
+
     private Event event(String topic) {
         return new Event(topic, new HashMap<String, String>());
     }
@@ -20,6 +20,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.karaf.features.Feature;
 import org.apache.karaf.features.FeaturesService;
@@ -45,6 +48,9 @@ public class ListFeaturesCommand extends FeaturesCommandSupport {
     @Option(name = "-o", aliases = {"--ordered"}, description = "Display a list using alphabetical order ", required = false, multiValued = false)
     boolean ordered;
 
+    @Option(name = "-b", aliases = {"--bundle"}, description = "Display only the features containing the bundle with the given location", required = false, multiValued = false)
+    String bundle;
+
     @Option(name = "--no-format", description = "Disable table rendered output", required = false, multiValued = false)
     boolean noFormat;
 
@@ -60,6 +66,13 @@ public class ListFeaturesCommand extends FeaturesCommandSupport {
         table.column("Description").maxSize(50);
         table.emptyTableText(onlyInstalled ? "No features installed" : "No features available");
 
+        Set<String> bundleFeatures = null;
+        if (bundle != null) {
+            bundleFeatures = Stream.of(featuresService.getFeaturesForBundle(bundle))
+                    .map(Feature::getId)
+                    .collect(Collectors.toSet());
+        }
+
         List<Repository> repos = Arrays.asList(featuresService.listRepositories());
         for (Repository r : repos) {
             List<Feature> features = Arrays.asList(r.getFeatures());
@@ -75,6 +88,10 @@ public class ListFeaturesCommand extends FeaturesCommandSupport {
                     // Filter out not installed features if we only want to see the installed ones
                     continue;
                 }
+                if (bundleFeatures != null && !bundleFeatures.contains(f.getId())) {
+                    // Filter out features which do not contain the given bundle
+                    continue;
+                }
                 if (!showHidden && f.isHidden()) {
                     // Filter out hidden feature if not asked to display those
                     continue;
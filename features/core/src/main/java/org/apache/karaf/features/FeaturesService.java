@@ -45,10 +45,14 @@ public interface FeaturesService {
     int DEFAULT_DOWNLOAD_THREADS = 8;
     long DEFAULT_SCHEDULE_DELAY = 250;
     int DEFAULT_SCHEDULE_MAX_RUN = 9;
+    int DEFAULT_BUNDLE_START_THREADS = 4;
     long DEFAULT_REPOSITORY_EXPIRATION = 60000; // 1 minute
 
     boolean DEFAULT_CONFIG_CFG_STORE = true;
     boolean DEFAULT_DIGRAPH_MBEAN = true;
+    boolean DEFAULT_BUNDLE_METADATA_INDEX = true;
+    boolean DEFAULT_REPOSITORY_SNAPSHOT = true;
+    boolean DEFAULT_PARALLEL_BUNDLE_START = false;
 
     enum Option {
         NoFailOnFeatureNotFound,
@@ -152,6 +156,12 @@ public interface FeaturesService {
 
     Feature[] getFeatures(String name) throws Exception;
 
+    /**
+     * Returns the features from the loaded repositories which contain a bundle
+     * with the given location, either directly or in a conditional.
+     */
+    Feature[] getFeaturesForBundle(String location) throws Exception;
+
     void refreshRepositories(Set<URI> uris) throws Exception;
 
     void refreshRepository(URI uri) throws Exception;
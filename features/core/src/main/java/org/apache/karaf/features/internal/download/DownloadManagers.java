@@ -18,6 +18,7 @@ package org.apache.karaf.features.internal.download;
 
 import java.util.concurrent.ScheduledExecutorService;
 
+import org.apache.karaf.features.internal.download.impl.ArtifactCache;
 import org.apache.karaf.features.internal.download.impl.MavenDownloadManager;
 import org.ops4j.pax.url.mvn.MavenResolver;
 
@@ -33,4 +34,14 @@ public final class DownloadManagers {
                                                         long scheduleDelay, int scheduleMaxRun) {
         return new MavenDownloadManager(resolver, executorService, scheduleDelay, scheduleMaxRun);
     }
+
+    /**
+     * Create a download manager using a shared executor, which is not shut down when the
+     * download manager is closed, and an optional cache of the released artifacts.
+     */
+    public static DownloadManager createSharedDownloadManager(MavenResolver resolver, ScheduledExecutorService executorService,
+                                                              long scheduleDelay, int scheduleMaxRun,
+                                                              ArtifactCache artifactCache) {
+        return new MavenDownloadManager(resolver, executorService, scheduleDelay, scheduleMaxRun, artifactCache, false);
+    }
 }
@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.download.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.karaf.util.json.JsonReader;
+import org.apache.karaf.util.json.JsonWriter;
+import org.apache.karaf.util.maven.Parser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content addressed cache of the downloaded maven artifacts, shared by all the deployments.
+ *
+ * Artifacts are stored in the cache directory under their SHA-256 digest, and an index
+ * mapping the maven urls to the digests is persisted so that artifacts downloaded before
+ * a restart are not resolved again.  Only released artifacts are cached: snapshots, version
+ * ranges and <code>LATEST</code> / <code>RELEASE</code> versions are always resolved.
+ * Concurrent downloads of the same url are performed only once, the other callers waiting for
+ * it are counted as deduplicated rather than as hits.  Clearing the cache excludes
+ * the concurrent additions of artifacts, so that an artifact is never indexed once its file
+ * has been removed.
+ */
+public class ArtifactCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactCache.class);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String INDEX_FILE = "index.json";
+
+    private final File directory;
+    private final File indexFile;
+    private final Map<String, String> digests = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<File>> inflight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    // shared by the additions, exclusive for clear
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+    private volatile boolean dirty;
+
+    /**
+     * @param directory the directory holding the cached artifacts and the index
+     */
+    public ArtifactCache(File directory) {
+        this.directory = directory;
+        this.indexFile = new File(directory, INDEX_FILE);
+    }
+
+    /**
+     * Check if the artifact denoted by the given url is immutable and can be cached.
+     *
+     * @param url the artifact url
+     * @return <code>true</code> if the url is a maven url with a fixed release version
+     */
+    public static boolean isCacheable(String url) {
+        if (url == null || !url.startsWith("mvn:")) {
+            return false;
+        }
+        try {
+            String version = new Parser(url.substring("mvn:".length())).getVersion();
+            return version != null
+                    && !version.isEmpty()
+                    && !version.endsWith("SNAPSHOT")
+                    && !version.equals(Parser.VERSION_LATEST)
+                    && !version.equals("RELEASE")
+                    && version.indexOf('[') < 0
+                    && version.indexOf('(') < 0;
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Retrieve the artifact for the given url, either from the cache, from a download
+     * of the same url already in progress, or by using the given download.
+     *
+     * @param url the artifact url
+     * @param download the download to use if the artifact is not cached
+     * @return the artifact file
+     * @throws Exception if the artifact can not be downloaded
+     */
+    public File resolve(String url, Callable<File> download) throws Exception {
+        if (!isCacheable(url)) {
+            return download.call();
+        }
+        File file = get(url);
+        if (file != null) {
+            return file;
+        }
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> prev = inflight.putIfAbsent(url, future);
+        if (prev != null) {
+            try {
+                file = prev.get();
+                deduplicated.incrementAndGet();
+                return file;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+        try {
+            file = get(url);
+            if (file == null) {
+                misses.incrementAndGet();
+                file = put(url, download.call());
+            }
+            future.complete(file);
+            return file;
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            inflight.remove(url, future);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of artifacts obtained by waiting for a download of the same url by another caller.
+     */
+    public long getDeduplicated() {
+        return deduplicated.get();
+    }
+
+    /**
+     * Number of bytes served from the cache instead of being resolved.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public int getSize() {
+        load();
+        return digests.size();
+    }
+
+    /**
+     * Remove all the artifacts from the cache.
+     */
+    public void clear() {
+        load();
+        lock.writeLock().lock();
+        try {
+            digests.clear();
+            dirty = true;
+            File[] children = directory.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    if (child.isDirectory()) {
+                        File[] files = child.listFiles();
+                        if (files != null) {
+                            for (File f : files) {
+                                f.delete();
+                            }
+                        }
+                        child.delete();
+                    }
+                }
+            }
+            save();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Persist the index if it has been modified since it has been loaded or saved.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        Map<String, Object> json = new HashMap<>();
+        json.put("version", (long) FORMAT_VERSION);
+        json.put("entries", new HashMap<>(digests));
+        File tmp = new File(directory, INDEX_FILE + ".tmp");
+        try {
+            directory.mkdirs();
+            try (OutputStream os = new FileOutputStream(tmp)) {
+                JsonWriter.write(os, json);
+            }
+            Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Error saving artifact cache index to " + indexFile, e);
+        }
+    }
+
+    private File get(String url) {
+        load();
+        String digest = digests.get(url);
+        if (digest == null) {
+            return null;
+        }
+        File file = getFile(digest);
+        if (!file.isFile()) {
+            digests.remove(url, digest);
+            dirty = true;
+            return null;
+        }
+        hits.incrementAndGet();
+        bytes.addAndGet(file.length());
+        return file;
+    }
+
+    private File put(String url, File downloaded) throws IOException {
+        if (downloaded == null || !downloaded.isFile()) {
+            return downloaded;
+        }
+        File tmp = null;
+        try {
+            directory.mkdirs();
+            tmp = File.createTempFile("artifact", ".tmp", directory);
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            try (InputStream is = new FileInputStream(downloaded);
+                 OutputStream os = new DigestOutputStream(new FileOutputStream(tmp), md)) {
+                byte[] buffer = new byte[8192];
+                int len;
+                while ((len = is.read(buffer)) >= 0) {
+                    os.write(buffer, 0, len);
+                }
+            }
+            String digest = toHex(md.digest());
+            File file = getFile(digest);
+            // the temporary file is in the cache directory itself, which clear does not remove
+            lock.readLock().lock();
+            try {
+                if (file.isFile()) {
+                    Files.delete(tmp.toPath());
+                } else {
+                    file.getParentFile().mkdirs();
+                    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                tmp = null;
+                digests.put(url, digest);
+                dirty = true;
+            } finally {
+                lock.readLock().unlock();
+            }
+            return file;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            LOGGER.warn("Unable to cache artifact " + url, e);
+            return downloaded;
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private File getFile(String digest) {
+        return new File(new File(directory, digest.substring(0, 2)), digest);
+    }
+
+    private void load() {
+        if (!loaded) {
+            doLoad();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void doLoad() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!indexFile.isFile()) {
+            return;
+        }
+        try (InputStream is = new FileInputStream(indexFile)) {
+            Map<String, Object> json = (Map<String, Object>) JsonReader.read(is);
+            Object version = json.get("version");
+            if (!(version instanceof Number) || ((Number) version).intValue() != FORMAT_VERSION) {
+                LOGGER.debug("Ignoring artifact cache index {} with unsupported version {}", indexFile, version);
+                return;
+            }
+            Map<String, Object> entries = (Map<String, Object>) json.get("entries");
+            for (Map.Entry<String, Object> entry : entries.entrySet()) {
+                digests.put(entry.getKey(), (String) entry.getValue());
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Error loading artifact cache index from " + indexFile + ", it will be rebuilt", e);
+            digests.clear();
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+}
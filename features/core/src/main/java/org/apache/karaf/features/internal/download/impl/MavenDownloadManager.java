@@ -41,6 +41,10 @@ public class MavenDownloadManager implements DownloadManager {
 
     protected final int scheduleMaxRun;
 
+    protected final ArtifactCache artifactCache;
+
+    protected final boolean shutdownExecutor;
+
     protected File tmpPath;
 
     private final Map<String, AbstractDownloadTask> downloaded = new HashMap<>();
@@ -53,10 +57,22 @@ public class MavenDownloadManager implements DownloadManager {
 
     public MavenDownloadManager(MavenResolver mavenResolver, ScheduledExecutorService executorService,
                                 long scheduleDelay, int scheduleMaxRun) {
+        this(mavenResolver, executorService, scheduleDelay, scheduleMaxRun, null, true);
+    }
+
+    /**
+     * @param artifactCache the cache of released artifacts shared with other download managers, or <code>null</code>
+     * @param shutdownExecutor whether the executor is owned by this download manager and must be shut down when it is closed
+     */
+    public MavenDownloadManager(MavenResolver mavenResolver, ScheduledExecutorService executorService,
+                                long scheduleDelay, int scheduleMaxRun,
+                                ArtifactCache artifactCache, boolean shutdownExecutor) {
         this.mavenResolver = mavenResolver;
         this.executorService = executorService;
         this.scheduleDelay = scheduleDelay;
         this.scheduleMaxRun = scheduleMaxRun;
+        this.artifactCache = artifactCache;
+        this.shutdownExecutor = shutdownExecutor;
 
         String karafRoot = System.getProperty("karaf.home", "karaf");
         String karafData = System.getProperty("karaf.data", karafRoot + "/data");
@@ -82,7 +98,12 @@ public class MavenDownloadManager implements DownloadManager {
 
     @Override
     public void close() {
-        executorService.shutdown();
+        if (artifactCache != null) {
+            artifactCache.save();
+        }
+        if (shutdownExecutor) {
+            executorService.shutdown();
+        }
     }
 
     protected class MavenDownloader implements Downloader {
@@ -174,7 +195,7 @@ public class MavenDownloadManager implements DownloadManager {
                 if (!mvnUrl.equals(url)) {
                     return new ChainedDownloadTask(executorService, url, mvnUrl);
                 } else {
-                    return new MavenDownloadTask(executorService, mavenResolver, mvnUrl);
+                    return new MavenDownloadTask(executorService, mavenResolver, mvnUrl, artifactCache);
                 }
             } else {
                 return createCustomDownloadTask(url);
@@ -27,9 +27,16 @@ public class MavenDownloadTask extends AbstractRetryableDownloadTask {
 
     private final MavenResolver resolver;
 
+    private final ArtifactCache cache;
+
     public MavenDownloadTask(ScheduledExecutorService executor, MavenResolver resolver, String url) {
+        this(executor, resolver, url, null);
+    }
+
+    public MavenDownloadTask(ScheduledExecutorService executor, MavenResolver resolver, String url, ArtifactCache cache) {
         super(executor, url);
         this.resolver = resolver;
+        this.cache = cache;
     }
 
     @Override
@@ -44,6 +51,9 @@ public class MavenDownloadTask extends AbstractRetryableDownloadTask {
 
     @Override
     protected File download(Exception previousException) throws Exception {
+        if (cache != null) {
+            return cache.resolve(url, () -> resolver.resolve(url, previousException));
+        }
         return resolver.resolve(url, previousException);
     }
 
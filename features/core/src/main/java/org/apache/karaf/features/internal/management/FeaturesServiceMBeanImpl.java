@@ -37,6 +37,9 @@ import org.apache.karaf.features.FeaturesListener;
 import org.apache.karaf.features.FeaturesService;
 import org.apache.karaf.features.Repository;
 import org.apache.karaf.features.RepositoryEvent;
+import org.apache.karaf.features.internal.download.impl.ArtifactCache;
+import org.apache.karaf.features.internal.region.BundleMetadataIndex;
+import org.apache.karaf.features.internal.region.ResolutionSnapshot;
 import org.apache.karaf.features.management.FeaturesServiceMBean;
 import org.apache.karaf.features.management.codec.JmxFeature;
 import org.apache.karaf.features.management.codec.JmxFeatureEvent;
@@ -61,6 +64,10 @@ public class FeaturesServiceMBeanImpl extends StandardEmitterMBean implements
 
     private FeaturesService featuresService;
 
+    private BundleMetadataIndex bundleMetadataIndex;
+    private ResolutionSnapshot resolutionSnapshot;
+    private ArtifactCache artifactCache;
+
     public FeaturesServiceMBeanImpl() throws NotCompliantMBeanException {
         super(FeaturesServiceMBean.class,
               new NotificationBroadcasterSupport(getBroadcastInfo()));
@@ -293,6 +300,64 @@ public class FeaturesServiceMBeanImpl extends StandardEmitterMBean implements
         featuresService.uninstallFeature(name, version, options);
     }
 
+    public long getBundleMetadataIndexHits() {
+        return bundleMetadataIndex != null ? bundleMetadataIndex.getHits() : 0;
+    }
+
+    public long getBundleMetadataIndexMisses() {
+        return bundleMetadataIndex != null ? bundleMetadataIndex.getMisses() : 0;
+    }
+
+    public int getBundleMetadataIndexSize() {
+        return bundleMetadataIndex != null ? bundleMetadataIndex.getSize() : 0;
+    }
+
+    public void clearBundleMetadataIndex() {
+        if (bundleMetadataIndex != null) {
+            bundleMetadataIndex.clear();
+        }
+    }
+
+    public long getResolutionSnapshotHits() {
+        return resolutionSnapshot != null ? resolutionSnapshot.getHits() : 0;
+    }
+
+    public long getResolutionSnapshotMisses() {
+        return resolutionSnapshot != null ? resolutionSnapshot.getMisses() : 0;
+    }
+
+    public void clearResolutionSnapshot() {
+        if (resolutionSnapshot != null) {
+            resolutionSnapshot.clear();
+        }
+    }
+
+    public long getDownloadCacheHits() {
+        return artifactCache != null ? artifactCache.getHits() : 0;
+    }
+
+    public long getDownloadCacheMisses() {
+        return artifactCache != null ? artifactCache.getMisses() : 0;
+    }
+
+    public long getDownloadCacheDeduplicated() {
+        return artifactCache != null ? artifactCache.getDeduplicated() : 0;
+    }
+
+    public long getDownloadCacheBytes() {
+        return artifactCache != null ? artifactCache.getBytes() : 0;
+    }
+
+    public int getDownloadCacheSize() {
+        return artifactCache != null ? artifactCache.getSize() : 0;
+    }
+
+    public void clearDownloadCache() {
+        if (artifactCache != null) {
+            artifactCache.clear();
+        }
+    }
+
     public void setBundleContext(BundleContext bundleContext) {
         this.bundleContext = bundleContext;
     }
@@ -301,6 +366,18 @@ public class FeaturesServiceMBeanImpl extends StandardEmitterMBean implements
         this.featuresService = featuresService;
     }
 
+    public void setBundleMetadataIndex(BundleMetadataIndex bundleMetadataIndex) {
+        this.bundleMetadataIndex = bundleMetadataIndex;
+    }
+
+    public void setResolutionSnapshot(ResolutionSnapshot resolutionSnapshot) {
+        this.resolutionSnapshot = resolutionSnapshot;
+    }
+
+    public void setArtifactCache(ArtifactCache artifactCache) {
+        this.artifactCache = artifactCache;
+    }
+
     public FeaturesListener getFeaturesListener() {
         return new FeaturesListener() {
             public void featureEvent(FeatureEvent event) {
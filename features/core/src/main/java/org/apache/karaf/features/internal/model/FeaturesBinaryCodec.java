@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the features model, used to cache parsed repositories.
+ *
+ * The encoding writes the model fields as they have been unmarshalled, so that decoding
+ * gives back the same model without going through the setters.  Strings are written as
+ * their UTF-8 length followed by their bytes, with a length of <code>-1</code> for
+ * <code>null</code>, and lists as their size followed by their elements.
+ */
+public final class FeaturesBinaryCodec {
+
+    private FeaturesBinaryCodec() {
+    }
+
+    public static byte[] write(Features features) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(baos);
+        writeString(out, features.getName());
+        writeString(out, features.getNamespace());
+        writeStrings(out, features.repository);
+        writeStrings(out, features.resourceRepository);
+        List<Feature> list = features.feature != null ? features.feature : new ArrayList<>();
+        out.writeInt(list.size());
+        for (Feature feature : list) {
+            writeFeature(out, feature);
+        }
+        out.flush();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Decode a features model from the given buffer, starting at its current position.
+     * The uri is used to initialize the transient fields as the unmarshalling does.
+     */
+    public static Features read(String uri, ByteBuffer buffer) {
+        Features features = new Features();
+        features.name = readString(buffer);
+        features.setNamespace(readString(buffer));
+        features.repository = readStrings(buffer);
+        features.resourceRepository = readStrings(buffer);
+        int nb = buffer.getInt();
+        if (nb > 0) {
+            features.feature = new ArrayList<>(nb);
+            for (int i = 0; i < nb; i++) {
+                features.feature.add(readFeature(buffer));
+            }
+        }
+        features.postUnmarshall(uri);
+        return features;
+    }
+
+    private static void writeFeature(DataOutputStream out, Feature feature) throws IOException {
+        writeString(out, feature.name);
+        writeString(out, feature.version);
+        writeString(out, feature.description);
+        writeString(out, feature.details);
+        writeString(out, feature.resolver);
+        writeString(out, feature.install);
+        writeInteger(out, feature.startLevel);
+        writeBoolean(out, feature.hidden);
+        writeContent(out, feature);
+        List<Conditional> conditionals = feature.conditional != null ? feature.conditional : new ArrayList<>();
+        out.writeInt(conditionals.size());
+        for (Conditional conditional : conditionals) {
+            writeStrings(out, conditional.condition);
+            writeContent(out, conditional);
+        }
+        List<String> values = new ArrayList<>();
+        if (feature.capability != null) {
+            feature.capability.forEach(c -> values.add(c.value));
+        }
+        writeStrings(out, values);
+        values.clear();
+        if (feature.requirement != null) {
+            feature.requirement.forEach(r -> values.add(r.value));
+        }
+        writeStrings(out, values);
+        List<Library> libraries = feature.library != null ? feature.library : new ArrayList<>();
+        out.writeInt(libraries.size());
+        for (Library library : libraries) {
+            writeString(out, library.getLocation());
+            writeString(out, library.getType());
+            out.writeBoolean(library.isExport());
+            out.writeBoolean(library.isDelegate());
+        }
+        out.writeBoolean(feature.scoping != null);
+        if (feature.scoping != null) {
+            out.writeBoolean(feature.scoping.acceptDependencies);
+            writeScopeFilters(out, feature.scoping.imports);
+            writeScopeFilters(out, feature.scoping.exports);
+        }
+    }
+
+    private static Feature readFeature(ByteBuffer buffer) {
+        Feature feature = new Feature();
+        feature.name = readString(buffer);
+        feature.version = readString(buffer);
+        feature.description = readString(buffer);
+        feature.details = readString(buffer);
+        feature.resolver = readString(buffer);
+        feature.install = readString(buffer);
+        feature.startLevel = readInteger(buffer);
+        feature.hidden = readBoolean(buffer);
+        readContent(buffer, feature);
+        int nb = buffer.getInt();
+        for (int i = 0; i < nb; i++) {
+            Conditional conditional = new Conditional();
+            conditional.condition = readStrings(buffer);
+            readContent(buffer, conditional);
+            feature.getConditional().add(conditional);
+        }
+        List<String> capabilities = readStrings(buffer);
+        if (capabilities != null) {
+            capabilities.forEach(c -> feature.getCapabilities().add(new Capability(c)));
+        }
+        List<String> requirements = readStrings(buffer);
+        if (requirements != null) {
+            requirements.forEach(r -> feature.getRequirements().add(new Requirement(r)));
+        }
+        nb = buffer.getInt();
+        for (int i = 0; i < nb; i++) {
+            Library library = new Library();
+            library.setLocation(readString(buffer));
+            library.setType(readString(buffer));
+            library.setExport(buffer.get() != 0);
+            library.setDelegate(buffer.get() != 0);
+            feature.getLibraries().add(library);
+        }
+        if (buffer.get() != 0) {
+            Scoping scoping = new Scoping();
+            scoping.acceptDependencies = buffer.get() != 0;
+            scoping.imports = readScopeFilters(buffer);
+            scoping.exports = readScopeFilters(buffer);
+            feature.scoping = scoping;
+        }
+        return feature;
+    }
+
+    private static void writeContent(DataOutputStream out, Content content) throws IOException {
+        List<Config> configs = content.config != null ? content.config : new ArrayList<>();
+        out.writeInt(configs.size());
+        for (Config config : configs) {
+            writeString(out, config.name);
+            writeString(out, config.value);
+            out.writeBoolean(config.isAppend());
+            out.writeBoolean(config.isExternal());
+        }
+        List<ConfigFile> configFiles = content.configfile != null ? content.configfile : new ArrayList<>();
+        out.writeInt(configFiles.size());
+        for (ConfigFile configFile : configFiles) {
+            writeString(out, configFile.value);
+            writeString(out, configFile.finalname);
+            writeBoolean(out, configFile.override);
+        }
+        List<Dependency> dependencies = content.feature != null ? content.feature : new ArrayList<>();
+        out.writeInt(dependencies.size());
+        for (Dependency dependency : dependencies) {
+            writeString(out, dependency.name);
+            writeString(out, dependency.version);
+            writeBoolean(out, dependency.prerequisite);
+            writeBoolean(out, dependency.dependency);
+        }
+        List<Bundle> bundles = content.bundle != null ? content.bundle : new ArrayList<>();
+        out.writeInt(bundles.size());
+        for (Bundle bundle : bundles) {
+            writeString(out, bundle.value);
+            writeInteger(out, bundle.startLevel);
+            writeBoolean(out, bundle.start);
+            writeBoolean(out, bundle.dependency);
+        }
+    }
+
+    private static void readContent(ByteBuffer buffer, Content content) {
+        int nb = buffer.getInt();
+        for (int i = 0; i < nb; i++) {
+            Config config = new Config();
+            config.name = readString(buffer);
+            config.value = readString(buffer);
+            config.setAppend(buffer.get() != 0);
+            config.setExternal(buffer.get() != 0);
+            content.getConfig().add(config);
+        }
+        nb = buffer.getInt();
+        for (int i = 0; i < nb; i++) {
+            ConfigFile configFile = new ConfigFile();
+            configFile.value = readString(buffer);
+            configFile.finalname = readString(buffer);
+            configFile.override = readBoolean(buffer);
+            content.getConfigfile().add(configFile);
+        }
+        nb = buffer.getInt();
+        for (int i = 0; i < nb; i++) {
+            Dependency dependency = new Dependency();
+            dependency.name = readString(buffer);
+            dependency.version = readString(buffer);
+            dependency.prerequisite = readBoolean(buffer);
+            dependency.dependency = readBoolean(buffer);
+            content.getFeature().add(dependency);
+        }
+        nb = buffer.getInt();
+        for (int i = 0; i < nb; i++) {
+            Bundle bundle = new Bundle();
+            bundle.value = readString(buffer);
+            bundle.startLevel = readInteger(buffer);
+            bundle.start = readBoolean(buffer);
+            bundle.dependency = readBoolean(buffer);
+            content.getBundle().add(bundle);
+        }
+    }
+
+    private static void writeScopeFilters(DataOutputStream out, List<ScopeFilter> filters) throws IOException {
+        if (filters == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(filters.size());
+        for (ScopeFilter filter : filters) {
+            writeString(out, filter.namespace);
+            writeString(out, filter.value);
+        }
+    }
+
+    private static List<ScopeFilter> readScopeFilters(ByteBuffer buffer) {
+        int nb = buffer.getInt();
+        if (nb < 0) {
+            return null;
+        }
+        List<ScopeFilter> filters = new ArrayList<>(nb);
+        for (int i = 0; i < nb; i++) {
+            ScopeFilter filter = new ScopeFilter();
+            filter.namespace = readString(buffer);
+            filter.value = readString(buffer);
+            filters.add(filter);
+        }
+        return filters;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        int nb = buffer.getInt();
+        if (nb < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(nb);
+        for (int i = 0; i < nb; i++) {
+            values.add(readString(buffer));
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(ByteBuffer buffer) {
+        return buffer.get() != 0 ? buffer.getInt() : null;
+    }
+
+    private static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+        out.writeByte(value == null ? -1 : value ? 1 : 0);
+    }
+
+    private static Boolean readBoolean(ByteBuffer buffer) {
+        byte b = buffer.get();
+        return b < 0 ? null : b != 0;
+    }
+
+}
@@ -0,0 +1,428 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.model;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.net.URL;
+
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Features XML parser based on StaX, building the model objects directly.
+ *
+ * The parser behaves like the non validating JAXB unmarshalling: elements are matched
+ * by their local name whatever their namespace, and unknown elements or attributes
+ * are ignored.
+ */
+public final class FeaturesStaxParser {
+
+    public static final String FEATURES = "features";
+    public static final String REPOSITORY = "repository";
+    public static final String RESOURCE_REPOSITORY = "resource-repository";
+    public static final String FEATURE = "feature";
+    public static final String DETAILS = "details";
+    public static final String CONFIG = "config";
+    public static final String CONFIGFILE = "configfile";
+    public static final String BUNDLE = "bundle";
+    public static final String CONDITIONAL = "conditional";
+    public static final String CONDITION = "condition";
+    public static final String CAPABILITY = "capability";
+    public static final String REQUIREMENT = "requirement";
+    public static final String LIBRARY = "library";
+    public static final String SCOPING = "scoping";
+    public static final String IMPORT = "import";
+    public static final String EXPORT = "export";
+
+    static XMLInputFactory inputFactory;
+
+    private FeaturesStaxParser() {
+    }
+
+    /**
+     * Read in a Features from the given uri or input stream.
+     *
+     * @param uri    uri of the features repository
+     * @param stream the stream to read, or <code>null</code> to read from the uri
+     * @return a Features read from the input stream
+     */
+    public static Features parse(String uri, InputStream stream) {
+        try {
+            if (stream == null) {
+                try (InputStream is = new URL(uri).openStream()) {
+                    return parse(uri, is);
+                }
+            }
+            Features features = doParse(stream);
+            features.postUnmarshall(uri);
+            return features;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to load " + uri, e);
+        }
+    }
+
+    private static Features doParse(InputStream is) throws XMLStreamException {
+        XMLStreamReader reader = getInputFactory().createXMLStreamReader(is);
+        try {
+            // Skip the prolog, which may contain a doctype
+            int event = reader.next();
+            while (event != START_ELEMENT && event != END_DOCUMENT) {
+                event = reader.next();
+            }
+            if (event != START_ELEMENT || !FEATURES.equals(reader.getLocalName())) {
+                throw new IllegalStateException("Expected element 'features' at the root of the document");
+            }
+            Features features = new Features();
+            String namespace = reader.getNamespaceURI();
+            features.setNamespace(namespace != null ? namespace : "");
+            for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++) {
+                if ("name".equals(reader.getAttributeLocalName(i))) {
+                    features.setName(reader.getAttributeValue(i));
+                }
+            }
+            while ((event = reader.nextTag()) == START_ELEMENT) {
+                String element = reader.getLocalName();
+                switch (element) {
+                case REPOSITORY:
+                    features.getRepository().add(reader.getElementText());
+                    break;
+                case RESOURCE_REPOSITORY:
+                    features.getResourceRepository().add(reader.getElementText());
+                    break;
+                case FEATURE:
+                    features.getFeature().add(parseFeature(reader));
+                    break;
+                default:
+                    skipElement(reader);
+                    break;
+                }
+            }
+            // Sanity check
+            sanityCheckEndElement(reader, event, FEATURES);
+            return features;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static Feature parseFeature(XMLStreamReader reader) {
+        try {
+            Feature feature = new Feature();
+            for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++) {
+                String attrName = reader.getAttributeLocalName(i);
+                String attrValue = reader.getAttributeValue(i);
+                switch (attrName) {
+                case "name":
+                    feature.setName(attrValue);
+                    break;
+                case "version":
+                    feature.setVersion(attrValue);
+                    break;
+                case "description":
+                    feature.setDescription(attrValue);
+                    break;
+                case "resolver":
+                    feature.setResolver(attrValue);
+                    break;
+                case "install":
+                    feature.setInstall(attrValue);
+                    break;
+                case "start-level":
+                    feature.setStartLevel(parseInt(attrValue));
+                    break;
+                case "hidden":
+                    feature.setHidden(parseBoolean(attrValue));
+                    break;
+                default:
+                    break;
+                }
+            }
+            int event;
+            while ((event = reader.nextTag()) == START_ELEMENT) {
+                String element = reader.getLocalName();
+                switch (element) {
+                case DETAILS:
+                    feature.setDetails(reader.getElementText());
+                    break;
+                case CONDITIONAL:
+                    feature.getConditional().add(parseConditional(reader));
+                    break;
+                case CAPABILITY:
+                    feature.getCapabilities().add(new Capability(reader.getElementText()));
+                    break;
+                case REQUIREMENT:
+                    feature.getRequirements().add(new Requirement(reader.getElementText()));
+                    break;
+                case LIBRARY:
+                    feature.getLibraries().add(parseLibrary(reader));
+                    break;
+                case SCOPING:
+                    feature.setScoping(parseScoping(reader));
+                    break;
+                default:
+                    parseContent(reader, feature, element);
+                    break;
+                }
+            }
+            // Sanity check
+            sanityCheckEndElement(reader, event, FEATURE);
+            return feature;
+        } catch (Exception e) {
+            Location loc = reader.getLocation();
+            if (loc != null) {
+                throw new IllegalStateException("Error while parsing feature at line " + loc.getLineNumber() + " and column " + loc.getColumnNumber(), e);
+            } else {
+                throw new IllegalStateException("Error while parsing feature", e);
+            }
+        }
+    }
+
+    private static Conditional parseConditional(XMLStreamReader reader) throws XMLStreamException {
+        Conditional conditional = new Conditional();
+        int event;
+        while ((event = reader.nextTag()) == START_ELEMENT) {
+            String element = reader.getLocalName();
+            if (CONDITION.equals(element)) {
+                conditional.getCondition().add(reader.getElementText());
+            } else {
+                parseContent(reader, conditional, element);
+            }
+        }
+        sanityCheckEndElement(reader, event, CONDITIONAL);
+        return conditional;
+    }
+
+    /**
+     * Parse the elements shared by features and conditionals.
+     */
+    private static void parseContent(XMLStreamReader reader, Content content, String element) throws XMLStreamException {
+        switch (element) {
+        case CONFIG: {
+            Config config = new Config();
+            for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++) {
+                String attrValue = reader.getAttributeValue(i);
+                switch (reader.getAttributeLocalName(i)) {
+                case "name":
+                    config.setName(attrValue);
+                    break;
+                case "append":
+                    config.setAppend(Boolean.TRUE.equals(parseBoolean(attrValue)));
+                    break;
+                case "external":
+                    config.setExternal(Boolean.TRUE.equals(parseBoolean(attrValue)));
+                    break;
+                default:
+                    break;
+                }
+            }
+            config.setValue(reader.getElementText());
+            content.getConfig().add(config);
+            break;
+        }
+        case CONFIGFILE: {
+            ConfigFile configFile = new ConfigFile();
+            for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++) {
+                String attrValue = reader.getAttributeValue(i);
+                switch (reader.getAttributeLocalName(i)) {
+                case "finalname":
+                    configFile.setFinalname(attrValue);
+                    break;
+                case "override":
+                    configFile.setOverride(parseBoolean(attrValue));
+                    break;
+                default:
+                    break;
+                }
+            }
+            configFile.setLocation(reader.getElementText());
+            content.getConfigfile().add(configFile);
+            break;
+        }
+        case FEATURE: {
+            Dependency dependency = new Dependency();
+            for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++) {
+                String attrValue = reader.getAttributeValue(i);
+                switch (reader.getAttributeLocalName(i)) {
+                case "version":
+                    dependency.setVersion(attrValue);
+                    break;
+                case "prerequisite":
+                    dependency.setPrerequisite(parseBoolean(attrValue));
+                    break;
+                case "dependency":
+                    dependency.setDependency(parseBoolean(attrValue));
+                    break;
+                default:
+                    break;
+                }
+            }
+            dependency.setName(reader.getElementText());
+            content.getFeature().add(dependency);
+            break;
+        }
+        case BUNDLE: {
+            Bundle bundle = new Bundle();
+            for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++) {
+                String attrValue = reader.getAttributeValue(i);
+                switch (reader.getAttributeLocalName(i)) {
+                case "start-level":
+                    bundle.setStartLevel(parseInt(attrValue));
+                    break;
+                case "start":
+                    bundle.setStart(parseBoolean(attrValue));
+                    break;
+                case "dependency":
+                    bundle.setDependency(parseBoolean(attrValue));
+                    break;
+                default:
+                    break;
+                }
+            }
+            bundle.setLocation(reader.getElementText());
+            content.getBundle().add(bundle);
+            break;
+        }
+        default:
+            skipElement(reader);
+            break;
+        }
+    }
+
+    private static Library parseLibrary(XMLStreamReader reader) throws XMLStreamException {
+        Library library = new Library();
+        for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++) {
+            String attrValue = reader.getAttributeValue(i);
+            switch (reader.getAttributeLocalName(i)) {
+            case "type":
+                library.setType(attrValue);
+                break;
+            case "export":
+                library.setExport(Boolean.TRUE.equals(parseBoolean(attrValue)));
+                break;
+            case "delegate":
+                library.setDelegate(Boolean.TRUE.equals(parseBoolean(attrValue)));
+                break;
+            default:
+                break;
+            }
+        }
+        library.setLocation(reader.getElementText());
+        return library;
+    }
+
+    private static Scoping parseScoping(XMLStreamReader reader) throws XMLStreamException {
+        Scoping scoping = new Scoping();
+        for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++) {
+            if ("acceptDependencies".equals(reader.getAttributeLocalName(i))) {
+                scoping.acceptDependencies = Boolean.TRUE.equals(parseBoolean(reader.getAttributeValue(i)));
+            }
+        }
+        int event;
+        while ((event = reader.nextTag()) == START_ELEMENT) {
+            String element = reader.getLocalName();
+            switch (element) {
+            case IMPORT:
+                scoping.getImport().add(parseScopeFilter(reader));
+                break;
+            case EXPORT:
+                scoping.getExport().add(parseScopeFilter(reader));
+                break;
+            default:
+                skipElement(reader);
+                break;
+            }
+        }
+        sanityCheckEndElement(reader, event, SCOPING);
+        return scoping;
+    }
+
+    private static ScopeFilter parseScopeFilter(XMLStreamReader reader) throws XMLStreamException {
+        ScopeFilter filter = new ScopeFilter();
+        for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++) {
+            if ("namespace".equals(reader.getAttributeLocalName(i))) {
+                filter.setNamespace(reader.getAttributeValue(i));
+            }
+        }
+        filter.setValue(reader.getElementText());
+        return filter;
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                depth++;
+            } else if (event == END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static void sanityCheckEndElement(XMLStreamReader reader, int event, String element) {
+        if (event != END_ELEMENT || !element.equals(reader.getLocalName())) {
+            throw new IllegalStateException("Unexpected state while finishing element " + element);
+        }
+    }
+
+    /**
+     * Lenient parsing of xs:int values, invalid values are ignored as JAXB does.
+     */
+    private static Integer parseInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lenient parsing of xs:boolean values, invalid values are ignored as JAXB does.
+     */
+    private static Boolean parseBoolean(String value) {
+        switch (value.trim()) {
+        case "true":
+        case "1":
+            return Boolean.TRUE;
+        case "false":
+        case "0":
+            return Boolean.FALSE;
+        default:
+            return null;
+        }
+    }
+
+    private static synchronized XMLInputFactory getInputFactory() {
+        if (FeaturesStaxParser.inputFactory == null) {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+            // Like the JAXB path, do not load any external entity or DTD
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            FeaturesStaxParser.inputFactory = factory;
+        }
+        return FeaturesStaxParser.inputFactory;
+    }
+
+}
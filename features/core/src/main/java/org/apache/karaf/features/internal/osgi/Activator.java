@@ -40,7 +40,10 @@ import org.apache.felix.utils.properties.Properties;
 import org.apache.karaf.features.FeaturesListener;
 import org.apache.karaf.features.FeaturesService;
 import org.apache.karaf.features.RegionDigraphPersistence;
+import org.apache.karaf.features.internal.download.impl.ArtifactCache;
 import org.apache.karaf.features.internal.management.FeaturesServiceMBeanImpl;
+import org.apache.karaf.features.internal.region.BundleMetadataIndex;
+import org.apache.karaf.features.internal.region.ResolutionSnapshot;
 import org.apache.karaf.features.internal.region.DigraphHelper;
 import org.apache.karaf.features.internal.repository.AggregateRepository;
 import org.apache.karaf.features.internal.repository.JsonRepository;
@@ -54,6 +57,7 @@ import org.apache.karaf.features.internal.service.FeaturesServiceConfig;
 import org.apache.karaf.features.internal.service.FeaturesServiceImpl;
 import org.apache.karaf.features.internal.service.BundleInstallSupport;
 import org.apache.karaf.features.internal.service.BundleInstallSupportImpl;
+import org.apache.karaf.features.internal.service.RepositorySnapshot;
 import org.apache.karaf.features.internal.service.StateStorage;
 import org.apache.karaf.util.ThreadUtils;
 import org.apache.karaf.util.tracker.BaseActivator;
@@ -96,11 +100,17 @@ public class Activator extends BaseActivator {
 
     private static final String STATE_FILE = "state.json";
 
+    private static final String BUNDLE_METADATA_INDEX_FILE = "bundle-metadata.json";
+
+
+    private static final String REPOSITORY_SNAPSHOT_FILE = "repositories.bin";
+
     private ServiceTracker<FeaturesListener, FeaturesListener> featuresListenerTracker;
     private FeaturesServiceImpl featuresService;
     private StandardManageableRegionDigraph digraphMBean;
     private BundleInstallSupport installSupport;
     private ExecutorService executorService;
+    private ExecutorService repositoryExecutor;
 
     public Activator() {
         // Special case here, as we don't want the activator to wait for current job to finish,
@@ -162,6 +172,24 @@ public class Activator extends BaseActivator {
         Repository globalRepository = getGlobalRepository();
         FeaturesServiceConfig cfg = getConfig();
         StateStorage stateStorage = createStateStorage();
+        BundleMetadataIndex bundleMetadataIndex = null;
+        if (getBoolean("bundleMetadataIndex", FeaturesService.DEFAULT_BUNDLE_METADATA_INDEX)) {
+            bundleMetadataIndex = new BundleMetadataIndex(bundleContext.getDataFile(BUNDLE_METADATA_INDEX_FILE));
+        }
+        ResolutionSnapshot resolutionSnapshot = null;
+        String resolutionSnapshotFile = getString("resolutionSnapshot", null);
+        if (resolutionSnapshotFile != null && !resolutionSnapshotFile.trim().isEmpty()) {
+            resolutionSnapshot = new ResolutionSnapshot(new File(resolutionSnapshotFile.trim()));
+        }
+        ArtifactCache artifactCache = null;
+        String downloadCacheDir = getString("downloadCache", null);
+        if (downloadCacheDir != null && !downloadCacheDir.trim().isEmpty()) {
+            artifactCache = new ArtifactCache(new File(downloadCacheDir.trim()));
+        }
+        RepositorySnapshot repositorySnapshot = null;
+        if (getBoolean("repositorySnapshot", FeaturesService.DEFAULT_REPOSITORY_SNAPSHOT)) {
+            repositorySnapshot = new RepositorySnapshot(bundleContext.getDataFile(REPOSITORY_SNAPSHOT_FILE));
+        }
         featuresService = new FeaturesServiceImpl(
                 stateStorage,
                 featureFinder,
@@ -169,7 +197,11 @@ public class Activator extends BaseActivator {
                 resolver,
                 installSupport,
                 globalRepository,
-                cfg);
+                cfg,
+                bundleMetadataIndex,
+                resolutionSnapshot,
+                artifactCache,
+                repositorySnapshot);
         try {
             EventAdminListener eventAdminListener = new EventAdminListener(bundleContext);
             featuresService.registerListener(eventAdminListener);
@@ -184,6 +216,9 @@ public class Activator extends BaseActivator {
         FeaturesServiceMBeanImpl featuresServiceMBean = new FeaturesServiceMBeanImpl();
         featuresServiceMBean.setBundleContext(bundleContext);
         featuresServiceMBean.setFeaturesService(featuresService);
+        featuresServiceMBean.setBundleMetadataIndex(bundleMetadataIndex);
+        featuresServiceMBean.setResolutionSnapshot(resolutionSnapshot);
+        featuresServiceMBean.setArtifactCache(artifactCache);
         registerMBean(featuresServiceMBean, "type=feature");
 
         String[] featuresRepositories = getStringArray("featuresRepositories", "");
@@ -203,10 +238,13 @@ public class Activator extends BaseActivator {
         for (String url : resourceRepositories) {
             url = url.trim();
             if (!url.isEmpty()) {
+                if (repositoryExecutor == null) {
+                    repositoryExecutor = Executors.newCachedThreadPool(ThreadUtils.namedThreadFactory("resource-repositories"));
+                }
                 if (url.startsWith("json:")) {
-                    repositories.add(new JsonRepository(url.substring("json:".length()), repositoryExpiration, repositoryIgnoreFailures));
+                    repositories.add(new JsonRepository(url.substring("json:".length()), repositoryExpiration, repositoryIgnoreFailures, repositoryExecutor));
                 } else if (url.startsWith("xml:")) {
-                    repositories.add(new XmlRepository(url.substring("xml:".length()), repositoryExpiration, repositoryIgnoreFailures));
+                    repositories.add(new XmlRepository(url.substring("xml:".length()), repositoryExpiration, repositoryIgnoreFailures, repositoryExecutor));
                 } else {
                     logger.warn("Unrecognized resource repository: " + url);
                 }
@@ -237,7 +275,9 @@ public class Activator extends BaseActivator {
             getLong("scheduleDelay", FeaturesService.DEFAULT_SCHEDULE_DELAY),
             getInt("scheduleMaxRun", FeaturesService.DEFAULT_SCHEDULE_MAX_RUN),
             getString("blacklisted", new File(System.getProperty("karaf.etc"), "blacklisted.properties").toURI().toString()),
-            getString("serviceRequirements", FeaturesService.SERVICE_REQUIREMENTS_DEFAULT));
+            getString("serviceRequirements", FeaturesService.SERVICE_REQUIREMENTS_DEFAULT),
+            getBoolean("parallelBundleStart", FeaturesService.DEFAULT_PARALLEL_BUNDLE_START),
+            getInt("bundleStartThreads", FeaturesService.DEFAULT_BUNDLE_START_THREADS));
     }
 
     private StateStorage createStateStorage() {
@@ -324,6 +364,10 @@ public class Activator extends BaseActivator {
             installSupport.unregister();
             installSupport.saveDigraph();
         }
+        if (repositoryExecutor != null) {
+            repositoryExecutor.shutdownNow();
+            repositoryExecutor = null;
+        }
     }
 
 }
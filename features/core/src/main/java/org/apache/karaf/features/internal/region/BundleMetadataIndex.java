@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.region;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.felix.utils.version.VersionRange;
+import org.apache.felix.utils.version.VersionTable;
+import org.apache.karaf.features.internal.download.StreamProvider;
+import org.apache.karaf.features.internal.resolver.CapabilityImpl;
+import org.apache.karaf.features.internal.resolver.RequirementImpl;
+import org.apache.karaf.features.internal.resolver.ResourceImpl;
+import org.apache.karaf.features.internal.resolver.SimpleFilter;
+import org.apache.karaf.features.internal.util.StringArrayMap;
+import org.apache.karaf.util.json.JsonReader;
+import org.apache.karaf.util.json.JsonWriter;
+import org.osgi.framework.Version;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the capabilities and requirements computed from bundle manifests.
+ *
+ * Entries are keyed by the bundle location and validated against the size and
+ * last modification time of the downloaded file, so that unchanged bundles do not
+ * have their manifest read and parsed again on each resolution.
+ * The index is kept in memory and can be persisted to a file.
+ */
+public class BundleMetadataIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BundleMetadataIndex.class);
+
+    private static final int FORMAT_VERSION = 1;
+
+    @FunctionalInterface
+    public interface ResourceFactory {
+        ResourceImpl create() throws Exception;
+    }
+
+    private final File file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile boolean loaded;
+    private volatile boolean dirty;
+
+    /**
+     * @param file the file used to persist the index, or <code>null</code> for an in-memory only index
+     */
+    public BundleMetadataIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Retrieve the resource for the given bundle, either from the index or
+     * by using the given factory if the bundle is unknown or has changed.
+     *
+     * @param uri the bundle location
+     * @param provider the downloaded bundle
+     * @param removeServiceRequirements whether service requirements are removed from the resource
+     * @param factory the factory used to build the resource from the bundle manifest
+     * @return a new resource
+     * @throws Exception if the resource can not be built
+     */
+    public ResourceImpl getResource(String uri, StreamProvider provider, boolean removeServiceRequirements, ResourceFactory factory) throws Exception {
+        String stamp = getStamp(provider);
+        if (stamp == null) {
+            return factory.create();
+        }
+        load();
+        String key = uri + "#" + removeServiceRequirements;
+        Entry entry = entries.get(key);
+        if (entry != null && entry.stamp.equals(stamp)) {
+            hits.incrementAndGet();
+            return entry.toResource();
+        }
+        misses.incrementAndGet();
+        ResourceImpl resource = factory.create();
+        try {
+            entries.put(key, new Entry(stamp, resource));
+            dirty = true;
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Unable to index metadata for bundle " + uri, e);
+        }
+        return resource;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int getSize() {
+        load();
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        dirty = true;
+        save();
+    }
+
+    /**
+     * Persist the index if it has been modified since it has been loaded or saved.
+     */
+    public synchronized void save() {
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        Map<String, Object> json = new HashMap<>();
+        json.put("version", (long) FORMAT_VERSION);
+        Map<String, Object> jsonEntries = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            jsonEntries.put(entry.getKey(), entry.getValue().toJson());
+        }
+        json.put("entries", jsonEntries);
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (OutputStream os = new FileOutputStream(tmp)) {
+                JsonWriter.write(os, json);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Error saving bundle metadata index to " + file, e);
+        }
+    }
+
+    private void load() {
+        if (!loaded) {
+            doLoad();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void doLoad() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (file == null || !file.isFile()) {
+            return;
+        }
+        try (InputStream is = new FileInputStream(file)) {
+            Map<String, Object> json = (Map<String, Object>) JsonReader.read(is);
+            Object version = json.get("version");
+            if (!(version instanceof Number) || ((Number) version).intValue() != FORMAT_VERSION) {
+                LOGGER.debug("Ignoring bundle metadata index {} with unsupported version {}", file, version);
+                return;
+            }
+            Map<String, Object> jsonEntries = (Map<String, Object>) json.get("entries");
+            for (Map.Entry<String, Object> entry : jsonEntries.entrySet()) {
+                entries.put(entry.getKey(), Entry.fromJson((Map<String, Object>) entry.getValue()));
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Error loading bundle metadata index from " + file + ", it will be rebuilt", e);
+            entries.clear();
+        }
+    }
+
+    private static String getStamp(StreamProvider provider) {
+        try {
+            File f = provider.getFile();
+            if (f != null && f.isFile()) {
+                return f.length() + ":" + f.lastModified();
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            // Ignore, the bundle can not be indexed
+        }
+        return null;
+    }
+
+    static class Entry {
+        final String stamp;
+        final List<Clause> capabilities;
+        final List<Clause> requirements;
+
+        Entry(String stamp, List<Clause> capabilities, List<Clause> requirements) {
+            this.stamp = stamp;
+            this.capabilities = capabilities;
+            this.requirements = requirements;
+        }
+
+        Entry(String stamp, ResourceImpl resource) {
+            this.stamp = stamp;
+            this.capabilities = new ArrayList<>();
+            this.requirements = new ArrayList<>();
+            for (Capability cap : resource.getCapabilities(null)) {
+                capabilities.add(new Clause(cap.getNamespace(), cap.getDirectives(), cap.getAttributes(), null));
+            }
+            for (Requirement req : resource.getRequirements(null)) {
+                SimpleFilter sf;
+                if (req instanceof RequirementImpl) {
+                    sf = ((RequirementImpl) req).getFilter();
+                } else {
+                    sf = SimpleFilter.convert(req.getAttributes());
+                }
+                requirements.add(new Clause(req.getNamespace(), req.getDirectives(), req.getAttributes(), sf));
+            }
+            // Make sure the entry can be persisted
+            toJson();
+        }
+
+        ResourceImpl toResource() {
+            ResourceImpl res = new ResourceImpl();
+            for (Clause cap : capabilities) {
+                res.addCapability(new CapabilityImpl(res, cap.namespace,
+                        new StringArrayMap<>(cap.directives), new StringArrayMap<>(cap.attributes)));
+            }
+            for (Clause req : requirements) {
+                res.addRequirement(new RequirementImpl(res, req.namespace,
+                        new StringArrayMap<>(req.directives), new StringArrayMap<>(req.attributes), req.filter));
+            }
+            return res;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new HashMap<>();
+            json.put("stamp", stamp);
+            json.put("capabilities", Clause.toJson(capabilities));
+            json.put("requirements", Clause.toJson(requirements));
+            return json;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Entry fromJson(Map<String, Object> json) {
+            return new Entry((String) json.get("stamp"),
+                    Clause.fromJson((List<Object>) json.get("capabilities")),
+                    Clause.fromJson((List<Object>) json.get("requirements")));
+        }
+    }
+
+    static class Clause {
+        final String namespace;
+        final Map<String, String> directives;
+        final Map<String, Object> attributes;
+        final SimpleFilter filter;
+
+        Clause(String namespace, Map<String, String> directives, Map<String, Object> attributes, SimpleFilter filter) {
+            this.namespace = namespace;
+            this.directives = new StringArrayMap<>(directives);
+            this.attributes = new StringArrayMap<>(attributes);
+            this.filter = filter;
+        }
+
+        static List<Object> toJson(List<Clause> clauses) {
+            List<Object> json = new ArrayList<>();
+            for (Clause clause : clauses) {
+                Map<String, Object> obj = new HashMap<>();
+                obj.put("namespace", clause.namespace);
+                obj.put("directives", clause.directives);
+                Map<String, Object> attrs = new HashMap<>();
+                for (Map.Entry<String, Object> attr : clause.attributes.entrySet()) {
+                    attrs.put(attr.getKey(), encode(attr.getValue()));
+                }
+                obj.put("attributes", attrs);
+                if (clause.filter != null) {
+                    obj.put("filter", clause.filter.toString());
+                }
+                json.add(obj);
+            }
+            return json;
+        }
+
+        @SuppressWarnings("unchecked")
+        static List<Clause> fromJson(List<Object> json) {
+            List<Clause> clauses = new ArrayList<>();
+            for (Object o : json) {
+                Map<String, Object> obj = (Map<String, Object>) o;
+                Map<String, Object> attrs = new HashMap<>();
+                for (Map.Entry<String, Object> attr : ((Map<String, Object>) obj.get("attributes")).entrySet()) {
+                    attrs.put(attr.getKey(), decode((List<Object>) attr.getValue()));
+                }
+                String filter = (String) obj.get("filter");
+                clauses.add(new Clause((String) obj.get("namespace"),
+                        (Map<String, String>) obj.get("directives"),
+                        attrs,
+                        filter != null ? SimpleFilter.parse(filter) : null));
+            }
+            return clauses;
+        }
+
+        private static List<Object> encode(Object value) {
+            List<Object> json = new ArrayList<>(2);
+            if (value instanceof Collection) {
+                String type = null;
+                List<String> values = new ArrayList<>();
+                for (Object o : (Collection<?>) value) {
+                    String t = getType(o);
+                    if (type != null && !type.equals(t)) {
+                        throw new IllegalArgumentException("Inconsistent list type: " + value);
+                    }
+                    type = t;
+                    values.add(o.toString());
+                }
+                json.add("List<" + (type != null ? type : "String") + ">");
+                json.add(values);
+            } else {
+                json.add(getType(value));
+                json.add(value.toString());
+            }
+            return json;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Object decode(List<Object> json) {
+            String type = (String) json.get(0);
+            if (type.startsWith("List<")) {
+                String scalar = type.substring("List<".length(), type.length() - 1);
+                List<Object> values = new ArrayList<>();
+                for (String s : (List<String>) json.get(1)) {
+                    values.add(decode(scalar, s));
+                }
+                return values;
+            }
+            return decode(type, (String) json.get(1));
+        }
+
+        private static Object decode(String type, String value) {
+            switch (type) {
+            case "String":
+                return value;
+            case "Version":
+                return VersionTable.getVersion(value);
+            case "VersionRange":
+                return VersionRange.parseVersionRange(value);
+            case "Long":
+                return Long.parseLong(value);
+            case "Double":
+                return Double.parseDouble(value);
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + type);
+            }
+        }
+
+        private static String getType(Object value) {
+            if (value instanceof String) {
+                return "String";
+            } else if (value instanceof Version) {
+                return "Version";
+            } else if (value instanceof VersionRange) {
+                return "VersionRange";
+            } else if (value instanceof Long) {
+                return "Long";
+            } else if (value instanceof Double) {
+                return "Double";
+            } else {
+                throw new IllegalArgumentException("Unsupported value: " + value);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,448 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.region;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.karaf.features.internal.resolver.BaseClause;
+import org.apache.karaf.util.json.JsonReader;
+import org.apache.karaf.util.json.JsonWriter;
+import org.eclipse.equinox.region.Region;
+import org.eclipse.equinox.region.RegionDigraph;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+import org.osgi.resource.Wire;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.osgi.framework.namespace.IdentityNamespace.IDENTITY_NAMESPACE;
+
+/**
+ * Snapshot of the wirings computed by the resolver.
+ *
+ * Wirings are keyed by a digest of the resolution inputs: the capabilities and requirements
+ * of all the resources, the subsystem each of them belongs to, the region digraph and the
+ * service requirements mode. When the same inputs are resolved again, for example when a
+ * container is started from the same image with the same boot features, the wiring is rebuilt
+ * from the snapshot instead of running the resolver.
+ * Only the entries used since the snapshot has been loaded are persisted, so that entries for
+ * outdated configurations are discarded.
+ */
+public class ResolutionSnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolutionSnapshot.class);
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final File file;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Set<String> used = new HashSet<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private boolean loaded;
+    private boolean dirty;
+
+    /**
+     * @param file the file used to persist the snapshot, or <code>null</code> for an in-memory only snapshot
+     */
+    public ResolutionSnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Compute the key identifying a resolution.
+     *
+     * @param resources the resources of the resolution, associated with the name of their subsystem
+     * @param digraph the region digraph used for the resolution
+     * @param serviceRequirements the service requirements mode
+     * @return the key, or <code>null</code> if the resolution can not be snapshotted
+     */
+    public String getKey(Map<Resource, String> resources, RegionDigraph digraph, String serviceRequirements) {
+        Map<String, String> ids = new TreeMap<>();
+        for (Map.Entry<Resource, String> entry : resources.entrySet()) {
+            String id = getId(entry.getKey(), entry.getValue());
+            if (id == null || ids.put(id, fingerprint(entry.getKey())) != null) {
+                return null;
+            }
+        }
+        MessageDigest md = createDigest();
+        update(md, "serviceRequirements", String.valueOf(serviceRequirements));
+        for (Map.Entry<String, String> entry : ids.entrySet()) {
+            update(md, entry.getKey(), entry.getValue());
+        }
+        Set<String> regions = new TreeSet<>();
+        for (Region region : digraph.getRegions()) {
+            regions.add(region.getName());
+        }
+        for (String name : regions) {
+            Map<String, String> edges = new TreeMap<>();
+            for (RegionDigraph.FilteredRegion edge : digraph.getEdges(digraph.getRegion(name))) {
+                Map<String, Set<String>> policy = new TreeMap<>();
+                for (Map.Entry<String, Collection<String>> entry : edge.getFilter().getSharingPolicy().entrySet()) {
+                    policy.put(entry.getKey(), new TreeSet<>(entry.getValue()));
+                }
+                edges.put(edge.getRegion().getName(), policy.toString());
+            }
+            update(md, name, edges.toString());
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * Retrieve the wiring stored for the given key.
+     *
+     * @param key the resolution key
+     * @param resources the resources of the resolution, associated with the name of their subsystem
+     * @return a new mutable wiring, or <code>null</code> if no matching wiring has been stored
+     */
+    public synchronized Map<Resource, List<Wire>> getWiring(String key, Map<Resource, String> resources) {
+        load();
+        Entry entry = entries.get(key);
+        Map<Resource, List<Wire>> wiring = entry != null ? entry.toWiring(resources) : null;
+        if (wiring != null) {
+            used.add(key);
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return wiring;
+    }
+
+    /**
+     * Store the wiring computed by the resolver for the given key.
+     * The wiring is ignored if it references capabilities or requirements which
+     * can not be found on their resources.
+     *
+     * @param key the resolution key
+     * @param resources the resources of the resolution, associated with the name of their subsystem
+     * @param wiring the wiring computed by the resolver
+     */
+    public synchronized void putWiring(String key, Map<Resource, String> resources, Map<Resource, List<Wire>> wiring) {
+        load();
+        Entry entry = Entry.fromWiring(resources, wiring);
+        if (entry != null) {
+            entries.put(key, entry);
+            used.add(key);
+            dirty = true;
+        } else {
+            LOGGER.debug("Unable to snapshot resolution {}", key);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int getSize() {
+        load();
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        load();
+        entries.clear();
+        used.clear();
+        dirty = true;
+        save();
+    }
+
+    /**
+     * Persist the entries used since the snapshot has been loaded, if it has been modified.
+     */
+    public synchronized void save() {
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        entries.keySet().retainAll(used);
+        Map<String, Object> json = new HashMap<>();
+        json.put("version", (long) FORMAT_VERSION);
+        Map<String, Object> jsonEntries = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            jsonEntries.put(entry.getKey(), entry.getValue().toJson());
+        }
+        json.put("entries", jsonEntries);
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+            try (OutputStream os = new FileOutputStream(tmp)) {
+                JsonWriter.write(os, json);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Error saving resolution snapshot to " + file, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (file == null || !file.isFile()) {
+            return;
+        }
+        try (InputStream is = new FileInputStream(file)) {
+            Map<String, Object> json = (Map<String, Object>) JsonReader.read(is);
+            Object version = json.get("version");
+            if (!(version instanceof Number) || ((Number) version).intValue() != FORMAT_VERSION) {
+                LOGGER.debug("Ignoring resolution snapshot {} with unsupported version {}", file, version);
+                return;
+            }
+            Map<String, Object> jsonEntries = (Map<String, Object>) json.get("entries");
+            for (Map.Entry<String, Object> entry : jsonEntries.entrySet()) {
+                entries.put(entry.getKey(), Entry.fromJson((Map<String, Object>) entry.getValue()));
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Error loading resolution snapshot from " + file + ", it will be rebuilt", e);
+            entries.clear();
+        }
+    }
+
+    static String getId(Resource resource, String subsystem) {
+        List<Capability> identities = resource.getCapabilities(IDENTITY_NAMESPACE);
+        if (identities == null || identities.isEmpty()) {
+            return null;
+        }
+        return subsystem + "|" + toString(identities.get(0));
+    }
+
+    private static String fingerprint(Resource resource) {
+        MessageDigest md = createDigest();
+        for (Capability cap : resource.getCapabilities(null)) {
+            update(md, "c", toString(cap));
+        }
+        for (Requirement req : resource.getRequirements(null)) {
+            update(md, "r", BaseClause.toString(null, req.getNamespace(), req.getAttributes(), req.getDirectives()));
+        }
+        return toHex(md.digest());
+    }
+
+    private static String toString(Capability cap) {
+        return BaseClause.toString(null, cap.getNamespace(), cap.getAttributes(), cap.getDirectives());
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest md, String name, String value) {
+        md.update(name.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+        md.update(value.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A stored wiring. Resources are referenced by their index in the list of resource ids,
+     * and capabilities and requirements by their declaring resource and their index in it.
+     */
+    static class Entry {
+        final List<String> resources;
+        final Map<Integer, List<int[]>> wires;
+
+        Entry(List<String> resources, Map<Integer, List<int[]>> wires) {
+            this.resources = resources;
+            this.wires = wires;
+        }
+
+        static Entry fromWiring(Map<Resource, String> resources, Map<Resource, List<Wire>> wiring) {
+            List<String> ids = new ArrayList<>();
+            Map<Resource, Integer> indexes = new HashMap<>();
+            for (Map.Entry<Resource, String> entry : resources.entrySet()) {
+                indexes.put(entry.getKey(), ids.size());
+                ids.add(getId(entry.getKey(), entry.getValue()));
+            }
+            Map<Integer, List<int[]>> wires = new HashMap<>();
+            for (Map.Entry<Resource, List<Wire>> entry : wiring.entrySet()) {
+                Integer requirer = indexes.get(entry.getKey());
+                if (requirer == null) {
+                    return null;
+                }
+                List<int[]> list = new ArrayList<>();
+                for (Wire wire : entry.getValue()) {
+                    Integer reqRes = indexes.get(wire.getRequirement().getResource());
+                    Integer capRes = indexes.get(wire.getCapability().getResource());
+                    Integer provider = indexes.get(wire.getProvider());
+                    if (reqRes == null || capRes == null || provider == null
+                            || wire.getRequirer() != entry.getKey()) {
+                        return null;
+                    }
+                    int req = wire.getRequirement().getResource().getRequirements(null).indexOf(wire.getRequirement());
+                    int cap = wire.getCapability().getResource().getCapabilities(null).indexOf(wire.getCapability());
+                    if (req < 0 || cap < 0) {
+                        return null;
+                    }
+                    list.add(new int[] {reqRes, req, provider, capRes, cap});
+                }
+                wires.put(requirer, list);
+            }
+            return new Entry(ids, wires);
+        }
+
+        Map<Resource, List<Wire>> toWiring(Map<Resource, String> resources) {
+            Map<String, Resource> byId = new HashMap<>();
+            for (Map.Entry<Resource, String> entry : resources.entrySet()) {
+                byId.put(getId(entry.getKey(), entry.getValue()), entry.getKey());
+            }
+            Resource[] mapped = new Resource[this.resources.size()];
+            for (int i = 0; i < mapped.length; i++) {
+                mapped[i] = byId.get(this.resources.get(i));
+            }
+            Map<Resource, List<Wire>> wiring = new HashMap<>();
+            try {
+                for (Map.Entry<Integer, List<int[]>> entry : wires.entrySet()) {
+                    Resource requirer = mapped[entry.getKey()];
+                    List<Wire> list = new ArrayList<>();
+                    for (int[] w : entry.getValue()) {
+                        Requirement req = mapped[w[0]].getRequirements(null).get(w[1]);
+                        Resource provider = mapped[w[2]];
+                        Capability cap = mapped[w[3]].getCapabilities(null).get(w[4]);
+                        if (requirer == null || provider == null) {
+                            return null;
+                        }
+                        list.add(new SnapshotWire(cap, req, provider, requirer));
+                    }
+                    wiring.put(requirer, list);
+                }
+            } catch (NullPointerException | IndexOutOfBoundsException e) {
+                // The resources do not match the stored ones
+                return null;
+            }
+            return wiring;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new HashMap<>();
+            json.put("resources", resources);
+            Map<String, Object> jsonWires = new HashMap<>();
+            for (Map.Entry<Integer, List<int[]>> entry : wires.entrySet()) {
+                List<Object> list = new ArrayList<>();
+                for (int[] w : entry.getValue()) {
+                    List<Object> wire = new ArrayList<>();
+                    for (int i : w) {
+                        wire.add((long) i);
+                    }
+                    list.add(wire);
+                }
+                jsonWires.put(Integer.toString(entry.getKey()), list);
+            }
+            json.put("wires", jsonWires);
+            return json;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Entry fromJson(Map<String, Object> json) {
+            List<String> resources = new ArrayList<>((List<String>) json.get("resources"));
+            Map<Integer, List<int[]>> wires = new HashMap<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) json.get("wires")).entrySet()) {
+                List<int[]> list = new ArrayList<>();
+                for (Object o : (List<Object>) entry.getValue()) {
+                    List<Object> wire = (List<Object>) o;
+                    int[] w = new int[wire.size()];
+                    for (int i = 0; i < w.length; i++) {
+                        w[i] = ((Number) wire.get(i)).intValue();
+                    }
+                    list.add(w);
+                }
+                wires.put(Integer.parseInt(entry.getKey()), list);
+            }
+            return new Entry(resources, wires);
+        }
+    }
+
+    static class SnapshotWire implements Wire {
+        private final Capability capability;
+        private final Requirement requirement;
+        private final Resource provider;
+        private final Resource requirer;
+
+        SnapshotWire(Capability capability, Requirement requirement, Resource provider, Resource requirer) {
+            this.capability = capability;
+            this.requirement = requirement;
+            this.provider = provider;
+            this.requirer = requirer;
+        }
+
+        @Override
+        public Capability getCapability() {
+            return capability;
+        }
+
+        @Override
+        public Requirement getRequirement() {
+            return requirement;
+        }
+
+        @Override
+        public Resource getProvider() {
+            return provider;
+        }
+
+        @Override
+        public Resource getRequirer() {
+            return requirer;
+        }
+
+        @Override
+        public String toString() {
+            return requirement + " -> " + capability;
+        }
+    }
+
+}
@@ -361,14 +361,23 @@ public class Subsystem extends ResourceImpl {
         }
     }
 
-    @SuppressWarnings("InfiniteLoopStatement")
     public void downloadBundles(DownloadManager manager,
                                 Set<String> overrides,
                                 String featureResolutionRange,
                                 final String serviceRequirements,
                                 RepositoryManager repos) throws Exception {
+        downloadBundles(manager, overrides, featureResolutionRange, serviceRequirements, repos, null);
+    }
+
+    @SuppressWarnings("InfiniteLoopStatement")
+    public void downloadBundles(DownloadManager manager,
+                                Set<String> overrides,
+                                String featureResolutionRange,
+                                final String serviceRequirements,
+                                RepositoryManager repos,
+                                BundleMetadataIndex index) throws Exception {
         for (Subsystem child : children) {
-            child.downloadBundles(manager, overrides, featureResolutionRange, serviceRequirements, repos);
+            child.downloadBundles(manager, overrides, featureResolutionRange, serviceRequirements, repos, index);
         }
         final Map<String, ResourceImpl> bundles = new ConcurrentHashMap<>();
         final Downloader downloader = manager.createDownloader();
@@ -398,19 +407,19 @@ public class Subsystem extends ResourceImpl {
             final BundleInfo bi = entry.getKey();
             final String loc = bi.getLocation();
             downloader.download(loc, provider -> {
-                bundles.put(loc, createResource(loc, getMetadata(provider), removeServiceRequirements));
+                bundles.put(loc, createResource(index, loc, provider, removeServiceRequirements));
             });
         }
         for (Clause bundle : Parser.parseClauses(this.bundles.toArray(new String[this.bundles.size()]))) {
             final String loc = bundle.getName();
             downloader.download(loc, provider -> {
-                bundles.put(loc, createResource(loc, getMetadata(provider), removeServiceRequirements));
+                bundles.put(loc, createResource(index, loc, provider, removeServiceRequirements));
             });
         }
         for (String override : overrides) {
             final String loc = Overrides.extractUrl(override);
             downloader.download(loc, provider -> {
-                bundles.put(loc, createResource(loc, getMetadata(provider), removeServiceRequirements));
+                bundles.put(loc, createResource(index, loc, provider, removeServiceRequirements));
             });
         }
         if (feature != null) {
@@ -418,7 +427,7 @@ public class Subsystem extends ResourceImpl {
                 if (library.isExport()) {
                     final String loc = library.getLocation();
                     downloader.download(loc, provider -> {
-                        bundles.put(loc, createResource(loc, getMetadata(provider), removeServiceRequirements));
+                        bundles.put(loc, createResource(index, loc, provider, removeServiceRequirements));
                     });
                 }
             }
@@ -636,6 +645,14 @@ public class Subsystem extends ResourceImpl {
         return policy;
     }
 
+    ResourceImpl createResource(BundleMetadataIndex index, String uri, StreamProvider provider, boolean removeServiceRequirements) throws Exception {
+        if (index != null) {
+            return index.getResource(uri, provider, removeServiceRequirements,
+                    () -> createResource(uri, getMetadata(provider), removeServiceRequirements));
+        }
+        return createResource(uri, getMetadata(provider), removeServiceRequirements);
+    }
+
     ResourceImpl createResource(String uri, Map<String, String> headers, boolean removeServiceRequirements) throws Exception {
         try {
             return ResourceBuilder.build(uri, headers, removeServiceRequirements);
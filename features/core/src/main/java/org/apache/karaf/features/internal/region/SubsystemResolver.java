@@ -72,6 +72,8 @@ public class SubsystemResolver {
 
     private DownloadManager manager;
     private Resolver resolver;
+    private BundleMetadataIndex index;
+    private ResolutionSnapshot snapshot;
     private RegionDigraph digraph;
     private Subsystem root;
     private Map<Resource, List<Wire>> wiring;
@@ -87,8 +89,18 @@ public class SubsystemResolver {
     private Map<String, Map<String, BundleInfo>> bundleInfos;
 
     public SubsystemResolver(Resolver resolver, DownloadManager manager) {
+        this(resolver, manager, null);
+    }
+
+    public SubsystemResolver(Resolver resolver, DownloadManager manager, BundleMetadataIndex index) {
         this.resolver = resolver;
         this.manager = manager;
+        this.index = index;
+    }
+
+    public SubsystemResolver(Resolver resolver, DownloadManager manager, BundleMetadataIndex index, ResolutionSnapshot snapshot) {
+        this(resolver, manager, index);
+        this.snapshot = snapshot;
     }
 
     public void prepare(
@@ -184,12 +196,31 @@ public class SubsystemResolver {
 
         // Download bundles
         RepositoryManager repos = new RepositoryManager();
-        root.downloadBundles(manager, overrides, featureResolutionRange, serviceRequirements, repos);
+        root.downloadBundles(manager, overrides, featureResolutionRange, serviceRequirements, repos, index);
+        if (index != null) {
+            index.save();
+        }
 
         // Populate digraph and resolve
         digraph = new StandardRegionDigraph(null, null);
         populateDigraph(digraph, root);
 
+        // Reuse the wiring of a previous identical resolution if possible
+        Map<Resource, String> snapshotResources = null;
+        String snapshotKey = null;
+        if (snapshot != null && globalRepository == null && outputFile == null) {
+            snapshotResources = new HashMap<>();
+            collectResources(root, snapshotResources);
+            snapshotKey = snapshot.getKey(snapshotResources, digraph, serviceRequirements);
+            if (snapshotKey != null) {
+                wiring = snapshot.getWiring(snapshotKey, snapshotResources);
+                if (wiring != null) {
+                    LOGGER.debug("Using resolution snapshot {}", snapshotKey);
+                    return postProcessWiring();
+                }
+            }
+        }
+
         Downloader downloader = manager.createDownloader();
         SubsystemResolveContext context = new SubsystemResolveContext(root, digraph, globalRepository, downloader, serviceRequirements);
         if (outputFile != null) {
@@ -219,6 +250,14 @@ public class SubsystemResolver {
         }
         downloader.await();
 
+        if (snapshotKey != null) {
+            snapshot.putWiring(snapshotKey, snapshotResources, wiring);
+            snapshot.save();
+        }
+        return postProcessWiring();
+    }
+
+    private Map<Resource, List<Wire>> postProcessWiring() {
         // Remove wiring to the fake environment resource
         if (environmentResource != null) {
             for (List<Wire> wires : wiring.values()) {
@@ -232,6 +271,16 @@ public class SubsystemResolver {
         return wiring;
     }
 
+    private static void collectResources(Subsystem subsystem, Map<Resource, String> resources) {
+        resources.put(subsystem, subsystem.getName());
+        for (Resource res : subsystem.getInstallable()) {
+            resources.put(res, subsystem.getName());
+        }
+        for (Subsystem child : subsystem.getChildren()) {
+            collectResources(child, resources);
+        }
+    }
+
     private static Object toJson(Map<Resource, List<Wire>> wiring) {
         Map<String, List<Map<String, Object>>> wires = new HashMap<>();
         for (Map.Entry<Resource, List<Wire>> reswiring : wiring.entrySet()) {
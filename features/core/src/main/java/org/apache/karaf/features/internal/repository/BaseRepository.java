@@ -17,6 +17,7 @@
 package org.apache.karaf.features.internal.repository;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -27,6 +28,11 @@ import org.apache.karaf.features.internal.resolver.CapabilitySet;
 import org.apache.karaf.features.internal.resolver.RequirementImpl;
 import org.apache.karaf.features.internal.resolver.SimpleFilter;
 import org.osgi.framework.Constants;
+import org.osgi.framework.namespace.BundleNamespace;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.namespace.IdentityNamespace;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.namespace.service.ServiceNamespace;
 import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
@@ -57,11 +63,37 @@ public class BaseRepository implements Repository {
     protected void addResource(Resource resource) {
         for (Capability cap : resource.getCapabilities(null)) {
             String ns = cap.getNamespace();
-            capSets.computeIfAbsent(ns, n -> new CapabilitySet(Collections.singletonList(n))).addCapability(cap);
+            capSets.computeIfAbsent(ns, this::createCapabilitySet).addCapability(cap);
         }
         resources.add(resource);
     }
 
+    /**
+     * Create the capability set for the given namespace, indexing the attributes
+     * used by the requirements filters of the well known namespaces.
+     */
+    protected CapabilitySet createCapabilitySet(String namespace) {
+        switch (namespace) {
+        case PackageNamespace.PACKAGE_NAMESPACE:
+            return new CapabilitySet(
+                    Arrays.asList(namespace, PackageNamespace.CAPABILITY_BUNDLE_SYMBOLICNAME_ATTRIBUTE),
+                    Arrays.asList(PackageNamespace.CAPABILITY_VERSION_ATTRIBUTE, PackageNamespace.CAPABILITY_BUNDLE_VERSION_ATTRIBUTE));
+        case BundleNamespace.BUNDLE_NAMESPACE:
+        case HostNamespace.HOST_NAMESPACE:
+            return new CapabilitySet(
+                    Collections.singletonList(namespace),
+                    Collections.singletonList(Constants.BUNDLE_VERSION_ATTRIBUTE));
+        case IdentityNamespace.IDENTITY_NAMESPACE:
+            return new CapabilitySet(
+                    Arrays.asList(namespace, IdentityNamespace.CAPABILITY_TYPE_ATTRIBUTE),
+                    Collections.singletonList(IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE));
+        case ServiceNamespace.SERVICE_NAMESPACE:
+            return new CapabilitySet(Collections.singletonList(Constants.OBJECTCLASS));
+        default:
+            return new CapabilitySet(Collections.singletonList(namespace));
+        }
+    }
+
     public List<Resource> getResources() {
         return resources;
     }
@@ -18,16 +18,11 @@ package org.apache.karaf.features.internal.repository;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collection;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.Executor;
 
 import org.apache.karaf.features.internal.resolver.ResourceBuilder;
 import org.apache.karaf.util.json.JsonReader;
-import org.osgi.resource.Capability;
-import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,76 +33,54 @@ import org.slf4j.LoggerFactory;
  * value is a map of resource headers.
  * The content of the URL can be gzipped.
  */
-public class JsonRepository extends BaseRepository {
+public class JsonRepository extends RefreshableRepository {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JsonRepository.class);
 
-    private final boolean ignoreFailures;
     private final UrlLoader loader;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private BaseRepository loaded;
 
     public JsonRepository(String url, long expiration, boolean ignoreFailures) {
+        this(url, expiration, ignoreFailures, null);
+    }
+
+    public JsonRepository(String url, long expiration, boolean ignoreFailures, Executor executor) {
+        super(expiration, ignoreFailures, executor);
         loader = new UrlLoader(url, expiration) {
             @Override
             protected boolean doRead(InputStream is) throws IOException {
                 return JsonRepository.this.doRead(is);
             }
         };
-        this.ignoreFailures = ignoreFailures;
     }
 
     @Override
-    public List<Resource> getResources() {
-        checkAndLoadCache();
-        lock.readLock().lock();
-        try {
-            return super.getResources();
-        } finally {
-            lock.readLock().unlock();
-        }
+    protected boolean isExpired() {
+        return loader.isExpired();
     }
 
     @Override
-    public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> requirements) {
-        checkAndLoadCache();
-        lock.readLock().lock();
-        try {
-            return super.findProviders(requirements);
-        } finally {
-            lock.readLock().unlock();
-        }
-    }
-
-    private void checkAndLoadCache() {
-        try {
-            loader.checkAndLoadCache();
-        } catch (Exception e) {
-            if (ignoreFailures) {
-                logger.warn("Ignoring failure: " + e.getMessage(), e);
-            } else {
-                throw e;
-            }
-        }
+    protected BaseRepository load() {
+        loaded = null;
+        loader.checkAndLoadCache();
+        BaseRepository index = loaded;
+        loaded = null;
+        return index;
     }
 
     protected boolean doRead(InputStream is) throws IOException {
         Map<String, Map<String, String>> metadatas = verify(JsonReader.read(is));
-        lock.writeLock().lock();
-        try {
-            resources.clear();
-            capSets.clear();
-            for (Map.Entry<String, Map<String, String>> metadata : metadatas.entrySet()) {
-                try {
-                    Resource resource = ResourceBuilder.build(metadata.getKey(), metadata.getValue());
-                    addResource(resource);
-                } catch (Exception e) {
-                    LOGGER.info("Unable to build resource for " + metadata.getKey(), e);
-                }
+        BaseRepository index = new BaseRepository();
+        for (Map.Entry<String, Map<String, String>> metadata : metadatas.entrySet()) {
+            try {
+                Resource resource = ResourceBuilder.build(metadata.getKey(), metadata.getValue());
+                index.addResource(resource);
+            } catch (Exception e) {
+                LOGGER.info("Unable to build resource for " + metadata.getKey(), e);
             }
-            return true;
-        } finally {
-            lock.writeLock().unlock();
         }
+        loaded = index;
+        return true;
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+
+/**
+ * Repository whose content is loaded from urls and cached for a given expiration.
+ *
+ * The resources are indexed in a separate {@link BaseRepository} which is replaced
+ * atomically when the content changes, so that lookups never wait on I/O once the
+ * repository has been loaded: when the content has expired, the current index keeps
+ * being used while the content is revalidated in the background by the given executor,
+ * which is owned by the caller.  Without executor, expired content is revalidated
+ * synchronously.  With an expiration of <code>0</code>, the content is revalidated
+ * synchronously on each lookup.
+ */
+public abstract class RefreshableRepository extends BaseRepository {
+
+    protected final long expiration;
+    protected final boolean ignoreFailures;
+    private final Executor executor;
+    private final BaseRepository empty = new BaseRepository();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile BaseRepository index;
+    private volatile long lastFailure;
+
+    protected RefreshableRepository(long expiration, boolean ignoreFailures) {
+        this(expiration, ignoreFailures, null);
+    }
+
+    /**
+     * @param expiration the time after which the content is revalidated
+     * @param ignoreFailures <code>true</code> to keep the current content when it can not be revalidated
+     * @param executor the executor revalidating the content in the background, or <code>null</code>
+     */
+    protected RefreshableRepository(long expiration, boolean ignoreFailures, Executor executor) {
+        this.expiration = expiration;
+        this.ignoreFailures = ignoreFailures;
+        this.executor = executor;
+    }
+
+    @Override
+    public List<Resource> getResources() {
+        return getIndex().getResources();
+    }
+
+    @Override
+    public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> requirements) {
+        return getIndex().findProviders(requirements);
+    }
+
+    /**
+     * Check if the cached content needs to be revalidated.
+     */
+    protected abstract boolean isExpired();
+
+    /**
+     * Revalidate the content and build a new index if it has changed.
+     *
+     * @return the new index, or <code>null</code> if the content did not change
+     */
+    protected abstract BaseRepository load();
+
+    private BaseRepository getIndex() {
+        BaseRepository current = index;
+        if (current == null || expiration == 0 || (executor == null && isExpired())) {
+            refresh(true);
+            current = index;
+            return current != null ? current : empty;
+        }
+        if (isExpired() && !isBackingOff() && refreshing.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        refresh(false);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refreshing.set(false);
+            }
+        }
+        return current;
+    }
+
+    private boolean isBackingOff() {
+        return expiration > 0 && System.currentTimeMillis() - lastFailure < expiration;
+    }
+
+    private synchronized void refresh(boolean synchronous) {
+        try {
+            BaseRepository newIndex = load();
+            if (newIndex != null) {
+                index = newIndex;
+            }
+            lastFailure = 0;
+        } catch (RuntimeException e) {
+            lastFailure = System.currentTimeMillis();
+            if (synchronous && !ignoreFailures) {
+                throw e;
+            }
+            logger.warn("Ignoring failure: " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -29,16 +29,21 @@ import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
 
 /**
+ * Loads the content of an url and revalidates it once expired, using conditional
+ * requests with the last modification date and entity tag for http urls.
  */
 public abstract class UrlLoader {
 
     public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    public static final String HEADER_ETAG = "ETag";
     public static final String GZIP = "gzip";
 
     private final String url;
     private final long expiration;
-    private long lastModified;
-    private long lastChecked;
+    private volatile long lastModified;
+    private volatile long lastChecked;
+    private volatile String etag;
 
     public UrlLoader(String url, long expiration) {
         this.url = url;
@@ -49,7 +54,15 @@ public abstract class UrlLoader {
         return url;
     }
 
-    protected boolean checkAndLoadCache() {
+    /**
+     * Check if the content has never been loaded or needs to be revalidated.
+     */
+    public boolean isExpired() {
+        return lastChecked == 0
+                || expiration >= 0 && System.currentTimeMillis() - lastChecked >= expiration;
+    }
+
+    protected synchronized boolean checkAndLoadCache() {
         long time = System.currentTimeMillis();
         if (lastChecked > 0) {
             if (expiration < 0 || time - lastChecked < expiration) {
@@ -64,6 +77,9 @@ public abstract class UrlLoader {
                 if (lastModified > 0) {
                     con.setIfModifiedSince(lastModified);
                 }
+                if (etag != null) {
+                    con.setRequestProperty(HEADER_IF_NONE_MATCH, etag);
+                }
                 con.setRequestProperty(HEADER_ACCEPT_ENCODING, GZIP);
                 if (u.getUserInfo() != null)  {
                     String encoded = java.util.Base64.getEncoder().encodeToString((u.getUserInfo()).getBytes(StandardCharsets.UTF_8));
@@ -85,6 +101,7 @@ public abstract class UrlLoader {
             }
             boolean wasRead = read(connection);
             lastModified = connection.getLastModified();
+            etag = connection.getHeaderField(HEADER_ETAG);
             lastChecked = time;
             return wasRead;
         } catch (IOException e) {
@@ -19,12 +19,11 @@ package org.apache.karaf.features.internal.repository;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -32,7 +31,6 @@ import org.apache.karaf.features.internal.resolver.CapabilitySet;
 import org.apache.karaf.features.internal.resolver.SimpleFilter;
 import org.osgi.framework.Version;
 import org.osgi.resource.Capability;
-import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
 
 import static org.osgi.framework.namespace.IdentityNamespace.CAPABILITY_TYPE_ATTRIBUTE;
@@ -43,30 +41,18 @@ import static org.osgi.framework.namespace.IdentityNamespace.IDENTITY_NAMESPACE;
  * Repository conforming to the OSGi Repository specification.
  * The content of the URL can be gzipped.
  */
-public class XmlRepository extends BaseRepository {
+public class XmlRepository extends RefreshableRepository {
 
     protected final String url;
-    protected final long expiration;
-    protected final boolean ignoreFailures;
-    protected final Map<String, XmlLoader> loaders = new HashMap<>();
-    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    protected final Map<String, XmlLoader> loaders = new ConcurrentHashMap<>();
 
     public XmlRepository(String url, long expiration, boolean ignoreFailures) {
-        this.url = url;
-        this.expiration = expiration;
-        this.ignoreFailures = ignoreFailures;
-    }
-
-    @Override
-    public List<Resource> getResources() {
-        checkAndLoadCache();
-        return super.getResources();
+        this(url, expiration, ignoreFailures, null);
     }
 
-    @Override
-    public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> requirements) {
-        checkAndLoadCache();
-        return super.findProviders(requirements);
+    public XmlRepository(String url, long expiration, boolean ignoreFailures, Executor executor) {
+        super(expiration, ignoreFailures, executor);
+        this.url = url;
     }
 
     public String getUrl() {
@@ -78,69 +64,27 @@ public class XmlRepository extends BaseRepository {
     }
 
     @Override
-    protected void addResource(Resource resource) {
-        List<Capability> identities = resource.getCapabilities(IDENTITY_NAMESPACE);
-        if (identities.isEmpty()) {
-            throw new IllegalStateException("Invalid resource: a capability with 'osgi.identity' namespace is required");
-        } else if (identities.size() > 1) {
-            throw new IllegalStateException("Invalid resource: multiple 'osgi.identity' capabilities found");
-        }
-        Capability identity = identities.get(0);
-        Object name = identity.getAttributes().get(IDENTITY_NAMESPACE);
-        Object type = identity.getAttributes().get(CAPABILITY_TYPE_ATTRIBUTE);
-        Object vers = identity.getAttributes().get(CAPABILITY_VERSION_ATTRIBUTE);
-        if (!String.class.isInstance(name)
-                || !String.class.isInstance(type)
-                || !Version.class.isInstance(vers)) {
-            throw new IllegalStateException("Invalid osgi.identity capability: " + identity);
-        }
-        if (!hasResource((String) type, (String) name, (Version) vers)) {
-            super.addResource(resource);
-        }
+    protected boolean isExpired() {
+        return loaders.isEmpty() || loaders.values().stream().anyMatch(UrlLoader::isExpired);
     }
 
-    private boolean hasResource(String type, String name, Version version) {
-        CapabilitySet set = capSets.get(IDENTITY_NAMESPACE);
-        if (set != null) {
-            Map<String, Object> attrs = new HashMap<>();
-            attrs.put(CAPABILITY_TYPE_ATTRIBUTE, type);
-            attrs.put(IDENTITY_NAMESPACE, name);
-            attrs.put(CAPABILITY_VERSION_ATTRIBUTE, version);
-            SimpleFilter sf = SimpleFilter.convert(attrs);
-            return !set.match(sf, true).isEmpty();
-        } else {
-            return false;
-        }
-    }
-
-    private void checkAndLoadCache() {
-        try {
-            if (checkAndLoadReferrals(url, Integer.MAX_VALUE)) {
-                lock.writeLock().lock();
-                try {
-                    resources.clear();
-                    capSets.clear();
-                    populate(loaders.get(url).xml, Integer.MAX_VALUE);
-                } finally {
-                    lock.writeLock().unlock();
-                }
-            }
-        } catch (Exception e) {
-            if (ignoreFailures) {
-                logger.warn("Ignoring failure: " + e.getMessage(), e);
-            } else {
-                throw e;
-            }
+    @Override
+    protected BaseRepository load() {
+        if (checkAndLoadReferrals(url, Integer.MAX_VALUE)) {
+            XmlIndex index = new XmlIndex();
+            populate(index, loaders.get(url).xml, Integer.MAX_VALUE);
+            return index;
         }
+        return null;
     }
 
-    private void populate(StaxParser.XmlRepository xml, int hopCount) {
+    private void populate(XmlIndex index, StaxParser.XmlRepository xml, int hopCount) {
         if (hopCount > 0) {
             for (Resource resource : xml.resources) {
-                addResource(resource);
+                index.addResource(resource);
             }
             for (StaxParser.Referral referral : xml.referrals) {
-                populate(loaders.get(referral.url).xml, Math.min(referral.depth, hopCount - 1));
+                populate(index, loaders.get(referral.url).xml, Math.min(referral.depth, hopCount - 1));
             }
         }
     }
@@ -157,6 +101,48 @@ public class XmlRepository extends BaseRepository {
         return modified;
     }
 
+    /**
+     * Index of the repository resources, ignoring duplicate resources.
+     */
+    protected static class XmlIndex extends BaseRepository {
+
+        @Override
+        protected void addResource(Resource resource) {
+            List<Capability> identities = resource.getCapabilities(IDENTITY_NAMESPACE);
+            if (identities.isEmpty()) {
+                throw new IllegalStateException("Invalid resource: a capability with 'osgi.identity' namespace is required");
+            } else if (identities.size() > 1) {
+                throw new IllegalStateException("Invalid resource: multiple 'osgi.identity' capabilities found");
+            }
+            Capability identity = identities.get(0);
+            Object name = identity.getAttributes().get(IDENTITY_NAMESPACE);
+            Object type = identity.getAttributes().get(CAPABILITY_TYPE_ATTRIBUTE);
+            Object vers = identity.getAttributes().get(CAPABILITY_VERSION_ATTRIBUTE);
+            if (!String.class.isInstance(name)
+                    || !String.class.isInstance(type)
+                    || !Version.class.isInstance(vers)) {
+                throw new IllegalStateException("Invalid osgi.identity capability: " + identity);
+            }
+            if (!hasResource((String) type, (String) name, (Version) vers)) {
+                super.addResource(resource);
+            }
+        }
+
+        private boolean hasResource(String type, String name, Version version) {
+            CapabilitySet set = capSets.get(IDENTITY_NAMESPACE);
+            if (set != null) {
+                Map<String, Object> attrs = new HashMap<>();
+                attrs.put(CAPABILITY_TYPE_ATTRIBUTE, type);
+                attrs.put(IDENTITY_NAMESPACE, name);
+                attrs.put(CAPABILITY_VERSION_ATTRIBUTE, version);
+                SimpleFilter sf = SimpleFilter.convert(attrs);
+                return !set.match(sf, true).isEmpty();
+            } else {
+                return false;
+            }
+        }
+    }
+
     protected static class XmlLoader extends UrlLoader {
 
         protected StaxParser.XmlRepository xml;
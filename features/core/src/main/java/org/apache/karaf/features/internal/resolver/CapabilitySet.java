@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
 
@@ -34,20 +35,48 @@ import org.osgi.framework.Constants;
 import org.osgi.framework.Version;
 import org.osgi.resource.Capability;
 
+/**
+ * Set of capabilities which can be matched against filters.
+ *
+ * Equality filters on the index attributes are served by hash indices, and comparisons
+ * on the range index attributes (usually versions) by sorted indices, which are used
+ * when the number of candidates is large enough.  As a sorted index holds the values of
+ * all the capabilities, its use is abandoned in favor of evaluating each candidate as soon
+ * as the range holds more capabilities than the candidates, which happens when previous
+ * filters narrowed the candidates.  Other filters are evaluated on each candidate capability.
+ */
 @SuppressWarnings("rawtypes")
 public class CapabilitySet {
 
     private static final Class<?>[] STRING_CLASS = new Class[] {String.class};
 
+    /**
+     * Minimum number of candidates for which a sorted index is used rather than comparing each candidate.
+     */
+    private static final int RANGE_INDEX_THRESHOLD = 16;
+
     private final Map<String, Map<Object, Set<Capability>>> indices;
+    private final Map<String, RangeIndex> rangeIndices;
     private final Set<Capability> capSet = new HashSet<>();
 
     public CapabilitySet(List<String> indexProps) {
+        this(indexProps, null);
+    }
+
+    /**
+     * @param indexProps the attributes indexed for equality filters
+     * @param rangeIndexProps the version attributes indexed for comparison filters
+     */
+    public CapabilitySet(List<String> indexProps, List<String> rangeIndexProps) {
         indices = new TreeMap<>();
         for (int i = 0; (indexProps != null) && (i < indexProps.size()); i++) {
             indices.put(
                     indexProps.get(i), new HashMap<>());
         }
+        rangeIndices = new HashMap<>();
+        for (int i = 0; (rangeIndexProps != null) && (i < rangeIndexProps.size()); i++) {
+            rangeIndices.put(rangeIndexProps.get(i), new RangeIndex());
+        }
     }
 
     public void dump() {
@@ -93,6 +122,12 @@ public class CapabilitySet {
                 }
             }
         }
+        for (Entry<String, RangeIndex> entry : rangeIndices.entrySet()) {
+            Object value = cap.getAttributes().get(entry.getKey());
+            if (value != null) {
+                entry.getValue().add(cap, value);
+            }
+        }
     }
 
     private void indexCapability(
@@ -121,6 +156,12 @@ public class CapabilitySet {
                     }
                 }
             }
+            for (Entry<String, RangeIndex> entry : rangeIndices.entrySet()) {
+                Object value = cap.getAttributes().get(entry.getKey());
+                if (value != null) {
+                    entry.getValue().remove(cap, value);
+                }
+            }
         }
     }
 
@@ -153,7 +194,7 @@ public class CapabilitySet {
             // For AND we calculate the intersection of each subfilter.
             // We can short-circuit the AND operation if there are no
             // remaining capabilities.
-            List<SimpleFilter> sfs = (List<SimpleFilter>) sf.getValue();
+            List<SimpleFilter> sfs = sortByIndex((List<SimpleFilter>) sf.getValue());
             for (int i = 0; (caps.size() > 0) && (i < sfs.size()); i++) {
                 matches = match(caps, sfs.get(i));
                 caps = matches;
@@ -175,13 +216,21 @@ public class CapabilitySet {
             }
         } else {
             Map<Object, Set<Capability>> index = indices.get(sf.getName());
+            RangeIndex rangeIndex = rangeIndices.get(sf.getName());
             if ((sf.getOperation() == SimpleFilter.EQ) && (index != null)) {
                 Set<Capability> existingCaps = index.get(sf.getValue());
                 if (existingCaps != null) {
                     matches.addAll(existingCaps);
                     matches.retainAll(caps);
                 }
+            } else if (rangeIndex != null
+                    && caps.size() >= RANGE_INDEX_THRESHOLD
+                    && rangeIndex.match(caps, sf, matches, caps == capSet ? Integer.MAX_VALUE : caps.size())) {
+                // Matches have been computed from the sorted index
+                return matches;
             } else {
+                // Drop the matches of an abandoned walk of the sorted index
+                matches.clear();
                 for (Capability cap : caps) {
                     Object lhs = cap.getAttributes().get(sf.getName());
                     if (lhs != null) {
@@ -196,6 +245,43 @@ public class CapabilitySet {
         return matches;
     }
 
+    /**
+     * Order the operands of an AND filter so that the most selective ones, which can be
+     * served by an index, are evaluated first and reduce the candidates for the others.
+     */
+    private List<SimpleFilter> sortByIndex(List<SimpleFilter> sfs) {
+        List<SimpleFilter> indexed = null;
+        List<SimpleFilter> ranged = null;
+        List<SimpleFilter> others = null;
+        for (SimpleFilter sf : sfs) {
+            if (sf.getOperation() == SimpleFilter.EQ && indices.containsKey(sf.getName())) {
+                indexed = add(indexed, sf);
+            } else if (rangeIndices.containsKey(sf.getName())) {
+                ranged = add(ranged, sf);
+            } else {
+                others = add(others, sf);
+            }
+        }
+        if (indexed == null || indexed.size() == sfs.size()) {
+            return sfs;
+        }
+        if (ranged != null) {
+            indexed.addAll(ranged);
+        }
+        if (others != null) {
+            indexed.addAll(others);
+        }
+        return indexed;
+    }
+
+    private static List<SimpleFilter> add(List<SimpleFilter> list, SimpleFilter sf) {
+        if (list == null) {
+            list = new ArrayList<>();
+        }
+        list.add(sf);
+        return list;
+    }
+
     public static boolean matches(Capability cap, SimpleFilter sf) {
         return matchesInternal(cap, sf) && matchMandatory(cap, sf);
     }
@@ -461,4 +547,105 @@ public class CapabilitySet {
         }
         return list;
     }
+
+    /**
+     * Sorted index of the version values of an attribute.  Capabilities whose attribute
+     * value is not a version are kept aside and compared one by one.
+     */
+    private static class RangeIndex {
+
+        private final NavigableMap<Version, Set<Capability>> sorted = new TreeMap<>();
+        private final Set<Capability> unsorted = new HashSet<>();
+
+        void add(Capability cap, Object value) {
+            if (value.getClass().isArray()) {
+                value = convertArrayToList(value);
+            }
+            if (value instanceof Collection) {
+                for (Object o : (Collection) value) {
+                    add(cap, o);
+                }
+            } else if (value instanceof Version) {
+                sorted.computeIfAbsent((Version) value, k -> new HashSet<>()).add(cap);
+            } else {
+                unsorted.add(cap);
+            }
+        }
+
+        void remove(Capability cap, Object value) {
+            if (value.getClass().isArray()) {
+                value = convertArrayToList(value);
+            }
+            if (value instanceof Collection) {
+                for (Object o : (Collection) value) {
+                    remove(cap, o);
+                }
+            } else if (value instanceof Version) {
+                Set<Capability> caps = sorted.get(value);
+                if (caps != null) {
+                    caps.remove(cap);
+                    if (caps.isEmpty()) {
+                        sorted.remove(value);
+                    }
+                }
+            } else {
+                unsorted.remove(cap);
+            }
+        }
+
+        /**
+         * Compute the candidates matching the given comparison filter.
+         *
+         * @param limit the number of indexed capabilities after which the index is not used
+         * @return <code>false</code> if the filter can not be served by the index, or if the
+         *         range holds more capabilities than the limit
+         */
+        boolean match(Set<Capability> caps, SimpleFilter sf, Set<Capability> matches, int limit) {
+            if (!(sf.getValue() instanceof String) || unsorted.size() > limit) {
+                return false;
+            }
+            Version version;
+            try {
+                version = VersionTable.getVersion((String) sf.getValue(), false);
+            } catch (Exception e) {
+                return false;
+            }
+            NavigableMap<Version, Set<Capability>> range;
+            switch (sf.getOperation()) {
+            case SimpleFilter.EQ:
+                range = sorted.subMap(version, true, version, true);
+                break;
+            case SimpleFilter.GTE:
+                range = sorted.tailMap(version, true);
+                break;
+            case SimpleFilter.LTE:
+                range = sorted.headMap(version, true);
+                break;
+            default:
+                return false;
+            }
+            int visited = unsorted.size();
+            for (Set<Capability> set : range.values()) {
+                visited += set.size();
+                if (visited > limit) {
+                    // Comparing each candidate is cheaper
+                    return false;
+                }
+                for (Capability cap : set) {
+                    if (caps.contains(cap)) {
+                        matches.add(cap);
+                    }
+                }
+            }
+            for (Capability cap : unsorted) {
+                if (caps.contains(cap)) {
+                    Object lhs = cap.getAttributes().get(sf.getName());
+                    if (lhs != null && compare(lhs, sf.getValue(), sf.getOperation())) {
+                        matches.add(cap);
+                    }
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -30,12 +30,18 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import org.apache.felix.utils.version.VersionRange;
@@ -49,6 +55,8 @@ import org.apache.karaf.features.FeatureState;
 import org.apache.karaf.features.FeaturesService;
 import org.apache.karaf.features.internal.download.DownloadManager;
 import org.apache.karaf.features.internal.download.StreamProvider;
+import org.apache.karaf.features.internal.region.BundleMetadataIndex;
+import org.apache.karaf.features.internal.region.ResolutionSnapshot;
 import org.apache.karaf.features.internal.region.SubsystemResolver;
 import org.apache.karaf.features.internal.resolver.FeatureResource;
 import org.apache.karaf.features.internal.resolver.ResolverUtil;
@@ -57,6 +65,7 @@ import org.apache.karaf.features.internal.util.ChecksumUtils;
 import org.apache.karaf.features.internal.util.Macro;
 import org.apache.karaf.features.internal.util.MapUtils;
 import org.apache.karaf.features.internal.util.MultiException;
+import org.apache.karaf.util.ThreadUtils;
 import org.eclipse.equinox.region.Region;
 import org.eclipse.equinox.region.RegionDigraph;
 import org.osgi.framework.Bundle;
@@ -176,6 +185,8 @@ public class Deployer {
         public String serviceRequirements;
         public String bundleUpdateRange;
         public String updateSnaphots;
+        public boolean parallelBundleStart;
+        public int bundleStartThreads;
         public Repository globalRepository;
 
         public Map<String, Set<String>> requirements;
@@ -201,11 +212,23 @@ public class Deployer {
     private final DownloadManager manager;
     private final Resolver resolver;
     private final DeployCallback callback;
+    private final BundleMetadataIndex index;
+    private final ResolutionSnapshot snapshot;
 
     public Deployer(DownloadManager manager, Resolver resolver, DeployCallback callback) {
+        this(manager, resolver, callback, null);
+    }
+
+    public Deployer(DownloadManager manager, Resolver resolver, DeployCallback callback, BundleMetadataIndex index) {
+        this(manager, resolver, callback, index, null);
+    }
+
+    public Deployer(DownloadManager manager, Resolver resolver, DeployCallback callback, BundleMetadataIndex index, ResolutionSnapshot snapshot) {
         this.manager = manager;
         this.resolver = resolver;
         this.callback = callback;
+        this.index = index;
+        this.snapshot = snapshot;
     }
 
     /**
@@ -237,7 +260,7 @@ public class Deployer {
                 map(dstate.bundles));
 
         // Resolve
-        SubsystemResolver resolver = new SubsystemResolver(this.resolver, manager);
+        SubsystemResolver resolver = new SubsystemResolver(this.resolver, manager, index, snapshot);
         resolver.prepare(
                 dstate.features.values(),
                 request.requirements,
@@ -286,6 +309,8 @@ public class Deployer {
             }
             newRequest.stateChanges = Collections.emptyMap();
             newRequest.updateSnaphots = request.updateSnaphots;
+            newRequest.parallelBundleStart = request.parallelBundleStart;
+            newRequest.bundleStartThreads = request.bundleStartThreads;
             deploy(dstate, newRequest);
             throw new PartialDeploymentException(prereqs);
         }
@@ -884,19 +909,43 @@ public class Deployer {
         if (!toStart.isEmpty()) {
             // Compute correct start order
             List<Exception> exceptions = new ArrayList<>();
+            Map<Bundle, Long> startTimes = new HashMap<>();
+            ExecutorService executor = null;
+            if (request.parallelBundleStart && request.bundleStartThreads > 1) {
+                executor = Executors.newFixedThreadPool(request.bundleStartThreads, ThreadUtils.namedThreadFactory("features-start"));
+            }
             print("Starting bundles:", verbose);
-            while (!toStart.isEmpty()) {
-                List<Bundle> bs = getBundlesToStart(toStart, serviceBundle);
-                for (Bundle bundle : bs) {
-                    print("  " + bundle.getSymbolicName() + "/" + bundle.getVersion(), verbose);
-                    try {
-                        callback.startBundle(bundle);
-                    } catch (BundleException e) {
-                        exceptions.add(e);
+            try {
+                while (!toStart.isEmpty()) {
+                    List<Bundle> bs = getBundlesToStart(toStart, serviceBundle);
+                    if (executor != null && !bs.contains(serviceBundle)) {
+                        // Start the bundles of each layer concurrently, as they do not depend on each other
+                        for (List<Bundle> layer : getBundleStartLayers(bs)) {
+                            startBundles(layer, executor, exceptions, startTimes, verbose);
+                        }
+                    } else {
+                        for (Bundle bundle : bs) {
+                            print("  " + bundle.getSymbolicName() + "/" + bundle.getVersion(), verbose);
+                            long t0 = System.nanoTime();
+                            try {
+                                callback.startBundle(bundle);
+                            } catch (BundleException e) {
+                                exceptions.add(e);
+                            }
+                            startTimes.put(bundle, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+                        }
                     }
-                    toStart.remove(bundle);
+                    toStart.removeAll(bs);
+                }
+            } finally {
+                if (executor != null) {
+                    // Do not interrupt bundles being started, all the tasks have been waited for
+                    executor.shutdown();
                 }
             }
+            if (verbose) {
+                printStartTimes(startTimes);
+            }
             if (!exceptions.isEmpty()) {
                 throw new MultiException("Error restarting bundles", exceptions);
             }
@@ -1327,6 +1376,66 @@ public class Deployer {
         return uri.matches(UPDATEABLE_URIS);
     }
 
+    private void startBundles(List<Bundle> bundles, ExecutorService executor, List<Exception> exceptions,
+                              Map<Bundle, Long> startTimes, boolean verbose) throws InterruptedException {
+        Map<Bundle, Future<Long>> futures = new LinkedHashMap<>();
+        for (Bundle bundle : bundles) {
+            print("  " + bundle.getSymbolicName() + "/" + bundle.getVersion(), verbose);
+            futures.put(bundle, executor.submit(() -> {
+                long t0 = System.nanoTime();
+                callback.startBundle(bundle);
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+            }));
+        }
+        // Wait for all the bundles of the layer, so that none is left half started
+        Error error = null;
+        for (Map.Entry<Bundle, Future<Long>> entry : futures.entrySet()) {
+            try {
+                startTimes.put(entry.getKey(), entry.getValue().get());
+            } catch (ExecutionException e) {
+                Throwable t = e.getCause();
+                if (t instanceof Error) {
+                    if (error == null) {
+                        error = (Error) t;
+                    }
+                } else {
+                    exceptions.add((Exception) t);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void printStartTimes(Map<Bundle, Long> startTimes) {
+        print("Bundle start times:", true);
+        startTimes.entrySet().stream()
+                .sorted(Map.Entry.<Bundle, Long>comparingByValue().reversed())
+                .forEach(e -> print("  " + e.getKey().getSymbolicName() + "/" + e.getKey().getVersion()
+                        + ": " + e.getValue() + " ms", true));
+    }
+
+    /**
+     * Split the given bundles, all in the same start level, in layers so that
+     * bundles in a given layer only depend on bundles in the previous layers.
+     */
+    protected List<List<Bundle>> getBundleStartLayers(List<Bundle> bundles) {
+        List<BundleRevision> revs = new ArrayList<>();
+        for (Bundle bundle : bundles) {
+            revs.add(bundle.adapt(BundleRevision.class));
+        }
+        List<List<Bundle>> layers = new ArrayList<>();
+        for (List<BundleRevision> layer : RequirementSort.sortInLayers(revs)) {
+            List<Bundle> bs = new ArrayList<>();
+            for (BundleRevision rev : layer) {
+                bs.add(rev.getBundle());
+            }
+            layers.add(bs);
+        }
+        return layers;
+    }
+
     protected List<Bundle> getBundlesToStart(Collection<Bundle> bundles, Bundle serviceBundle) {
         // Restart the features service last, regardless of any other consideration
         // so that we don't end up with the service trying to do stuff before we're done
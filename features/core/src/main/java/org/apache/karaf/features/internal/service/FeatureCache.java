@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.karaf.features.BundleInfo;
+import org.apache.karaf.features.Conditional;
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.Repository;
+
+/**
+ * Features of the loaded repositories, maintained incrementally per repository URI.
+ * Features are indexed by name and version, by id and by bundle location.
+ * The maps returned by this class are read-only snapshots which are only
+ * recomputed after a repository has been added or removed.
+ *
+ * This class is not thread safe: modifications must be synchronized externally.
+ */
+public class FeatureCache {
+
+    private final Map<String, Repository> repositories = new LinkedHashMap<>();
+    private final Map<String, Feature[]> featuresByRepository = new HashMap<>();
+
+    //the outer map's key is feature name, the inner map's key is feature version
+    private final Map<String, Map<String, Feature>> featuresByName = new HashMap<>();
+    private final Map<String, Feature> featuresById = new HashMap<>();
+    private final Map<String, Set<Feature>> featuresByBundle = new HashMap<>();
+
+    private volatile Map<String, Map<String, Feature>> featuresByNameSnapshot;
+    private volatile Map<String, Feature> featuresByIdSnapshot;
+
+    /**
+     * Returns the repository cached for the given uri, or <code>null</code>.
+     */
+    public Repository getRepository(String uri) {
+        return repositories.get(uri);
+    }
+
+    public Set<String> getRepositoryUris() {
+        return new HashSet<>(repositories.keySet());
+    }
+
+    /**
+     * Add the features of the given repository, replacing the features of any
+     * previous repository with the same uri.
+     */
+    public void addRepository(Repository repository) throws Exception {
+        String uri = repository.getURI().toString();
+        if (repositories.get(uri) == repository) {
+            return;
+        }
+        removeRepository(uri);
+        Feature[] features = repository.getFeatures();
+        repositories.put(uri, repository);
+        featuresByRepository.put(uri, features);
+        for (Feature feature : features) {
+            index(feature);
+        }
+        invalidate();
+    }
+
+    /**
+     * Remove the features of the repository with the given uri.
+     * Features with the same id provided by other repositories are kept.
+     */
+    public void removeRepository(String uri) {
+        repositories.remove(uri);
+        Feature[] features = featuresByRepository.remove(uri);
+        if (features == null) {
+            return;
+        }
+        Set<String> removed = new HashSet<>();
+        for (Feature feature : features) {
+            if (unindex(feature)) {
+                removed.add(feature.getId());
+            }
+        }
+        if (!removed.isEmpty()) {
+            for (Feature[] others : featuresByRepository.values()) {
+                for (Feature feature : others) {
+                    if (removed.contains(feature.getId()) && !featuresById.containsKey(feature.getId())) {
+                        index(feature);
+                    }
+                }
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * Remove all repositories which are not part of the given set of repositories.
+     */
+    public void retainRepositories(Collection<Repository> repos) {
+        Set<Repository> toKeep = Collections.newSetFromMap(new IdentityHashMap<>());
+        toKeep.addAll(repos);
+        for (Repository repo : new ArrayList<>(repositories.values())) {
+            if (!toKeep.contains(repo)) {
+                removeRepository(repo.getURI().toString());
+            }
+        }
+    }
+
+    /**
+     * @return map from feature name to map from feature version to Feature
+     */
+    public Map<String, Map<String, Feature>> getFeaturesByName() {
+        Map<String, Map<String, Feature>> snapshot = featuresByNameSnapshot;
+        if (snapshot == null) {
+            snapshot = new HashMap<>();
+            for (Map.Entry<String, Map<String, Feature>> entry : featuresByName.entrySet()) {
+                snapshot.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<>(entry.getValue())));
+            }
+            snapshot = Collections.unmodifiableMap(snapshot);
+            featuresByNameSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return map from feature id to Feature
+     */
+    public Map<String, Feature> getFeaturesById() {
+        Map<String, Feature> snapshot = featuresByIdSnapshot;
+        if (snapshot == null) {
+            snapshot = Collections.unmodifiableMap(new HashMap<>(featuresById));
+            featuresByIdSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    public Feature getFeature(String id) {
+        return featuresById.get(id);
+    }
+
+    /**
+     * Returns the features containing a bundle with the given location,
+     * including bundles from conditionals.
+     */
+    public Set<Feature> getFeaturesByBundle(String location) {
+        Set<Feature> features = featuresByBundle.get(location);
+        return features != null ? new LinkedHashSet<>(features) : Collections.emptySet();
+    }
+
+    public void clear() {
+        repositories.clear();
+        featuresByRepository.clear();
+        featuresByName.clear();
+        featuresById.clear();
+        featuresByBundle.clear();
+        invalidate();
+    }
+
+    private void index(Feature feature) {
+        Feature previous = featuresById.put(feature.getId(), feature);
+        if (previous != null) {
+            unindexBundles(previous);
+        }
+        featuresByName.computeIfAbsent(feature.getName(), key -> new HashMap<>())
+                .put(feature.getVersion(), feature);
+        for (String location : getBundleLocations(feature)) {
+            featuresByBundle.computeIfAbsent(location, key -> new LinkedHashSet<>()).add(feature);
+        }
+    }
+
+    private boolean unindex(Feature feature) {
+        if (featuresById.get(feature.getId()) != feature) {
+            return false;
+        }
+        featuresById.remove(feature.getId());
+        Map<String, Feature> versions = featuresByName.get(feature.getName());
+        if (versions != null) {
+            versions.remove(feature.getVersion());
+            if (versions.isEmpty()) {
+                featuresByName.remove(feature.getName());
+            }
+        }
+        unindexBundles(feature);
+        return true;
+    }
+
+    private void unindexBundles(Feature feature) {
+        for (String location : getBundleLocations(feature)) {
+            Set<Feature> features = featuresByBundle.get(location);
+            if (features != null) {
+                features.remove(feature);
+                if (features.isEmpty()) {
+                    featuresByBundle.remove(location);
+                }
+            }
+        }
+    }
+
+    private static List<String> getBundleLocations(Feature feature) {
+        List<String> locations = new ArrayList<>();
+        for (BundleInfo bundle : feature.getBundles()) {
+            locations.add(bundle.getLocation());
+        }
+        for (Conditional conditional : feature.getConditional()) {
+            for (BundleInfo bundle : conditional.getBundles()) {
+                locations.add(bundle.getLocation());
+            }
+        }
+        return locations;
+    }
+
+    private void invalidate() {
+        featuresByNameSnapshot = null;
+        featuresByIdSnapshot = null;
+    }
+
+}
@@ -49,6 +49,7 @@ public class FeatureReq {
     public static final String VERSION_SEPARATOR = "/";
 
     private static final String FEATURE_OSGI_REQUIREMENT_PREFIX = "feature:";
+    private static final Pattern LITERAL_NAME = Pattern.compile("[\\w-]+");
 
     private String name;
     private VersionRange versionRange;
@@ -100,6 +101,11 @@ public class FeatureReq {
     }
 
     public Stream<Feature> getMatchingFeatures(Map<String, Map<String, Feature>> allFeatures) {
+        if (LITERAL_NAME.matcher(name).matches()) {
+            // No need to match every feature name against the pattern
+            Feature matchingFeature = getLatestFeature(allFeatures.get(name), versionRange);
+            return matchingFeature != null ? Stream.of(matchingFeature) : Stream.empty();
+        }
         Pattern pattern = Pattern.compile(name);
         Function<String, Optional<Feature>> func = featureName -> {
             Feature matchingFeature = null;
@@ -57,11 +57,26 @@ public class FeaturesServiceConfig {
     
     public final String blacklisted;
 
+    /**
+     * Start the independent bundles of a given start level concurrently
+     */
+    public final boolean parallelBundleStart;
+
+    /**
+     * Maximum number of bundles started concurrently when {@link #parallelBundleStart} is enabled
+     */
+    public final int bundleStartThreads;
+
     public FeaturesServiceConfig() {
         this(null, FeaturesService.DEFAULT_FEATURE_RESOLUTION_RANGE, FeaturesService.DEFAULT_BUNDLE_UPDATE_RANGE, null, 1, 0, 0, null, null);
     }
 
     public FeaturesServiceConfig(String overrides, String featureResolutionRange, String bundleUpdateRange, String updateSnapshots, int downloadThreads, long scheduleDelay, int scheduleMaxRun, String blacklisted, String serviceRequirements) {
+        this(overrides, featureResolutionRange, bundleUpdateRange, updateSnapshots, downloadThreads, scheduleDelay, scheduleMaxRun, blacklisted, serviceRequirements,
+                FeaturesService.DEFAULT_PARALLEL_BUNDLE_START, FeaturesService.DEFAULT_BUNDLE_START_THREADS);
+    }
+
+    public FeaturesServiceConfig(String overrides, String featureResolutionRange, String bundleUpdateRange, String updateSnapshots, int downloadThreads, long scheduleDelay, int scheduleMaxRun, String blacklisted, String serviceRequirements, boolean parallelBundleStart, int bundleStartThreads) {
         this.overrides = overrides;
         this.featureResolutionRange = featureResolutionRange;
         this.bundleUpdateRange = bundleUpdateRange;
@@ -71,5 +86,7 @@ public class FeaturesServiceConfig {
         this.scheduleMaxRun = scheduleMaxRun;
         this.blacklisted = blacklisted;
         this.serviceRequirements = serviceRequirements;
+        this.parallelBundleStart = parallelBundleStart;
+        this.bundleStartThreads = bundleStartThreads;
     }
 }
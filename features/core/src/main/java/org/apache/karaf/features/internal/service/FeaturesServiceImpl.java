@@ -23,7 +23,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.net.URI;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -34,9 +33,9 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.TreeMap;
@@ -44,8 +43,10 @@ import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -62,8 +63,11 @@ import org.apache.karaf.features.Repository;
 import org.apache.karaf.features.RepositoryEvent;
 import org.apache.karaf.features.internal.download.DownloadManager;
 import org.apache.karaf.features.internal.download.DownloadManagers;
+import org.apache.karaf.features.internal.download.impl.ArtifactCache;
 import org.apache.karaf.features.internal.model.Features;
 import org.apache.karaf.features.internal.model.JaxbUtil;
+import org.apache.karaf.features.internal.region.BundleMetadataIndex;
+import org.apache.karaf.features.internal.region.ResolutionSnapshot;
 import org.apache.karaf.features.internal.region.DigraphHelper;
 import org.apache.karaf.features.internal.service.BundleInstallSupport.FrameworkInfo;
 import org.apache.karaf.util.ThreadUtils;
@@ -111,6 +115,15 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
     private final BundleInstallSupport installSupport;
     private final FeaturesServiceConfig cfg;
     private final RepositoryCache repositories;
+    private final BundleMetadataIndex bundleMetadataIndex;
+    private final ResolutionSnapshot resolutionSnapshot;
+    private final ArtifactCache artifactCache;
+
+    // Download executor and maven resolver shared by the deployments, synchronized on downloadLock
+    private final Object downloadLock = new Object();
+    private ScheduledThreadPoolExecutor downloadExecutor;
+    private Dictionary<String, String> mavenConfig;
+    private MavenResolver mavenResolver;
 
     private final ThreadLocal<String> outputFile = new ThreadLocal<>();
 
@@ -129,8 +142,9 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
 
     private final ExecutorService executor;
 
-    //the outer map's key is feature name, the inner map's key is feature version
-    private Map<String, Map<String, Feature>> featureCache;
+    private final FeatureCache featureCache = new FeatureCache();
+    // Repositories the feature cache is up to date with, or null if it needs to be updated
+    private Set<String> featureCacheUris;
 
 
     public FeaturesServiceImpl(StateStorage storage,
@@ -140,6 +154,56 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
                                BundleInstallSupport installSupport,
                                org.osgi.service.repository.Repository globalRepository,
                                FeaturesServiceConfig cfg) {
+        this(storage, featureFinder, configurationAdmin, resolver, installSupport, globalRepository, cfg, null);
+    }
+
+    public FeaturesServiceImpl(StateStorage storage,
+                               FeatureRepoFinder featureFinder,
+                               ConfigurationAdmin configurationAdmin,
+                               Resolver resolver,
+                               BundleInstallSupport installSupport,
+                               org.osgi.service.repository.Repository globalRepository,
+                               FeaturesServiceConfig cfg,
+                               BundleMetadataIndex bundleMetadataIndex) {
+        this(storage, featureFinder, configurationAdmin, resolver, installSupport, globalRepository, cfg, bundleMetadataIndex, null);
+    }
+
+    public FeaturesServiceImpl(StateStorage storage,
+                               FeatureRepoFinder featureFinder,
+                               ConfigurationAdmin configurationAdmin,
+                               Resolver resolver,
+                               BundleInstallSupport installSupport,
+                               org.osgi.service.repository.Repository globalRepository,
+                               FeaturesServiceConfig cfg,
+                               BundleMetadataIndex bundleMetadataIndex,
+                               ResolutionSnapshot resolutionSnapshot) {
+        this(storage, featureFinder, configurationAdmin, resolver, installSupport, globalRepository, cfg, bundleMetadataIndex, resolutionSnapshot, null);
+    }
+
+    public FeaturesServiceImpl(StateStorage storage,
+                               FeatureRepoFinder featureFinder,
+                               ConfigurationAdmin configurationAdmin,
+                               Resolver resolver,
+                               BundleInstallSupport installSupport,
+                               org.osgi.service.repository.Repository globalRepository,
+                               FeaturesServiceConfig cfg,
+                               BundleMetadataIndex bundleMetadataIndex,
+                               ResolutionSnapshot resolutionSnapshot,
+                               ArtifactCache artifactCache) {
+        this(storage, featureFinder, configurationAdmin, resolver, installSupport, globalRepository, cfg, bundleMetadataIndex, resolutionSnapshot, artifactCache, null);
+    }
+
+    public FeaturesServiceImpl(StateStorage storage,
+                               FeatureRepoFinder featureFinder,
+                               ConfigurationAdmin configurationAdmin,
+                               Resolver resolver,
+                               BundleInstallSupport installSupport,
+                               org.osgi.service.repository.Repository globalRepository,
+                               FeaturesServiceConfig cfg,
+                               BundleMetadataIndex bundleMetadataIndex,
+                               ResolutionSnapshot resolutionSnapshot,
+                               ArtifactCache artifactCache,
+                               RepositorySnapshot repositorySnapshot) {
         this.storage = storage;
         this.featureFinder = featureFinder;
         this.configurationAdmin = configurationAdmin;
@@ -147,8 +211,11 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
         this.installSupport = installSupport;
         this.globalRepository = globalRepository;
         Blacklist blacklist = new Blacklist(cfg.blacklisted);
-        this.repositories = new RepositoryCache(blacklist);
+        this.repositories = new RepositoryCache(blacklist, repositorySnapshot);
         this.cfg = cfg;
+        this.bundleMetadataIndex = bundleMetadataIndex;
+        this.resolutionSnapshot = resolutionSnapshot;
+        this.artifactCache = artifactCache;
         this.executor = Executors.newSingleThreadExecutor(ThreadUtils.namedThreadFactory("features"));
         loadState();
         checkResolve();
@@ -156,6 +223,12 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
 
     public void stop() {
         this.executor.shutdown();
+        synchronized (downloadLock) {
+            if (downloadExecutor != null) {
+                downloadExecutor.shutdown();
+                downloadExecutor = null;
+            }
+        }
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
@@ -361,7 +434,7 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
         Repository repository = repositories.create(uri, true);
         synchronized (lock) {
             repositories.addRepository(repository);
-            featureCache = null;
+            featureCacheUris = null;
             // Add repo
             if (!state.repositories.add(uri.toString())) {
                 return;
@@ -421,7 +494,7 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
                 return;
             }
             // Clean cache
-            featureCache = null;
+            featureCacheUris = null;
             repositories.removeRepository(uri);
             saveState();
         }
@@ -453,7 +526,7 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
             for (URI uri : uris) {
                 repositories.removeRepository(uri);
             }
-            featureCache = null;
+            featureCacheUris = null;
         }
     }
 
@@ -545,61 +618,112 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
     protected Map<String, Map<String, Feature>> getFeatureCache() throws Exception {
         Set<String> uris;
         synchronized (lock) {
-            if (featureCache != null) {
-                return featureCache;
+            if (featureCacheUris != null) {
+                return featureCache.getFeaturesByName();
             }
             uris = new TreeSet<>(state.repositories);
         }
-        //the outer map's key is feature name, the inner map's key is feature version
-        Map<String, Map<String, Feature>> map = new HashMap<>();
         // Two phase load:
-        // * first load dependent repositories
+        // * first load missing repositories, level by level so that
+        //   the dependent repositories of a level are loaded in parallel
         Set<String> loaded = new HashSet<>();
-        Queue<String> toLoad = new ArrayDeque<>(uris);
+        Set<String> toLoad = uris;
         while (!toLoad.isEmpty()) {
-            String uri = toLoad.remove();
-            Repository repo;
-            synchronized (lock) {
-                repo = repositories.getRepository(uri);
-            }
-            try {
-                if (repo == null) {
-                    repo = repositories.create(URI.create(uri), false);
-                    synchronized (lock) {
-                        repositories.addRepository(repo);
-                    }
-                }
-                if (loaded.add(uri)) {
-                    for (URI u : repo.getRepositories()) {
-                        toLoad.add(u.toString());
-                    }
+            loaded.addAll(toLoad);
+            Set<String> next = new TreeSet<>();
+            for (Repository repo : loadRepositories(toLoad)) {
+                for (URI u : repo.getRepositories()) {
+                    next.add(u.toString());
                 }
-            } catch (Exception e) {
-                LOGGER.warn("Can't load features repository {}", uri, e);
             }
+            next.removeAll(loaded);
+            toLoad = next;
         }
-        List<Repository> repos;
+        repositories.saveSnapshot();
+        // * then only index the features of added repositories
+        //   and drop the features of removed ones
         synchronized (lock) {
-            repos = Arrays.asList(repositories.listRepositories());
-        }
-        // * then load all features
-        for (Repository repo : repos) {
-            for (Feature f : repo.getFeatures()) {
-                Map<String, Feature> versionMap = map.computeIfAbsent(f.getName(), key -> new HashMap<>());
-                versionMap.put(f.getVersion(), f);
+            List<Repository> repos = Arrays.asList(repositories.listRepositories());
+            featureCache.retainRepositories(repos);
+            for (Repository repo : repos) {
+                featureCache.addRepository(repo);
             }
+            if (uris.equals(state.repositories)) {
+                featureCacheUris = uris;
+            }
+            return featureCache.getFeaturesByName();
         }
+    }
+
+    /**
+     * Load the given repositories if they are not already in the repository cache.
+     * Repositories which can not be loaded are logged and ignored.
+     */
+    private List<Repository> loadRepositories(Set<String> uris) {
+        List<Repository> repos = new ArrayList<>();
+        Map<String, Future<Repository>> toCreate = new LinkedHashMap<>();
         synchronized (lock) {
-            if (uris.equals(state.repositories)) {
-                featureCache = map;
+            for (String uri : uris) {
+                Repository repo = repositories.getRepository(uri);
+                if (repo != null) {
+                    repos.add(repo);
+                } else {
+                    toCreate.put(uri, null);
+                }
             }
         }
-        return map;
+        if (toCreate.isEmpty()) {
+            return repos;
+        }
+        int threads = Math.min(toCreate.size(), cfg.downloadThreads);
+        ExecutorService loader = threads > 1
+                ? Executors.newFixedThreadPool(threads, ThreadUtils.namedThreadFactory("features-repositories"))
+                : null;
+        try {
+            for (Map.Entry<String, Future<Repository>> entry : toCreate.entrySet()) {
+                URI uri = URI.create(entry.getKey());
+                FutureTask<Repository> task = new FutureTask<>(() -> repositories.create(uri, false));
+                if (loader != null) {
+                    loader.execute(task);
+                } else {
+                    task.run();
+                }
+                entry.setValue(task);
+            }
+            for (Map.Entry<String, Future<Repository>> entry : toCreate.entrySet()) {
+                try {
+                    Repository repo = entry.getValue().get();
+                    synchronized (lock) {
+                        repositories.addRepository(repo);
+                    }
+                    repos.add(repo);
+                } catch (ExecutionException e) {
+                    LOGGER.warn("Can't load features repository {}", entry.getKey(), e.getCause());
+                } catch (Exception e) {
+                    LOGGER.warn("Can't load features repository {}", entry.getKey(), e);
+                }
+            }
+        } finally {
+            if (loader != null) {
+                loader.shutdownNow();
+            }
+        }
+        return repos;
     }
 
     protected Map<String, Feature> getFeaturesById() throws Exception {
-        return getFeatureCache().values().stream().flatMap(m -> m.values().stream())
-                .collect(Collectors.toMap(Feature::getId, Function.identity()));
+        ensureCacheLoaded();
+        synchronized (lock) {
+            return featureCache.getFeaturesById();
+        }
+    }
+
+    @Override
+    public Feature[] getFeaturesForBundle(String location) throws Exception {
+        ensureCacheLoaded();
+        synchronized (lock) {
+            return featureCache.getFeaturesByBundle(location).toArray(new Feature[0]);
+        }
     }
 
    //
@@ -863,7 +987,7 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
             Set<String> toAdd = diff(reps, state.repositories);
             state.repositories.removeAll(toRemove);
             state.repositories.addAll(toAdd);
-            featureCache = null;
+            featureCacheUris = null;
             for (String uri : toRemove) {
                 repositories.removeRepository(URI.create(uri));
             }
@@ -964,6 +1088,8 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
         request.featureResolutionRange = cfg.featureResolutionRange;
         request.serviceRequirements = cfg.serviceRequirements;
         request.updateSnaphots = cfg.updateSnapshots;
+        request.parallelBundleStart = cfg.parallelBundleStart;
+        request.bundleStartThreads = cfg.bundleStartThreads;
         request.globalRepository = globalRepository;
         request.overrides = Overrides.loadOverrides(cfg.overrides);
         request.requirements = requirements;
@@ -986,7 +1112,7 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
                 try {
                     Deployer.DeploymentState dstate = getDeploymentState(state, featuresById);
                     Deployer.DeploymentRequest request = getDeploymentRequest(requirements, stateChanges, options, outputFile);
-                    new Deployer(manager, this.resolver, this).deploy(dstate, request);
+                    new Deployer(manager, this.resolver, this, bundleMetadataIndex, resolutionSnapshot).deploy(dstate, request);
                     break;
                 } catch (Deployer.PartialDeploymentException e) {
                     if (!prereqs.containsAll(e.getMissing())) {
@@ -1000,12 +1126,27 @@ public class FeaturesServiceImpl implements FeaturesService, Deployer.DeployCall
         }
     }
 
+    /**
+     * The download executor and the maven resolver are kept between deployments, the resolver
+     * being recreated only when the pax-url configuration changes.  Each deployment still gets
+     * its own download manager so that snapshots are downloaded again.
+     */
     protected DownloadManager createDownloadManager() throws IOException {
         Dictionary<String, String> props = getMavenConfig();
-        MavenResolver resolver = MavenResolvers.createMavenResolver(props, "org.ops4j.pax.url.mvn");
-        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(cfg.downloadThreads, ThreadUtils.namedThreadFactory("downloader"));
-        executor.setMaximumPoolSize(cfg.downloadThreads);
-        return DownloadManagers.createDownloadManager(resolver, executor, cfg.scheduleDelay, cfg.scheduleMaxRun);
+        synchronized (downloadLock) {
+            if (mavenResolver == null || !props.equals(mavenConfig)) {
+                mavenResolver = MavenResolvers.createMavenResolver(props, "org.ops4j.pax.url.mvn");
+                mavenConfig = props;
+            }
+            if (downloadExecutor == null) {
+                downloadExecutor = new ScheduledThreadPoolExecutor(cfg.downloadThreads, ThreadUtils.namedThreadFactory("downloader"));
+                downloadExecutor.setMaximumPoolSize(cfg.downloadThreads);
+                downloadExecutor.setKeepAliveTime(60, TimeUnit.SECONDS);
+                downloadExecutor.allowCoreThreadTimeOut(true);
+            }
+            return DownloadManagers.createSharedDownloadManager(mavenResolver, downloadExecutor,
+                    cfg.scheduleDelay, cfg.scheduleMaxRun, artifactCache);
+        }
     }
 
     private Dictionary<String, String> getMavenConfig() throws IOException {
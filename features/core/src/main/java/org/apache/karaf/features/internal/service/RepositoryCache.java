@@ -28,20 +28,48 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.karaf.features.Repository;
+import org.apache.karaf.features.internal.model.Features;
 
 public class RepositoryCache {
 
     private final Map<String, Repository> repositoryCache = new HashMap<>();
     private final Blacklist blacklist;
+    private final RepositorySnapshot snapshot;
     
     public RepositoryCache(Blacklist blacklist) {
+        this(blacklist, null);
+    }
+
+    public RepositoryCache(Blacklist blacklist, RepositorySnapshot snapshot) {
         this.blacklist = blacklist;
+        this.snapshot = snapshot;
     }
 
     public Repository create(URI uri, boolean validate) throws Exception {
+        if (snapshot != null && !validate) {
+            String stamp = RepositorySnapshot.getStamp(uri);
+            if (stamp != null) {
+                String key = uri.toString();
+                Features features = snapshot.get(key, stamp);
+                if (features == null) {
+                    features = RepositoryImpl.parse(uri, false);
+                    snapshot.put(key, stamp, features);
+                }
+                return new RepositoryImpl(uri, features, blacklist);
+            }
+        }
         return new RepositoryImpl(uri, blacklist, validate);
     }
 
+    /**
+     * Persist the repositories snapshot if any repository has been parsed.
+     */
+    public void saveSnapshot() {
+        if (snapshot != null) {
+            snapshot.save();
+        }
+    }
+
     public void addRepository(Repository repository) throws Exception {
         String repoUriSt = repository.getURI().toString();
         repositoryCache.put(repoUriSt, repository);
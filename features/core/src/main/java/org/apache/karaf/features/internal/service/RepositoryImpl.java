@@ -26,6 +26,7 @@ import java.util.Objects;
 import org.apache.karaf.features.Feature;
 import org.apache.karaf.features.Repository;
 import org.apache.karaf.features.internal.model.Features;
+import org.apache.karaf.features.internal.model.FeaturesStaxParser;
 import org.apache.karaf.features.internal.model.JaxbUtil;
 
 /**
@@ -47,6 +48,18 @@ public class RepositoryImpl implements Repository {
         load(validate);
     }
 
+    /**
+     * Create a repository from already parsed features.
+     */
+    public RepositoryImpl(URI uri, Features features, Blacklist blacklist) {
+        this.uri = uri;
+        this.blacklist = blacklist;
+        this.features = features;
+        if (blacklist != null) {
+            blacklist.blacklist(features);
+        }
+    }
+
     public URI getURI() {
         return uri;
     }
@@ -77,16 +90,24 @@ public class RepositoryImpl implements Repository {
 
     private void load(boolean validate) {
         if (features == null) {
-            try (
-                    InputStream inputStream = new InterruptibleInputStream(uri.toURL().openStream())
-            ) {
-                features = JaxbUtil.unmarshal(uri.toASCIIString(), inputStream, validate);
-                if (blacklist != null) {
-                    blacklist.blacklist(features);
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(e.getMessage() + " : " + uri, e);
+            features = parse(uri, validate);
+            if (blacklist != null) {
+                blacklist.blacklist(features);
+            }
+        }
+    }
+
+    static Features parse(URI uri, boolean validate) {
+        try (
+                InputStream inputStream = new InterruptibleInputStream(uri.toURL().openStream())
+        ) {
+            if (validate) {
+                return JaxbUtil.unmarshal(uri.toASCIIString(), inputStream, true);
+            } else {
+                return FeaturesStaxParser.parse(uri.toASCIIString(), inputStream);
             }
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage() + " : " + uri, e);
         }
     }
 
@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.karaf.features.internal.download.impl.ArtifactCache;
+import org.apache.karaf.features.internal.model.Features;
+import org.apache.karaf.features.internal.model.FeaturesBinaryCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary snapshot of the parsed features repositories.
+ *
+ * Each entry holds the encoded features model of a repository uri along with a stamp
+ * of its source: the size and last modification time for <code>file:</code> uris, while
+ * maven uris with a release version are considered immutable.  Repositories with other
+ * uris are always parsed.  The snapshot file is memory mapped and the entries are only
+ * decoded when their repository is loaded.
+ *
+ * As a mapped file can not be replaced on all platforms, each save writes a new generation
+ * of the snapshot, named after the given file with the generation number as extension, and
+ * removes the previous generations when possible.  The last generation is loaded.
+ */
+public class RepositorySnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositorySnapshot.class);
+
+    private static final int MAGIC = 0x4b465253;
+    private static final int FORMAT_VERSION = 1;
+
+    private final File file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Entry> used = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile boolean loaded;
+    private volatile boolean dirty;
+    private int generation;
+
+    /**
+     * @param file the file used to persist the snapshot, or <code>null</code> for an in-memory only snapshot
+     */
+    public RepositorySnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Compute the stamp used to check if the repository has changed.
+     *
+     * @param uri the repository uri
+     * @return the stamp, or <code>null</code> if the repository can not be cached
+     */
+    public static String getStamp(URI uri) {
+        if ("file".equals(uri.getScheme())) {
+            try {
+                File f = new File(uri);
+                if (f.isFile()) {
+                    return f.length() + ":" + f.lastModified();
+                }
+            } catch (IllegalArgumentException e) {
+                // Ignore, the repository can not be cached
+            }
+            return null;
+        }
+        return ArtifactCache.isCacheable(uri.toString()) ? "mvn" : null;
+    }
+
+    /**
+     * Retrieve the features of the given repository if the snapshot holds them
+     * for the same stamp.
+     *
+     * @param uri the repository uri
+     * @param stamp the current stamp of the repository
+     * @return a new features model, or <code>null</code> if the repository must be parsed
+     */
+    public Features get(String uri, String stamp) {
+        load();
+        Entry entry = entries.get(uri);
+        if (entry != null && entry.stamp.equals(stamp)) {
+            try {
+                Features features = FeaturesBinaryCodec.read(uri, entry.data.duplicate());
+                used.put(uri, entry);
+                hits.incrementAndGet();
+                return features;
+            } catch (RuntimeException e) {
+                LOGGER.debug("Unable to read features repository " + uri + " from snapshot", e);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store the features of the given repository.
+     * The features must be stored before being modified, for example by the blacklist.
+     */
+    public void put(String uri, String stamp, Features features) {
+        try {
+            Entry entry = new Entry(stamp, ByteBuffer.wrap(FeaturesBinaryCodec.write(features)));
+            entries.put(uri, entry);
+            used.put(uri, entry);
+            dirty = true;
+        } catch (IOException e) {
+            LOGGER.debug("Unable to store features repository " + uri + " in snapshot", e);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Persist the repositories which have been loaded since the start if the snapshot has been modified.
+     * Entries of repositories which are no longer used are dropped.
+     */
+    public synchronized void save() {
+        if (file == null || !dirty) {
+            return;
+        }
+        load();
+        dirty = false;
+        File tmp = getSibling("tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                Map<String, Entry> toSave = new HashMap<>(used);
+                out.writeInt(toSave.size());
+                for (Map.Entry<String, Entry> entry : toSave.entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeString(out, entry.getValue().stamp);
+                    ByteBuffer data = entry.getValue().data.duplicate();
+                    byte[] bytes = new byte[data.remaining()];
+                    data.get(bytes);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            // The current generation may still be mapped, so write a new one
+            Files.move(tmp.toPath(), getSibling(Integer.toString(generation + 1)).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            generation++;
+        } catch (IOException e) {
+            LOGGER.warn("Error saving features repositories snapshot to " + file, e);
+        }
+        deletePreviousGenerations();
+    }
+
+    private File getSibling(String extension) {
+        return new File(file.getAbsoluteFile().getParentFile(), file.getName() + "." + extension);
+    }
+
+    /**
+     * List the generations of the snapshot which exist on disk, in ascending order.
+     */
+    private List<Integer> getGenerations() {
+        List<Integer> generations = new ArrayList<>();
+        String prefix = file.getName() + ".";
+        String[] names = file.getAbsoluteFile().getParentFile().list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(prefix)) {
+                    try {
+                        generations.add(Integer.parseInt(name.substring(prefix.length())));
+                    } catch (NumberFormatException e) {
+                        // Not a generation of the snapshot
+                    }
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private void deletePreviousGenerations() {
+        for (int previous : getGenerations()) {
+            if (previous < generation) {
+                File f = getSibling(Integer.toString(previous));
+                if (!f.delete()) {
+                    // The file is still mapped, it will be removed after the next start
+                    LOGGER.debug("Unable to delete previous features repositories snapshot {}", f);
+                }
+            }
+        }
+    }
+
+    private void load() {
+        if (!loaded) {
+            doLoad();
+        }
+    }
+
+    private synchronized void doLoad() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (file == null) {
+            return;
+        }
+        List<Integer> generations = getGenerations();
+        if (generations.isEmpty()) {
+            return;
+        }
+        generation = generations.get(generations.size() - 1);
+        deletePreviousGenerations();
+        File current = getSibling(Integer.toString(generation));
+        try (FileChannel channel = FileChannel.open(current.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid once the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                LOGGER.debug("Ignoring features repositories snapshot {} with unsupported format", current);
+                return;
+            }
+            int nb = buffer.getInt();
+            for (int i = 0; i < nb; i++) {
+                String uri = readString(buffer);
+                String stamp = readString(buffer);
+                int length = buffer.getInt();
+                ByteBuffer data = buffer.slice();
+                data.limit(length);
+                buffer.position(buffer.position() + length);
+                entries.put(uri, new Entry(stamp, data));
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Error loading features repositories snapshot from " + current + ", it will be rebuilt", e);
+            entries.clear();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static class Entry {
+        final String stamp;
+        final ByteBuffer data;
+
+        Entry(String stamp, ByteBuffer data) {
+            this.stamp = stamp;
+            this.data = data;
+        }
+    }
+
+}
@@ -18,8 +18,11 @@ package org.apache.karaf.features.internal.service;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.karaf.features.internal.resolver.CapabilitySet;
@@ -42,6 +45,50 @@ public final class RequirementSort<T extends Resource> {
      * @return sorted collection of resources.
      */
     public static <T extends Resource> Collection<T> sort(Collection<T> resources) {
+        return sort(resources, createCapabilitySet(resources));
+    }
+
+    /**
+     * Sort {@link Resource} in layers based on their {@link Requirement}s and {@link Capability}s.
+     * Resources in a layer only depend on resources from the previous layers, so that all the
+     * resources of a given layer can be processed concurrently.
+     * Dependency cycles are broken using the order given by {@link #sort(Collection)}.
+     *
+     * @param resources the resource to sort.
+     * @param <T> the resources type.
+     * @return the list of layers of resources.
+     */
+    public static <T extends Resource> List<List<T>> sortInLayers(Collection<T> resources) {
+        CapabilitySet capSet = createCapabilitySet(resources);
+        Map<T, Integer> layers = new HashMap<>();
+        List<List<T>> result = new ArrayList<>();
+        for (T r : sort(resources, capSet)) {
+            int layer = 0;
+            for (T dep : collectDependencies(r, capSet)) {
+                Integer l = layers.get(dep);
+                if (l != null) {
+                    layer = Math.max(layer, l + 1);
+                }
+            }
+            layers.put(r, layer);
+            while (result.size() <= layer) {
+                result.add(new ArrayList<>());
+            }
+            result.get(layer).add(r);
+        }
+        return result;
+    }
+
+    private static <T extends Resource> Collection<T> sort(Collection<T> resources, CapabilitySet capSet) {
+        Set<T> sorted = new LinkedHashSet<>();
+        Set<T> visited = new LinkedHashSet<>();
+        for (T r : resources) {
+            visit(r, visited, sorted, capSet);
+        }
+        return sorted;
+    }
+
+    private static <T extends Resource> CapabilitySet createCapabilitySet(Collection<T> resources) {
         Set<String> namespaces = new HashSet<>();
         for (Resource r : resources) {
             for (Capability cap : r.getCapabilities(null)) {
@@ -54,12 +101,7 @@ public final class RequirementSort<T extends Resource> {
                 capSet.addCapability(cap);
             }
         }
-        Set<T> sorted = new LinkedHashSet<>();
-        Set<T> visited = new LinkedHashSet<>();
-        for (T r : resources) {
-            visit(r, visited, sorted, capSet);
-        }
-        return sorted;
+        return capSet;
     }
 
     private static <T extends Resource> void visit(T resource, Set<T> visited, Set<T> sorted, CapabilitySet capSet) {
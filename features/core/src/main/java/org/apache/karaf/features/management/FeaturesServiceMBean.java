@@ -144,4 +144,69 @@ public interface FeaturesServiceMBean {
 
     void uninstallFeature(String name, String version, boolean noRefresh) throws Exception;
 
+    /**
+     * Number of bundles whose resolver metadata has been found in the bundle metadata index.
+     */
+    long getBundleMetadataIndexHits();
+
+    /**
+     * Number of bundles whose manifest had to be parsed because they were not found in the bundle metadata index.
+     */
+    long getBundleMetadataIndexMisses();
+
+    /**
+     * Number of bundles in the bundle metadata index.
+     */
+    int getBundleMetadataIndexSize();
+
+    /**
+     * Remove all entries from the bundle metadata index.
+     */
+    void clearBundleMetadataIndex();
+
+    /**
+     * Number of resolutions whose wiring has been found in the resolution snapshot.
+     */
+    long getResolutionSnapshotHits();
+
+    /**
+     * Number of resolutions which had to be computed because they were not found in the resolution snapshot.
+     */
+    long getResolutionSnapshotMisses();
+
+    /**
+     * Remove all entries from the resolution snapshot.
+     */
+    void clearResolutionSnapshot();
+
+    /**
+     * Number of artifacts which have been served from the download cache.
+     */
+    long getDownloadCacheHits();
+
+    /**
+     * Number of artifacts which had to be resolved because they were not found in the download cache.
+     */
+    long getDownloadCacheMisses();
+
+    /**
+     * Number of artifacts obtained from a download of the same artifact already in progress.
+     */
+    long getDownloadCacheDeduplicated();
+
+    /**
+     * Number of bytes served from the download cache.
+     */
+    long getDownloadCacheBytes();
+
+    /**
+     * Number of artifacts in the download cache.
+     */
+    int getDownloadCacheSize();
+
+    /**
+     * Remove all artifacts from the download cache.
+     */
+    void clearDownloadCache();
+
 }
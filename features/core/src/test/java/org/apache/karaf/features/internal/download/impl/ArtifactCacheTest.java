@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.download.impl;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ArtifactCacheTest {
+
+    @Test
+    public void testCacheable() {
+        assertTrue(ArtifactCache.isCacheable("mvn:org.foo/bar/1.0.0"));
+        assertTrue(ArtifactCache.isCacheable("mvn:org.foo/bar/1.0.0/xml/features"));
+        assertFalse(ArtifactCache.isCacheable("mvn:org.foo/bar/1.0.0-SNAPSHOT"));
+        assertFalse(ArtifactCache.isCacheable("mvn:org.foo/bar/[1,2)"));
+        assertFalse(ArtifactCache.isCacheable("mvn:org.foo/bar"));
+        assertFalse(ArtifactCache.isCacheable("file:/tmp/bar.jar"));
+    }
+
+    @Test
+    public void testPersistentCache() throws Exception {
+        File dir = Files.createTempDirectory("artifacts").toFile();
+        File artifact = File.createTempFile("bar", ".jar");
+        artifact.deleteOnExit();
+        byte[] content = "artifact content".getBytes();
+        Files.write(artifact.toPath(), content);
+
+        ArtifactCache cache = new ArtifactCache(dir);
+        File f1 = cache.resolve("mvn:org.foo/bar/1.0.0", () -> artifact);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertArrayEquals(content, Files.readAllBytes(f1.toPath()));
+        // Same content under another url is stored once
+        File f2 = cache.resolve("mvn:org.foo/baz/1.0.0", () -> artifact);
+        assertEquals(f1, f2);
+        cache.save();
+
+        cache = new ArtifactCache(dir);
+        File f3 = cache.resolve("mvn:org.foo/bar/1.0.0", () -> {
+            throw new IllegalStateException("Artifact should have been found in the cache");
+        });
+        assertEquals(f1, f3);
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(content.length, cache.getBytes());
+        assertEquals(2, cache.getSize());
+
+        // Snapshots are not cached
+        cache.resolve("mvn:org.foo/bar/1.1.0-SNAPSHOT", () -> artifact);
+        assertEquals(2, cache.getSize());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertFalse(f1.exists());
+        assertEquals(Arrays.asList("index.json"), Arrays.asList(dir.list()));
+    }
+
+    @Test
+    public void testClearDuringDownload() throws Exception {
+        File dir = Files.createTempDirectory("artifacts").toFile();
+        File artifact = File.createTempFile("bar", ".jar");
+        artifact.deleteOnExit();
+        byte[] content = "artifact content".getBytes();
+        Files.write(artifact.toPath(), content);
+
+        ArtifactCache cache = new ArtifactCache(dir);
+        File f1 = cache.resolve("mvn:org.foo/bar/1.0.0", () -> artifact);
+        // The cache is cleared while the other artifact is being downloaded
+        File f2 = cache.resolve("mvn:org.foo/baz/1.0.0", () -> {
+            cache.clear();
+            return artifact;
+        });
+        assertEquals(f1, f2);
+        assertArrayEquals(content, Files.readAllBytes(f2.toPath()));
+        assertEquals(1, cache.getSize());
+        cache.save();
+
+        ArtifactCache reloaded = new ArtifactCache(dir);
+        assertEquals(1, reloaded.getSize());
+        assertEquals(f2, reloaded.resolve("mvn:org.foo/baz/1.0.0", () -> {
+            throw new IllegalStateException("Artifact should have been found in the cache");
+        }));
+    }
+
+    @Test
+    public void testConcurrentDownloadsOfTheSameUrl() throws Exception {
+        File dir = Files.createTempDirectory("artifacts").toFile();
+        File artifact = File.createTempFile("bar", ".jar");
+        artifact.deleteOnExit();
+        Files.write(artifact.toPath(), "artifact content".getBytes());
+
+        ArtifactCache cache = new ArtifactCache(dir);
+        AtomicInteger downloads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> waiter = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<File> first = executor.submit(() -> cache.resolve("mvn:org.foo/bar/1.0.0", () -> {
+                downloads.incrementAndGet();
+                started.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                return artifact;
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<File> second = executor.submit(() -> {
+                waiter.set(Thread.currentThread());
+                return cache.resolve("mvn:org.foo/bar/1.0.0", () -> {
+                    downloads.incrementAndGet();
+                    return artifact;
+                });
+            });
+            // release the download once the second caller waits for it
+            long deadline = System.currentTimeMillis() + 10000;
+            while ((waiter.get() == null || waiter.get().getState() != Thread.State.WAITING)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            File f1 = first.get(10, TimeUnit.SECONDS);
+            File f2 = second.get(10, TimeUnit.SECONDS);
+            assertEquals(f1, f2);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, downloads.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getDeduplicated());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getBytes());
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares the time and the allocations of the JAXB and StaX features parsers on the
+ * features descriptors of the distribution.
+ * <p>
+ * The descriptors are searched in the directory given as argument, which defaults to
+ * <code>../../assemblies/features</code>.  The number of iterations is given by the
+ * <code>iterations</code> system property (default 200).
+ * <p>
+ * This is not a unit test, run it from the IDE or with
+ * <code>mvn test-compile exec:java -Dexec.mainClass=org.apache.karaf.features.internal.model.FeaturesParserBenchmark -Dexec.classpathScope=test</code>.
+ */
+public class FeaturesParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Path root = Paths.get(args.length > 0 ? args[0] : "../../assemblies/features");
+        int iterations = Integer.getInteger("iterations", 200);
+
+        List<String> uris = new ArrayList<>();
+        List<byte[]> descriptors = new ArrayList<>();
+        for (Path path : findDescriptors(root)) {
+            uris.add(path.toUri().toString());
+            descriptors.add(Files.readAllBytes(path));
+        }
+        long size = descriptors.stream().mapToLong(d -> d.length).sum();
+        System.out.println("Descriptors: " + descriptors.size() + " (" + size / 1024 + " kB)");
+
+        // Warm up both parsers before measuring
+        run("JAXB", uris, descriptors, iterations / 4, (uri, d) -> JaxbUtil.unmarshal(uri, new ByteArrayInputStream(d), false), false);
+        run("StaX", uris, descriptors, iterations / 4, (uri, d) -> FeaturesStaxParser.parse(uri, new ByteArrayInputStream(d)), false);
+        run("JAXB", uris, descriptors, iterations, (uri, d) -> JaxbUtil.unmarshal(uri, new ByteArrayInputStream(d), false), true);
+        run("StaX", uris, descriptors, iterations, (uri, d) -> FeaturesStaxParser.parse(uri, new ByteArrayInputStream(d)), true);
+    }
+
+    private static List<Path> findDescriptors(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(p -> p.toString().endsWith(".xml"))
+                    .filter(p -> p.getParent().getFileName().toString().equals("feature"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void run(String name, List<String> uris, List<byte[]> descriptors, int iterations,
+                            BiFunction<String, byte[], Features> parser, boolean report) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long allocated = allocatedBytes(threads);
+        long features = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (int j = 0; j < descriptors.size(); j++) {
+                features += parser.apply(uris.get(j), descriptors.get(j)).getFeature().size();
+            }
+        }
+        long elapsed = System.nanoTime() - t0;
+        allocated = allocatedBytes(threads) - allocated;
+        if (report) {
+            System.out.printf("%s: %.3f ms per iteration, %.1f MB allocated per iteration, %d features%n",
+                    name, elapsed / 1e6 / iterations, allocated / 1024.0 / 1024.0 / iterations, features / iterations);
+        }
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.model;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URL;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FeaturesStaxParserTest {
+
+    private static final String[] DESCRIPTORS = {
+            "/org/apache/karaf/features/repo1.xml",
+            "/org/apache/karaf/features/repo2.xml",
+            "/org/apache/karaf/features/repo3.xml",
+            "/org/apache/karaf/features/repo4.xml",
+            "/org/apache/karaf/features/internal/service/f01.xml",
+            "/org/apache/karaf/features/internal/service/f06.xml",
+            "/org/apache/karaf/features/internal/service/f07.xml",
+            "/org/apache/karaf/features/internal/service/f08.xml",
+            "/org/apache/karaf/features/internal/region/data7/features.xml",
+            "/org/apache/karaf/features/internal/region/data9/pax-web-6.0.4.xml"
+    };
+
+    @Test
+    public void testSameModelAsJaxb() throws Exception {
+        for (String descriptor : DESCRIPTORS) {
+            URL url = getClass().getResource(descriptor);
+            Features jaxb;
+            try (InputStream is = url.openStream()) {
+                jaxb = JaxbUtil.unmarshal(url.toExternalForm(), is, false);
+            }
+            Features stax;
+            try (InputStream is = url.openStream()) {
+                stax = FeaturesStaxParser.parse(url.toExternalForm(), is);
+            }
+            assertEquals(descriptor, jaxb.getNamespace(), stax.getNamespace());
+            assertEquals(descriptor, toXml(jaxb), toXml(stax));
+        }
+    }
+
+    private static String toXml(Features features) throws Exception {
+        StringWriter sw = new StringWriter();
+        JaxbUtil.marshal(features, sw);
+        return sw.toString();
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.region;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.karaf.features.internal.download.StreamProvider;
+import org.apache.karaf.features.internal.resolver.RequirementImpl;
+import org.apache.karaf.features.internal.resolver.ResourceBuilder;
+import org.apache.karaf.features.internal.resolver.ResourceImpl;
+import org.junit.Test;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BundleMetadataIndexTest {
+
+    @Test
+    public void testPersistentIndex() throws Exception {
+        File bundle = File.createTempFile("bundle", ".jar");
+        bundle.deleteOnExit();
+        File indexFile = File.createTempFile("bundle-metadata", ".json");
+        indexFile.delete();
+        indexFile.deleteOnExit();
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Bundle-ManifestVersion", "2");
+        headers.put("Bundle-SymbolicName", "a");
+        headers.put("Bundle-Version", "1.2.3");
+        headers.put("Export-Package", "org.a;version=1.2,org.a.impl;version=1.2;uses:=\"org.a\"");
+        headers.put("Import-Package", "org.b;version=\"[1,2)\",org.c;resolution:=optional");
+        headers.put("Provide-Capability", "ns;ns=c;size:Long=12;list:List<String>=\"x,y\"");
+        headers.put("Require-Capability", "ns;filter:=\"(ns=d)\"");
+        ResourceImpl expected = ResourceBuilder.build("a", headers);
+
+        BundleMetadataIndex index = new BundleMetadataIndex(indexFile);
+        ResourceImpl res1 = index.getResource("a", provider(bundle), false, () -> ResourceBuilder.build("a", headers));
+        assertEquals(0, index.getHits());
+        assertEquals(1, index.getMisses());
+        assertSameResource(expected, res1);
+        index.save();
+        assertTrue(indexFile.isFile());
+
+        index = new BundleMetadataIndex(indexFile);
+        ResourceImpl res2 = index.getResource("a", provider(bundle), false, () -> {
+            throw new IllegalStateException("Resource should have been found in the index");
+        });
+        assertEquals(1, index.getHits());
+        assertEquals(0, index.getMisses());
+        assertSameResource(expected, res2);
+
+        // Changing the bundle invalidates the entry
+        bundle.setLastModified(bundle.lastModified() - 10000);
+        index.getResource("a", provider(bundle), false, () -> ResourceBuilder.build("a", headers));
+        assertEquals(1, index.getMisses());
+    }
+
+    private void assertSameResource(ResourceImpl expected, ResourceImpl actual) {
+        assertEquals(expected.getCapabilities(null).size(), actual.getCapabilities(null).size());
+        assertEquals(expected.getRequirements(null).size(), actual.getRequirements(null).size());
+        for (int i = 0; i < expected.getCapabilities(null).size(); i++) {
+            Capability c1 = expected.getCapabilities(null).get(i);
+            Capability c2 = actual.getCapabilities(null).get(i);
+            assertEquals(c1.getNamespace(), c2.getNamespace());
+            assertEquals(c1.getDirectives(), c2.getDirectives());
+            assertEquals(c1.getAttributes(), c2.getAttributes());
+            assertTrue(c2.getResource() == actual);
+        }
+        for (int i = 0; i < expected.getRequirements(null).size(); i++) {
+            Requirement r1 = expected.getRequirements(null).get(i);
+            Requirement r2 = actual.getRequirements(null).get(i);
+            assertEquals(r1.getNamespace(), r2.getNamespace());
+            assertEquals(r1.getDirectives(), r2.getDirectives());
+            assertEquals(r1.getAttributes().keySet(), r2.getAttributes().keySet());
+            assertEquals(((RequirementImpl) r1).getFilter().toString(), ((RequirementImpl) r2).getFilter().toString());
+            assertTrue(r2.getResource() == actual);
+        }
+    }
+
+    private StreamProvider provider(File file) {
+        return new StreamProvider() {
+            @Override
+            public String getUrl() {
+                return file.toURI().toString();
+            }
+
+            @Override
+            public File getFile() throws IOException {
+                return file;
+            }
+
+            @Override
+            public InputStream open() throws IOException {
+                return new FileInputStream(file);
+            }
+        };
+    }
+
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.karaf.features.internal.region;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -42,6 +43,7 @@ import org.slf4j.LoggerFactory;
 
 import static org.apache.karaf.features.internal.util.MapUtils.addToMapSet;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class SubsystemTest {
 
@@ -103,6 +105,45 @@ public class SubsystemTest {
         verify(resolver, expected);
     }
 
+    @Test
+    public void testResolutionSnapshot() throws Exception {
+        RepositoryImpl repo = new RepositoryImpl(getClass().getResource("data2/features.xml").toURI());
+        File file = File.createTempFile("resolution-snapshot", ".json");
+        file.delete();
+        file.deleteOnExit();
+
+        Map<String, Set<String>> features = new HashMap<>();
+        addToMapSet(features, "root/apps1", "f1");
+        addToMapSet(features, "root/apps1", "f3");
+        addToMapSet(features, "root/apps2", "f1");
+
+        Map<String, Set<String>> expected = new HashMap<>();
+        addToMapSet(expected, "root/apps1", "c/1.0.0");
+        addToMapSet(expected, "root/apps1", "b/1.0.0");
+        addToMapSet(expected, "root/apps1", "e/1.0.0");
+        addToMapSet(expected, "root/apps1#f1", "a/1.0.0");
+        addToMapSet(expected, "root/apps1#f1", "d/1.0.0");
+        addToMapSet(expected, "root/apps2", "b/1.0.0");
+        addToMapSet(expected, "root/apps2", "c/1.0.0");
+        addToMapSet(expected, "root/apps2#f1", "a/1.0.0");
+
+        for (int i = 0; i < 2; i++) {
+            ResolutionSnapshot snapshot = new ResolutionSnapshot(file);
+            SubsystemResolver resolver = new SubsystemResolver(this.resolver, new TestDownloadManager(getClass(), "data2"), null, snapshot);
+            resolver.prepare(Arrays.asList(repo.getFeatures()),
+                             features,
+                             Collections.emptyMap());
+            resolver.resolve(Collections.emptySet(),
+                             FeaturesService.DEFAULT_FEATURE_RESOLUTION_RANGE,
+                             null, null, null);
+
+            verify(resolver, expected);
+            assertEquals(i, snapshot.getHits());
+            assertEquals(1 - i, snapshot.getMisses());
+            assertTrue(file.isFile());
+        }
+    }
+
     @Test
     public void testOverrides() throws Exception {
         RepositoryImpl repo = new RepositoryImpl(getClass().getResource("data3/features.xml").toURI());
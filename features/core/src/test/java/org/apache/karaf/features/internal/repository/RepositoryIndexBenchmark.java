@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.karaf.features.internal.resolver.CapabilitySet;
+import org.apache.karaf.features.internal.resolver.ResourceBuilder;
+import org.osgi.framework.Constants;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+
+/**
+ * Compares the time spent looking up the providers of all the requirements of a resource
+ * repository, when the capabilities are only indexed on their namespace attribute and with
+ * the indices created by {@link BaseRepository}.
+ * <p>
+ * The repository is given as argument, using the same syntax as the <code>resourceRepositories</code>
+ * configuration (<code>json:url</code> or <code>xml:url</code>).  Without argument, two repositories of
+ * 2000 generated bundles are used: one where each package is exported by a few bundles, and one where
+ * packages are widely exported.  The number of iterations is given by the <code>iterations</code>
+ * system property (default 20).
+ * <p>
+ * This is not a unit test, run it from the IDE or with
+ * <code>mvn test-compile exec:java -Dexec.mainClass=org.apache.karaf.features.internal.repository.RepositoryIndexBenchmark -Dexec.classpathScope=test</code>.
+ */
+public class RepositoryIndexBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = Integer.getInteger("iterations", 20);
+        if (args.length > 0) {
+            run(load(args[0]), iterations);
+        } else {
+            System.out.println("Packages exported by 5 bundles");
+            run(generate(2000, 5), iterations);
+            System.out.println("Packages exported by 200 bundles");
+            run(generate(2000, 200), iterations);
+        }
+    }
+
+    private static void run(List<Resource> resources, int iterations) {
+        List<Requirement> requirements = new ArrayList<>();
+        for (Resource resource : resources) {
+            requirements.addAll(resource.getRequirements(null));
+        }
+        System.out.println("Resources: " + resources.size() + ", requirements: " + requirements.size());
+
+        BaseRepository plain = new BaseRepository() {
+            @Override
+            protected CapabilitySet createCapabilitySet(String namespace) {
+                return new CapabilitySet(Collections.singletonList(namespace));
+            }
+        };
+        BaseRepository indexed = new BaseRepository();
+        for (Resource resource : resources) {
+            plain.addResource(resource);
+            indexed.addResource(resource);
+        }
+
+        // Warm up both indices before measuring
+        run("namespace index", plain, requirements, Math.max(1, iterations / 4), false);
+        run("attribute index", indexed, requirements, Math.max(1, iterations / 4), false);
+        run("namespace index", plain, requirements, iterations, true);
+        run("attribute index", indexed, requirements, iterations, true);
+    }
+
+    private static List<Resource> load(String url) {
+        RefreshableRepository repository;
+        if (url.startsWith("json:")) {
+            repository = new JsonRepository(url.substring("json:".length()), -1, false);
+        } else if (url.startsWith("xml:")) {
+            repository = new XmlRepository(url.substring("xml:".length()), -1, false);
+        } else {
+            throw new IllegalArgumentException("Unrecognized resource repository: " + url);
+        }
+        return repository.getResources();
+    }
+
+    private static List<Resource> generate(int bundles, int exporters) throws Exception {
+        List<Resource> resources = new ArrayList<>();
+        for (int b = 0; b < bundles; b++) {
+            Map<String, String> headers = new HashMap<>();
+            headers.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+            headers.put(Constants.BUNDLE_SYMBOLICNAME, "org.acme.b" + b);
+            headers.put(Constants.BUNDLE_VERSION, "1." + (b % exporters) + ".0");
+            StringBuilder exports = new StringBuilder();
+            StringBuilder imports = new StringBuilder();
+            for (int p = 0; p < 10; p++) {
+                // Each package is exported by several bundles in different versions
+                int pkg = (b / exporters) * 10 + p;
+                if (p > 0) {
+                    exports.append(",");
+                    imports.append(",");
+                }
+                exports.append("org.acme.p").append(pkg).append(";version=1.").append(b % exporters);
+                int imported = (pkg * 7 + 13) % ((bundles / exporters) * 10);
+                imports.append("org.acme.p").append(imported).append(";version=\"[1.1,2)\"");
+            }
+            headers.put(Constants.EXPORT_PACKAGE, exports.toString());
+            headers.put(Constants.IMPORT_PACKAGE, imports.toString());
+            resources.add(ResourceBuilder.build("mvn:org.acme/b" + b + "/1." + (b % exporters) + ".0", headers));
+        }
+        return resources;
+    }
+
+    private static void run(String name, BaseRepository repository, List<Requirement> requirements, int iterations, boolean report) {
+        long matches = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (Requirement requirement : requirements) {
+                Map<Requirement, Collection<Capability>> providers = repository.findProviders(Collections.singleton(requirement));
+                matches += providers.get(requirement).size();
+            }
+        }
+        long t1 = System.nanoTime();
+        if (report) {
+            System.out.printf("%-16s %8.2f ms/iteration, %d providers%n",
+                    name, (t1 - t0) / 1e6 / iterations, matches / iterations);
+        }
+    }
+
+}
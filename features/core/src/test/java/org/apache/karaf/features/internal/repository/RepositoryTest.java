@@ -24,6 +24,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.karaf.util.StreamUtils;
@@ -68,6 +73,50 @@ public class RepositoryTest {
         verify(repo);
     }
 
+    @Test
+    public void testBackgroundRefresh() throws Exception {
+        File temp = File.createTempFile("repo", ".json");
+        temp.deleteOnExit();
+        try (InputStream is = getClass().getResourceAsStream("repo.json")) {
+            Files.copy(is, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            JsonRepository repo = new JsonRepository(temp.toURI().toURL().toExternalForm(), 50, false, executor);
+            verify(repo);
+
+            Files.write(temp.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+            temp.setLastModified(System.currentTimeMillis() + 10000);
+            Thread.sleep(100);
+            // The stale content is used while the repository is refreshed
+            assertEquals(1, repo.getResources().size());
+            long timeout = System.currentTimeMillis() + 5000;
+            while (!repo.getResources().isEmpty() && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, repo.getResources().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSynchronousRefresh() throws Exception {
+        File temp = File.createTempFile("repo", ".json");
+        temp.deleteOnExit();
+        try (InputStream is = getClass().getResourceAsStream("repo.json")) {
+            Files.copy(is, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        // Without executor, the expired content is revalidated by the lookup
+        JsonRepository repo = new JsonRepository(temp.toURI().toURL().toExternalForm(), 50, false);
+        verify(repo);
+
+        Files.write(temp.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+        temp.setLastModified(System.currentTimeMillis() + 10000);
+        Thread.sleep(100);
+        assertEquals(0, repo.getResources().size());
+    }
+
     private void verify(BaseRepository repo) {
         assertNotNull(repo.getResources());
         assertEquals(1, repo.getResources().size());
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.resolver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.osgi.framework.Constants;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.osgi.framework.namespace.PackageNamespace.CAPABILITY_BUNDLE_SYMBOLICNAME_ATTRIBUTE;
+import static org.osgi.framework.namespace.PackageNamespace.CAPABILITY_BUNDLE_VERSION_ATTRIBUTE;
+import static org.osgi.framework.namespace.PackageNamespace.CAPABILITY_VERSION_ATTRIBUTE;
+import static org.osgi.framework.namespace.PackageNamespace.PACKAGE_NAMESPACE;
+
+public class CapabilitySetTest {
+
+    @Test
+    public void testIndexedMatches() throws Exception {
+        CapabilitySet plain = new CapabilitySet(Collections.singletonList(PACKAGE_NAMESPACE));
+        CapabilitySet indexed = new CapabilitySet(
+                Arrays.asList(PACKAGE_NAMESPACE, CAPABILITY_BUNDLE_SYMBOLICNAME_ATTRIBUTE),
+                Arrays.asList(CAPABILITY_VERSION_ATTRIBUTE, CAPABILITY_BUNDLE_VERSION_ATTRIBUTE));
+        for (int b = 0; b < 20; b++) {
+            for (int v = 0; v < 5; v++) {
+                Map<String, String> headers = new HashMap<>();
+                headers.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+                headers.put(Constants.BUNDLE_SYMBOLICNAME, "org.foo.b" + b);
+                headers.put(Constants.BUNDLE_VERSION, "1." + v + ".0");
+                headers.put(Constants.EXPORT_PACKAGE, "org.foo.p" + b + ";version=1." + v + ", org.foo.common;version=" + v + ".0");
+                Resource resource = ResourceBuilder.build("b" + b + "-" + v, headers);
+                for (Capability cap : resource.getCapabilities(PACKAGE_NAMESPACE)) {
+                    plain.addCapability(cap);
+                    indexed.addCapability(cap);
+                }
+            }
+        }
+
+        String[] filters = {
+            "(osgi.wiring.package=org.foo.p3)",
+            "(&(osgi.wiring.package=org.foo.p3)(version>=1.2.0))",
+            "(&(version>=1.2.0)(!(version>=1.4.0))(osgi.wiring.package=org.foo.p3))",
+            "(&(osgi.wiring.package=org.foo.common)(version>=2.0.0)(version<=3.0.0))",
+            // the range holds more capabilities than the candidates of the package
+            "(&(osgi.wiring.package=org.foo.common)(version>=1.0.0))",
+            "(&(version>=2.0.0)(!(version>=3.0.0)))",
+            "(version<=1.1.0)",
+            "(version=1.3.0)",
+            "(bundle-version>=1.4.0)",
+            "(&(bundle-symbolic-name=org.foo.b7)(bundle-version>=1.3.0))",
+            "(|(osgi.wiring.package=org.foo.p1)(version>=4.0.0))",
+            "(version=*)",
+            "(version>=not.a.version)",
+        };
+        for (String filter : filters) {
+            SimpleFilter sf = SimpleFilter.parse(filter);
+            Set<Capability> expected = plain.match(sf, true);
+            assertEquals(filter, expected, indexed.match(sf, true));
+        }
+        assertEquals(60, indexed.match(SimpleFilter.parse("(&(osgi.wiring.package=org.foo.common)(version>=2.0.0))"), true).size());
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.net.URI;
+import java.util.Collections;
+
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.Repository;
+import org.apache.karaf.features.internal.model.Bundle;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureCacheTest {
+
+    @Test
+    public void testAddAndRemoveRepository() throws Exception {
+        Feature a1 = feature("a", "1.0.0", "mvn:org/a/1.0.0");
+        Feature a2 = feature("a", "2.0.0", "mvn:org/a/2.0.0");
+        Feature b1 = feature("b", "1.0.0", "mvn:org/a/1.0.0");
+        Repository repo1 = repository("custom:repo1", a1, b1);
+        Repository repo2 = repository("custom:repo2", a2);
+
+        FeatureCache cache = new FeatureCache();
+        cache.addRepository(repo1);
+        cache.addRepository(repo2);
+        assertEquals(2, cache.getFeaturesByName().get("a").size());
+        assertSame(b1, cache.getFeaturesById().get("b/1.0.0"));
+        assertEquals(2, cache.getFeaturesByBundle("mvn:org/a/1.0.0").size());
+
+        cache.removeRepository("custom:repo1");
+        assertEquals(Collections.singleton("a"), cache.getFeaturesByName().keySet());
+        assertNull(cache.getFeaturesById().get("a/1.0.0"));
+        assertTrue(cache.getFeaturesByBundle("mvn:org/a/1.0.0").isEmpty());
+        assertSame(a2, cache.getFeature("a/2.0.0"));
+    }
+
+    @Test
+    public void testDuplicateFeatureKeptOnRemoval() throws Exception {
+        Feature a1 = feature("a", "1.0.0", "mvn:org/a/1.0.0");
+        Feature a1bis = feature("a", "1.0.0", "mvn:org/a/1.0.0");
+        Repository repo1 = repository("custom:repo1", a1);
+        Repository repo2 = repository("custom:repo2", a1bis);
+
+        FeatureCache cache = new FeatureCache();
+        cache.addRepository(repo1);
+        cache.addRepository(repo2);
+        cache.retainRepositories(Collections.singletonList(repo1));
+        assertSame(a1, cache.getFeature("a/1.0.0"));
+        assertEquals(1, cache.getFeaturesByBundle("mvn:org/a/1.0.0").size());
+        assertEquals(Collections.singleton("custom:repo1"), cache.getRepositoryUris());
+    }
+
+    private Feature feature(String name, String version, String location) {
+        org.apache.karaf.features.internal.model.Feature feature = new org.apache.karaf.features.internal.model.Feature(name, version);
+        feature.getBundle().add(new Bundle(location));
+        return feature;
+    }
+
+    private Repository repository(String uri, Feature... features) throws Exception {
+        Repository repository = EasyMock.createMock(Repository.class);
+        EasyMock.expect(repository.getURI()).andReturn(URI.create(uri)).anyTimes();
+        EasyMock.expect(repository.getFeatures()).andReturn(features).anyTimes();
+        EasyMock.replay(repository);
+        return repository;
+    }
+
+}
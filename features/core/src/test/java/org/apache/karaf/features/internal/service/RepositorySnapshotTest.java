@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.Repository;
+import org.apache.karaf.features.internal.model.Features;
+import org.apache.karaf.features.internal.model.FeaturesBinaryCodec;
+import org.apache.karaf.features.internal.model.JaxbUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RepositorySnapshotTest {
+
+    @Test
+    public void testCodecRoundTrip() throws Exception {
+        for (String descriptor : new String[] { "repo1.xml", "repo2.xml", "repo3.xml", "repo4.xml" }) {
+            URI uri = getClass().getResource("/org/apache/karaf/features/" + descriptor).toURI();
+            Features features = RepositoryImpl.parse(uri, false);
+            Features decoded = FeaturesBinaryCodec.read(uri.toString(), ByteBuffer.wrap(FeaturesBinaryCodec.write(features)));
+            assertEquals(descriptor, marshal(features), marshal(decoded));
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        File dir = Files.createTempDirectory("snapshot").toFile();
+        File descriptor = new File(dir, "repo1.xml");
+        try (InputStream is = getClass().getResourceAsStream("/org/apache/karaf/features/repo1.xml")) {
+            Files.copy(is, descriptor.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        File file = new File(dir, "repositories.bin");
+        URI uri = descriptor.toURI();
+
+        RepositorySnapshot snapshot = new RepositorySnapshot(file);
+        Repository parsed = new RepositoryCache(new Blacklist(), snapshot).create(uri, false);
+        assertEquals(0, snapshot.getHits());
+        assertEquals(1, snapshot.getMisses());
+        snapshot.save();
+
+        snapshot = new RepositorySnapshot(file);
+        Repository cached = new RepositoryCache(new Blacklist(), snapshot).create(uri, false);
+        assertEquals(1, snapshot.getHits());
+        assertEquals(0, snapshot.getMisses());
+        assertEquals(parsed.getName(), cached.getName());
+        assertEquals(parsed.getRepositories().length, cached.getRepositories().length);
+        assertEquals(parsed.getFeatures().length, cached.getFeatures().length);
+        for (int i = 0; i < parsed.getFeatures().length; i++) {
+            Feature f1 = parsed.getFeatures()[i];
+            Feature f2 = cached.getFeatures()[i];
+            assertEquals(f1.getId(), f2.getId());
+            assertEquals(f1.getBundles().size(), f2.getBundles().size());
+            assertEquals(f1.getConfigurations().size(), f2.getConfigurations().size());
+        }
+
+        // A modified descriptor is parsed again
+        descriptor.setLastModified(descriptor.lastModified() + 2000);
+        snapshot = new RepositorySnapshot(file);
+        new RepositoryCache(new Blacklist(), snapshot).create(uri, false);
+        assertEquals(0, snapshot.getHits());
+        assertEquals(1, snapshot.getMisses());
+
+        // Other uris are not cached
+        assertNull(RepositorySnapshot.getStamp(URI.create("http://localhost/features.xml")));
+        assertNull(RepositorySnapshot.getStamp(URI.create("mvn:org.foo/bar/1.0-SNAPSHOT/xml/features")));
+    }
+
+    @Test
+    public void testGenerations() throws Exception {
+        File dir = Files.createTempDirectory("snapshot").toFile();
+        File file = new File(dir, "repositories.bin");
+        URI[] uris = new URI[2];
+        for (int i = 0; i < uris.length; i++) {
+            File descriptor = new File(dir, "repo" + (i + 1) + ".xml");
+            try (InputStream is = getClass().getResourceAsStream("/org/apache/karaf/features/repo" + (i + 1) + ".xml")) {
+                Files.copy(is, descriptor.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            uris[i] = descriptor.toURI();
+        }
+
+        RepositorySnapshot snapshot = new RepositorySnapshot(file);
+        new RepositoryCache(new Blacklist(), snapshot).create(uris[0], false);
+        snapshot.save();
+        assertTrue(new File(dir, "repositories.bin.1").isFile());
+
+        // The first generation is mapped while the second one is written
+        snapshot = new RepositorySnapshot(file);
+        RepositoryCache cache = new RepositoryCache(new Blacklist(), snapshot);
+        cache.create(uris[0], false);
+        cache.create(uris[1], false);
+        assertEquals(1, snapshot.getHits());
+        assertEquals(1, snapshot.getMisses());
+        snapshot.save();
+        assertTrue(new File(dir, "repositories.bin.2").isFile());
+
+        snapshot = new RepositorySnapshot(file);
+        cache = new RepositoryCache(new Blacklist(), snapshot);
+        cache.create(uris[0], false);
+        cache.create(uris[1], false);
+        assertEquals(2, snapshot.getHits());
+        assertEquals(0, snapshot.getMisses());
+        assertFalse(new File(dir, "repositories.bin.1").exists());
+    }
+
+    private String marshal(Features features) throws Exception {
+        StringWriter sw = new StringWriter();
+        JaxbUtil.marshal(features, sw);
+        return sw.toString();
+    }
+
+}
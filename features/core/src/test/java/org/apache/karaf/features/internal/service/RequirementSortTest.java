@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.features.internal.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.karaf.features.internal.resolver.ResourceBuilder;
+import org.apache.karaf.features.internal.resolver.ResourceImpl;
+import org.junit.Test;
+import org.osgi.framework.BundleException;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequirementSortTest {
+
+    @Test
+    public void testSortInLayers() throws Exception {
+        ResourceImpl a = resource("a", "pa", null);
+        ResourceImpl b = resource("b", "pb", "pa");
+        ResourceImpl c = resource("c", "pc", "pa");
+        ResourceImpl d = resource("d", null, "pb,pc");
+        ResourceImpl e = resource("e", null, null);
+
+        List<List<ResourceImpl>> layers = RequirementSort.sortInLayers(Arrays.asList(d, c, b, a, e));
+        assertEquals(3, layers.size());
+        assertEquals(Arrays.asList(a, e), layers.get(0));
+        assertEquals(Arrays.asList(b, c), layers.get(1));
+        assertEquals(Arrays.asList(d), layers.get(2));
+    }
+
+    @Test
+    public void testSortInLayersWithCycle() throws Exception {
+        ResourceImpl a = resource("a", "pa", "pb");
+        ResourceImpl b = resource("b", "pb", "pa");
+
+        List<List<ResourceImpl>> layers = RequirementSort.sortInLayers(Arrays.asList(a, b));
+        assertEquals(2, layers.size());
+        assertEquals(Arrays.asList(b), layers.get(0));
+        assertEquals(Arrays.asList(a), layers.get(1));
+    }
+
+    private ResourceImpl resource(String name, String exports, String imports) throws BundleException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Bundle-ManifestVersion", "2");
+        headers.put("Bundle-SymbolicName", name);
+        if (exports != null) {
+            headers.put("Export-Package", exports);
+        }
+        if (imports != null) {
+            headers.put("Import-Package", imports);
+        }
+        return ResourceBuilder.build(name, headers);
+    }
+
+}
@@ -14,15 +14,10 @@
  */
 package org.apache.karaf.jaas.modules.audit;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
 
 import javax.security.auth.Subject;
@@ -31,39 +26,54 @@ import javax.security.auth.callback.CallbackHandler;
 public class FileAuditLoginModule extends AbstractAuditLoginModule {
 
     public static final String LOG_FILE_OPTION = "file";
+    public static final String ASYNC_OPTION = "async";
+    public static final String QUEUE_SIZE_OPTION = "queue.size";
+    public static final String FLUSH_INTERVAL_OPTION = "flush.interval";
+    public static final String MAX_SIZE_OPTION = "max.size";
+    public static final String MAX_FILES_OPTION = "max.files";
 
-    private final static DateFormat DATE_FORMAT = new SimpleDateFormat("MM/dd/yyyy HH:mm:ss");
-    private String logFile;
+    public static final int DEFAULT_QUEUE_SIZE = 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL = 100;
+    public static final int DEFAULT_MAX_FILES = 5;
+
+    private final static DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss").withZone(ZoneId.systemDefault());
+    private FileAuditWriter writer;
 
     public void initialize(Subject subject, CallbackHandler callbackHandler,
                            Map<String, ?> sharedState, Map<String, ?> options) {
         super.initialize(subject, callbackHandler, sharedState, options);
-        logFile = (String) options.get(LOG_FILE_OPTION);
+        String logFile = (String) options.get(LOG_FILE_OPTION);
+        String async = (String) options.get(ASYNC_OPTION);
+        writer = FileAuditWriter.getWriter(logFile,
+                async == null || Boolean.parseBoolean(async),
+                getInt(options, QUEUE_SIZE_OPTION, DEFAULT_QUEUE_SIZE),
+                getLong(options, FLUSH_INTERVAL_OPTION, DEFAULT_FLUSH_INTERVAL),
+                getLong(options, MAX_SIZE_OPTION, 0),
+                getInt(options, MAX_FILES_OPTION, DEFAULT_MAX_FILES));
+    }
+
+    private static int getInt(Map<String, ?> options, String key, int def) {
+        Object value = options.get(key);
+        return value != null && !value.toString().isEmpty() ? Integer.parseInt(value.toString()) : def;
     }
 
-    protected synchronized void audit(Action action, String username) {
-        Date date = new Date();
+    private static long getLong(Map<String, ?> options, String key, long def) {
+        Object value = options.get(key);
+        return value != null && !value.toString().isEmpty() ? Long.parseLong(value.toString()) : def;
+    }
+
+    protected void audit(Action action, String username) {
+        String actionStr;
+        switch (action) {
+        case ATTEMPT: actionStr = "Authentication attempt"; break;
+        case SUCCESS: actionStr = "Authentication succeeded"; break;
+        case FAILURE: actionStr = "Authentication failed"; break;
+        case LOGOUT: actionStr = "Explicit logout"; break;
+        default: actionStr = action.toString(); break;
+        }
         try {
-            File file = new File(logFile);
-            file.getParentFile().mkdirs();
-            FileOutputStream out = new FileOutputStream(file, true);
-            FileChannel channel = out.getChannel();
-            FileLock lock = channel.lock(0, Long.MAX_VALUE, false);
-            PrintWriter writer = new PrintWriter(out, false);
-            String actionStr;
-            switch (action) {
-            case ATTEMPT: actionStr = "Authentication attempt"; break;
-            case SUCCESS: actionStr = "Authentication succeeded"; break;
-            case FAILURE: actionStr = "Authentication failed"; break;
-            case LOGOUT: actionStr = "Explicit logout"; break;
-            default: actionStr = action.toString(); break;
-            }
-            writer.println(DATE_FORMAT.format(date) + " - " + actionStr + " - " + username);
-            writer.flush();
-            writer.close();
-            if (lock.isValid()) {
-                lock.release();
-            }
+            writer.write(DATE_FORMAT.format(Instant.now()) + " - " + actionStr + " - " + username);
         } catch (IOException e) {
             throw new RuntimeException("Unable to write to authentication log file", e);
         }
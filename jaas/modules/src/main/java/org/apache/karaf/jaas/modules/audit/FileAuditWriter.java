@@ -0,0 +1,271 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package org.apache.karaf.jaas.modules.audit;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the audit lines of a file, shared by all the {@link FileAuditLoginModule} instances using it.
+ * The file is kept open and is rotated when it exceeds its maximum size.
+ * In asynchronous mode, the lines are queued and written in batches by a background thread,
+ * the lines arriving during the flush interval being written together.
+ */
+public class FileAuditWriter implements Closeable {
+
+    private static final ConcurrentMap<String, FileAuditWriter> WRITERS = new ConcurrentHashMap<>();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileAuditWriter.class);
+
+    public static void clear() {
+        while (!WRITERS.isEmpty()) {
+            String file = WRITERS.keySet().iterator().next();
+            FileAuditWriter writer = WRITERS.remove(file);
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    public static FileAuditWriter getWriter(String file, boolean async, int queueSize, long flushInterval,
+                                            long maxSize, int maxFiles) {
+        FileAuditWriter writer = WRITERS.get(file);
+        if (writer == null || !writer.hasSettings(async, queueSize, flushInterval, maxSize, maxFiles)) {
+            FileAuditWriter newWriter = new FileAuditWriter(file, async, queueSize, flushInterval, maxSize, maxFiles);
+            boolean replaced = writer == null
+                    ? WRITERS.putIfAbsent(file, newWriter) == null
+                    : WRITERS.replace(file, writer, newWriter);
+            if (replaced) {
+                newWriter.start();
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+            writer = WRITERS.get(file);
+        }
+        return writer;
+    }
+
+    private final String name;
+    private final File file;
+    private final boolean async;
+    private final int queueSize;
+    private final long flushInterval;
+    private final long maxSize;
+    private final int maxFiles;
+    private final BlockingQueue<String> queue;
+    private FileChannel channel;
+    private volatile boolean running;
+    private volatile boolean closed;
+    private Thread thread;
+
+    public FileAuditWriter(String file, boolean async, int queueSize, long flushInterval, long maxSize, int maxFiles) {
+        this.name = file;
+        this.file = new File(file);
+        this.async = async;
+        this.queueSize = queueSize;
+        this.flushInterval = flushInterval;
+        this.maxSize = maxSize;
+        this.maxFiles = maxFiles;
+        this.queue = async ? new ArrayBlockingQueue<>(queueSize) : null;
+    }
+
+    private boolean hasSettings(boolean async, int queueSize, long flushInterval, long maxSize, int maxFiles) {
+        return this.async == async && this.queueSize == queueSize && this.flushInterval == flushInterval
+                && this.maxSize == maxSize && this.maxFiles == maxFiles;
+    }
+
+    public synchronized void start() {
+        if (async && !running) {
+            running = true;
+            thread = new Thread(this::run, "Karaf audit writer - " + file.getName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Write the given line. In asynchronous mode, this method only blocks when the queue is full.
+     * Once this writer has been closed, the line is written by the writer currently shared for
+     * the same file, if any.
+     */
+    public void write(String line) throws IOException {
+        if (!closed) {
+            try {
+                while (running) {
+                    if (queue.offer(line, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                if (!closed) {
+                    write(Collections.singletonList(line));
+                    return;
+                }
+            }
+        }
+        FileAuditWriter current = WRITERS.get(name);
+        if (current == null || current == this) {
+            throw new IOException("The authentication log file " + file + " has been closed");
+        }
+        current.write(line);
+    }
+
+    private void run() {
+        List<String> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                String line = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (line != null) {
+                    // group the lines arriving during the flush interval in a single write
+                    batch.add(line);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+                    while (batch.size() < queueSize) {
+                        queue.drainTo(batch, queueSize - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0 || batch.size() >= queueSize) {
+                            break;
+                        }
+                        line = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (line == null) {
+                            break;
+                        }
+                        batch.add(line);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // keep on writing the pending lines before stopping
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    write(batch);
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to write to authentication log file {}", file, e);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private synchronized void write(List<String> lines) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append(System.lineSeparator());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes());
+        FileChannel channel = getChannel();
+        if (maxSize > 0 && channel.size() > 0 && channel.size() + buffer.remaining() > maxSize) {
+            rotate();
+            channel = getChannel();
+        }
+        // the lock protects the file from other processes writing to it
+        try (FileLock lock = channel.lock(0, Long.MAX_VALUE, false)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        channel = null;
+        File last = new File(file.getPath() + "." + maxFiles);
+        if (last.exists() && !last.delete()) {
+            throw new IOException("Unable to delete " + last);
+        }
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File f = new File(file.getPath() + "." + i);
+            if (f.exists() && !f.renameTo(new File(file.getPath() + "." + (i + 1)))) {
+                throw new IOException("Unable to rename " + f);
+            }
+        }
+        if (maxFiles > 0) {
+            if (!file.renameTo(new File(file.getPath() + ".1"))) {
+                throw new IOException("Unable to rename " + file);
+            }
+        } else if (!file.delete()) {
+            throw new IOException("Unable to delete " + file);
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            closed = true;
+            t = thread;
+            thread = null;
+        }
+        if (t != null) {
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (queue != null && !queue.isEmpty()) {
+                List<String> lines = new ArrayList<>();
+                queue.drainTo(lines);
+                try {
+                    write(lines);
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to write to authentication log file {}", file, e);
+                }
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to close authentication log file {}", file, e);
+                }
+                channel = null;
+            }
+        }
+    }
+
+}
@@ -21,10 +21,12 @@ import java.util.Map;
 import org.apache.karaf.jaas.config.JaasRealm;
 import org.apache.karaf.jaas.modules.BackingEngineFactory;
 import org.apache.karaf.jaas.modules.EncryptionService;
+import org.apache.karaf.jaas.modules.audit.FileAuditWriter;
 import org.apache.karaf.jaas.modules.encryption.BasicEncryptionService;
 import org.apache.karaf.jaas.modules.ldap.LDAPCache;
 import org.apache.karaf.jaas.modules.properties.AutoEncryptionSupport;
 import org.apache.karaf.jaas.modules.properties.PropertiesBackingEngineFactory;
+import org.apache.karaf.jaas.modules.properties.PropertiesUserStore;
 import org.apache.karaf.jaas.modules.publickey.PublickeyBackingEngineFactory;
 import org.apache.karaf.util.tracker.BaseActivator;
 import org.apache.karaf.util.tracker.annotation.Managed;
@@ -65,6 +67,8 @@ public class Activator extends BaseActivator implements ManagedService {
         props.put("name", "basic");
         register(EncryptionService.class, new BasicEncryptionService(), props);
 
+        registerMBean(new LDAPCachesMBeanImpl(), "type=jaas,area=ldap");
+
 
         Map<String, Object> config = getConfig();
 
@@ -82,6 +86,8 @@ public class Activator extends BaseActivator implements ManagedService {
         }
         super.doStop();
         LDAPCache.clear();
+        FileAuditWriter.clear();
+        PropertiesUserStore.clear();
     }
 
     @Override
@@ -111,6 +117,11 @@ public class Activator extends BaseActivator implements ManagedService {
         populate(config, EVENTADMIN_ENABLED, "true");
         populate(config, "audit.file.enabled", "false");
         populate(config, "audit.file.file", System.getProperty("karaf.data") + "/security/audit.log");
+        populate(config, "audit.file.async", "true");
+        populate(config, "audit.file.queue.size", "1024");
+        populate(config, "audit.file.flush.interval", "100");
+        populate(config, "audit.file.max.size", "0");
+        populate(config, "audit.file.max.files", "5");
         populate(config, "audit.log.enabled", "true");
         populate(config, "audit.log.logger", "org.apache.karaf.jaas.modules.audit.LogAuditLoginModule");
         populate(config, "audit.log.level", "info");
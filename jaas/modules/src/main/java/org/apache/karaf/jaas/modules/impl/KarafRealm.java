@@ -84,6 +84,11 @@ public class KarafRealm implements JaasRealm {
         fileOptions.put(ProxyLoginModule.PROPERTY_BUNDLE, Long.toString(bundleContext.getBundle().getBundleId()));
         fileOptions.put("enabled", properties.get("audit.file.enabled"));
         fileOptions.put("file", properties.get("audit.file.file"));
+        fileOptions.put("async", properties.get("audit.file.async"));
+        fileOptions.put("queue.size", properties.get("audit.file.queue.size"));
+        fileOptions.put("flush.interval", properties.get("audit.file.flush.interval"));
+        fileOptions.put("max.size", properties.get("audit.file.max.size"));
+        fileOptions.put("max.files", properties.get("audit.file.max.files"));
 
         Map<String, Object> logOptions = new HashMap<>();
         logOptions.put(BundleContext.class.getName(), bundleContext);
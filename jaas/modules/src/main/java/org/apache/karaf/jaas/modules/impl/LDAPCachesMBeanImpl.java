@@ -0,0 +1,72 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package org.apache.karaf.jaas.modules.impl;
+
+import javax.management.MBeanException;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.apache.karaf.jaas.modules.ldap.LDAPCache;
+import org.apache.karaf.jaas.modules.ldap.LDAPCachesMBean;
+
+/**
+ * Default implementation of the LDAP caches MBean.
+ */
+public class LDAPCachesMBeanImpl implements LDAPCachesMBean {
+
+    private static final String[] NAMES = { "id", "url", "userBaseDn", "size", "hits", "misses", "loads",
+            "averageLoadTime", "maxLoadTime" };
+
+    @Override
+    public TabularData getCaches() throws MBeanException {
+        try {
+            CompositeType type = new CompositeType("LDAPCache", "LDAP cache",
+                    NAMES,
+                    new String[]{ "Id", "Connection URL", "User base DN", "Cached entries", "Cache hits",
+                            "Cache misses", "Directory queries", "Average query time (ms)", "Maximum query time (ms)" },
+                    new OpenType[]{ SimpleType.INTEGER, SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER,
+                            SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.DOUBLE });
+            TabularType tableType = new TabularType("LDAPCaches", "Table of the LDAP caches",
+                    type, new String[]{ "id" });
+            TabularData table = new TabularDataSupport(tableType);
+
+            int id = 0;
+            for (LDAPCache cache : LDAPCache.getCaches()) {
+                CompositeData data = new CompositeDataSupport(type, NAMES,
+                        new Object[]{ id++, cache.getOptions().getConnectionURL(), cache.getOptions().getUserBaseDn(),
+                                cache.getSize(), cache.getHits(), cache.getMisses(), cache.getLoads(),
+                                cache.getAverageLoadTime(), cache.getMaxLoadTime() });
+                table.put(data);
+            }
+            return table;
+        } catch (Exception e) {
+            throw new MBeanException(null, e.toString());
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (LDAPCache cache : LDAPCache.getCaches()) {
+            cache.clearCache();
+        }
+    }
+
+}
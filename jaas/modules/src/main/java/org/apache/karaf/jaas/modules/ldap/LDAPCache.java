@@ -14,8 +14,10 @@
  */
 package org.apache.karaf.jaas.modules.ldap;
 
+import javax.naming.CommunicationException;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.DirContext;
@@ -29,19 +31,33 @@ import javax.naming.event.NamingExceptionEvent;
 import javax.naming.event.ObjectChangeListener;
 import java.io.Closeable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Cache of the LDAP users and roles, shared by the login modules using the same options.
+ * The entries are bounded in number, can expire and are cleared when the directory notifies
+ * a change. Concurrent lookups of the same key are coalesced into a single directory query,
+ * and the queries use a small pool of directory contexts so that a slow query does not block
+ * the other logins.
+ */
 public class LDAPCache implements Closeable, NamespaceChangeListener, ObjectChangeListener {
 
     private static final ConcurrentMap<LDAPOptions, LDAPCache> CACHES = new ConcurrentHashMap<>();
@@ -53,7 +69,7 @@ public class LDAPCache implements Closeable, NamespaceChangeListener, ObjectChan
             LDAPOptions options = CACHES.keySet().iterator().next();
             LDAPCache cache = CACHES.remove(options);
             if (cache != null) {
-                cache.clearCache();
+                cache.close();
             }
         }
     }
@@ -67,20 +83,36 @@ public class LDAPCache implements Closeable, NamespaceChangeListener, ObjectChan
         return cache;
     }
 
-    private final Map<String, String[]> userDnAndNamespace;
-    private final Map<String, String[]> userRoles;
+    public static Collection<LDAPCache> getCaches() {
+        return new ArrayList<>(CACHES.values());
+    }
+
+    private final ConcurrentMap<String, Entry> userDnAndNamespace = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Entry> userRoles = new ConcurrentHashMap<>();
+    private final BlockingQueue<DirContext> idleContexts = new LinkedBlockingQueue<>();
     private final LDAPOptions options;
+    // the context listening to the directory changes
     private DirContext context;
+    private volatile boolean listening;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadTime = new AtomicLong();
+    private final AtomicLong maxLoadTime = new AtomicLong();
 
     public LDAPCache(LDAPOptions options) {
         this.options = options;
-        userDnAndNamespace = new HashMap<>();
-        userRoles = new HashMap<>();
+    }
+
+    public LDAPOptions getOptions() {
+        return options;
     }
 
     @Override
     public synchronized void close() {
         clearCache();
+        listening = false;
         if (context != null) {
             try {
                 context.close();
@@ -90,6 +122,9 @@ public class LDAPCache implements Closeable, NamespaceChangeListener, ObjectChan
                 context = null;
             }
         }
+        for (DirContext ctx = idleContexts.poll(); ctx != null; ctx = idleContexts.poll()) {
+            closeContext(ctx);
+        }
     }
 
     private boolean isContextAlive() {
@@ -110,6 +145,9 @@ public class LDAPCache implements Closeable, NamespaceChangeListener, ObjectChan
             return context;
         }
         clearCache();
+        if (context != null) {
+            closeContext(context);
+        }
         context = new InitialDirContext(options.getEnv());
 
         EventDirContext eventContext = ((EventDirContext) context.lookup(""));
@@ -132,23 +170,76 @@ public class LDAPCache implements Closeable, NamespaceChangeListener, ObjectChan
                 eventContext.addNamingListener(options.getRoleBaseDn(), filter, constraints, this);
             }
         }
+        listening = true;
 
         return context;
     }
 
-    public synchronized String[] getUserDnAndNamespace(String user) throws Exception {
-        String[] result = userDnAndNamespace.get(user);
-        if (result == null) {
-            result = doGetUserDnAndNamespace(user);
-            if (result != null && !options.getDisableCache()) {
-                userDnAndNamespace.put(user, result);
+    /**
+     * Run a directory query on a pooled context, making sure that the cache is listening
+     * to the directory changes.  Idle connections may have been dropped by the server or
+     * a firewall, so a query failing to reach the server on a pooled context is retried
+     * once on a new context, the other idle contexts being discarded.
+     */
+    private <T> T query(DirQuery<T> query) throws NamingException {
+        if (!listening) {
+            open();
+        }
+        DirContext ctx = idleContexts.poll();
+        if (ctx != null) {
+            boolean valid = false;
+            try {
+                T result = query.apply(ctx);
+                valid = true;
+                return result;
+            } catch (CommunicationException | ServiceUnavailableException e) {
+                LOGGER.debug("Pooled LDAP connection is not usable anymore, retrying with a new connection", e);
+                for (DirContext idle = idleContexts.poll(); idle != null; idle = idleContexts.poll()) {
+                    closeContext(idle);
+                }
+            } finally {
+                releaseContext(ctx, valid);
             }
         }
-        return result;
+        ctx = new InitialDirContext(options.getEnv());
+        boolean valid = false;
+        try {
+            T result = query.apply(ctx);
+            valid = true;
+            return result;
+        } finally {
+            releaseContext(ctx, valid);
+        }
+    }
+
+    @FunctionalInterface
+    private interface DirQuery<T> {
+        T apply(DirContext context) throws NamingException;
+    }
+
+    private void releaseContext(DirContext ctx, boolean valid) {
+        if (!valid || idleContexts.size() >= options.getPoolSize() || !idleContexts.offer(ctx)) {
+            closeContext(ctx);
+        }
+    }
+
+    private static void closeContext(DirContext ctx) {
+        try {
+            ctx.close();
+        } catch (NamingException e) {
+            // Ignore
+        }
+    }
+
+    public String[] getUserDnAndNamespace(String user) throws Exception {
+        return get(userDnAndNamespace, user, () -> doGetUserDnAndNamespace(user));
     }
 
     protected String[] doGetUserDnAndNamespace(String user) throws NamingException {
-        DirContext context = open();
+        return query(context -> doGetUserDnAndNamespace(context, user));
+    }
+
+    private String[] doGetUserDnAndNamespace(DirContext context, String user) throws NamingException {
 
         SearchControls controls = new SearchControls();
         if (options.getUserSearchSubtree()) {
@@ -201,15 +292,8 @@ public class LDAPCache implements Closeable, NamespaceChangeListener, ObjectChan
         }
     }
 
-    public synchronized String[] getUserRoles(String user, String userDn, String userDnNamespace) throws Exception {
-        String[] result = userRoles.get(userDn);
-        if (result == null) {
-            result = doGetUserRoles(user, userDn, userDnNamespace);
-            if (!options.getDisableCache()) {
-                userRoles.put(userDn, result);
-            }
-        }
-        return result;
+    public String[] getUserRoles(String user, String userDn, String userDnNamespace) throws Exception {
+        return get(userRoles, userDn, () -> doGetUserRoles(user, userDn, userDnNamespace));
     }
 
     protected Set<String> tryMappingRole(String role) {
@@ -230,7 +314,10 @@ public class LDAPCache implements Closeable, NamespaceChangeListener, ObjectChan
 
 
     private String[] doGetUserRoles(String user, String userDn, String userDnNamespace) throws NamingException {
-        DirContext context = open();
+        return query(context -> doGetUserRoles(context, user, userDn, userDnNamespace));
+    }
+
+    private String[] doGetUserRoles(DirContext context, String user, String userDn, String userDnNamespace) throws NamingException {
 
         SearchControls controls = new SearchControls();
         if (options.getRoleSearchSubtree()) {
@@ -292,6 +379,105 @@ public class LDAPCache implements Closeable, NamespaceChangeListener, ObjectChan
         }
     }
 
+    private String[] get(ConcurrentMap<String, Entry> cache, String key, Loader loader) throws Exception {
+        if (options.getDisableCache()) {
+            misses.incrementAndGet();
+            return load(loader);
+        }
+        while (true) {
+            Entry entry = cache.get(key);
+            if (entry != null) {
+                if (!entry.isExpired()) {
+                    // either a cached value or a concurrent load of the same key
+                    hits.incrementAndGet();
+                    return entry.get();
+                }
+                cache.remove(key, entry);
+            }
+            Entry newEntry = new Entry();
+            if (cache.putIfAbsent(key, newEntry) != null) {
+                continue;
+            }
+            misses.incrementAndGet();
+            String[] result;
+            try {
+                result = load(loader);
+            } catch (Exception e) {
+                cache.remove(key, newEntry);
+                newEntry.value.completeExceptionally(e);
+                throw e;
+            }
+            long ttl = result != null ? options.getCacheTtl() : options.getCacheNegativeTtl();
+            if (result == null && ttl <= 0) {
+                cache.remove(key, newEntry);
+            }
+            newEntry.complete(result, ttl);
+            evict(cache);
+            return result;
+        }
+    }
+
+    private String[] load(Loader loader) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return loader.load();
+        } finally {
+            long time = System.nanoTime() - start;
+            loads.incrementAndGet();
+            loadTime.addAndGet(time);
+            maxLoadTime.accumulateAndGet(time, Math::max);
+        }
+    }
+
+    private void evict(ConcurrentMap<String, Entry> cache) {
+        int maxSize = options.getCacheMaxSize();
+        if (maxSize <= 0 || cache.size() <= maxSize) {
+            return;
+        }
+        // remove the expired entries first, then the oldest ones down to 90% of the maximum size
+        cache.entrySet().removeIf(e -> e.getValue().isExpired());
+        int excess = cache.size() - maxSize * 9 / 10;
+        if (excess > 0) {
+            List<Map.Entry<String, Entry>> entries = new ArrayList<>(cache.entrySet());
+            entries.sort((e1, e2) -> Long.compare(e1.getValue().created, e2.getValue().created));
+            for (Iterator<Map.Entry<String, Entry>> it = entries.iterator(); it.hasNext() && excess > 0; excess--) {
+                Map.Entry<String, Entry> e = it.next();
+                cache.remove(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getLoads() {
+        return loads.get();
+    }
+
+    /**
+     * Average time of the directory queries, in milliseconds.
+     */
+    public double getAverageLoadTime() {
+        long count = loads.get();
+        return count > 0 ? (double) loadTime.get() / count / TimeUnit.MILLISECONDS.toNanos(1) : 0;
+    }
+
+    /**
+     * Maximum time of the directory queries, in milliseconds.
+     */
+    public double getMaxLoadTime() {
+        return (double) maxLoadTime.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public int getSize() {
+        return userDnAndNamespace.size() + userRoles.size();
+    }
+
     @Override
     public void objectAdded(NamingEvent evt) {
         clearCache();
@@ -314,11 +500,46 @@ public class LDAPCache implements Closeable, NamespaceChangeListener, ObjectChan
 
     @Override
     public void namingExceptionThrown(NamingExceptionEvent evt) {
+        // the changes are not notified anymore, the listening context will be opened again
+        listening = false;
         clearCache();
     }
 
-    protected synchronized void clearCache() {
+    public void clearCache() {
         userDnAndNamespace.clear();
         userRoles.clear();
     }
+
+    interface Loader {
+        String[] load() throws Exception;
+    }
+
+    static class Entry {
+        final CompletableFuture<String[]> value = new CompletableFuture<>();
+        final long created = System.nanoTime();
+        volatile long expiry = Long.MAX_VALUE;
+
+        void complete(String[] result, long ttl) {
+            if (ttl > 0) {
+                expiry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl);
+            }
+            value.complete(result);
+        }
+
+        boolean isExpired() {
+            return expiry != Long.MAX_VALUE && System.nanoTime() - expiry > 0;
+        }
+
+        String[] get() throws Exception {
+            try {
+                return value.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+        }
+    }
 }
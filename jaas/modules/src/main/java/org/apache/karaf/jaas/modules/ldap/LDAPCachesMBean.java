@@ -0,0 +1,39 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package org.apache.karaf.jaas.modules.ldap;
+
+import javax.management.MBeanException;
+import javax.management.openmbean.TabularData;
+
+/**
+ * LDAP caches MBean
+ */
+public interface LDAPCachesMBean {
+
+    /**
+     * Get the statistics of the LDAP caches: the number of cached entries, the hits and misses,
+     * and the number and latency (in milliseconds) of the directory queries.
+     *
+     * @return A {@link TabularData} containing a row per LDAP cache.
+     * @throws MBeanException In case of MBean failure.
+     */
+    TabularData getCaches() throws MBeanException;
+
+    /**
+     * Clear the entries of all the LDAP caches.
+     */
+    void clear();
+
+}
@@ -46,6 +46,10 @@ public class LDAPOptions {
     public static final String AUTHENTICATION = "authentication";
     public static final String ALLOW_EMPTY_PASSWORDS = "allowEmptyPasswords";
     public static final String DISABLE_CACHE = "disableCache";
+    public static final String CACHE_MAX_SIZE = "cache.max.size";
+    public static final String CACHE_TTL = "cache.ttl";
+    public static final String CACHE_NEGATIVE_TTL = "cache.negative.ttl";
+    public static final String POOL_SIZE = "pool.size";
     public static final String INITIAL_CONTEXT_FACTORY = "initial.context.factory";
     public static final String CONTEXT_PREFIX = "context.";
     public static final String SSL = "ssl";
@@ -60,6 +64,10 @@ public class LDAPOptions {
     public static final String DEFAULT_INITIAL_CONTEXT_FACTORY = "com.sun.jndi.ldap.LdapCtxFactory";
     public static final String DEFAULT_AUTHENTICATION = "simple";
     public static final int DEFAULT_SSL_TIMEOUT = 10;
+    public static final int DEFAULT_CACHE_MAX_SIZE = 1000;
+    public static final long DEFAULT_CACHE_TTL = 0;
+    public static final long DEFAULT_CACHE_NEGATIVE_TTL = 0;
+    public static final int DEFAULT_POOL_SIZE = 4;
 
     private static Logger LOGGER = LoggerFactory.getLogger(LDAPLoginModule.class);
 
@@ -269,4 +277,43 @@ public class LDAPOptions {
         return object == null || Boolean.parseBoolean((String) object);
     }
 
+    /**
+     * Maximum number of entries kept in each of the user and role caches.
+     */
+    public int getCacheMaxSize() {
+        return (int) getLong(CACHE_MAX_SIZE, DEFAULT_CACHE_MAX_SIZE);
+    }
+
+    /**
+     * Time to live of the cached entries in milliseconds, 0 to keep them until the directory changes.
+     */
+    public long getCacheTtl() {
+        return getLong(CACHE_TTL, DEFAULT_CACHE_TTL);
+    }
+
+    /**
+     * Time to live of the unknown users in milliseconds, 0 to not cache them.
+     */
+    public long getCacheNegativeTtl() {
+        return getLong(CACHE_NEGATIVE_TTL, DEFAULT_CACHE_NEGATIVE_TTL);
+    }
+
+    /**
+     * Maximum number of idle directory contexts kept for the lookups.
+     */
+    public int getPoolSize() {
+        return (int) getLong(POOL_SIZE, DEFAULT_POOL_SIZE);
+    }
+
+    private long getLong(String key, long def) {
+        Object val = options.get(key);
+        if (val instanceof Number) {
+            return ((Number) val).longValue();
+        } else if (val != null && !val.toString().trim().isEmpty()) {
+            return Long.parseLong(val.toString().trim());
+        } else {
+            return def;
+        }
+    }
+
 }
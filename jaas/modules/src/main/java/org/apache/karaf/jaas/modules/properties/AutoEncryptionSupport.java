@@ -71,6 +71,7 @@ public class AutoEncryptionSupport implements Runnable, Closeable {
 
             Path file = dir.resolve("users.properties");
             encryptedPassword(new Properties(file.toFile()));
+            PropertiesUserStore.getStore(file.toFile()).invalidate();
 
             while (running) {
                 try {
@@ -86,6 +87,7 @@ public class AutoEncryptionSupport implements Runnable, Closeable {
                         Path name = dir.resolve(ev.context());
                         if (file.equals(name)) {
                             encryptedPassword(new Properties(file.toFile()));
+                            PropertiesUserStore.getStore(file.toFile()).invalidate();
                         }
                     }
                     key.reset();
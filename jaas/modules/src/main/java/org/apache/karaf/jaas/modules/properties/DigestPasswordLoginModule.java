@@ -32,10 +32,6 @@ import javax.security.auth.login.FailedLoginException;
 import javax.security.auth.login.LoginException;
 
 import org.apache.commons.codec.binary.Base64;
-import org.apache.felix.utils.properties.Properties;
-import org.apache.karaf.jaas.boot.principal.GroupPrincipal;
-import org.apache.karaf.jaas.boot.principal.RolePrincipal;
-import org.apache.karaf.jaas.boot.principal.UserPrincipal;
 import org.apache.karaf.jaas.modules.AbstractKarafLoginModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -123,9 +119,9 @@ public class  DigestPasswordLoginModule extends AbstractKarafLoginModule {
             throw new LoginException("Users file not found at " + f);
         }
 
-        Properties users;
+        Map<String, PropertiesUserStore.Entry> users;
         try {
-            users = new Properties(f);
+            users = PropertiesUserStore.getStore(f).getUsers();
         } catch (IOException ioe) {
             throw new LoginException("Unable to load user properties file " + f);
         }
@@ -160,12 +156,7 @@ public class  DigestPasswordLoginModule extends AbstractKarafLoginModule {
         String password = new String(((PasswordCallback) callbacks[1]).getPassword());
 
         // user infos container read from the users properties file
-        String userInfos = null;
-        try {
-            userInfos = users.get(user);
-        } catch (NullPointerException e) {
-            //error handled in the next statement
-        }
+        PropertiesUserStore.Entry userInfos = users.get(user);
         if (userInfos == null) {
         	if (!this.detailedLoginExcepion) {
         		throw new FailedLoginException("login failed");
@@ -175,8 +166,7 @@ public class  DigestPasswordLoginModule extends AbstractKarafLoginModule {
         }
         
         // the password is in the first position
-        String[] infos = userInfos.split(",");
-        String storedPassword = infos[0];
+        String storedPassword = userInfos.getPassword();
 
         CallbackHandler myCallbackHandler = null;
 
@@ -204,26 +194,8 @@ public class  DigestPasswordLoginModule extends AbstractKarafLoginModule {
         	}
         }
 
-        principals = new HashSet<>();
-        principals.add(new UserPrincipal(user));
-        for (int i = 1; i < infos.length; i++) {
-            if (infos[i].trim().startsWith(PropertiesBackingEngine.GROUP_PREFIX)) {
-                // it's a group reference
-                principals.add(new GroupPrincipal(infos[i].trim().substring(PropertiesBackingEngine.GROUP_PREFIX.length())));
-                String groupInfo = users.get(infos[i].trim());
-                if (groupInfo != null) {
-                    String[] roles = groupInfo.split(",");
-                    for (int j = 1; j < roles.length; j++) {
-                        principals.add(new RolePrincipal(roles[j].trim()));
-                    }
-                }
-            } else {
-                // it's an user reference
-                principals.add(new RolePrincipal(infos[i].trim()));
-            }
-        }
-
-        users.clear();
+        // the principals are resolved once per snapshot of the file
+        principals = new HashSet<>(userInfos.getPrincipals());
 
         if (debug) {
             LOGGER.debug("Successfully logged in {}", user);
@@ -15,6 +15,7 @@
  */
 package org.apache.karaf.jaas.modules.properties;
 
+import java.io.IOException;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -36,6 +37,7 @@ public class PropertiesBackingEngine implements BackingEngine {
 
     private Properties users;
     private EncryptionSupport encryptionSupport;
+    private PropertiesUserStore store;
 
     public PropertiesBackingEngine(Properties users) {
         this.users = users;
@@ -47,6 +49,35 @@ public class PropertiesBackingEngine implements BackingEngine {
         this.encryptionSupport = encryptionSupport;
     }
 
+    public PropertiesBackingEngine(Properties users, EncryptionSupport encryptionSupport, PropertiesUserStore store) {
+        this.users = users;
+        this.encryptionSupport = encryptionSupport;
+        this.store = store;
+    }
+
+    /**
+     * Returns the parsed entries, from the snapshot shared with the logins when there is a store,
+     * so that the file is only parsed again after it changed.
+     */
+    private Map<String, PropertiesUserStore.Entry> entries() {
+        if (store != null) {
+            try {
+                return store.getUsers();
+            } catch (IOException e) {
+                LOGGER.warn("Cannot read users file, using the loaded users", e);
+            }
+        }
+        return PropertiesUserStore.parse(users);
+    }
+
+    private void save() throws IOException {
+        users.save();
+        if (store != null) {
+            // make sure the logins see the changes, even if the modification time is unchanged
+            store.invalidate();
+        }
+    }
+
     @Override
     public void addUser(String username, String password) {
         if (username.startsWith(GROUP_PREFIX))
@@ -78,7 +109,7 @@ public class PropertiesBackingEngine implements BackingEngine {
         }
 
         try {
-            users.save();
+            save();
         } catch (Exception ex) {
             LOGGER.error("Cannot update users file,", ex);
         }
@@ -94,7 +125,7 @@ public class PropertiesBackingEngine implements BackingEngine {
         users.remove(username);
 
         try {
-            users.save();
+            save();
         } catch (Exception ex) {
             LOGGER.error("Cannot remove users file,", ex);
         }
@@ -104,8 +135,7 @@ public class PropertiesBackingEngine implements BackingEngine {
     public List<UserPrincipal> listUsers() {
         List<UserPrincipal> result = new ArrayList<>();
 
-        for (Object user : users.keySet()) {
-            String userName = (String) user;
+        for (String userName : entries().keySet()) {
             if (userName.startsWith(GROUP_PREFIX))
                 continue;
 
@@ -121,18 +151,23 @@ public class PropertiesBackingEngine implements BackingEngine {
         if (principal instanceof  GroupPrincipal) {
             userName = GROUP_PREFIX + userName;
         }
-        return listRoles(userName);
+        return listRoles(entries(), userName);
     }
 
     private List<RolePrincipal> listRoles(String name) {
+        return listRoles(entries(), name);
+    }
+
+    private List<RolePrincipal> listRoles(Map<String, PropertiesUserStore.Entry> entries, String name) {
 
         List<RolePrincipal> result = new ArrayList<>();
-        String userInfo = users.get(name);
-        String[] infos = userInfo.split(",");
-        for (int i = 1; i < infos.length; i++) {
-            String roleName = infos[i];
+        PropertiesUserStore.Entry entry = entries.get(name);
+        if (entry == null) {
+            return result;
+        }
+        for (String roleName : entry.getRoles()) {
             if (roleName.startsWith(GROUP_PREFIX)) {
-                for (RolePrincipal rp : listRoles(roleName)) {
+                for (RolePrincipal rp : listRoles(entries, roleName)) {
                     if (!result.contains(rp)) {
                         result.add(rp);
                     }
@@ -165,7 +200,7 @@ public class PropertiesBackingEngine implements BackingEngine {
             users.put(username, newUserInfos);
         }
         try {
-            users.save();
+            save();
         } catch (Exception ex) {
             LOGGER.error("Cannot update users file,", ex);
         }
@@ -195,7 +230,7 @@ public class PropertiesBackingEngine implements BackingEngine {
         }
 
         try {
-            users.save();
+            save();
         } catch (Exception ex) {
             LOGGER.error("Cannot update users file,", ex);
         }
@@ -209,11 +244,9 @@ public class PropertiesBackingEngine implements BackingEngine {
 
     private List<GroupPrincipal> listGroups(String userName) {
         List<GroupPrincipal> result = new ArrayList<>();
-        String userInfo = users.get(userName);
-        if (userInfo != null) {
-            String[] infos = userInfo.split(",");
-            for (int i = 1; i < infos.length; i++) {
-                String name = infos[i];
+        PropertiesUserStore.Entry entry = entries().get(userName);
+        if (entry != null) {
+            for (String name : entry.getRoles()) {
                 if (name.startsWith(GROUP_PREFIX)) {
                     result.add(new GroupPrincipal(name.substring(GROUP_PREFIX.length())));
                 }
@@ -261,9 +294,9 @@ public class PropertiesBackingEngine implements BackingEngine {
 
     public Map<GroupPrincipal, String> listGroups() {
         Map<GroupPrincipal, String> result = new HashMap<>();
-        for (String name : users.keySet()) {
-            if (name.startsWith(GROUP_PREFIX)) {
-                result.put(new GroupPrincipal(name.substring(GROUP_PREFIX.length())), users.get(name));
+        for (PropertiesUserStore.Entry entry : entries().values()) {
+            if (entry.isGroup()) {
+                result.put(new GroupPrincipal(entry.getName().substring(GROUP_PREFIX.length())), entry.getValue());
             }
         }
         return result;
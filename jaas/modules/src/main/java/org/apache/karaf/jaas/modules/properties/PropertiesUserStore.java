@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jaas.modules.properties;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.felix.utils.properties.Properties;
+import org.apache.karaf.jaas.boot.principal.GroupPrincipal;
+import org.apache.karaf.jaas.boot.principal.RolePrincipal;
+import org.apache.karaf.jaas.boot.principal.UserPrincipal;
+import org.apache.karaf.jaas.modules.BackingEngine;
+
+/**
+ * In-memory snapshot of a users properties file, shared by the logins using the same file.
+ * The entries are parsed once, and the file is only parsed again when its modification time
+ * or size changed, or when the store has been invalidated after the file has been saved.
+ */
+public class PropertiesUserStore {
+
+    private static final ConcurrentMap<File, PropertiesUserStore> STORES = new ConcurrentHashMap<>();
+
+    public static void clear() {
+        STORES.clear();
+    }
+
+    public static PropertiesUserStore getStore(File file) {
+        return STORES.computeIfAbsent(file.getAbsoluteFile(), PropertiesUserStore::new);
+    }
+
+    private final File file;
+    private volatile Snapshot snapshot;
+
+    PropertiesUserStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the parsed user and group entries of the file, as an immutable map.
+     */
+    public Map<String, Entry> getUsers() throws IOException {
+        Snapshot s = snapshot;
+        if (s == null || !s.isUpToDate(file)) {
+            s = load();
+        }
+        return s.users;
+    }
+
+    /**
+     * Force the file to be read again on the next access.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private synchronized Snapshot load() throws IOException {
+        Snapshot s = snapshot;
+        if (s == null || !s.isUpToDate(file)) {
+            // read the file attributes first, so that a concurrent modification triggers another load
+            long lastModified = file.lastModified();
+            long length = file.length();
+            s = new Snapshot(lastModified, length, parse(new Properties(file)));
+            snapshot = s;
+        }
+        return s;
+    }
+
+    /**
+     * Parse the entries of a users properties file.
+     */
+    static Map<String, Entry> parse(Map<String, String> properties) {
+        Map<String, Entry> entries = new HashMap<>();
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            entries.put(property.getKey(), new Entry(property.getKey(), property.getValue()));
+        }
+        for (Entry entry : entries.values()) {
+            entry.resolvePrincipals(entries);
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * A user or group entry: the password followed by the roles and the group references.
+     */
+    public static final class Entry {
+        private final String name;
+        private final String value;
+        private final String password;
+        private final List<String> roles;
+        private Set<Principal> principals;
+
+        Entry(String name, String value) {
+            this.name = name;
+            this.value = value;
+            String[] infos = value.split(",");
+            this.password = infos[0];
+            List<String> roles = new ArrayList<>(infos.length - 1);
+            for (int i = 1; i < infos.length; i++) {
+                roles.add(infos[i].trim());
+            }
+            this.roles = Collections.unmodifiableList(roles);
+        }
+
+        private void resolvePrincipals(Map<String, Entry> entries) {
+            if (isGroup()) {
+                principals = Collections.emptySet();
+                return;
+            }
+            Set<Principal> principals = new HashSet<>();
+            principals.add(new UserPrincipal(name));
+            for (String role : roles) {
+                if (role.startsWith(BackingEngine.GROUP_PREFIX)) {
+                    // it's a group reference
+                    principals.add(new GroupPrincipal(role.substring(BackingEngine.GROUP_PREFIX.length())));
+                    Entry group = entries.get(role);
+                    if (group != null) {
+                        for (String groupRole : group.roles) {
+                            principals.add(new RolePrincipal(groupRole));
+                        }
+                    }
+                } else {
+                    // it's an user reference
+                    principals.add(new RolePrincipal(role));
+                }
+            }
+            this.principals = Collections.unmodifiableSet(principals);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the raw value of the entry.
+         */
+        public String getValue() {
+            return value;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        /**
+         * @return the roles and group references of the entry, trimmed.
+         */
+        public List<String> getRoles() {
+            return roles;
+        }
+
+        /**
+         * @return the principals of a user login: the user, its groups, its roles and the roles of its groups.
+         */
+        public Set<Principal> getPrincipals() {
+            return principals;
+        }
+
+        public boolean isGroup() {
+            return name.startsWith(BackingEngine.GROUP_PREFIX);
+        }
+    }
+
+    private static class Snapshot {
+        final long lastModified;
+        final long length;
+        final Map<String, Entry> users;
+
+        Snapshot(long lastModified, long length, Map<String, Entry> users) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.users = users;
+        }
+
+        boolean isUpToDate(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jaas.modules.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileAuditWriterTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Test
+    public void testSyncWrite() throws IOException {
+        File file = new File(dir, "security/audit.log");
+        FileAuditWriter writer = new FileAuditWriter(file.getPath(), false, 16, 0, 0, 1);
+        writer.start();
+        writer.write("line1");
+        writer.write("line2");
+        assertEquals(Arrays.asList("line1", "line2"), Files.readAllLines(file.toPath()));
+        writer.close();
+    }
+
+    @Test
+    public void testAsyncWrite() throws IOException {
+        File file = new File(dir, "audit.log");
+        FileAuditWriter writer = new FileAuditWriter(file.getPath(), true, 4, 10, 0, 1);
+        writer.start();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            writer.write("line" + i);
+            expected.add("line" + i);
+        }
+        writer.close();
+        assertEquals(expected, Files.readAllLines(file.toPath()));
+    }
+
+    @Test
+    public void testRotation() throws IOException {
+        File file = new File(dir, "audit.log");
+        FileAuditWriter writer = new FileAuditWriter(file.getPath(), false, 16, 0, 20, 2);
+        writer.start();
+        for (int i = 0; i < 4; i++) {
+            writer.write("0123456789-" + i);
+        }
+        writer.close();
+        assertEquals(Arrays.asList("0123456789-3"), Files.readAllLines(file.toPath()));
+        assertEquals(Arrays.asList("0123456789-2"), Files.readAllLines(new File(dir, "audit.log.1").toPath()));
+        assertEquals(Arrays.asList("0123456789-1"), Files.readAllLines(new File(dir, "audit.log.2").toPath()));
+        assertFalse(new File(dir, "audit.log.3").exists());
+        assertTrue(new File(dir, "audit.log.2").exists());
+    }
+
+    @Test
+    public void testWriteAfterClose() throws IOException {
+        File file = new File(dir, "audit.log");
+        try {
+            FileAuditWriter w1 = FileAuditWriter.getWriter(file.getPath(), false, 16, 0, 0, 1);
+            // Different settings replace the shared writer, the previous one delegates to it
+            FileAuditWriter w2 = FileAuditWriter.getWriter(file.getPath(), false, 16, 0, 0, 2);
+            assertTrue(w1 != w2);
+            w1.write("line1");
+            w2.write("line2");
+            assertEquals(Arrays.asList("line1", "line2"), Files.readAllLines(file.toPath()));
+
+            FileAuditWriter.clear();
+            try {
+                w1.write("line3");
+                fail("Writing to a cleared writer should fail");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            FileAuditWriter.clear();
+        }
+    }
+
+}
@@ -19,6 +19,8 @@ import static org.apache.karaf.jaas.modules.PrincipalHelper.names;
 import static org.apache.karaf.jaas.modules.ldap.LdapPropsUpdater.ldapProps;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -106,6 +108,31 @@ public class LdapCacheTest extends AbstractLdapTestUnit {
         assertEquals("Postcondition", 3, subject.getPrincipals().size());
     }
 
+    @Test
+    public void testCacheStatistics() throws Exception {
+        Properties options = ldapLoginModuleOptions();
+        options.put(LDAPOptions.DISABLE_CACHE, "false");
+        options.put(LDAPOptions.CACHE_NEGATIVE_TTL, "60000");
+        LDAPCache cache = LDAPCache.getCache(new LDAPOptions(options));
+
+        String[] dn = cache.getUserDnAndNamespace("admin");
+        assertEquals("cn=admin", dn[0].toLowerCase());
+        assertSame(dn, cache.getUserDnAndNamespace("admin"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        assertNull(cache.getUserDnAndNamespace("unknown"));
+        assertNull(cache.getUserDnAndNamespace("unknown"));
+        assertEquals("Unknown users should be cached", 2, cache.getHits());
+        assertEquals(2, cache.getLoads());
+        assertTrue(cache.getMaxLoadTime() > 0);
+
+        cache.clearCache();
+        assertEquals(0, cache.getSize());
+        cache.getUserDnAndNamespace("admin");
+        assertEquals(3, cache.getMisses());
+    }
+
     private void addUserToGroup(DirContext context, String userCn, String group) throws NamingException {
         Attributes entry = new BasicAttributes();
         entry.put(new BasicAttribute("cn", group));
@@ -36,6 +36,7 @@ import org.apache.karaf.jaas.boot.principal.GroupPrincipal;
 import org.apache.karaf.jaas.boot.principal.RolePrincipal;
 import org.apache.karaf.jaas.boot.principal.UserPrincipal;
 import org.apache.karaf.jaas.modules.NamePasswordCallbackHandler;
+import org.apache.karaf.jaas.modules.encryption.EncryptionSupport;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -171,6 +172,50 @@ public class PropertiesLoginModuleTest {
         }
     }
 
+    @Test
+    public void testUserStore() throws Exception {
+        File f = File.createTempFile(getClass().getName(), ".tmp");
+        try {
+            PropertiesUserStore store = PropertiesUserStore.getStore(f);
+            PropertiesBackingEngine pbe = new PropertiesBackingEngine(new Properties(f), EncryptionSupport.noEncryptionSupport(), store);
+            pbe.addUser("abc", "xyz");
+
+            Map<String, PropertiesUserStore.Entry> users = store.getUsers();
+            Assert.assertEquals("xyz", users.get("abc").getPassword());
+            Assert.assertSame("The users should only be loaded once", users, store.getUsers());
+
+            // the store is invalidated by the engine, even if the file modification time does not change
+            pbe.addUser("pqr", "abc");
+            pbe.addRole("pqr", "r1");
+            pbe.addGroup("pqr", "g");
+            pbe.addGroupRole("g", "r2");
+            PropertiesUserStore.Entry pqr = store.getUsers().get("pqr");
+            Assert.assertEquals("abc", pqr.getPassword());
+            assertThat(names(pqr.getPrincipals()), containsInAnyOrder("pqr", "r1", "g", "r2"));
+
+            // the engine reads the snapshot shared with the logins
+            assertThat(names(pbe.listRoles(new UserPrincipal("pqr"))), containsInAnyOrder("r1", "r2"));
+            assertThat(names(pbe.listGroups(new UserPrincipal("pqr"))), containsInAnyOrder("g"));
+            assertThat(names(pbe.listUsers()), containsInAnyOrder("abc", "pqr"));
+            // which follows the changes made to the file by others
+            Properties external = new Properties(f);
+            external.put("xyz", "pwd,r3");
+            external.save();
+            assertThat(names(pbe.listUsers()), containsInAnyOrder("abc", "pqr", "xyz"));
+            assertThat(names(pbe.listRoles(new UserPrincipal("xyz"))), containsInAnyOrder("r3"));
+
+            PropertiesLoginModule module = new PropertiesLoginModule();
+            Map<String, String> options = new HashMap<>();
+            options.put(PropertiesLoginModule.USER_FILE, f.getAbsolutePath());
+            module.initialize(new Subject(), new NamePasswordCallbackHandler("pqr", "abc"), null, options);
+            Assert.assertTrue(module.login());
+        } finally {
+            if (!f.delete()) {
+                Assert.fail("Could not delete temporary file: " + f);
+            }
+        }
+    }
+
     @Test
     public void testNullUsersFile() {
         try {
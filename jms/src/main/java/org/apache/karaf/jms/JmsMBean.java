@@ -87,6 +87,18 @@ public interface JmsMBean {
      */
     int count(String connectionFactory, String queue, String username, String password) throws MBeanException;
 
+    /**
+     * Get the statistics of a given JMS queue.
+     *
+     * @param connectionFactory The JMS connection factory name.
+     * @param queue The JMS queue name.
+     * @param username The (optional) username to connect to the JMS broker.
+     * @param password The (optional) password to connect to the JMS broker.
+     * @return A {@link Map} (statistic/value) with the depth, consumers, enqueued, dequeued, enqueueRate, dequeueRate and source of the statistics.
+     * @throws MBeanException If the MBean fails.
+     */
+    Map<String, String> statistics(String connectionFactory, String queue, String username, String password) throws MBeanException;
+
     /**
      * List the JMS queues.
      *
@@ -148,6 +160,21 @@ public interface JmsMBean {
      */
     int consume(String connectionFactory, String queue, String selector, String username, String password) throws MBeanException;
 
+    /**
+     * Consume JMS messages from a given queue, committing once per batch.
+     *
+     * @param connectionFactory The JMS connection factory name.
+     * @param queue The JMS queue name.
+     * @param selector A selector to use to consume only certain messages.
+     * @param username The (optional) username to connect to the JMS broker.
+     * @param password The (optional) password to connect to the JMS broker.
+     * @param batchSize The number of messages consumed in each transaction.
+     * @param maxRate The maximum number of messages consumed per second, or 0 for no limit.
+     * @return The number of messages consumed.
+     * @throws MBeanException If the MBean fails.
+     */
+    int consume(String connectionFactory, String queue, String selector, String username, String password, int batchSize, int maxRate) throws MBeanException;
+
     /**
      * Move JMS messages from one queue to another.
      *
@@ -162,4 +189,20 @@ public interface JmsMBean {
      */
     int move(String connectionFactory, String source, String destination, String selector, String username, String password) throws MBeanException;
 
+    /**
+     * Move JMS messages from one queue to another, committing once per batch.
+     *
+     * @param connectionFactory The JMS connection factory name.
+     * @param source The source JMS queue name.
+     * @param destination The destination JMS queue name.
+     * @param selector A selector to move only certain messages.
+     * @param username The (optional) username to connect to the JMS broker.
+     * @param password The (optional) password to connect to the JMS broker.
+     * @param batchSize The number of messages moved in each transaction.
+     * @param maxRate The maximum number of messages moved per second, or 0 for no limit.
+     * @return The number of messages moved.
+     * @throws MBeanException If the MBean fails.
+     */
+    int move(String connectionFactory, String source, String destination, String selector, String username, String password, int batchSize, int maxRate) throws MBeanException;
+
 }
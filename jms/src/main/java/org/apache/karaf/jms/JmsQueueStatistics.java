@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jms;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Statistics of a JMS queue. Values which are not known are set to -1.
+ */
+public class JmsQueueStatistics {
+
+    /**
+     * Source of the statistics when they are provided by the broker management.
+     */
+    public static final String SOURCE_BROKER = "broker";
+
+    /**
+     * Source of the statistics when the queue has been browsed to count the messages.
+     */
+    public static final String SOURCE_BROWSE = "browse";
+
+    private final String queue;
+    private final long depth;
+    private final long consumerCount;
+    private final long enqueueCount;
+    private final long dequeueCount;
+    private final double enqueueRate;
+    private final double dequeueRate;
+    private final String source;
+
+    public JmsQueueStatistics(String queue, long depth, long consumerCount, long enqueueCount, long dequeueCount,
+                              double enqueueRate, double dequeueRate, String source) {
+        this.queue = queue;
+        this.depth = depth;
+        this.consumerCount = consumerCount;
+        this.enqueueCount = enqueueCount;
+        this.dequeueCount = dequeueCount;
+        this.enqueueRate = enqueueRate;
+        this.dequeueRate = dequeueRate;
+        this.source = source;
+    }
+
+    public String getQueue() {
+        return queue;
+    }
+
+    /**
+     * @return The number of messages pending in the queue.
+     */
+    public long getDepth() {
+        return depth;
+    }
+
+    public long getConsumerCount() {
+        return consumerCount;
+    }
+
+    /**
+     * @return The number of messages sent to the queue since the broker started.
+     */
+    public long getEnqueueCount() {
+        return enqueueCount;
+    }
+
+    /**
+     * @return The number of messages acknowledged from the queue since the broker started.
+     */
+    public long getDequeueCount() {
+        return dequeueCount;
+    }
+
+    /**
+     * @return The number of messages sent per second since the previous statistics of this queue.
+     */
+    public double getEnqueueRate() {
+        return enqueueRate;
+    }
+
+    /**
+     * @return The number of messages acknowledged per second since the previous statistics of this queue.
+     */
+    public double getDequeueRate() {
+        return dequeueRate;
+    }
+
+    /**
+     * @return {@link #SOURCE_BROKER} or {@link #SOURCE_BROWSE}.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public Map<String, String> toMap() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("queue", queue);
+        map.put("depth", Long.toString(depth));
+        map.put("consumers", Long.toString(consumerCount));
+        map.put("enqueued", Long.toString(enqueueCount));
+        map.put("dequeued", Long.toString(dequeueCount));
+        map.put("enqueueRate", format(enqueueRate));
+        map.put("dequeueRate", format(dequeueRate));
+        map.put("source", source);
+        return map;
+    }
+
+    private static String format(double rate) {
+        return rate < 0 ? "-1" : String.format(Locale.ROOT, "%.2f", rate);
+    }
+
+}
@@ -24,6 +24,20 @@ import java.util.Map;
  */
 public interface JmsService {
 
+    /**
+     * Listener notified after each batch committed by a consume or move operation.
+     */
+    @FunctionalInterface
+    interface ProgressListener {
+
+        /**
+         * @param count The number of messages processed so far.
+         * @param elapsed The time elapsed since the start of the operation, in milliseconds.
+         */
+        void progress(int count, long elapsed);
+
+    }
+
     /**
      * List the JMS connection factories.
      *
@@ -93,6 +107,20 @@ public interface JmsService {
      */
     int count(String connectionFactory, String queue, String username, String password) throws Exception;
 
+    /**
+     * Retrieve the statistics of a JMS queue. The statistics are provided by the broker management
+     * when supported (ActiveMQ with the statistics plugin, Artemis), else the queue is browsed to count
+     * the messages. The rates are computed since the previous statistics of the same queue.
+     *
+     * @param connectionFactory The JMS connection factory name.
+     * @param queue The queue name.
+     * @param username The (optional) username to connect to the JMS broker.
+     * @param password The (optional) password to connect to the JMS broker.
+     * @return The statistics of the queue.
+     * @throws Exception If the service fails.
+     */
+    JmsQueueStatistics statistics(String connectionFactory, String queue, String username, String password) throws Exception;
+
     /**
      * List the queues.
      *
@@ -154,6 +182,23 @@ public interface JmsService {
      */
     int consume(String connectionFactory, String queue, String selector, String username, String password) throws Exception;
 
+    /**
+     * Consume messages from a given destination, committing the session once per batch.
+     *
+     * @param connectionFactory The JMS connection factory name.
+     * @param queue The queue name.
+     * @param selector The messages selector.
+     * @param username The (optional) username to connect to the JMS broker.
+     * @param password The (optional) password to connect to the JMS broker.
+     * @param batchSize The number of messages consumed in each transaction.
+     * @param maxRate The maximum number of messages consumed per second, or 0 for no limit.
+     * @param listener The (optional) listener notified after each batch.
+     * @return The number of messages consumed.
+     * @throws Exception If the service fails.
+     */
+    int consume(String connectionFactory, String queue, String selector, String username, String password,
+                int batchSize, int maxRate, ProgressListener listener) throws Exception;
+
     /**
      * Move messages from a destination to another.
      *
@@ -168,4 +213,22 @@ public interface JmsService {
      */
     int move(String connectionFactory, String sourceQueue, String targetQueue, String selector, String username, String password) throws Exception;
 
+    /**
+     * Move messages from a destination to another, committing the session once per batch.
+     *
+     * @param connectionFactory The JMS connection factory name.
+     * @param sourceQueue The source queue.
+     * @param targetQueue The target queue.
+     * @param selector The messages selector on the source queue.
+     * @param username The (optional) username to connect to the JMS broker.
+     * @param password The (optional) password to connect to the JMS broker.
+     * @param batchSize The number of messages moved in each transaction.
+     * @param maxRate The maximum number of messages moved per second, or 0 for no limit.
+     * @param listener The (optional) listener notified after each batch.
+     * @return The number of messages moved.
+     * @throws Exception If the service fails.
+     */
+    int move(String connectionFactory, String sourceQueue, String targetQueue, String selector, String username, String password,
+             int batchSize, int maxRate, ProgressListener listener) throws Exception;
+
 }
@@ -16,6 +16,7 @@
  */
 package org.apache.karaf.jms.command;
 
+import org.apache.karaf.jms.JmsService;
 import org.apache.karaf.shell.api.action.Argument;
 import org.apache.karaf.shell.api.action.Command;
 import org.apache.karaf.shell.api.action.Option;
@@ -31,10 +32,30 @@ public class ConsumeCommand extends JmsConnectionCommandSupport {
     @Option(name = "-s", aliases = { "--selector" }, description = "The selector to use to select the messages to consume", required = false, multiValued = false)
     String selector;
 
+    @Option(name = "-b", aliases = { "--batch-size" }, description = "Number of messages consumed in each transaction", required = false, multiValued = false)
+    int batchSize = 1;
+
+    @Option(name = "-r", aliases = { "--rate" }, description = "Maximum number of messages consumed per second (0 for no limit)", required = false, multiValued = false)
+    int rate = 0;
+
+    @Option(name = "--progress", description = "Display the progress and throughput after each batch", required = false, multiValued = false)
+    boolean progress;
+
     @Override
     public Object execute() throws Exception {
-        System.out.println(getJmsService().consume(connectionFactory, queue, selector, username, password) + " message(s) consumed");
+        long start = System.currentTimeMillis();
+        JmsService.ProgressListener listener = progress
+                ? (count, elapsed) -> System.out.println(count + " message(s) consumed (" + throughput(count, elapsed) + " msg/s)")
+                : null;
+        int count = getJmsService().consume(connectionFactory, queue, selector, username, password,
+                batchSize, rate, listener);
+        long elapsed = System.currentTimeMillis() - start;
+        System.out.println(count + " message(s) consumed in " + elapsed + " ms (" + throughput(count, elapsed) + " msg/s)");
         return null;
     }
 
+    private static long throughput(int count, long elapsed) {
+        return elapsed > 0 ? count * 1000L / elapsed : count;
+    }
+
 }
@@ -16,9 +16,12 @@
  */
 package org.apache.karaf.jms.command;
 
+import java.util.Map;
 
+import org.apache.karaf.jms.JmsQueueStatistics;
 import org.apache.karaf.shell.api.action.Argument;
 import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Option;
 import org.apache.karaf.shell.api.action.lifecycle.Service;
 import org.apache.karaf.shell.support.table.ShellTable;
 
@@ -29,11 +32,27 @@ public class CountCommand extends JmsConnectionCommandSupport {
     @Argument(index = 1, name = "queue", description = "The JMS queue name", required = true, multiValued = false)
     String queue;
 
+    @Option(name = "-v", aliases = { "--verbose" }, description = "Display the consumers count, the enqueue and dequeue counts and rates", required = false, multiValued = false)
+    boolean verbose;
+
     @Override
     public Object execute() throws Exception {
         ShellTable table = new ShellTable();
         table.column("Messages Count");
-        table.addRow().addContent(getJmsService().count(connectionFactory, queue, username, password));
+        if (verbose) {
+            JmsQueueStatistics statistics = getJmsService().statistics(connectionFactory, queue, username, password);
+            Map<String, String> values = statistics.toMap();
+            table.column("Consumers");
+            table.column("Enqueued");
+            table.column("Dequeued");
+            table.column("Enqueue Rate");
+            table.column("Dequeue Rate");
+            table.column("Source");
+            table.addRow().addContent(statistics.getDepth(), values.get("consumers"), values.get("enqueued"),
+                    values.get("dequeued"), values.get("enqueueRate"), values.get("dequeueRate"), statistics.getSource());
+        } else {
+            table.addRow().addContent(getJmsService().count(connectionFactory, queue, username, password));
+        }
         table.print(System.out);
         return null;
     }
@@ -19,6 +19,7 @@ package org.apache.karaf.jms.command;
 
 import java.util.Map;
 
+import org.apache.karaf.shell.api.action.Argument;
 import org.apache.karaf.shell.api.action.Command;
 import org.apache.karaf.shell.api.action.lifecycle.Service;
 import org.apache.karaf.shell.support.table.ShellTable;
@@ -27,6 +28,9 @@ import org.apache.karaf.shell.support.table.ShellTable;
 @Service
 public class InfoCommand extends JmsConnectionCommandSupport {
 
+    @Argument(index = 1, name = "queue", description = "The (optional) JMS queue to display the statistics of", required = false, multiValued = false)
+    String queue;
+
     @Override
     public Object execute() throws Exception {
         ShellTable table = new ShellTable();
@@ -37,6 +41,12 @@ public class InfoCommand extends JmsConnectionCommandSupport {
         for (String key : info.keySet()) {
             table.addRow().addContent(key, info.get(key));
         }
+        if (queue != null) {
+            Map<String, String> statistics = getJmsService().statistics(connectionFactory, queue, username, password).toMap();
+            for (Map.Entry<String, String> entry : statistics.entrySet()) {
+                table.addRow().addContent(entry.getKey(), entry.getValue());
+            }
+        }
 
         table.print(System.out);
 
@@ -17,6 +17,7 @@
 package org.apache.karaf.jms.command;
 
 
+import org.apache.karaf.jms.JmsService;
 import org.apache.karaf.shell.api.action.Argument;
 import org.apache.karaf.shell.api.action.Command;
 import org.apache.karaf.shell.api.action.Option;
@@ -35,10 +36,30 @@ public class MoveCommand extends JmsConnectionCommandSupport {
     @Option(name = "-s", aliases = { "--selector" }, description = "Selector to move only some messages", required = false, multiValued = false)
     String selector;
 
+    @Option(name = "-b", aliases = { "--batch-size" }, description = "Number of messages moved in each transaction", required = false, multiValued = false)
+    int batchSize = 1;
+
+    @Option(name = "-r", aliases = { "--rate" }, description = "Maximum number of messages moved per second (0 for no limit)", required = false, multiValued = false)
+    int rate = 0;
+
+    @Option(name = "--progress", description = "Display the progress and throughput after each batch", required = false, multiValued = false)
+    boolean progress;
+
     @Override
     public Object execute() throws Exception {
-        System.out.println(getJmsService().move(connectionFactory, source, destination, selector, username, password) + " message(s) moved");
+        long start = System.currentTimeMillis();
+        JmsService.ProgressListener listener = progress
+                ? (count, elapsed) -> System.out.println(count + " message(s) moved (" + throughput(count, elapsed) + " msg/s)")
+                : null;
+        int count = getJmsService().move(connectionFactory, source, destination, selector, username, password,
+                batchSize, rate, listener);
+        long elapsed = System.currentTimeMillis() - start;
+        System.out.println(count + " message(s) moved in " + elapsed + " ms (" + throughput(count, elapsed) + " msg/s)");
         return null;
     }
 
+    private static long throughput(int count, long elapsed) {
+        return elapsed > 0 ? count * 1000L / elapsed : count;
+    }
+
 }
@@ -16,10 +16,14 @@
  */
 package org.apache.karaf.jms.internal;
 
+import org.apache.karaf.jms.JmsQueueStatistics;
+
 import javax.jms.ConnectionMetaData;
+import javax.jms.DeliveryMode;
 import javax.jms.Destination;
 import javax.jms.JMSConsumer;
 import javax.jms.JMSContext;
+import javax.jms.MapMessage;
 import javax.jms.Message;
 import javax.jms.Queue;
 import javax.jms.Topic;
@@ -30,12 +34,24 @@ import java.util.List;
 
 class ActiveMQDestinationSourceFactory implements DestinationSource.Factory {
 
+    private static final long STATISTICS_TIMEOUT = 1000L;
+
     @Override
     public DestinationSource create(JMSContext context) {
         try {
             ConnectionMetaData cmd = context.getMetaData();
             if (cmd.getJMSProviderName().equals("ActiveMQ") && cmd.getProviderVersion().startsWith("5.")) {
-                return type -> getNames(context, type);
+                return new DestinationSource() {
+                    @Override
+                    public List<String> getNames(DestinationType type) {
+                        return ActiveMQDestinationSourceFactory.this.getNames(context, type);
+                    }
+
+                    @Override
+                    public JmsQueueStatistics getStatistics(String queue) {
+                        return ActiveMQDestinationSourceFactory.this.getStatistics(context, queue);
+                    }
+                };
             }
         } catch (Throwable t) {
             // Ignore
@@ -71,6 +87,40 @@ class ActiveMQDestinationSourceFactory implements DestinationSource.Factory {
         return Collections.emptyList();
     }
 
+    /**
+     * Query the statistics broker plugin, which replies to messages sent to
+     * <code>ActiveMQ.Statistics.Destination.&lt;queue&gt;</code> with the destination statistics.
+     * The request is non persistent and expires quickly in case the plugin is not installed,
+     * after which the queues of the connection factory are browsed for a while without asking
+     * the broker again.
+     */
+    private JmsQueueStatistics getStatistics(JMSContext context, String queue) {
+        try {
+            Queue replyTo = context.createTemporaryQueue();
+            context.start();
+            context.createProducer()
+                    .setDeliveryMode(DeliveryMode.NON_PERSISTENT)
+                    .setTimeToLive(STATISTICS_TIMEOUT)
+                    .setJMSReplyTo(replyTo)
+                    .send(context.createQueue("ActiveMQ.Statistics.Destination." + queue), "");
+            try (JMSConsumer consumer = context.createConsumer(replyTo)) {
+                Message reply = consumer.receive(STATISTICS_TIMEOUT);
+                if (reply instanceof MapMessage) {
+                    MapMessage map = (MapMessage) reply;
+                    return new JmsQueueStatistics(queue,
+                            map.getLong("size"),
+                            map.getLong("consumerCount"),
+                            map.getLong("enqueueCount"),
+                            map.getLong("dequeueCount"),
+                            -1, -1, JmsQueueStatistics.SOURCE_BROKER);
+                }
+            }
+        } catch (Exception e) {
+            // Ignore, the statistics are not available
+        }
+        return null;
+    }
+
     private static Object getField(Object context, String... fields) throws NoSuchFieldException, IllegalAccessException {
         Object obj = context;
         for (String field : fields) {
@@ -16,6 +16,7 @@
  */
 package org.apache.karaf.jms.internal;
 
+import org.apache.karaf.jms.JmsQueueStatistics;
 import org.apache.karaf.util.json.JsonReader;
 
 import javax.jms.ConnectionMetaData;
@@ -30,12 +31,26 @@ import java.util.List;
 
 class ArtemisDestinationSourceFactory implements DestinationSource.Factory {
 
+    private static final String[] STATISTICS_ATTRIBUTES = {
+            "messageCount", "consumerCount", "messagesAdded", "messagesAcknowledged"
+    };
+
     @Override
     public DestinationSource create(JMSContext context) {
         try {
             ConnectionMetaData cmd = context.getMetaData();
             if (cmd.getJMSProviderName().equals("ActiveMQ") && cmd.getProviderVersion().startsWith("2.")) {
-                return type -> getNames(context, type);
+                return new DestinationSource() {
+                    @Override
+                    public List<String> getNames(DestinationType type) {
+                        return ArtemisDestinationSourceFactory.this.getNames(context, type);
+                    }
+
+                    @Override
+                    public JmsQueueStatistics getStatistics(String queue) {
+                        return ArtemisDestinationSourceFactory.this.getStatistics(context, queue);
+                    }
+                };
             }
         } catch (Throwable t) {
             // Ignore
@@ -66,4 +81,37 @@ class ArtemisDestinationSourceFactory implements DestinationSource.Factory {
             return Collections.emptyList();
         }
     }
+
+    /**
+     * Read the queue attributes using the management queue.
+     */
+    private JmsQueueStatistics getStatistics(JMSContext context, String queue) {
+        try {
+            Queue managementQueue = context.createQueue("activemq.management");
+            Queue replyTo = context.createTemporaryQueue();
+
+            context.start();
+
+            try (JMSConsumer consumer = context.createConsumer(replyTo)) {
+                long[] values = new long[STATISTICS_ATTRIBUTES.length];
+                for (int i = 0; i < values.length; i++) {
+                    context.createProducer()
+                            .setProperty("_AMQ_ResourceName", "queue." + queue)
+                            .setProperty("_AMQ_Attribute", STATISTICS_ATTRIBUTES[i])
+                            .setJMSReplyTo(replyTo)
+                            .send(managementQueue, "");
+                    Message reply = consumer.receive(500);
+                    if (!(reply instanceof TextMessage) || !reply.getBooleanProperty("_AMQ_OperationSucceeded")) {
+                        return null;
+                    }
+                    List<?> array = (List<?>) JsonReader.read(new StringReader(((TextMessage) reply).getText()));
+                    values[i] = ((Number) array.get(0)).longValue();
+                }
+                return new JmsQueueStatistics(queue, values[0], values[1], values[2], values[3],
+                        -1, -1, JmsQueueStatistics.SOURCE_BROKER);
+            }
+        } catch (Exception e) {
+            return null;
+        }
+    }
 }
@@ -16,6 +16,8 @@
  */
 package org.apache.karaf.jms.internal;
 
+import org.apache.karaf.jms.JmsQueueStatistics;
+
 import javax.jms.JMSContext;
 import java.util.List;
 
@@ -31,4 +33,15 @@ interface DestinationSource {
     }
 
     List<String> getNames(DestinationType type);
+
+    /**
+     * Retrieve the statistics of a queue from the broker management.
+     * The rates are not computed by the sources.
+     *
+     * @param queue The queue name.
+     * @return The statistics, or <code>null</code> if not supported by the broker.
+     */
+    default JmsQueueStatistics getStatistics(String queue) {
+        return null;
+    }
 }
@@ -86,6 +86,15 @@ public class JmsMBeanImpl implements JmsMBean {
         }
     }
 
+    @Override
+    public Map<String, String> statistics(String connectionFactory, String queue, String username, String password) throws MBeanException {
+        try {
+            return jmsService.statistics(connectionFactory, queue, username, password).toMap();
+        } catch (Throwable t) {
+            throw new MBeanException(null, t.getMessage());
+        }
+    }
+
     @Override
     public List<String> queues(String connectionFactory, String username, String password) throws MBeanException {
         try {
@@ -122,6 +131,15 @@ public class JmsMBeanImpl implements JmsMBean {
         }
     }
 
+    @Override
+    public int consume(String connectionFactory, String queue, String selector, String username, String password, int batchSize, int maxRate) throws MBeanException {
+        try {
+            return jmsService.consume(connectionFactory, queue, selector, username, password, batchSize, maxRate, null);
+        } catch (Throwable t) {
+            throw new MBeanException(null, t.getMessage());
+        }
+    }
+
     @Override
     public int move(String connectionFactory, String source, String destination, String selector, String username, String password) throws MBeanException {
         try {
@@ -131,6 +149,15 @@ public class JmsMBeanImpl implements JmsMBean {
         }
     }
 
+    @Override
+    public int move(String connectionFactory, String source, String destination, String selector, String username, String password, int batchSize, int maxRate) throws MBeanException {
+        try {
+            return jmsService.move(connectionFactory, source, destination, selector, username, password, batchSize, maxRate, null);
+        } catch (Throwable t) {
+            throw new MBeanException(null, t.getMessage());
+        }
+    }
+
     @Override
     public TabularData browse(String connectionFactory, String queue, String selector, String username, String password) throws MBeanException {
         try {
@@ -17,6 +17,7 @@
 package org.apache.karaf.jms.internal;
 
 import org.apache.karaf.jms.JmsMessage;
+import org.apache.karaf.jms.JmsQueueStatistics;
 import org.apache.karaf.jms.JmsService;
 import org.ops4j.pax.jms.service.ConnectionFactoryFactory;
 import org.osgi.framework.BundleContext;
@@ -34,6 +35,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -44,6 +47,17 @@ public class JmsServiceImpl implements JmsService {
     private BundleContext bundleContext;
     private ConfigurationAdmin configAdmin;
     private Path deployFolder;
+    private final Map<String, Sample> samples = new ConcurrentHashMap<>();
+
+    /**
+     * Delay before querying again the statistics of a connection factory whose broker did not provide them.
+     */
+    static final long STATISTICS_RETRY = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Time until which the queues of a connection factory are browsed without querying the broker statistics.
+     */
+    private final Map<String, Long> statisticsUnavailable = new ConcurrentHashMap<>();
     
     public JmsServiceImpl() {
         deployFolder = Paths.get(System.getProperty("karaf.base"), "deploy");
@@ -130,17 +144,60 @@ public class JmsServiceImpl implements JmsService {
 
     @Override
     public int count(String connectionFactory, final String destination, String username, String password) throws IOException, JMSException {
+        return (int) statistics(connectionFactory, destination, username, password).getDepth();
+    }
+
+    @Override
+    public JmsQueueStatistics statistics(String connectionFactory, String queue, String username, String password) throws IOException, JMSException {
+        JmsQueueStatistics statistics;
         try (JMSContext context = createContext(connectionFactory, username, password)) {
-            try (QueueBrowser browser = context.createBrowser(context.createQueue(destination))) {
-                @SuppressWarnings("unchecked")
-                Enumeration<Message> enumeration = browser.getEnumeration();
-                int count = 0;
-                while (enumeration.hasMoreElements()) {
-                    enumeration.nextElement();
-                    count++;
+            Long unavailable = statisticsUnavailable.get(connectionFactory);
+            boolean query = unavailable == null || System.currentTimeMillis() >= unavailable;
+            statistics = query ? getDestinationSource(context).getStatistics(queue) : null;
+            if (statistics == null) {
+                // The broker does not provide statistics, so browse the queue and do not ask
+                // the broker again for a while, as each failed query waits for a reply
+                if (query) {
+                    statisticsUnavailable.put(connectionFactory, System.currentTimeMillis() + STATISTICS_RETRY);
                 }
-                return count;
+                return new JmsQueueStatistics(queue, browseCount(context, queue), -1, -1, -1, -1, -1,
+                        JmsQueueStatistics.SOURCE_BROWSE);
             }
+            statisticsUnavailable.remove(connectionFactory);
+        }
+        // Compute the rates since the previous statistics of this queue
+        long now = System.currentTimeMillis();
+        Sample sample = new Sample(now, statistics.getEnqueueCount(), statistics.getDequeueCount());
+        Sample previous = samples.put(connectionFactory + "/" + queue, sample);
+        double enqueueRate = -1;
+        double dequeueRate = -1;
+        if (previous != null && now > previous.time) {
+            enqueueRate = rate(previous.enqueueCount, sample.enqueueCount, now - previous.time);
+            dequeueRate = rate(previous.dequeueCount, sample.dequeueCount, now - previous.time);
+        }
+        return new JmsQueueStatistics(queue, statistics.getDepth(), statistics.getConsumerCount(),
+                statistics.getEnqueueCount(), statistics.getDequeueCount(), enqueueRate, dequeueRate,
+                statistics.getSource());
+    }
+
+    private static double rate(long previous, long current, long elapsed) {
+        if (previous < 0 || current < previous) {
+            // Unknown or the broker has been restarted
+            return -1;
+        }
+        return (current - previous) * 1000.0 / elapsed;
+    }
+
+    private int browseCount(JMSContext context, String queue) throws JMSException {
+        try (QueueBrowser browser = context.createBrowser(context.createQueue(queue))) {
+            @SuppressWarnings("unchecked")
+            Enumeration<Message> enumeration = browser.getEnumeration();
+            int count = 0;
+            while (enumeration.hasMoreElements()) {
+                enumeration.nextElement();
+                count++;
+            }
+            return count;
         }
     }
 
@@ -237,17 +294,20 @@ public class JmsServiceImpl implements JmsService {
     @Override
     public int consume(String connectionFactory, final String queue, final String selector, String username,
                        String password) throws Exception {
+        // Messages are acknowledged one by one, without any transaction
         try (JMSContext context = createContext(connectionFactory, username, password)) {
             try (JMSConsumer consumer = context.createConsumer(context.createQueue(queue), selector)) {
-                int count = 0;
-                Message message;
-                do {
-                    message = consumer.receive(500L);
-                    if (message != null) {
-                        count++;
-                    }
-                } while (message != null);
-                return count;
+                return transfer(context, false, consumer, null, 1, 0, null);
+            }
+        }
+    }
+
+    @Override
+    public int consume(String connectionFactory, final String queue, final String selector, String username,
+                       String password, int batchSize, int maxRate, ProgressListener listener) throws Exception {
+        try (JMSContext context = createContext(connectionFactory, username, password, JMSContext.SESSION_TRANSACTED)) {
+            try (JMSConsumer consumer = context.createConsumer(context.createQueue(queue), selector)) {
+                return transfer(context, true, consumer, null, batchSize, maxRate, listener);
             }
         }
     }
@@ -255,25 +315,71 @@ public class JmsServiceImpl implements JmsService {
     @Override
     public int move(String connectionFactory, final String sourceQueue, final String targetQueue,
                     final String selector, String username, String password) throws IOException, JMSException {
+        return move(connectionFactory, sourceQueue, targetQueue, selector, username, password, 1, 0, null);
+    }
+
+    @Override
+    public int move(String connectionFactory, final String sourceQueue, final String targetQueue,
+                    final String selector, String username, String password,
+                    int batchSize, int maxRate, ProgressListener listener) throws IOException, JMSException {
         try (JMSContext context = createContext(connectionFactory, username, password, JMSContext.SESSION_TRANSACTED)) {
             Queue source = context.createQueue(sourceQueue);
             Queue target = context.createQueue(targetQueue);
             try (JMSConsumer consumer = context.createConsumer(source, selector)) {
-                int count = 0;
-                while (true) {
-                    Message message = consumer.receive(500L);
-                    if (message != null) {
-                        context.createProducer().send(target, message);
-                        context.commit();
-                        count++;
-                    } else {
-                        break;
-                    }
+                return transfer(context, true, consumer, target, batchSize, maxRate, listener);
+            }
+        }
+    }
+
+    /**
+     * Receive the messages from the consumer until none is available, sending them to the target queue
+     * if any, and committing the context once per batch if it is transacted.
+     */
+    private int transfer(JMSContext context, boolean transacted, JMSConsumer consumer, Queue target,
+                         int batchSize, int maxRate, ProgressListener listener) {
+        batchSize = Math.max(1, batchSize);
+        JMSProducer producer = target != null ? context.createProducer() : null;
+        long start = System.currentTimeMillis();
+        int count = 0;
+        int pending = 0;
+        while (true) {
+            Message message = consumer.receive(500L);
+            if (message != null) {
+                if (producer != null) {
+                    producer.send(target, message);
+                }
+                count++;
+                pending++;
+            }
+            if (pending > 0 && (pending >= batchSize || message == null)) {
+                if (transacted) {
+                    context.commit();
+                }
+                pending = 0;
+                if (listener != null) {
+                    listener.progress(count, System.currentTimeMillis() - start);
                 }
+            }
+            if (message == null) {
                 return count;
             }
+            if (maxRate > 0) {
+                // Wait until the time at which this message is allowed by the rate
+                long delay = start + count * 1000L / maxRate - System.currentTimeMillis();
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        if (transacted) {
+                            context.commit();
+                        }
+                        return count;
+                    }
+                }
+            }
         }
-   }
+    }
 
     public void setBundleContext(BundleContext bundleContext) {
         this.bundleContext = bundleContext;
@@ -282,4 +388,17 @@ public class JmsServiceImpl implements JmsService {
     public void setConfigAdmin(ConfigurationAdmin configAdmin) {
         this.configAdmin = configAdmin;
     }
-}
\ No newline at end of file
+
+    private static class Sample {
+        final long time;
+        final long enqueueCount;
+        final long dequeueCount;
+
+        Sample(long time, long enqueueCount, long dequeueCount) {
+            this.time = time;
+            this.enqueueCount = enqueueCount;
+            this.dequeueCount = dequeueCount;
+        }
+    }
+
+}
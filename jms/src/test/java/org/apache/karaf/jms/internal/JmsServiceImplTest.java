@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.jms.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.ConnectionMetaData;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+
+import org.apache.karaf.jms.JmsQueueStatistics;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+import static org.easymock.EasyMock.anyInt;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JmsServiceImplTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBrowseWhenBrokerStatisticsAreUnavailable() throws Exception {
+        ServiceReference<ConnectionFactory> reference = createMock(ServiceReference.class);
+        ConnectionFactory connectionFactory = createMock(ConnectionFactory.class);
+        JMSContext context = createNiceMock(JMSContext.class);
+        ConnectionMetaData metaData = createMock(ConnectionMetaData.class);
+        Queue queue = createMock(Queue.class);
+        QueueBrowser browser = createNiceMock(QueueBrowser.class);
+        BundleContext bundleContext = createNiceMock(BundleContext.class);
+        List<Message> messages = Arrays.asList(createMock(Message.class), createMock(Message.class), createMock(Message.class));
+
+        expect(bundleContext.getServiceReferences(eq(ConnectionFactory.class), anyString()))
+                .andReturn(Collections.singletonList(reference)).anyTimes();
+        expect(bundleContext.getService(reference)).andReturn(connectionFactory).anyTimes();
+        expect(connectionFactory.createContext(anyString(), anyString(), anyInt())).andReturn(context).anyTimes();
+        expect(context.getMetaData()).andReturn(metaData).anyTimes();
+        expect(metaData.getJMSProviderName()).andReturn("ActiveMQ").anyTimes();
+        expect(metaData.getProviderVersion()).andReturn("5.15.0").anyTimes();
+        // the statistics plugin is only queried once
+        expect(context.createTemporaryQueue()).andThrow(new JMSRuntimeException("No statistics plugin")).once();
+        expect(context.createQueue("orders")).andReturn(queue).anyTimes();
+        expect(context.createBrowser(queue)).andReturn(browser).anyTimes();
+        expect(browser.getEnumeration()).andAnswer(() -> Collections.enumeration(messages)).anyTimes();
+        replay(reference, connectionFactory, context, metaData, queue, browser, bundleContext);
+
+        System.setProperty("karaf.base", System.getProperty("java.io.tmpdir"));
+        JmsServiceImpl service = new JmsServiceImpl();
+        service.setBundleContext(bundleContext);
+
+        for (int i = 0; i < 3; i++) {
+            JmsQueueStatistics statistics = service.statistics("cf", "orders", "user", "password");
+            assertEquals(3, statistics.getDepth());
+            assertEquals(JmsQueueStatistics.SOURCE_BROWSE, statistics.getSource());
+        }
+        assertEquals(3, service.count("cf", "orders", "user", "password"));
+
+        verify(context);
+    }
+
+    @Test
+    public void testConsumeCommitsPerBatch() throws Exception {
+        JMSContext context = createMock(JMSContext.class);
+        Queue queue = createMock(Queue.class);
+        JMSConsumer consumer = createMock(JMSConsumer.class);
+        expect(context.createQueue("orders")).andReturn(queue);
+        expect(context.createConsumer(queue, null)).andReturn(consumer);
+        expectMessages(consumer, 5);
+        // two full batches, then the final partial one
+        context.commit();
+        expectLastCall().times(3);
+        consumer.close();
+        context.close();
+        replay(context, queue, consumer);
+
+        List<Integer> progress = new ArrayList<>();
+        JmsServiceImpl service = createService(context, JMSContext.SESSION_TRANSACTED);
+        int count = service.consume("cf", "orders", null, "user", "password", 2, 0, (c, elapsed) -> progress.add(c));
+
+        assertEquals(5, count);
+        assertEquals(Arrays.asList(2, 4, 5), progress);
+        verify(context, consumer);
+    }
+
+    @Test
+    public void testLegacyConsumeIsNotTransacted() throws Exception {
+        JMSContext context = createMock(JMSContext.class);
+        Queue queue = createMock(Queue.class);
+        JMSConsumer consumer = createMock(JMSConsumer.class);
+        expect(context.createQueue("orders")).andReturn(queue);
+        expect(context.createConsumer(queue, null)).andReturn(consumer);
+        expectMessages(consumer, 3);
+        // no commit, the messages are acknowledged automatically
+        consumer.close();
+        context.close();
+        replay(context, queue, consumer);
+
+        JmsServiceImpl service = createService(context, JMSContext.AUTO_ACKNOWLEDGE);
+        assertEquals(3, service.consume("cf", "orders", null, "user", "password"));
+
+        verify(context, consumer);
+    }
+
+    @Test
+    public void testMoveCommitsPerBatch() throws Exception {
+        JMSContext context = createMock(JMSContext.class);
+        Queue source = createMock(Queue.class);
+        Queue target = createMock(Queue.class);
+        JMSConsumer consumer = createMock(JMSConsumer.class);
+        JMSProducer producer = createMock(JMSProducer.class);
+        expect(context.createQueue("orders")).andReturn(source);
+        expect(context.createQueue("archive")).andReturn(target);
+        expect(context.createConsumer(source, "type = 'x'")).andReturn(consumer);
+        // a single producer for the whole move
+        expect(context.createProducer()).andReturn(producer).once();
+        List<Message> messages = expectMessages(consumer, 7);
+        for (Message message : messages) {
+            expect(producer.send(target, message)).andReturn(producer);
+        }
+        context.commit();
+        expectLastCall().times(3);
+        consumer.close();
+        context.close();
+        replay(context, source, target, consumer, producer);
+
+        List<Integer> progress = new ArrayList<>();
+        JmsServiceImpl service = createService(context, JMSContext.SESSION_TRANSACTED);
+        int count = service.move("cf", "orders", "archive", "type = 'x'", "user", "password", 3, 0, (c, elapsed) -> progress.add(c));
+
+        assertEquals(7, count);
+        assertEquals(Arrays.asList(3, 6, 7), progress);
+        verify(context, consumer, producer);
+    }
+
+    @Test
+    public void testConsumeMaxRate() throws Exception {
+        JMSContext context = createMock(JMSContext.class);
+        Queue queue = createMock(Queue.class);
+        JMSConsumer consumer = createMock(JMSConsumer.class);
+        expect(context.createQueue("orders")).andReturn(queue);
+        expect(context.createConsumer(queue, null)).andReturn(consumer);
+        expectMessages(consumer, 10);
+        context.commit();
+        expectLastCall().times(2);
+        consumer.close();
+        context.close();
+        replay(context, queue, consumer);
+
+        List<Long> elapsed = new ArrayList<>();
+        JmsServiceImpl service = createService(context, JMSContext.SESSION_TRANSACTED);
+        long start = System.currentTimeMillis();
+        // 50 messages per second, so at least 20 ms per message
+        int count = service.consume("cf", "orders", null, "user", "password", 5, 50, (c, e) -> elapsed.add(e));
+        long time = System.currentTimeMillis() - start;
+
+        assertEquals(10, count);
+        assertEquals(2, elapsed.size());
+        assertTrue("First batch took " + elapsed.get(0) + " ms", elapsed.get(0) >= 80);
+        assertTrue("Consume took " + time + " ms", time >= 200);
+        verify(context, consumer);
+    }
+
+    private static List<Message> expectMessages(JMSConsumer consumer, int count) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Message message = createMock(Message.class);
+            messages.add(message);
+            expect(consumer.receive(500L)).andReturn(message);
+        }
+        expect(consumer.receive(500L)).andReturn(null);
+        return messages;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JmsServiceImpl createService(JMSContext context, int sessionMode) throws Exception {
+        ServiceReference<ConnectionFactory> reference = createMock(ServiceReference.class);
+        ConnectionFactory connectionFactory = createMock(ConnectionFactory.class);
+        BundleContext bundleContext = createNiceMock(BundleContext.class);
+        expect(bundleContext.getServiceReferences(eq(ConnectionFactory.class), anyString()))
+                .andReturn(Collections.singletonList(reference)).anyTimes();
+        expect(bundleContext.getService(reference)).andReturn(connectionFactory).anyTimes();
+        expect(connectionFactory.createContext("user", "password", sessionMode)).andReturn(context).once();
+        replay(reference, connectionFactory, bundleContext);
+
+        System.setProperty("karaf.base", System.getProperty("java.io.tmpdir"));
+        JmsServiceImpl service = new JmsServiceImpl();
+        service.setBundleContext(bundleContext);
+        return service;
+    }
+
+}
@@ -17,8 +17,13 @@
 package org.apache.karaf.log.command;
 
 import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 
+import org.apache.karaf.log.core.Level;
 import org.apache.karaf.log.core.LogEventFormatter;
+import org.apache.karaf.log.core.LogQuery;
 import org.apache.karaf.log.core.LogService;
 import org.apache.karaf.shell.api.action.Action;
 import org.apache.karaf.shell.api.action.Argument;
@@ -42,7 +47,7 @@ public class DisplayLog implements Action {
     public final static int INFO_INT  = 6;
     public final static int DEBUG_INT = 7;
 
-    @Option(name = "-n", aliases = {}, description="Number of entries to display", required = false, multiValued = false)
+    @Option(name = "-n", aliases = {}, description="Number of entries to display, counted after applying the level, logger, time and MDC filters", required = false, multiValued = false)
     int entries;
 
     @Option(name = "-p", aliases = {}, description="Pattern for formatting the output", required = false, multiValued = false)
@@ -55,6 +60,18 @@ public class DisplayLog implements Action {
     @Completion(value = StringsCompleter.class, values = { "TRACE", "DEBUG", "INFO", "WARN", "ERROR", "DEFAULT" })
     String level;
 
+    @Option(name = "--logger-prefix", description = "Only display the log entries of the loggers starting with the given prefix", required = false, multiValued = false)
+    String loggerPrefix;
+
+    @Option(name = "--from", description = "Only display the log entries logged after the given time (yyyy-MM-ddTHH:mm:ss or milliseconds since the epoch)", required = false, multiValued = false)
+    String from;
+
+    @Option(name = "--to", description = "Only display the log entries logged before the given time (yyyy-MM-ddTHH:mm:ss or milliseconds since the epoch)", required = false, multiValued = false)
+    String to;
+
+    @Option(name = "--mdc", description = "Only display the log entries having the given MDC key", required = false, multiValued = false)
+    String mdcKey;
+
     @Argument(index = 0, name = "logger", description = "The name of the logger. This can be ROOT, ALL, or the name of a logger specified in the org.ops4j.pax.logger.cfg file.", required = false, multiValued = false)
     String logger;
 
@@ -74,12 +91,46 @@ public class DisplayLog implements Action {
     }
 
     protected void display(final PrintStream out, int minLevel) {
-        Iterable<PaxLoggingEvent> le = logService.getEvents(entries == 0 ? Integer.MAX_VALUE : entries);
+        Iterable<PaxLoggingEvent> le = logService.getEvents(createQuery());
         for (PaxLoggingEvent event : le) {
             printEvent(out, event, minLevel);
         }
     }
 
+    /**
+     * Create the query selecting the events to display from the command options.
+     */
+    protected LogQuery createQuery() {
+        LogQuery query = new LogQuery()
+                .level(getLevel(level))
+                .loggerPrefix(loggerPrefix)
+                .mdcKey(mdcKey)
+                .limit(entries == 0 ? Integer.MAX_VALUE : entries);
+        if (from != null) {
+            query.from(parseTime(from));
+        }
+        if (to != null) {
+            query.to(parseTime(to));
+        }
+        return query;
+    }
+
+    protected static Level getLevel(String levelSt) {
+        return LogQuery.parseLevel(levelSt);
+    }
+
+    protected static long parseTime(String time) {
+        try {
+            if (time.matches("\\d+")) {
+                return Long.parseLong(time);
+            }
+            return LocalDateTime.parse(time).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time " + time
+                    + ", expected yyyy-MM-ddTHH:mm:ss (for instance 2015-07-01T19:12:46) or milliseconds since the epoch");
+        }
+    }
+
     protected static int getMinLevel(String levelSt) {
         int minLevel = Integer.MAX_VALUE;
         if (levelSt != null) {
@@ -18,6 +18,7 @@ package org.apache.karaf.log.command;
 
 import java.io.PrintStream;
 
+import org.apache.karaf.log.core.LogQuery;
 import org.apache.karaf.log.core.LogService;
 import org.apache.karaf.shell.api.action.Command;
 import org.apache.karaf.shell.api.action.lifecycle.Reference;
@@ -49,7 +50,17 @@ public class LogTail extends DisplayLog {
         display(out, minLevel);
         out.flush();
 
-        PaxAppender appender = event -> printEvent(out, event, minLevel);
+        // Apply the same criteria to the live events as to the displayed ones
+        LogQuery query = createQuery();
+        PaxAppender appender = event -> {
+            try {
+                if (event != null && query.matches(event)) {
+                    printEvent(out, event, minLevel);
+                }
+            } catch (NoClassDefFoundError e) {
+                // KARAF-3350: Ignore NoClassDefFoundError exceptions, as in printEvent()
+            }
+        };
         ServiceTracker<LogService, LogService> tracker = new LogServiceTracker(context, LogService.class, null, appender);
         tracker.open();
         try {
@@ -16,6 +16,7 @@
  */
 package org.apache.karaf.log.core;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -29,4 +30,25 @@ public interface LogMBean {
     void setLevel(String level);
     void setLevel(String logger, String level);
 
+    long getDroppedEvents();
+
+    /**
+     * Returns the buffered log entries matching the given criteria, from the oldest to the newest.
+     *
+     * @param level the minimal level of the entries, or null for all levels
+     * @param loggerPrefix the prefix of the logger names, or null for all loggers
+     * @param from the minimal time stamp of the entries, or 0
+     * @param to the maximal time stamp of the entries, or 0
+     * @param mdcKey a key which must be present in the entries MDC properties, or null
+     * @param limit the maximum number of most recent entries matching the other criteria, or 0 for all entries
+     * @return the formatted log entries
+     * @throws IllegalArgumentException if the level is unknown
+     */
+    List<String> getEvents(String level, String loggerPrefix, long from, long to, String mdcKey, int limit);
+
+    /**
+     * Returns the stack trace of the last exception logged by a logger containing the given name.
+     */
+    List<String> getLastException(String logger);
+
 }
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.log.core;
+
+import org.ops4j.pax.logging.spi.PaxLoggingEvent;
+
+/**
+ * Criteria used to select events from the in-memory log buffer.
+ * All criteria are optional, unset criteria match all events.
+ */
+public class LogQuery {
+
+    private Level level;
+    private String loggerPrefix;
+    private long fromTime = Long.MIN_VALUE;
+    private long toTime = Long.MAX_VALUE;
+    private String mdcKey;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Only select events with the given level or a more severe one.
+     */
+    public LogQuery level(Level level) {
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * Only select events whose logger name starts with the given prefix.
+     */
+    public LogQuery loggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+        return this;
+    }
+
+    /**
+     * Only select events logged at or after the given time, in milliseconds since the epoch.
+     */
+    public LogQuery from(long fromTime) {
+        this.fromTime = fromTime;
+        return this;
+    }
+
+    /**
+     * Only select events logged at or before the given time, in milliseconds since the epoch.
+     */
+    public LogQuery to(long toTime) {
+        this.toTime = toTime;
+        return this;
+    }
+
+    /**
+     * Only select events having the given key in their MDC properties.
+     */
+    public LogQuery mdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+        return this;
+    }
+
+    /**
+     * Only select the given number of most recent matching events.
+     */
+    public LogQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Parse the name of the minimal level of a query, ignoring the case.
+     *
+     * @param level the level name, or null for all levels
+     * @return the level, or null for all levels
+     * @throws IllegalArgumentException if the level is unknown
+     */
+    public static Level parseLevel(String level) {
+        if (level == null) {
+            return null;
+        }
+        try {
+            return Level.valueOf(level.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown log level " + level
+                    + ", expected one of " + String.join(", ", Level.strings()));
+        }
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getLoggerPrefix() {
+        return loggerPrefix;
+    }
+
+    public long getFromTime() {
+        return fromTime;
+    }
+
+    public long getToTime() {
+        return toTime;
+    }
+
+    public String getMdcKey() {
+        return mdcKey;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the syslog severity of the least severe events selected by this query.
+     */
+    public int getMaxSyslogLevel() {
+        if (level == null) {
+            return Integer.MAX_VALUE;
+        }
+        switch (level) {
+        case ERROR: return 3;
+        case WARN:  return 4;
+        case INFO:  return 6;
+        case DEBUG: return 7;
+        default:    return Integer.MAX_VALUE;
+        }
+    }
+
+    public boolean matches(PaxLoggingEvent event) {
+        if (event.getLevel().getSyslogEquivalent() > getMaxSyslogLevel()) {
+            return false;
+        }
+        if (loggerPrefix != null && (event.getLoggerName() == null || !event.getLoggerName().startsWith(loggerPrefix))) {
+            return false;
+        }
+        if (event.getTimeStamp() < fromTime || event.getTimeStamp() > toTime) {
+            return false;
+        }
+        return mdcKey == null || (event.getProperties() != null && event.getProperties().containsKey(mdcKey));
+    }
+
+}
@@ -32,7 +32,18 @@ public interface LogService {
     void clearEvents();
     Iterable<PaxLoggingEvent> getEvents();
     Iterable<PaxLoggingEvent> getEvents(int maxNum);
+
+    /**
+     * Returns the buffered events matching the given query, from the oldest to the newest.
+     */
+    Iterable<PaxLoggingEvent> getEvents(LogQuery query);
     PaxLoggingEvent getLastException(String logger);
     void addAppender(PaxAppender appender);
     void removeAppender(PaxAppender appender);
+
+    /**
+     * Returns the number of events which could not be delivered to the appenders
+     * added with {@link #addAppender(PaxAppender)} because they were too slow.
+     */
+    long getDroppedEvents();
 }
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.log.core.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ops4j.pax.logging.spi.PaxAppender;
+import org.ops4j.pax.logging.spi.PaxLoggingEvent;
+
+/**
+ * Delivers log events to a {@link PaxAppender} from a dedicated thread.
+ * Events are queued in a bounded queue and dropped when the queue is full,
+ * so that a slow appender (such as a log:tail on a remote console) never
+ * blocks the logging threads.
+ */
+public class AsyncAppender implements Runnable {
+
+    private final PaxAppender appender;
+    private final BlockingQueue<PaxLoggingEvent> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    public AsyncAppender(PaxAppender appender, int capacity) {
+        this.appender = appender;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this, "Karaf log appender " + appender);
+        this.thread.setDaemon(true);
+    }
+
+    public PaxAppender getAppender() {
+        return appender;
+    }
+
+    /**
+     * Returns the number of events dropped because the queue was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    /**
+     * Queue the given event without blocking.
+     */
+    public void offer(PaxLoggingEvent event) {
+        if (!queue.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!closed) {
+            PaxLoggingEvent event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                appender.doAppend(event);
+            } catch (Throwable t) {
+                // Ignore
+            }
+        }
+        queue.clear();
+    }
+
+}
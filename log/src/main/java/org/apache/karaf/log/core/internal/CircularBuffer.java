@@ -18,92 +18,119 @@
  */
 package org.apache.karaf.log.core.internal;
 
-import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 /**
- * An array that only keeps the last N elements added
+ * An array that only keeps the last N elements added.
+ *
+ * The buffer is lock free: each producer claims a sequence number and
+ * writes its element in the matching slot. Readers only return the slots
+ * whose sequence number is the expected one, so that elements being
+ * written or already overwritten are skipped instead of blocking.  A slot
+ * is only published if it does not already hold a newer element.
  */
 public class CircularBuffer<T> {
 
-    private T[] elements;
-    private transient int start;
-    private transient int end;
-    private transient boolean full;
+    private final AtomicReferenceArray<Slot<T>> elements;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong cleared = new AtomicLong();
     private final int maxElements;
-    private Class<?> type;
 
-    public CircularBuffer(int size, Class<?> type) {
+    public CircularBuffer(int size) {
         if (size <= 0) {
             throw new IllegalArgumentException("The size must be greater than 0");
         }
-        this.type = type;
         maxElements = size;
-        clear();
+        elements = new AtomicReferenceArray<>(size);
     }
 
-    private int size() {
-        if (end == start) {
-            return full ? maxElements : 0;
-        } else if (end < start) {
-            return maxElements - start + end;
-        } else {
-            return end - start;
+    public void clear() {
+        long seq = sequence.get();
+        long cur;
+        while ((cur = cleared.get()) < seq && !cleared.compareAndSet(cur, seq)) {
+            // retry
         }
     }
 
-    @SuppressWarnings("unchecked")
-    public synchronized void clear() {
-        start = 0;
-        end = 0;
-        full = false;
-        elements = (T[])Array.newInstance(type, maxElements);
-    }
-
-    public synchronized void add(T element) {
+    /**
+     * Add an element to the buffer.
+     *
+     * @return the sequence number of the added element
+     */
+    public long add(T element) {
         if (null == element) {
              throw new NullPointerException("Attempted to add null object to buffer");
         }
-        if (full) {
-            increaseStart();
-        }
-        elements[end] = element;
-        increaseEnd();
-        
+        long seq = sequence.getAndIncrement();
+        int index = (int) (seq % maxElements);
+        Slot<T> slot = new Slot<>(seq, element);
+        Slot<T> current;
+        do {
+            current = elements.get(index);
+            if (current != null && current.seq > seq) {
+                // A newer element has already been written in the slot while
+                // this producer was stalled, so this element is overwritten
+                break;
+            }
+        } while (!elements.compareAndSet(index, current, slot));
+        return seq;
     }
 
-    private void increaseStart() {
-        start++;
-        if (start >= maxElements) {
-            start = 0;
-        }
+    /**
+     * Returns the sequence number of the next element to be added.
+     */
+    public long getSequence() {
+        return sequence.get();
     }
 
-    private void increaseEnd() {
-        end++;
-        if (end >= maxElements) {
-            end = 0;
-        }
-        if (end == start) {
-            full = true;
+    /**
+     * Returns the sequence number of the oldest element which may still be in the buffer.
+     */
+    public long getFirstSequence() {
+        return Math.max(cleared.get(), sequence.get() - maxElements);
+    }
+
+    /**
+     * Returns the element with the given sequence number, or <code>null</code>
+     * if it has been overwritten, cleared or is not fully written yet.
+     */
+    public T get(long seq) {
+        if (seq < cleared.get() || seq < 0) {
+            return null;
         }
+        Slot<T> slot = elements.get((int) (seq % maxElements));
+        return slot != null && slot.seq == seq ? slot.element : null;
     }
 
-    public synchronized Iterable<T> getElements() {
-        return getElements(size());
+    public Iterable<T> getElements() {
+        return getElements(maxElements);
     }
 
-    public synchronized Iterable<T> getElements(int nb) {
-        int s = size();
-        nb = Math.min(Math.max(0, nb), s);
-        List<T> result = new ArrayList<T>();
-        for (int i = 0; i < nb; i++) {
-            result.add(elements[(i + s - nb + start) % maxElements]);
+    public Iterable<T> getElements(int nb) {
+        long end = sequence.get();
+        long start = Math.max(Math.max(cleared.get(), end - maxElements), end - Math.max(0, nb));
+        List<T> result = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            T element = get(seq);
+            if (element != null) {
+                result.add(element);
+            }
         }
         return result;
     }
 
+    private static class Slot<T> {
+        final long seq;
+        final T element;
+
+        Slot(long seq, T element) {
+            this.seq = seq;
+            this.element = element;
+        }
+    }
 
 }
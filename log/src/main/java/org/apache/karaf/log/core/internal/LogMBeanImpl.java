@@ -20,8 +20,15 @@ import javax.management.NotCompliantMBeanException;
 import javax.management.StandardMBean;
 
 import org.apache.karaf.log.core.LogMBean;
+import org.apache.karaf.log.core.LogQuery;
 import org.apache.karaf.log.core.LogService;
+import org.ops4j.pax.logging.spi.PaxLoggingEvent;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -56,4 +63,41 @@ public class LogMBeanImpl extends StandardMBean implements LogMBean {
         this.logService.setLevel(logger, level);
     }
 
+    @Override
+    public long getDroppedEvents() {
+        return logService.getDroppedEvents();
+    }
+
+    @Override
+    public List<String> getEvents(String level, String loggerPrefix, long from, long to, String mdcKey, int limit) {
+        LogQuery query = new LogQuery()
+                .level(LogQuery.parseLevel(level))
+                .loggerPrefix(loggerPrefix)
+                .mdcKey(mdcKey);
+        if (from > 0) {
+            query.from(from);
+        }
+        if (to > 0) {
+            query.to(to);
+        }
+        if (limit > 0) {
+            query.limit(limit);
+        }
+        List<String> events = new ArrayList<>();
+        for (PaxLoggingEvent event : logService.getEvents(query)) {
+            events.add(new Date(event.getTimeStamp()) + " | " + event.getLevel() + " | "
+                    + event.getLoggerName() + " | " + event.getRenderedMessage());
+        }
+        return events;
+    }
+
+    @Override
+    public List<String> getLastException(String logger) {
+        PaxLoggingEvent event = logService.getLastException(logger);
+        if (event == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(event.getThrowableStrRep());
+    }
+
 }
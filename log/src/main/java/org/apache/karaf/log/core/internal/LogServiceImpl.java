@@ -17,12 +17,16 @@
 package org.apache.karaf.log.core.internal;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.karaf.log.core.Level;
+import org.apache.karaf.log.core.LogQuery;
 import org.apache.karaf.log.core.LogService;
 import org.ops4j.pax.logging.spi.PaxAppender;
 import org.ops4j.pax.logging.spi.PaxLoggingEvent;
@@ -32,16 +36,34 @@ import org.osgi.service.cm.ConfigurationAdmin;
 public class LogServiceImpl implements LogService, PaxAppender {
 
     static final String CONFIGURATION_PID = "org.ops4j.pax.logging";
+    static final int DEFAULT_APPENDER_QUEUE_SIZE = 1024;
+    static final int MAX_SYSLOG_LEVEL = 7;
 
     private final ConfigurationAdmin configAdmin;
     private final CircularBuffer<PaxLoggingEvent> buffer;
-    private List<PaxAppender> appenders;
-    
+    // Sequence numbers of the buffered events, per syslog level and for events with a throwable
+    private final List<CircularBuffer<Long>> levelIndexes;
+    private final CircularBuffer<Long> throwableIndex;
+    private final AtomicLong lastThrowable = new AtomicLong(-1);
+    private final List<AsyncAppender> appenders;
+    private final int appenderQueueSize;
+    // Events dropped by appenders which have been removed
+    private final AtomicLong droppedEvents = new AtomicLong();
 
     public LogServiceImpl(ConfigurationAdmin configAdmin, int size) {
+        this(configAdmin, size, DEFAULT_APPENDER_QUEUE_SIZE);
+    }
+
+    public LogServiceImpl(ConfigurationAdmin configAdmin, int size, int appenderQueueSize) {
         this.configAdmin = configAdmin;
         this.appenders = new CopyOnWriteArrayList<>();
-        this.buffer = new CircularBuffer<>(size, PaxLoggingEvent.class);
+        this.buffer = new CircularBuffer<>(size);
+        this.levelIndexes = new ArrayList<>();
+        for (int i = 0; i <= MAX_SYSLOG_LEVEL; i++) {
+            this.levelIndexes.add(new CircularBuffer<>(size));
+        }
+        this.throwableIndex = new CircularBuffer<>(size);
+        this.appenderQueueSize = appenderQueueSize;
     }
 
     private LogServiceInternal getDelegate(Dictionary<String, Object> config) {
@@ -134,54 +156,108 @@ public class LogServiceImpl implements LogService, PaxAppender {
         return buffer.getElements(maxNum);
     }
 
+    @Override
+    public Iterable<PaxLoggingEvent> getEvents(LogQuery query) {
+        List<Long> candidates = null;
+        int maxLevel = query.getMaxSyslogLevel();
+        if (maxLevel < MAX_SYSLOG_LEVEL) {
+            // Only look at the events of the requested levels
+            candidates = new ArrayList<>();
+            for (int i = 0; i <= maxLevel; i++) {
+                levelIndexes.get(i).getElements().forEach(candidates::add);
+            }
+            Collections.sort(candidates);
+        }
+        List<PaxLoggingEvent> result = new ArrayList<>();
+        if (candidates != null) {
+            for (int i = candidates.size() - 1; i >= 0 && result.size() < query.getLimit(); i--) {
+                addIfMatches(result, candidates.get(i), query);
+            }
+        } else {
+            long first = buffer.getFirstSequence();
+            for (long seq = buffer.getSequence() - 1; seq >= first && result.size() < query.getLimit(); seq--) {
+                addIfMatches(result, seq, query);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private void addIfMatches(List<PaxLoggingEvent> result, long seq, LogQuery query) {
+        PaxLoggingEvent event = buffer.get(seq);
+        if (event != null && query.matches(event)) {
+            result.add(event);
+        }
+    }
+
     @Override
     public void clearEvents() {
         buffer.clear();
+        for (CircularBuffer<Long> index : levelIndexes) {
+            index.clear();
+        }
+        throwableIndex.clear();
     }
     
     @Override
     public PaxLoggingEvent getLastException(String logger) {
-        PaxLoggingEvent throwableEvent = null;
-        Iterable<PaxLoggingEvent> le = getEvents();
-        for (PaxLoggingEvent event : le) {
-            // if this is an exception, and the log is the same as the requested log,
-            // then save this exception and continue iterating from oldest to newest
-            if ((event.getThrowableStrRep() != null)
-                    &&(logger != null)
-                    &&(checkIfFromRequestedLog(event, logger))) {
-                throwableEvent = event;
-              // Do not break, as we iterate from the oldest to the newest event
-            } else if ((event.getThrowableStrRep() != null)&&(logger == null)) {
-                // now check if there has been no log passed in, and if this is an exception
-                // then save this exception and continue iterating from oldest to newest
-                throwableEvent = event;             
+        if (logger == null) {
+            PaxLoggingEvent event = buffer.get(lastThrowable.get());
+            if (event != null) {
+                return event;
             }
         }
-
-        return throwableEvent;
+        // Look at the events with a throwable, from the newest to the oldest
+        List<Long> seqs = new ArrayList<>();
+        throwableIndex.getElements().forEach(seqs::add);
+        for (int i = seqs.size() - 1; i >= 0; i--) {
+            PaxLoggingEvent event = buffer.get(seqs.get(i));
+            if (event != null && (logger == null || checkIfFromRequestedLog(event, logger))) {
+                return event;
+            }
+        }
+        return null;
     }
 
     @Override
     public void addAppender(PaxAppender appender) {
-        this.appenders.add(appender);
+        AsyncAppender async = new AsyncAppender(appender, appenderQueueSize);
+        this.appenders.add(async);
+        async.start();
     }
 
     @Override
     public void removeAppender(PaxAppender appender) {
-        this.appenders.remove(appender);
+        for (AsyncAppender async : appenders) {
+            if (async.getAppender() == appender && appenders.remove(async)) {
+                async.close();
+                droppedEvents.addAndGet(async.getDropped());
+            }
+        }
     }
 
     @Override
-    public synchronized void doAppend(PaxLoggingEvent event) {
+    public long getDroppedEvents() {
+        long dropped = droppedEvents.get();
+        for (AsyncAppender async : appenders) {
+            dropped += async.getDropped();
+        }
+        return dropped;
+    }
+
+    @Override
+    public void doAppend(PaxLoggingEvent event) {
         event.getProperties(); // ensure MDC properties are copied
         KarafLogEvent eventCopy = new KarafLogEvent(event);
-        this.buffer.add(eventCopy);
-        for (PaxAppender appender : appenders) {
-            try {
-                appender.doAppend(eventCopy);
-            } catch (Throwable t) {
-                // Ignore
-            }
+        long seq = this.buffer.add(eventCopy);
+        int level = Math.min(Math.max(eventCopy.getLevel().getSyslogEquivalent(), 0), MAX_SYSLOG_LEVEL);
+        levelIndexes.get(level).add(seq);
+        if (eventCopy.getThrowableStrRep() != null) {
+            throwableIndex.add(seq);
+            lastThrowable.accumulateAndGet(seq, Math::max);
+        }
+        for (AsyncAppender appender : appenders) {
+            appender.offer(eventCopy);
         }
     }
 
@@ -47,6 +47,7 @@ public class Activator extends BaseActivator implements ManagedService {
         }
 
         int size = getInt("size", 500);
+        int appenderQueueSize = getInt("appenderQueueSize", 1024);
         String pattern = getString("pattern", "%d{ABSOLUTE} | %-5.5p | %-16.16t | %-32.32c{1} | %-32.32C %4L | %m%n");
         String errorColor = getString("errorColor", "31");
         String warnColor = getString("warnColor", "35");
@@ -63,7 +64,7 @@ public class Activator extends BaseActivator implements ManagedService {
         formatter.setColor(PaxLogger.LEVEL_TRACE, traceColor);
         register(LogEventFormatter.class, formatter);
 
-        LogServiceImpl logService = new LogServiceImpl(configurationAdmin, size);
+        LogServiceImpl logService = new LogServiceImpl(configurationAdmin, size, appenderQueueSize);
         Hashtable<String, Object> props = new Hashtable<>();
         props.put("org.ops4j.pax.logging.appender.name", "VmLogAppender");
         register(PaxAppender.class, logService, props);
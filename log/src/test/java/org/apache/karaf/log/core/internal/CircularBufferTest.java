@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.log.core.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CircularBufferTest {
+
+    @Test
+    public void testKeepsLastElements() {
+        CircularBuffer<String> buffer = new CircularBuffer<>(3);
+        for (String s : Arrays.asList("a", "b", "c", "d", "e")) {
+            buffer.add(s);
+        }
+        assertEquals(Arrays.asList("c", "d", "e"), toList(buffer.getElements()));
+        assertEquals(Arrays.asList("d", "e"), toList(buffer.getElements(2)));
+        assertNull(buffer.get(1));
+        assertEquals("d", buffer.get(3));
+    }
+
+    @Test
+    public void testClear() {
+        CircularBuffer<String> buffer = new CircularBuffer<>(3);
+        buffer.add("a");
+        buffer.add("b");
+        buffer.clear();
+        assertEquals(0, toList(buffer.getElements()).size());
+        buffer.add("c");
+        assertEquals(Arrays.asList("c"), toList(buffer.getElements()));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        CircularBuffer<Integer> buffer = new CircularBuffer<>(100);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    buffer.add(i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, buffer.getSequence());
+        assertEquals(100, toList(buffer.getElements()).size());
+    }
+
+    private static <T> List<T> toList(Iterable<T> iterable) {
+        List<T> list = new ArrayList<>();
+        iterable.forEach(list::add);
+        return list;
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.log.core.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.karaf.log.core.Level;
+import org.apache.karaf.log.core.LogQuery;
+import org.easymock.EasyMock;
+import org.junit.Test;
+import org.ops4j.pax.logging.spi.PaxLevel;
+import org.ops4j.pax.logging.spi.PaxLoggingEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LogServiceImplTest {
+
+    @Test
+    public void testQuery() {
+        LogServiceImpl logService = new LogServiceImpl(null, 10);
+        logService.doAppend(event(6, "org.apache.karaf.a", "info a", 1000, false, null));
+        logService.doAppend(event(3, "org.apache.karaf.b", "error b", 2000, false, "bundle.id"));
+        logService.doAppend(event(4, "org.apache.other", "warn other", 3000, false, null));
+        logService.doAppend(event(3, "org.apache.karaf.a", "error a", 4000, false, null));
+
+        assertEquals(4, messages(logService.getEvents(new LogQuery())).size());
+        assertEquals(Arrays.asList("error b", "error a"), messages(logService.getEvents(new LogQuery().level(Level.ERROR))));
+        assertEquals(Arrays.asList("error b", "warn other", "error a"), messages(logService.getEvents(new LogQuery().level(Level.WARN))));
+        assertEquals(Arrays.asList("warn other", "error a"), messages(logService.getEvents(new LogQuery().level(Level.WARN).limit(2))));
+        assertEquals(Arrays.asList("info a", "error a"), messages(logService.getEvents(new LogQuery().loggerPrefix("org.apache.karaf.a"))));
+        assertEquals(Arrays.asList("error b", "warn other"), messages(logService.getEvents(new LogQuery().from(1500).to(3500))));
+        assertEquals(Arrays.asList("error b"), messages(logService.getEvents(new LogQuery().mdcKey("bundle.id"))));
+
+        logService.clearEvents();
+        assertEquals(0, messages(logService.getEvents(new LogQuery().level(Level.ERROR))).size());
+    }
+
+    @Test
+    public void testParseLevel() {
+        assertNull(LogQuery.parseLevel(null));
+        assertEquals(Level.WARN, LogQuery.parseLevel("warn"));
+        try {
+            LogQuery.parseLevel("verbose");
+            fail("Unknown levels should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("TRACE, DEBUG, INFO, WARN, ERROR"));
+        }
+    }
+
+    @Test
+    public void testLastException() {
+        LogServiceImpl logService = new LogServiceImpl(null, 10);
+        assertNull(logService.getLastException(null));
+        logService.doAppend(event(3, "org.apache.karaf.a", "error a", 1000, true, null));
+        logService.doAppend(event(3, "org.apache.karaf.b", "error b", 2000, true, null));
+        logService.doAppend(event(6, "org.apache.karaf.c", "info c", 3000, false, null));
+
+        assertEquals("error b", logService.getLastException(null).getMessage());
+        assertEquals("error a", logService.getLastException("karaf.a").getMessage());
+        assertNull(logService.getLastException("karaf.c"));
+    }
+
+    private static List<String> messages(Iterable<PaxLoggingEvent> events) {
+        List<String> messages = new ArrayList<>();
+        events.forEach(e -> messages.add(e.getMessage()));
+        return messages;
+    }
+
+    private static PaxLoggingEvent event(int syslogLevel, String logger, String message, long timeStamp,
+                                         boolean throwable, String mdcKey) {
+        PaxLevel level = EasyMock.createNiceMock(PaxLevel.class);
+        EasyMock.expect(level.getSyslogEquivalent()).andReturn(syslogLevel).anyTimes();
+        PaxLoggingEvent event = EasyMock.createNiceMock(PaxLoggingEvent.class);
+        EasyMock.expect(event.getLevel()).andReturn(level).anyTimes();
+        EasyMock.expect(event.getLoggerName()).andReturn(logger).anyTimes();
+        EasyMock.expect(event.getMessage()).andReturn(message).anyTimes();
+        EasyMock.expect(event.getTimeStamp()).andReturn(timeStamp).anyTimes();
+        EasyMock.expect(event.getThrowableStrRep()).andReturn(throwable ? new String[] { message } : null).anyTimes();
+        Map<String, String> properties = mdcKey != null ? Collections.singletonMap(mdcKey, "value") : Collections.emptyMap();
+        EasyMock.expect(event.getProperties()).andReturn(properties).anyTimes();
+        EasyMock.replay(level, event);
+        return event;
+    }
+
+}
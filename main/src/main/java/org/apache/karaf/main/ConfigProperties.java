@@ -141,6 +141,16 @@ public class ConfigProperties {
 
     private static final String KARAF_THREAD_MONITORING = "karaf.thread.monitoring";
 
+    /**
+     * If the startup bundles should be resolved and read in parallel, and installed per start level
+     */
+    private static final String KARAF_STARTUP_PARALLEL = "karaf.startup.parallel";
+
+    /**
+     * The number of threads used to resolve and read the startup bundles in parallel
+     */
+    private static final String KARAF_STARTUP_THREADS = "karaf.startup.threads";
+
     private static final String PROPERTY_LOCK_CLASS_DEFAULT = SimpleFileLock.class.getName();
 
     private static final String SECURITY_PROVIDERS = "org.apache.karaf.security.providers";
@@ -182,6 +192,8 @@ public class ConfigProperties {
     String startupMessage;
     boolean delayConsoleStart;
     boolean threadMonitoring;
+    boolean startupParallel;
+    int startupThreads;
     
     public ConfigProperties() throws Exception {
         this.karafHome = Utils.getKarafHome(ConfigProperties.class, PROP_KARAF_HOME, ENV_KARAF_HOME);
@@ -233,6 +245,9 @@ public class ConfigProperties {
         this.startupMessage = props.getProperty(KARAF_STARTUP_MESSAGE, "Apache Karaf starting up. Press Enter to open the shell now...");
         this.delayConsoleStart = Boolean.parseBoolean(props.getProperty(KARAF_DELAY_CONSOLE, "false"));
         this.threadMonitoring = Boolean.parseBoolean(props.getProperty(KARAF_THREAD_MONITORING, "false"));
+        this.startupParallel = Boolean.parseBoolean(props.getProperty(KARAF_STARTUP_PARALLEL, "false"));
+        this.startupThreads = Integer.parseInt(props.getProperty(KARAF_STARTUP_THREADS,
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
         System.setProperty(KARAF_DELAY_CONSOLE, Boolean.toString(this.delayConsoleStart));
     }
 
@@ -19,7 +19,10 @@
 package org.apache.karaf.main;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Field;
@@ -29,12 +32,21 @@ import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.security.Provider;
 import java.security.Security;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -529,6 +541,10 @@ public class Main {
     }
 
     private void installAndStartBundles(ArtifactResolver resolver, BundleContext context, List<BundleInfo> bundles) {
+        if (config.startupParallel) {
+            installAndStartBundlesParallel(resolver, context, bundles);
+            return;
+        }
         for (BundleInfo bundleInfo : bundles) {
             try {
                 Bundle b;
@@ -552,6 +568,149 @@ public class Main {
         }
     }
 
+    /**
+     * Resolve and read the startup bundles in parallel, then install all the bundles of
+     * a start level before starting them. The time spent in each phase is logged, and
+     * the time spent for each bundle is logged at the FINE level.
+     */
+    private void installAndStartBundlesParallel(ArtifactResolver resolver, BundleContext context, List<BundleInfo> bundles) {
+        long start = System.nanoTime();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.startupThreads), r -> {
+            Thread t = new Thread(r, "Karaf startup bundle reader #" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Map<Integer, List<StartupBundle>> bundlesByLevel = new TreeMap<>();
+        try {
+            List<Future<StartupBundle>> futures = new ArrayList<>();
+            for (BundleInfo bundleInfo : bundles) {
+                futures.add(executor.submit(() -> prepareBundle(resolver, bundleInfo)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                StartupBundle bundle;
+                try {
+                    bundle = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    throw startupError(bundles.get(i), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw startupError(bundles.get(i), e);
+                }
+                bundlesByLevel.computeIfAbsent(bundle.info.startLevel, l -> new ArrayList<>()).add(bundle);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long prepared = System.nanoTime();
+        LOG.info("Resolved and read " + bundles.size() + " startup bundles in " + toMillis(prepared - start) + " ms");
+
+        for (Map.Entry<Integer, List<StartupBundle>> entry : bundlesByLevel.entrySet()) {
+            long levelStart = System.nanoTime();
+            for (StartupBundle bundle : entry.getValue()) {
+                long t0 = System.nanoTime();
+                try {
+                    if (bundle.content != null) {
+                        bundle.bundle = context.installBundle(bundle.location, new ByteArrayInputStream(bundle.content));
+                    } else {
+                        bundle.bundle = context.installBundle(bundle.location);
+                    }
+                    bundle.bundle.adapt(BundleStartLevel.class).setStartLevel(bundle.info.startLevel);
+                } catch (Exception e) {
+                    throw startupError(bundle.info, e);
+                }
+                bundle.content = null;
+                bundle.installTime = System.nanoTime() - t0;
+            }
+            long installed = System.nanoTime();
+            for (StartupBundle bundle : entry.getValue()) {
+                long t0 = System.nanoTime();
+                try {
+                    if (isNotFragment(bundle.bundle)) {
+                        bundle.bundle.start();
+                    }
+                } catch (Exception e) {
+                    throw startupError(bundle.info, e);
+                }
+                bundle.startTime = System.nanoTime() - t0;
+            }
+            long started = System.nanoTime();
+            LOG.info("Start level " + entry.getKey() + ": installed " + entry.getValue().size() + " bundles in "
+                    + toMillis(installed - levelStart) + " ms, started in " + toMillis(started - installed) + " ms");
+            if (LOG.isLoggable(Level.FINE)) {
+                for (StartupBundle bundle : entry.getValue()) {
+                    LOG.fine(bundle.info.uri + ": resolved in " + toMillis(bundle.resolveTime) + " ms, read "
+                            + bundle.size + " bytes in " + toMillis(bundle.readTime) + " ms, installed in "
+                            + toMillis(bundle.installTime) + " ms, started in " + toMillis(bundle.startTime) + " ms");
+                }
+            }
+        }
+        LOG.info("Installed and started " + bundles.size() + " startup bundles in " + toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    private StartupBundle prepareBundle(ArtifactResolver resolver, BundleInfo bundleInfo) throws Exception {
+        StartupBundle bundle = new StartupBundle(bundleInfo);
+        long t0 = System.nanoTime();
+        if (bundleInfo.uri.toString().startsWith("reference:file:")) {
+            URI temp = URI.create(bundleInfo.uri.toString().substring("reference:file:".length()));
+            URI resolvedURI = resolver.resolve(temp);
+            bundle.location = URI.create("reference:file:" + config.karafBase.toURI().relativize(resolvedURI)).toString();
+            bundle.resolveTime = System.nanoTime() - t0;
+        } else {
+            URI resolvedURI = resolver.resolve(bundleInfo.uri);
+            bundle.location = bundleInfo.uri.toString();
+            long t1 = System.nanoTime();
+            bundle.resolveTime = t1 - t0;
+            bundle.content = readFully(resolvedURI);
+            bundle.size = bundle.content.length;
+            bundle.readTime = System.nanoTime() - t1;
+        }
+        return bundle;
+    }
+
+    private static byte[] readFully(URI uri) throws IOException {
+        if ("file".equals(uri.getScheme())) {
+            return Files.readAllBytes(Paths.get(uri));
+        }
+        try (InputStream is = uri.toURL().openStream()) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) >= 0) {
+                baos.write(buffer, 0, len);
+            }
+            return baos.toByteArray();
+        }
+    }
+
+    private static RuntimeException startupError(BundleInfo bundleInfo, Throwable cause) {
+        return new RuntimeException("Error installing bundle listed in " + STARTUP_PROPERTIES_FILE_NAME
+                + " with url: " + bundleInfo.uri + " and startlevel: " + bundleInfo.startLevel, cause);
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * A startup bundle being installed in parallel mode, with the time spent in each phase.
+     */
+    private static class StartupBundle {
+        final BundleInfo info;
+        String location;
+        byte[] content;
+        long size;
+        Bundle bundle;
+        long resolveTime;
+        long readTime;
+        long installTime;
+        long startTime;
+
+        StartupBundle(BundleInfo info) {
+            this.info = info;
+        }
+    }
+
     private boolean isNotFragment(Bundle b) {
         String fragmentHostHeader = b.getHeaders().get(Constants.FRAGMENT_HOST);
         return fragmentHostHeader == null || fragmentHostHeader.trim().length() == 0;
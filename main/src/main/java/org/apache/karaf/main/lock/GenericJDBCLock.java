@@ -23,6 +23,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.apache.felix.utils.properties.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -110,8 +113,19 @@ import javax.sql.DataSource;
  *
  * <p>ISALIVE: </p>
  *
- * <p>This just checks if the connection is active and then just updates the row's STATE by using the lock
- * update call mentioned above. </p>
+ * <p>The master renews its lease by incrementing the row's STATE with the following update statement.
+ * The lease is lost if the row is not owned by this instance anymore. </p>
+ *
+ * <pre>
+ *   UPDATE KARAF_LOCK SET STATE = state WHERE ID = unique_id
+ * </pre>
+ *
+ * <p>The lease expiry is measured by each slave with its own clock, from the last time it noticed a change
+ * of the STATE, so that the instances do not need synchronized clocks. </p>
+ *
+ * <p>A single connection and its prepared statements are kept between the calls, and are only created
+ * again after a failure.  The latency of the lease renewals and the number of missed leases, i.e. renewals
+ * that failed or happened after the lease could have been stolen, are logged and available from this class. </p>
  *
  * <p>RELEASE: </p>
  *
@@ -171,6 +185,18 @@ public class GenericJDBCLock implements Lock {
     // table state
     private int currentLockDelay;
 
+    // The connection and prepared statements reused between the calls
+    private Connection connection;
+    private final Map<String, PreparedStatement> preparedStatements = new HashMap<>();
+
+    // Lease renewal statistics
+    private long lastRenewalTime;
+    private long renewalCount;
+    private long missedLeaseCount;
+    private long lastRenewalLatency;
+    private long maxRenewalLatency;
+    private long totalRenewalLatency;
+
     public GenericJDBCLock(Properties props) {
         BootstrapLogManager.configureLogger(LOG);
         this.url = props.getProperty(PROPERTY_LOCK_URL);
@@ -275,9 +301,45 @@ public class GenericJDBCLock implements Lock {
 
     /**
      * This method will generate a unique id for this instance that is part of an active set of instances.
-     * This method uses a simple algorithm to insure that the id will be unique for all cases.
+     * The id is incremented and read in a single transaction, and the compare and set algorithm is used
+     * if the database does not support it.
      */
     void generateUniqueId(Connection connection) {
+        try {
+            uniqueId = incrementUniqueId(connection);
+        } catch (SQLException e) {
+            LOG.log(Level.FINE, "Unable to increment the unique id, using compare and set", e);
+            compareAndSetUniqueId(connection);
+        }
+        LOG.info("INSTANCE unique id: " + uniqueId);
+    }
+
+    private int incrementUniqueId(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement updateStatement = connection.prepareStatement(this.statements.getLockIdIncrementStatement());
+             PreparedStatement selectStatement = connection.prepareStatement(this.statements.getLockIdSelectStatement())) {
+            // The updated row stays locked until the commit, so the select returns our id
+            if (updateStatement.executeUpdate() != 1) {
+                throw new SQLException("Expected a single row in table " + this.statements.getLockIdTableName());
+            }
+            try (ResultSet rs = selectStatement.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No rows were found in table " + this.statements.getLockIdTableName());
+                }
+                int id = this.statements.getIdFromLockIdSelectStatement(rs);
+                connection.commit();
+                return id;
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void compareAndSetUniqueId(Connection connection) {
         String selectString = this.statements.getLockIdSelectStatement();
         try (PreparedStatement selectStatement = connection.prepareStatement(selectString)) {
 
@@ -318,7 +380,6 @@ public class GenericJDBCLock implements Lock {
         } catch (SQLException e) {
             LOG.log(Level.SEVERE, "Received an SQL exception while generating a prepate statement", e);
         }
-        LOG.info("INSTANCE unique id: " + uniqueId);
     }
     
     /**
@@ -340,59 +401,68 @@ public class GenericJDBCLock implements Lock {
      *
      * @see org.apache.karaf.main.lock.Lock#lock()
      */
-    public boolean lock() throws Exception {
-        try (Connection connection = getConnection()) {
+    public synchronized boolean lock() throws Exception {
+        try {
             // Try to acquire/update the lock state
-            boolean lockAcquired = acquireLock(connection, statements.getLockUpdateIdStatement(uniqueId, ++state, lock_delay, uniqueId));
+            PreparedStatement lockStatement = prepareStatement(statements.getLockUpdateIdPreparedStatement());
+            lockStatement.setInt(1, uniqueId);
+            lockStatement.setInt(2, ++state);
+            lockStatement.setInt(3, lock_delay);
+            lockStatement.setInt(4, uniqueId);
+            boolean lockAcquired = acquireLock(lockStatement);
 
             if (!lockAcquired) {
+                // Get the current master id and compare with information that we have locally....
+                try (ResultSet rs = prepareStatement(statements.getLockSelectStatement()).executeQuery()) {
 
-                String lockSelectStatement = statements.getLockSelectStatement();
-
-                try (PreparedStatement statement = connection.prepareStatement(lockSelectStatement)) {
-                    // Get the current master id and compare with information that we have locally....
-                    try (ResultSet rs = statement.executeQuery()) {
-
-                        if (rs.next()) {
-                            int currentId = statements.getIdFromLockSelectStatement(rs); // The current master unique id or 0
-                            int currentState = statements.getStateFromLockSelectStatement(rs); // The current master state or whatever
-
-                            if (this.currentId == currentId) {
-                                // It is the same instance that locked the table
-                                if (this.currentState == currentState) {
-                                    // Its state has not been updated....
-                                    if ((this.currentStateTime + this.currentLockDelay + this.currentLockDelay) < System.currentTimeMillis()) {
-                                        // The state was not been updated for more than twice the lock_delay value of the current master...
-                                        // Try to steal the lock....
-                                        lockAcquired = acquireLock(connection, statements.getLockUpdateIdStatementToStealLock(uniqueId, state, lock_delay, currentId, currentState));
-                                    }
-                                } else {
-                                    // Set the current time to be used to determine if we can
-                                    // try to steal the lock later...
-                                    this.currentStateTime = System.currentTimeMillis();
-                                    this.currentState = currentState;
+                    if (rs.next()) {
+                        int currentId = statements.getIdFromLockSelectStatement(rs); // The current master unique id or 0
+                        int currentState = statements.getStateFromLockSelectStatement(rs); // The current master state or whatever
+
+                        if (this.currentId == currentId) {
+                            // It is the same instance that locked the table
+                            if (this.currentState == currentState) {
+                                // Its state has not been updated....
+                                if ((this.currentStateTime + this.currentLockDelay + this.currentLockDelay) < System.currentTimeMillis()) {
+                                    // The lease of the current master has expired: the state was not been
+                                    // updated for more than twice the lock_delay value of the current master...
+                                    // Try to steal the lock....
+                                    PreparedStatement stealStatement = prepareStatement(statements.getLockUpdateIdPreparedStatementToStealLock());
+                                    stealStatement.setInt(1, uniqueId);
+                                    stealStatement.setInt(2, state);
+                                    stealStatement.setInt(3, lock_delay);
+                                    stealStatement.setInt(4, currentId);
+                                    stealStatement.setInt(5, currentState);
+                                    lockAcquired = acquireLock(stealStatement);
                                 }
                             } else {
-                                // This is a different currentId that is being used...
-                                // at this time, it does not matter if the new master id is zero we can try to acquire it
-                                // during the next lock call...
-                                this.currentId = currentId;
-                                this.currentState = currentState;
-                                // Update the current state time since this is a new lock service...
+                                // Set the current time to be used to determine if we can
+                                // try to steal the lock later...
                                 this.currentStateTime = System.currentTimeMillis();
-                                // Get the lock delay value which is specific to the current master...
-                                this.currentLockDelay = statements.getLockDelayFromLockSelectStatement(rs);
+                                this.currentState = currentState;
                             }
+                        } else {
+                            // This is a different currentId that is being used...
+                            // at this time, it does not matter if the new master id is zero we can try to acquire it
+                            // during the next lock call...
+                            this.currentId = currentId;
+                            this.currentState = currentState;
+                            // Update the current state time since this is a new lock service...
+                            this.currentStateTime = System.currentTimeMillis();
+                            // Get the lock delay value which is specific to the current master...
+                            this.currentLockDelay = statements.getLockDelayFromLockSelectStatement(rs);
                         }
                     }
-                } catch (Exception e) {
-                    LOG.log(Level.SEVERE, "Unable to determine if the lock was obtain", e);
                 }
             }
 
+            if (lockAcquired) {
+                lastRenewalTime = System.currentTimeMillis();
+            }
             return lockAcquired;
         } catch (Exception e) {
             LOG.log(Level.SEVERE, "Error while trying to obtain the lock", e);
+            closeConnection();
             return false;
         }
     }
@@ -402,13 +472,13 @@ public class GenericJDBCLock implements Lock {
      * is already the master instance.  It will try to update the row given the passed data and will
      * succeed if and only if the generated where clause was valid else it would not update the row.
      *
-     * @param lockUpdateIdStatement The sql statement used to execute the update.
+     * @param lockUpdateIdStatement The prepared sql statement used to execute the update.
      * @return True, if the row was updated else false.
      */
-    private boolean acquireLock(Connection connection, String lockUpdateIdStatement) {
-        try (PreparedStatement preparedStatement = connection.prepareStatement(lockUpdateIdStatement)) {
+    private boolean acquireLock(PreparedStatement lockUpdateIdStatement) {
+        try {
             // This will only update the row that contains the ID of 0 or curId
-            return preparedStatement.executeUpdate() > 0;
+            return lockUpdateIdStatement.executeUpdate() > 0;
         } catch (Exception e) {
             // Do we want to display this message everytime???
             LOG.log(Level.WARNING, "Failed to acquire database lock", e);
@@ -423,29 +493,140 @@ public class GenericJDBCLock implements Lock {
      *
      * @see org.apache.karaf.main.lock.Lock#release()
      */
-    public void release() throws Exception {
-        try (Connection connection = getConnection()) {
-            String lockResetIdStatement = statements.getLockResetIdStatement(uniqueId);
-            try (PreparedStatement preparedStatement = connection.prepareStatement(lockResetIdStatement)) {
-                // This statement will set the ID to 0 and allow others to steal the lock...
-                preparedStatement.executeUpdate();
-            }
+    public synchronized void release() throws Exception {
+        try {
+            PreparedStatement preparedStatement = prepareStatement(statements.getLockResetIdPreparedStatement());
+            preparedStatement.setInt(1, uniqueId);
+            // This statement will set the ID to 0 and allow others to steal the lock...
+            preparedStatement.executeUpdate();
         } catch (SQLException e) {
             LOG.log(Level.SEVERE, "Exception while releasing lock", e);
+        } finally {
+            closeConnection();
+            logStatistics();
         }
     }
 
     /**
-     * This method will check if the jdbc connection is still active and if we were able to 
-     * acquire or update the karaf_table information.
+     * This method will renew the lease of this instance, which is the master, by updating the state of
+     * the karaf_lock row it owns.
      *
-     * @return True, if the connection is still active and we still have the lock.
+     * @return True, if the lease has been renewed and we still have the lock.
      *
      * @see org.apache.karaf.main.lock.Lock#isAlive()
      *
      */
-    public boolean isAlive() throws Exception {
-        return lock();
+    public synchronized boolean isAlive() throws Exception {
+        long start = System.nanoTime();
+        boolean renewed;
+        try {
+            PreparedStatement renewStatement = prepareStatement(statements.getLockRenewStatement());
+            renewStatement.setInt(1, ++state);
+            renewStatement.setInt(2, uniqueId);
+            renewed = renewStatement.executeUpdate() > 0;
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, "Error while trying to renew the lock lease", e);
+            closeConnection();
+            renewed = false;
+        }
+        long now = System.currentTimeMillis();
+        long latency = System.nanoTime() - start;
+        renewalCount++;
+        lastRenewalLatency = latency;
+        maxRenewalLatency = Math.max(maxRenewalLatency, latency);
+        totalRenewalLatency += latency;
+        // Slaves can steal the lock when the state has not been updated for twice the lock delay
+        long leaseDuration = 2L * lock_delay;
+        if (!renewed || now - lastRenewalTime > leaseDuration) {
+            missedLeaseCount++;
+            LOG.warning("Missed lock lease: renewed=" + renewed + ", " + (now - lastRenewalTime)
+                    + " ms since previous renewal, lease duration is " + leaseDuration + " ms");
+        } else if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Lock lease renewed in " + TimeUnit.NANOSECONDS.toMicros(latency) + " us");
+        }
+        if (renewed) {
+            lastRenewalTime = now;
+        } else {
+            logStatistics();
+        }
+        return renewed;
+    }
+
+    /**
+     * @return the number of lease renewals since this lock has been created.
+     */
+    public synchronized long getRenewalCount() {
+        return renewalCount;
+    }
+
+    /**
+     * @return the number of lease renewals which failed or happened after the lease expired.
+     */
+    public synchronized long getMissedLeaseCount() {
+        return missedLeaseCount;
+    }
+
+    /**
+     * @return the latency of the last lease renewal, in milliseconds.
+     */
+    public synchronized double getLastRenewalLatency() {
+        return lastRenewalLatency / 1e6;
+    }
+
+    /**
+     * @return the maximum latency of the lease renewals, in milliseconds.
+     */
+    public synchronized double getMaxRenewalLatency() {
+        return maxRenewalLatency / 1e6;
+    }
+
+    /**
+     * @return the average latency of the lease renewals, in milliseconds.
+     */
+    public synchronized double getAverageRenewalLatency() {
+        return renewalCount > 0 ? totalRenewalLatency / 1e6 / renewalCount : 0;
+    }
+
+    private void logStatistics() {
+        if (renewalCount > 0) {
+            LOG.info(String.format("Lock lease statistics: %d renewals, %d missed, latency avg %.3f ms, max %.3f ms",
+                    renewalCount, missedLeaseCount, getAverageRenewalLatency(), getMaxRenewalLatency()));
+        }
+    }
+
+    /**
+     * Returns the prepared statement for the given sql, creating the connection and the statement
+     * if they are not cached.
+     */
+    private PreparedStatement prepareStatement(String sql) throws Exception {
+        PreparedStatement preparedStatement = preparedStatements.get(sql);
+        if (preparedStatement == null) {
+            if (connection == null) {
+                connection = getConnection();
+            }
+            preparedStatement = connection.prepareStatement(sql);
+            preparedStatements.put(sql, preparedStatement);
+        }
+        return preparedStatement;
+    }
+
+    private void closeConnection() {
+        for (PreparedStatement preparedStatement : preparedStatements.values()) {
+            try {
+                preparedStatement.close();
+            } catch (SQLException e) {
+                // Ignore
+            }
+        }
+        preparedStatements.clear();
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // Ignore
+            }
+            connection = null;
+        }
     }
 
 }
@@ -127,6 +127,61 @@ public class GenericStatements {
 							 this.getLockTableName(), id, state, lock_delay, curId, curState) ;
 	}
 
+	/**
+	 * This will be called when trying to acquire the lock using a prepared statement and will generate
+	 * the following sql statement.
+	 *
+	 * <code>
+	 *  UPDATE KARAF_LOCK SET ID = ?, STATE = ?, LOCK_DELAY = ? WHERE ID = 0 OR ID = ?
+	 * </code>
+	 *
+	 * @return The SQL update statement with parameters for the new ID, state, lock delay and the current ID.
+	 */
+	public String getLockUpdateIdPreparedStatement() {
+		return "UPDATE " + this.getLockTableName() + " SET ID = ?, STATE = ?, LOCK_DELAY = ? WHERE ID = 0 OR ID = ?";
+	}
+
+	/**
+	 * This will be called when trying to steal the lock using a prepared statement and will generate
+	 * the following sql statement.
+	 *
+	 * <code>
+	 *  UPDATE KARAF_LOCK SET ID = ?, STATE = ?, LOCK_DELAY = ? WHERE ( ID = 0 OR ID = ? ) AND STATE = ?
+	 * </code>
+	 *
+	 * @return The SQL update statement with parameters for the new ID, state, lock delay and the current ID and state.
+	 */
+	public String getLockUpdateIdPreparedStatementToStealLock() {
+		return "UPDATE " + this.getLockTableName() + " SET ID = ?, STATE = ?, LOCK_DELAY = ? WHERE ( ID = 0 OR ID = ? ) AND STATE = ?";
+	}
+
+	/**
+	 * This will be called by the master to renew its lease and will generate the following sql statement.
+	 *
+	 * <code>
+	 *  UPDATE KARAF_LOCK SET STATE = ? WHERE ID = ?
+	 * </code>
+	 *
+	 * @return The SQL update statement with parameters for the new state and the master ID.
+	 */
+	public String getLockRenewStatement() {
+		return "UPDATE " + this.getLockTableName() + " SET STATE = ? WHERE ID = ?";
+	}
+
+	/**
+	 * This method is called when releasing the lock using a prepared statement and will generate the
+	 * following sql statement.
+	 *
+	 * <code>
+	 *  UPDATE KARAF_LOCK SET ID = 0 WHERE ID = ?
+	 * </code>
+	 *
+	 * @return The SQL update statement with a parameter for the current ID.
+	 */
+	public String getLockResetIdPreparedStatement() {
+		return "UPDATE " + this.getLockTableName() + " SET ID = 0 WHERE ID = ?";
+	}
+
 	/**
 	 * This method is called only when we are releasing the lock and will generate the following sql
 	 * statement.
@@ -230,6 +285,20 @@ public class GenericStatements {
 		return String.format("UPDATE %s SET ID = %d WHERE ID = %d", this.getLockIdTableName(), id, curId);
 	}
 	
+	/**
+	 * This method will return the statement used to atomically increment the id of the lock id table
+	 * and will generate the following sql statement.
+	 *
+	 * <code>
+	 * UPDATE KARAF_ID SET ID = ID + 1
+	 * </code>
+	 *
+	 * @return The SQL update statement.
+	 */
+	public String getLockIdIncrementStatement() {
+		return "UPDATE " + this.getLockIdTableName() + " SET ID = ID + 1";
+	}
+
 	/**
 	 * This method will return the name of the Karaf lock id table.
 	 *
@@ -25,6 +25,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.launch.Framework;
+import org.osgi.framework.startlevel.BundleStartLevel;
 
 public class MainStartTest {
 
@@ -64,4 +65,38 @@ public class MainStartTest {
 		Assert.assertEquals(Bundle.ACTIVE, bundle2.getState());
 	}
 
+    @Test
+    public void testAutoStartParallel() throws Exception {
+        File basedir = new File(getClass().getClassLoader().getResource("foo").getPath()).getParentFile();
+        File home = new File(basedir, "test-karaf-home");
+        File data = new File(home, "data" + System.currentTimeMillis());
+
+        String[] args = new String[0];
+        System.setProperty("karaf.home", home.toString());
+        System.setProperty("karaf.data", data.toString());
+        System.setProperty("karaf.startup.parallel", "true");
+        System.setProperty("karaf.startup.threads", "2");
+        try {
+            main = new Main(args);
+            main.launch();
+        } finally {
+            System.clearProperty("karaf.startup.parallel");
+            System.clearProperty("karaf.startup.threads");
+        }
+        Framework framework = main.getFramework();
+        Bundle[] bundles = framework.getBundleContext().getBundles();
+        Assert.assertEquals(3, bundles.length);
+
+        // Give the framework some time to start the bundles
+        Thread.sleep(1000);
+
+        for (String location : new String[] {
+                "mvn:org.apache.aries.blueprint/org.apache.aries.blueprint.api/1.0.0", "pax-url-mvn.jar" }) {
+            Bundle bundle = framework.getBundleContext().getBundle(location);
+            Assert.assertNotNull(location, bundle);
+            Assert.assertEquals(10, bundle.adapt(BundleStartLevel.class).getStartLevel());
+            Assert.assertEquals(Bundle.ACTIVE, bundle.getState());
+        }
+    }
+
 }
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.main.lock;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.felix.utils.properties.Properties;
+import org.apache.karaf.main.ConfigProperties;
+import org.apache.karaf.main.util.BootstrapLogManager;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class GenericJDBCLockTest {
+
+    static final String INCREMENT_ID = "UPDATE KARAF_NODE_ID SET ID = ID + 1";
+    static final String SELECT_ID = "SELECT ID FROM KARAF_NODE_ID";
+    static final String ACQUIRE_LOCK = "UPDATE KARAF_LOCK SET ID = ?, STATE = ?, LOCK_DELAY = ? WHERE ID = 0 OR ID = ?";
+    static final String RENEW_LOCK = "UPDATE KARAF_LOCK SET STATE = ? WHERE ID = ?";
+
+    int lockDelay = 1000;
+    AtomicInteger connections = new AtomicInteger();
+
+    Connection connection;
+    DatabaseMetaData metaData;
+    ResultSet tables;
+    PreparedStatement incrementStatement;
+    PreparedStatement selectIdStatement;
+    ResultSet idResultSet;
+    PreparedStatement acquireStatement;
+    PreparedStatement renewStatement;
+
+    @BeforeClass
+    public static void setUpTestSuite() {
+        Properties properties = new Properties();
+        properties.put("karaf.bootstrap.log", "target/karaf.log");
+        BootstrapLogManager.setProperties(properties);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        connection = createNiceMock(Connection.class);
+        metaData = createNiceMock(DatabaseMetaData.class);
+        tables = createNiceMock(ResultSet.class);
+        incrementStatement = createNiceMock(PreparedStatement.class);
+        selectIdStatement = createNiceMock(PreparedStatement.class);
+        idResultSet = createNiceMock(ResultSet.class);
+        acquireStatement = createNiceMock(PreparedStatement.class);
+        renewStatement = createNiceMock(PreparedStatement.class);
+
+        // the schema already exists
+        expect(connection.getMetaData()).andReturn(metaData).anyTimes();
+        expect(metaData.getTables(isNull(), isNull(), anyString(), aryEq(new String[]{"TABLE"}))).andReturn(tables).anyTimes();
+        expect(tables.next()).andReturn(true).anyTimes();
+        expect(connection.getAutoCommit()).andReturn(true).anyTimes();
+    }
+
+    GenericJDBCLock createLock() {
+        Properties props = new Properties();
+        props.put(GenericJDBCLock.PROPERTY_LOCK_URL, "jdbc:test:karaf");
+        props.put(ConfigProperties.PROPERTY_LOCK_DELAY, Integer.toString(lockDelay));
+        return new GenericJDBCLock(props) {
+            @Override
+            protected Connection getConnection() throws Exception {
+                connections.incrementAndGet();
+                return connection;
+            }
+        };
+    }
+
+    void expectUniqueId(int id) throws Exception {
+        expect(connection.prepareStatement(INCREMENT_ID)).andReturn(incrementStatement);
+        expect(connection.prepareStatement(SELECT_ID)).andReturn(selectIdStatement);
+        expect(incrementStatement.executeUpdate()).andReturn(1);
+        expect(selectIdStatement.executeQuery()).andReturn(idResultSet);
+        expect(idResultSet.next()).andReturn(true);
+        expect(idResultSet.getInt(1)).andReturn(id);
+        connection.commit();
+    }
+
+    void expectLockAcquired(int id) throws Exception {
+        expect(connection.prepareStatement(ACQUIRE_LOCK)).andReturn(acquireStatement).once();
+        acquireStatement.setInt(1, id);
+        acquireStatement.setInt(4, id);
+        expect(acquireStatement.executeUpdate()).andReturn(1);
+    }
+
+    void replayAll(Object... others) {
+        replay(connection, metaData, tables, incrementStatement, selectIdStatement, idResultSet, acquireStatement, renewStatement);
+        replay(others);
+    }
+
+    void verifyAll(Object... others) {
+        verify(connection, incrementStatement, selectIdStatement, idResultSet, acquireStatement, renewStatement);
+        verify(others);
+    }
+
+    @Test
+    public void isAliveShouldRenewTheLease() throws Exception {
+        expectUniqueId(3);
+        expectLockAcquired(3);
+        // the renew statement is prepared once and reused
+        expect(connection.prepareStatement(RENEW_LOCK)).andReturn(renewStatement).once();
+        renewStatement.setInt(2, 3);
+        expectLastCall().times(2);
+        expect(renewStatement.executeUpdate()).andReturn(1).times(2);
+        replayAll();
+
+        GenericJDBCLock lock = createLock();
+        assertTrue(lock.lock());
+        assertTrue(lock.isAlive());
+        assertTrue(lock.isAlive());
+
+        verifyAll();
+        assertEquals(2, lock.getRenewalCount());
+        assertEquals(0, lock.getMissedLeaseCount());
+        // one connection for the initialization, and a single one kept for the lock
+        assertEquals(2, connections.get());
+    }
+
+    @Test
+    public void isAliveShouldReturnFalseIfAnotherNodeTookTheLock() throws Exception {
+        expectUniqueId(3);
+        expectLockAcquired(3);
+        expect(connection.prepareStatement(RENEW_LOCK)).andReturn(renewStatement).once();
+        expect(renewStatement.executeUpdate()).andReturn(0);
+        replayAll();
+
+        GenericJDBCLock lock = createLock();
+        assertTrue(lock.lock());
+        assertFalse(lock.isAlive());
+
+        verifyAll();
+        assertEquals(1, lock.getRenewalCount());
+        assertEquals(1, lock.getMissedLeaseCount());
+    }
+
+    @Test
+    public void isAliveShouldCountALateRenewalAsMissed() throws Exception {
+        // slaves may steal the lock after twice the lock delay
+        lockDelay = 10;
+        expectUniqueId(3);
+        expectLockAcquired(3);
+        expect(connection.prepareStatement(RENEW_LOCK)).andReturn(renewStatement).once();
+        expect(renewStatement.executeUpdate()).andReturn(1);
+        replayAll();
+
+        GenericJDBCLock lock = createLock();
+        assertTrue(lock.lock());
+        Thread.sleep(100);
+        // the row was still ours, but the lease could have been stolen in between
+        assertTrue(lock.isAlive());
+
+        verifyAll();
+        assertEquals(1, lock.getRenewalCount());
+        assertEquals(1, lock.getMissedLeaseCount());
+    }
+
+    @Test
+    public void isAliveShouldReconnectAfterAnSQLException() throws Exception {
+        PreparedStatement newRenewStatement = createNiceMock(PreparedStatement.class);
+        expectUniqueId(3);
+        expectLockAcquired(3);
+        expect(connection.prepareStatement(RENEW_LOCK)).andReturn(renewStatement).andReturn(newRenewStatement);
+        expect(renewStatement.executeUpdate()).andThrow(new SQLException("Connection reset"));
+        renewStatement.close();
+        expect(newRenewStatement.executeUpdate()).andReturn(1);
+        replayAll(newRenewStatement);
+
+        GenericJDBCLock lock = createLock();
+        assertTrue(lock.lock());
+        assertEquals(2, connections.get());
+        assertFalse(lock.isAlive());
+        assertTrue(lock.isAlive());
+
+        verifyAll(newRenewStatement);
+        // the failed connection has been dropped and a new one created
+        assertEquals(3, connections.get());
+        assertEquals(2, lock.getRenewalCount());
+        assertEquals(1, lock.getMissedLeaseCount());
+    }
+
+    @Test
+    public void initShouldFallBackToCompareAndSetWhenTheIncrementFails() throws Exception {
+        PreparedStatement casStatement1 = createNiceMock(PreparedStatement.class);
+        PreparedStatement casStatement2 = createNiceMock(PreparedStatement.class);
+        expect(connection.prepareStatement(INCREMENT_ID)).andReturn(incrementStatement);
+        expect(connection.prepareStatement(SELECT_ID)).andReturn(selectIdStatement).times(2);
+        expect(incrementStatement.executeUpdate()).andThrow(new SQLException("Not supported"));
+        connection.rollback();
+        expect(selectIdStatement.executeQuery()).andReturn(idResultSet).times(2);
+        expect(idResultSet.next()).andReturn(true).times(2);
+        expect(idResultSet.getInt(1)).andReturn(4).andReturn(5);
+        // another instance takes id 5 first, so the update is retried with the next id
+        expect(connection.prepareStatement("UPDATE KARAF_NODE_ID SET ID = 5 WHERE ID = 4")).andReturn(casStatement1);
+        expect(casStatement1.executeUpdate()).andReturn(0);
+        expect(connection.prepareStatement("UPDATE KARAF_NODE_ID SET ID = 6 WHERE ID = 5")).andReturn(casStatement2);
+        expect(casStatement2.executeUpdate()).andReturn(1);
+        expectLockAcquired(6);
+        replayAll(casStatement1, casStatement2);
+
+        GenericJDBCLock lock = createLock();
+        assertTrue(lock.lock());
+
+        verifyAll(casStatement1, casStatement2);
+    }
+
+}
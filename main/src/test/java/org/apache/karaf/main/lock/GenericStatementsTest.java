@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.main.lock;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GenericStatementsTest {
+
+    private GenericStatements statements;
+
+    @Before
+    public void setUp() {
+        statements = new GenericStatements("KARAF_LOCK", "KARAF_NODE_ID", "karaf");
+    }
+
+    @Test
+    public void getLockRenewStatement() {
+        assertEquals("UPDATE KARAF_LOCK SET STATE = ? WHERE ID = ?", statements.getLockRenewStatement());
+    }
+
+    @Test
+    public void getLockIdIncrementStatement() {
+        assertEquals("UPDATE KARAF_NODE_ID SET ID = ID + 1", statements.getLockIdIncrementStatement());
+    }
+
+    @Test
+    public void getLockUpdateIdPreparedStatement() {
+        assertEquals("UPDATE KARAF_LOCK SET ID = ?, STATE = ?, LOCK_DELAY = ? WHERE ID = 0 OR ID = ?",
+                statements.getLockUpdateIdPreparedStatement());
+        assertEquals("UPDATE KARAF_LOCK SET ID = ?, STATE = ?, LOCK_DELAY = ? WHERE ( ID = 0 OR ID = ? ) AND STATE = ?",
+                statements.getLockUpdateIdPreparedStatementToStealLock());
+    }
+
+    @Test
+    public void getLockResetIdPreparedStatement() {
+        assertEquals("UPDATE KARAF_LOCK SET ID = 0 WHERE ID = ?", statements.getLockResetIdPreparedStatement());
+    }
+
+}
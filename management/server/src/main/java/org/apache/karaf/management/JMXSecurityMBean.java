@@ -108,6 +108,20 @@ public interface JMXSecurityMBean {
      */
     TabularData canInvoke(Map<String, List<String>> bulkQuery) throws Exception;
 
+    /**
+     * Return the number of access decisions served from the decision cache of the MBean server guard.
+     *
+     * @return The number of cache hits.
+     */
+    long getDecisionCacheHits();
+
+    /**
+     * Return the number of access decisions which had to be computed by the MBean server guard.
+     *
+     * @return The number of cache misses.
+     */
+    long getDecisionCacheMisses();
+
     // a member class is used to initialize final fields, as this needs to do some exception handling...
     class SecurityMBeanOpenTypeInitializer {
 
@@ -17,9 +17,13 @@
 package org.apache.karaf.management;
 
 import org.apache.karaf.management.internal.BulkRequestContext;
+import org.apache.karaf.management.internal.JmxAclPolicy;
 import org.apache.karaf.service.guard.tools.ACLConfigurationParser;
+import org.apache.karaf.service.guard.tools.CompiledACLConfiguration;
 import org.apache.karaf.util.jaas.JaasHelper;
 import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
 
 import javax.management.*;
 import java.io.IOException;
@@ -29,18 +33,18 @@ import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Dictionary;
-import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class KarafMBeanServerGuard implements InvocationHandler {
+public class KarafMBeanServerGuard implements InvocationHandler, ConfigurationListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(KarafMBeanServerGuard.class);    
 
@@ -56,12 +60,69 @@ public class KarafMBeanServerGuard implements InvocationHandler {
 
     private ConfigurationAdmin configAdmin;
 
+    // compiled jmx.acl* configurations, reloaded when one of them changes
+    private volatile JmxAclPolicy policy;
+    private long policyVersion;
+
+    private final AtomicLong decisionCacheHits = new AtomicLong();
+    private final AtomicLong decisionCacheMisses = new AtomicLong();
+
     public ConfigurationAdmin getConfigAdmin() {
         return configAdmin;
     }
 
     public void setConfigAdmin(ConfigurationAdmin configAdmin) {
         this.configAdmin = configAdmin;
+        invalidatePolicy();
+    }
+
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (event.getPid() != null && event.getPid().startsWith(JMX_ACL_PID_PREFIX)) {
+            invalidatePolicy();
+        }
+    }
+
+    private synchronized void invalidatePolicy() {
+        policyVersion++;
+        policy = null;
+    }
+
+    /**
+     * Return the number of access decisions found in the decision cache.
+     *
+     * @return The number of cache hits.
+     */
+    public long getDecisionCacheHits() {
+        return decisionCacheHits.get();
+    }
+
+    /**
+     * Return the number of access decisions which had to be computed.
+     *
+     * @return The number of cache misses.
+     */
+    public long getDecisionCacheMisses() {
+        return decisionCacheMisses.get();
+    }
+
+    private JmxAclPolicy getPolicy() throws IOException {
+        JmxAclPolicy p = policy;
+        while (p == null) {
+            long version;
+            synchronized (this) {
+                version = policyVersion;
+            }
+            JmxAclPolicy loaded = JmxAclPolicy.load(configAdmin);
+            synchronized (this) {
+                // Don't keep a policy whose configurations have been modified while it was being loaded
+                if (version == policyVersion) {
+                    policy = loaded;
+                    p = loaded;
+                }
+            }
+        }
+        return p;
     }
 
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
@@ -233,17 +294,39 @@ public class KarafMBeanServerGuard implements InvocationHandler {
         if (context == null) {
             context = BulkRequestContext.newContext(configAdmin);
         }
-        if (canBypassRBAC(context, objectName, methodName)) {
+        JmxAclPolicy policy = getPolicy();
+        JmxAclPolicy.Decision decision = new JmxAclPolicy.Decision(objectName, methodName, signature, getRoles(context.getPrincipals()));
+        Boolean allowed = policy.getDecision(decision);
+        if (allowed != null) {
+            decisionCacheHits.incrementAndGet();
+            return allowed;
+        }
+        decisionCacheMisses.incrementAndGet();
+        allowed = isAllowed(policy, context, objectName, methodName, null, signature);
+        policy.putDecision(decision, allowed);
+        return allowed;
+    }
+
+    private boolean isAllowed(JmxAclPolicy policy, BulkRequestContext context, ObjectName objectName,
+                              String methodName, Object[] params, String[] signature) throws IOException {
+        if (canBypassRBAC(policy, objectName, methodName)) {
             return true;
         }
-        for (String role : getRequiredRoles(context, objectName, methodName, signature)) {
+        for (String role : getRequiredRoles(context, objectName, methodName, params, signature)) {
             if (JaasHelper.currentUserHasRole(context.getPrincipals(), role))
                 return true;
         }
-
         return false;
     }
 
+    private static Set<String> getRoles(Set<Principal> principals) {
+        Set<String> roles = new HashSet<>();
+        for (Principal p : principals) {
+            roles.add(p.getClass().getName() + ":" + p.getName());
+        }
+        return roles;
+    }
+
     private void handleGetAttribute(MBeanServer proxy, ObjectName objectName, String attributeName) throws JMException, IOException {
         MBeanInfo info = proxy.getMBeanInfo(objectName);
         String prefix = null;
@@ -287,16 +370,10 @@ public class KarafMBeanServerGuard implements InvocationHandler {
         }
     }
     
-    private boolean canBypassRBAC(BulkRequestContext context, ObjectName objectName, String operationName) {
-        List<String> allBypassObjectName = new ArrayList<>();
-
-        List<Dictionary<String, Object>> configs = context.getWhitelistProperties();
-        for (Dictionary<String, Object> config : configs) {
-            Enumeration<String> keys = config.keys();
-            while (keys.hasMoreElements()) {
-                String element = keys.nextElement();
-                allBypassObjectName.add(element);
-            }
+    private boolean canBypassRBAC(JmxAclPolicy policy, ObjectName objectName, String operationName) {
+        List<String> allBypassObjectName = policy.getWhitelist();
+        if (allBypassObjectName.isEmpty()) {
+            return false;
         }
 
         for (String pid : iterateDownPids(getNameSegments(objectName))) {
@@ -328,12 +405,23 @@ public class KarafMBeanServerGuard implements InvocationHandler {
         if (context == null) {
             context = BulkRequestContext.newContext(configAdmin);
         }
-        if (canBypassRBAC(context, objectName, operationName)) {
-            return;
+        JmxAclPolicy policy = getPolicy();
+        // decisions only depend on the arguments if there are argument rules for this operation
+        JmxAclPolicy.Decision decision = hasArgumentRules(policy, objectName, operationName)
+                ? null
+                : new JmxAclPolicy.Decision(objectName, operationName, signature, getRoles(context.getPrincipals()));
+        Boolean allowed = decision != null ? policy.getDecision(decision) : null;
+        if (allowed != null) {
+            decisionCacheHits.incrementAndGet();
+        } else {
+            allowed = isAllowed(policy, context, objectName, operationName, params, signature);
+            if (decision != null) {
+                decisionCacheMisses.incrementAndGet();
+                policy.putDecision(decision, allowed);
+            }
         }
-        for (String role : getRequiredRoles(context, objectName, operationName, params, signature)) {
-            if (JaasHelper.currentUserHasRole(role))
-                return;
+        if (allowed) {
+            return;
         }
         if (Boolean.valueOf(System.getProperty(JMX_ACL_DETAILED_MESSAGE, "false"))) {
             printDetailedMessage(context, objectName, operationName, params, signature);
@@ -363,16 +451,14 @@ public class KarafMBeanServerGuard implements InvocationHandler {
             }
         }
         String matchedPid = null;
-        for (String pid : iterateDownPids(getNameSegments(objectName))) {
-            String generalPid = getGeneralPid(context.getAllPids(), pid);
-            if (generalPid.length() > 0) {
-                Dictionary<String, Object> config = context.getConfiguration(generalPid);
-                List<String> roles = new ArrayList<>();
-                ACLConfigurationParser.Specificity s = ACLConfigurationParser.getRolesForInvocation(operationName, params, signature, config, roles);
-                if (s != ACLConfigurationParser.Specificity.NO_MATCH) {
-                    matchedPid = generalPid;
-                    break;
-                }
+        JmxAclPolicy policy = getPolicy();
+        for (String generalPid : getGeneralPids(policy, objectName)) {
+            CompiledACLConfiguration config = policy.getConfiguration(generalPid);
+            List<String> roles = new ArrayList<>();
+            ACLConfigurationParser.Specificity s = config.getRolesForInvocation(operationName, params, signature, roles);
+            if (s != ACLConfigurationParser.Specificity.NO_MATCH) {
+                matchedPid = generalPid;
+                break;
             }
         }
         if (matchedPid == null) {
@@ -389,7 +475,7 @@ public class KarafMBeanServerGuard implements InvocationHandler {
     }
 
     List<String> getRequiredRoles(ObjectName objectName, String methodName, String[] signature) throws IOException {
-        return getRequiredRoles(BulkRequestContext.newContext(configAdmin), objectName, methodName, null, signature);
+        return getRequiredRoles(null, objectName, methodName, null, signature);
     }
 
     List<String> getRequiredRoles(BulkRequestContext context, ObjectName objectName, String methodName, String[] signature) throws IOException {
@@ -397,24 +483,47 @@ public class KarafMBeanServerGuard implements InvocationHandler {
     }
 
     List<String> getRequiredRoles(ObjectName objectName, String methodName, Object[] params, String[] signature) throws IOException {
-        return getRequiredRoles(BulkRequestContext.newContext(configAdmin), objectName, methodName, params, signature);
+        return getRequiredRoles(null, objectName, methodName, params, signature);
     }
 
     List<String> getRequiredRoles(BulkRequestContext context, ObjectName objectName, String methodName, Object[] params, String[] signature) throws IOException {
-        for (String pid : iterateDownPids(getNameSegments(objectName))) {
-            String generalPid = getGeneralPid(context.getAllPids(), pid);
-            if (generalPid.length() > 0) {
-                Dictionary<String, Object> config = context.getConfiguration(generalPid);
-                List<String> roles = new ArrayList<>();
-                ACLConfigurationParser.Specificity s = ACLConfigurationParser.getRolesForInvocation(methodName, params, signature, config, roles);
-                if (s != ACLConfigurationParser.Specificity.NO_MATCH) {
-                    return roles;
-                }
+        JmxAclPolicy policy = getPolicy();
+        for (String generalPid : getGeneralPids(policy, objectName)) {
+            CompiledACLConfiguration config = policy.getConfiguration(generalPid);
+            List<String> roles = new ArrayList<>();
+            ACLConfigurationParser.Specificity s = config.getRolesForInvocation(methodName, params, signature, roles);
+            if (s != ACLConfigurationParser.Specificity.NO_MATCH) {
+                return roles;
             }
         }
         return Collections.emptyList();
     }
 
+    private boolean hasArgumentRules(JmxAclPolicy policy, ObjectName objectName, String methodName) {
+        for (String generalPid : getGeneralPids(policy, objectName)) {
+            if (policy.getConfiguration(generalPid).hasArgumentRules(methodName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the configured PIDs matching the given ObjectName, from the most specific to the most general one.
+     */
+    private List<String> getGeneralPids(JmxAclPolicy policy, ObjectName objectName) {
+        return policy.getPids(objectName, on -> {
+            List<String> pids = new ArrayList<>();
+            for (String pid : iterateDownPids(getNameSegments(on))) {
+                String generalPid = getGeneralPid(policy.getAllPids(), pid);
+                if (generalPid.length() > 0 && policy.getConfiguration(generalPid) != null) {
+                    pids.add(generalPid);
+                }
+            }
+            return pids;
+        });
+    }
+
     private String getGeneralPid(List<String> allPids, String pid) {
         String[] pidStrArray = pid.split(Pattern.quote("."));
         Set<String[]> rets = new TreeSet<>(WILDCARD_PID_COMPARATOR);
@@ -43,8 +43,9 @@ import org.osgi.service.cm.ConfigurationAdmin;
  */
 public class BulkRequestContext {
 
-    private List<String> allPids = new ArrayList<>();
-    private List<Dictionary<String, Object>> whiteListProperties = new ArrayList<>();
+    // ACL configurations, listed on first access
+    private List<String> allPids;
+    private List<Dictionary<String, Object>> whiteListProperties;
 
     private ConfigurationAdmin configAdmin;
 
@@ -61,43 +62,56 @@ public class BulkRequestContext {
     public static BulkRequestContext newContext(ConfigurationAdmin configAdmin) throws IOException {
         BulkRequestContext context = new BulkRequestContext();
         context.configAdmin = configAdmin;
-        try {
-            // check JAAS subject here
-            AccessControlContext acc = AccessController.getContext();
-            if (acc == null) {
+        // check JAAS subject here
+        AccessControlContext acc = AccessController.getContext();
+        if (acc == null) {
+            context.anonymous = true;
+        } else {
+            Subject subject = Subject.getSubject(acc);
+            if (subject == null) {
                 context.anonymous = true;
             } else {
-                Subject subject = Subject.getSubject(acc);
-                if (subject == null) {
-                    context.anonymous = true;
-                } else {
-                    context.principals.addAll(subject.getPrincipals());
-                }
+                context.principals.addAll(subject.getPrincipals());
             }
+        }
+
+        return context;
+    }
+
+    private void listConfigurations() throws IOException {
+        if (allPids != null) {
+            return;
+        }
+        allPids = new ArrayList<>();
+        whiteListProperties = new ArrayList<>();
+        try {
             // list available ACL configs - valid for this instance only
-            for (Configuration config : configAdmin.listConfigurations("(service.pid=jmx.acl*)")) {
-                context.allPids.add(config.getPid());
+            Configuration[] configs = configAdmin.listConfigurations("(service.pid=jmx.acl*)");
+            if (configs != null) {
+                for (Configuration config : configs) {
+                    allPids.add(config.getPid());
+                }
             }
             // list available ACT whitelist configs
-            Configuration[] configs = configAdmin.listConfigurations("(service.pid=jmx.acl.whitelist)");
+            configs = configAdmin.listConfigurations("(service.pid=jmx.acl.whitelist)");
             if (configs != null) {
                 for (Configuration config : configs) {
-                    context.whiteListProperties.add(config.getProperties());
+                    whiteListProperties.add(config.getProperties());
                 }
             }
         } catch (InvalidSyntaxException ise) {
             throw new RuntimeException(ise);
         }
-
-        return context;
     }
 
     /**
      * Return list of PIDs related to RBAC/ACL.
      *
      * @return The list of PIDs.
+     * @throws IOException If an error occurs while listing the configurations.
      */
-    public List<String> getAllPids() {
+    public List<String> getAllPids() throws IOException {
+        listConfigurations();
         return allPids;
     }
 
@@ -105,8 +119,10 @@ public class BulkRequestContext {
      * Return list of configurations from the whitelist.
      *
      * @return The list of configurations.
+     * @throws IOException If an error occurs while listing the configurations.
      */
-    public List<Dictionary<String,Object>> getWhitelistProperties() {
+    public List<Dictionary<String,Object>> getWhitelistProperties() throws IOException {
+        listConfigurations();
         return whiteListProperties;
     }
 
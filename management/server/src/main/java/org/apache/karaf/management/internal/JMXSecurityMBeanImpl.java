@@ -139,6 +139,14 @@ public class JMXSecurityMBeanImpl extends StandardMBean implements JMXSecurityMB
         this.mbeanServer = mbeanServer;
     }
 
+    public long getDecisionCacheHits() {
+        return guard != null ? guard.getDecisionCacheHits() : 0;
+    }
+
+    public long getDecisionCacheMisses() {
+        return guard != null ? guard.getDecisionCacheMisses() : 0;
+    }
+
     public KarafMBeanServerGuard getGuard() {
         return guard;
     }
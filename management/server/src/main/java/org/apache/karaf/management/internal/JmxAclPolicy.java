@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.management.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.management.ObjectName;
+
+import org.apache.karaf.service.guard.tools.ACLConfigurationParser;
+import org.apache.karaf.service.guard.tools.CompiledACLConfiguration;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+/**
+ * <p>Snapshot of the <code>jmx.acl*</code> configurations, compiled once and shared by all the
+ * invocations checked by {@link org.apache.karaf.management.KarafMBeanServerGuard} until one of
+ * those configurations changes.</p>
+ * <p>The PIDs matching a given {@link ObjectName} and the access decisions are memoized. Both memos are
+ * bounded: they are dropped when they grow too large, and with the whole snapshot when a configuration changes.</p>
+ */
+public class JmxAclPolicy {
+
+    static final int MAX_CACHED_OBJECT_NAMES = 10000;
+    static final int MAX_CACHED_DECISIONS = 10000;
+
+    private final List<String> allPids;
+    private final Map<String, CompiledACLConfiguration> configurations;
+    private final List<String> whitelist;
+
+    private final Map<ObjectName, List<String>> pidsPerObjectName = new ConcurrentHashMap<>();
+    private final Map<Decision, Boolean> decisions = new ConcurrentHashMap<>();
+
+    private JmxAclPolicy(List<String> allPids, Map<String, CompiledACLConfiguration> configurations, List<String> whitelist) {
+        this.allPids = allPids;
+        this.configurations = configurations;
+        this.whitelist = whitelist;
+    }
+
+    public static JmxAclPolicy load(ConfigurationAdmin configAdmin) throws IOException {
+        List<String> allPids = new ArrayList<>();
+        Map<String, CompiledACLConfiguration> configurations = new HashMap<>();
+        List<String> whitelist = new ArrayList<>();
+        try {
+            Configuration[] configs = configAdmin.listConfigurations("(service.pid=jmx.acl*)");
+            if (configs != null) {
+                for (Configuration config : configs) {
+                    allPids.add(config.getPid());
+                    Dictionary<String, Object> props = config.getProperties();
+                    configurations.put(config.getPid(), ACLConfigurationParser.compile(props != null ? props : new Hashtable<>()));
+                }
+            }
+            configs = configAdmin.listConfigurations("(service.pid=jmx.acl.whitelist)");
+            if (configs != null) {
+                for (Configuration config : configs) {
+                    Dictionary<String, Object> props = config.getProperties();
+                    if (props != null) {
+                        for (Enumeration<String> keys = props.keys(); keys.hasMoreElements(); ) {
+                            whitelist.add(keys.nextElement());
+                        }
+                    }
+                }
+            }
+        } catch (InvalidSyntaxException ise) {
+            throw new RuntimeException(ise);
+        }
+        return new JmxAclPolicy(Collections.unmodifiableList(allPids), configurations, Collections.unmodifiableList(whitelist));
+    }
+
+    /**
+     * Return list of PIDs related to RBAC/ACL.
+     */
+    public List<String> getAllPids() {
+        return allPids;
+    }
+
+    /**
+     * Return the keys of the whitelist configurations.
+     */
+    public List<String> getWhitelist() {
+        return whitelist;
+    }
+
+    public CompiledACLConfiguration getConfiguration(String pid) {
+        return configurations.get(pid);
+    }
+
+    /**
+     * Return the configured PIDs to look at for the given ObjectName, from the most specific to the most general one.
+     */
+    public List<String> getPids(ObjectName objectName, Function<ObjectName, List<String>> resolver) {
+        List<String> pids = pidsPerObjectName.get(objectName);
+        if (pids == null) {
+            if (pidsPerObjectName.size() >= MAX_CACHED_OBJECT_NAMES) {
+                pidsPerObjectName.clear();
+            }
+            pids = pidsPerObjectName.computeIfAbsent(objectName, resolver);
+        }
+        return pids;
+    }
+
+    int getCachedObjectNames() {
+        return pidsPerObjectName.size();
+    }
+
+    int getCachedDecisions() {
+        return decisions.size();
+    }
+
+    public Boolean getDecision(Decision decision) {
+        return decisions.get(decision);
+    }
+
+    public void putDecision(Decision decision, boolean allowed) {
+        if (decisions.size() >= MAX_CACHED_DECISIONS) {
+            decisions.clear();
+        }
+        decisions.put(decision, allowed);
+    }
+
+    /**
+     * Key of a memoized access decision.
+     */
+    public static final class Decision {
+        private final ObjectName objectName;
+        private final String operation;
+        private final List<String> signature;
+        private final Set<String> roles;
+        private final int hashCode;
+
+        public Decision(ObjectName objectName, String operation, String[] signature, Set<String> roles) {
+            this.objectName = objectName;
+            this.operation = operation;
+            this.signature = signature != null ? Arrays.asList(signature) : null;
+            this.roles = roles;
+            this.hashCode = Arrays.hashCode(new Object[] { objectName, operation, this.signature, roles });
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Decision)) {
+                return false;
+            }
+            Decision d = (Decision) o;
+            return objectName.equals(d.objectName)
+                    && operation.equals(d.operation)
+                    && (signature != null ? signature.equals(d.signature) : d.signature == null)
+                    && roles.equals(d.roles);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+}
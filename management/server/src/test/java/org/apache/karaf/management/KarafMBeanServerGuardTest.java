@@ -23,7 +23,9 @@ import org.easymock.EasyMock;
 import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.service.cm.Configuration;
+import org.osgi.framework.ServiceReference;
 import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
 
 import javax.management.*;
 import javax.security.auth.Subject;
@@ -862,6 +864,36 @@ public class KarafMBeanServerGuardTest extends TestCase {
         });
     }
 
+    public void testCanInvokeDecisionCache() throws Exception {
+        final ObjectName on = ObjectName.getInstance("foo.bar:type=Test");
+
+        Dictionary<String, Object> configuration = new Hashtable<>();
+        configuration.put("doit", "admin");
+        ConfigurationAdmin ca = getMockConfigAdmin(configuration);
+
+        final KarafMBeanServerGuard guard = new KarafMBeanServerGuard();
+        guard.setConfigAdmin(ca);
+
+        Subject subject = loginWithTestRoles("admin");
+
+        Subject.doAs(subject, (PrivilegedAction<Void>) () -> {
+            try {
+                assertTrue(guard.canInvoke(null, on, "doit", new String[]{}));
+                assertTrue(guard.canInvoke(null, on, "doit", new String[]{}));
+                assertEquals(1, guard.getDecisionCacheMisses());
+                assertEquals(1, guard.getDecisionCacheHits());
+
+                guard.configurationEvent(new ConfigurationEvent(EasyMock.createMock(ServiceReference.class),
+                        ConfigurationEvent.CM_UPDATED, null, "jmx.acl.foo.bar.Test"));
+                assertTrue(guard.canInvoke(null, on, "doit", new String[]{}));
+                assertEquals(2, guard.getDecisionCacheMisses());
+                return null;
+            } catch (Throwable th) {
+                throw new RuntimeException(th);
+            }
+        });
+    }
+
     public void testCanInvokeAnyOverload() throws Exception {
         final ObjectName on = ObjectName.getInstance("foo.bar:type=Test");
 
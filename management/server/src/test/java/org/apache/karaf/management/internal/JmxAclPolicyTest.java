@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.management.internal;
+
+import junit.framework.TestCase;
+import org.easymock.EasyMock;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+import javax.management.ObjectName;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JmxAclPolicyTest extends TestCase {
+
+    public void testPidsPerObjectNameAreBounded() throws Exception {
+        JmxAclPolicy policy = JmxAclPolicy.load(getEmptyConfigAdmin());
+        AtomicInteger resolved = new AtomicInteger();
+
+        ObjectName first = ObjectName.getInstance("foo.bar:type=Test,name=0");
+        List<String> pids = policy.getPids(first, on -> {
+            resolved.incrementAndGet();
+            return Collections.singletonList("jmx.acl.foo.bar.Test");
+        });
+        assertEquals(Collections.singletonList("jmx.acl.foo.bar.Test"), pids);
+        assertSame(pids, policy.getPids(first, on -> {
+            resolved.incrementAndGet();
+            return Collections.emptyList();
+        }));
+        assertEquals(1, resolved.get());
+
+        for (int i = 1; i <= JmxAclPolicy.MAX_CACHED_OBJECT_NAMES; i++) {
+            policy.getPids(ObjectName.getInstance("foo.bar:type=Test,name=" + i), on -> Collections.emptyList());
+            assertTrue(policy.getCachedObjectNames() <= JmxAclPolicy.MAX_CACHED_OBJECT_NAMES);
+        }
+        // the memo has been dropped once full, so the first name is resolved again
+        policy.getPids(first, on -> {
+            resolved.incrementAndGet();
+            return Collections.emptyList();
+        });
+        assertEquals(2, resolved.get());
+    }
+
+    public void testDecisionsAreBounded() throws Exception {
+        JmxAclPolicy policy = JmxAclPolicy.load(getEmptyConfigAdmin());
+        for (int i = 0; i <= JmxAclPolicy.MAX_CACHED_DECISIONS; i++) {
+            ObjectName on = ObjectName.getInstance("foo.bar:type=Test,name=" + i);
+            policy.putDecision(new JmxAclPolicy.Decision(on, "doit", null, Collections.singleton("admin")), true);
+            assertTrue(policy.getCachedDecisions() <= JmxAclPolicy.MAX_CACHED_DECISIONS);
+        }
+    }
+
+    private ConfigurationAdmin getEmptyConfigAdmin() throws Exception {
+        ConfigurationAdmin ca = EasyMock.createMock(ConfigurationAdmin.class);
+        EasyMock.expect(ca.listConfigurations(EasyMock.anyString())).andReturn(null).anyTimes();
+        EasyMock.replay(ca);
+        return ca;
+    }
+
+}
@@ -21,6 +21,7 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.Filter;
 import org.osgi.framework.hooks.service.EventListenerHook;
 import org.osgi.framework.hooks.service.FindHook;
+import org.osgi.service.cm.ConfigurationListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +49,8 @@ public class Activator implements BundleActivator {
         }
 
         guardProxyCatalog = new GuardProxyCatalog(bundleContext);
+        // The compiled service guard configurations are reset when they change
+        bundleContext.registerService(ConfigurationListener.class, guardProxyCatalog, null);
 
         guardingEventHook = new GuardingEventHook(bundleContext, guardProxyCatalog, securedServicesFilter);
         bundleContext.registerService(EventListenerHook.class, guardingEventHook, null);
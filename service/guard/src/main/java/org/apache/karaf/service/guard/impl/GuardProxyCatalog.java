@@ -21,6 +21,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashSet;
@@ -41,6 +42,7 @@ import org.apache.aries.proxy.ProxyManager;
 import org.apache.aries.proxy.UnableToProxyException;
 import org.apache.karaf.service.guard.tools.ACLConfigurationParser;
 import org.apache.karaf.service.guard.tools.ACLConfigurationParser.Specificity;
+import org.apache.karaf.service.guard.tools.CompiledACLConfiguration;
 import org.apache.karaf.util.jaas.JaasHelper;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -54,12 +56,14 @@ import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
 import org.osgi.util.tracker.ServiceTracker;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class GuardProxyCatalog implements ServiceListener {
+public class GuardProxyCatalog implements ServiceListener, ConfigurationListener {
     public static final String KARAF_SECURED_SERVICES_SYSPROP = "karaf.secured.services";
     public static final String SERVICE_GUARD_ROLES_PROPERTY = "org.apache.karaf.service.guard.roles";
     public static final String KARAF_SECURED_COMMAND_COMPULSORY_ROLES_PROPERTY = "karaf.secured.command.compulsory.roles";
@@ -81,6 +85,13 @@ public class GuardProxyCatalog implements ServiceListener {
     final ConcurrentMap<Long, ServiceRegistrationHolder> proxyMap = new ConcurrentHashMap<>();
     final BlockingQueue<CreateProxyRunnable> createProxyQueue = new LinkedBlockingQueue<>();
     final String compulsoryRoles;
+    // The compiled policies of the proxied services, rebuilt when the service guard configurations
+    // or the service properties change
+    final ConcurrentMap<ServiceReference<?>, ServicePolicy> servicePolicies = new ConcurrentHashMap<>();
+
+    // The compiled service guard configurations, reset by configuration events
+    private volatile List<ServiceGuardConfig> serviceGuardConfigs;
+    private long serviceGuardConfigsVersion;
 
     // These two variables control the proxy creator thread, which is started as soon as a ProxyManager Service
     // becomes available.
@@ -157,6 +168,8 @@ public class GuardProxyCatalog implements ServiceListener {
             return;
         }
 
+        servicePolicies.remove(sr);
+
         Long orgServiceID = (Long) sr.getProperty(Constants.SERVICE_ID);
         if (event.getType() == ServiceEvent.UNREGISTERING) {
             handleOriginalServiceUnregistering(orgServiceID);
@@ -167,6 +180,19 @@ public class GuardProxyCatalog implements ServiceListener {
         }
     }
 
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (event.getPid() != null && event.getPid().startsWith(SERVICE_ACL_PREFIX)) {
+            invalidateServiceGuardConfigs();
+        }
+    }
+
+    synchronized void invalidateServiceGuardConfigs() {
+        serviceGuardConfigsVersion++;
+        serviceGuardConfigs = null;
+        servicePolicies.clear();
+    }
+
     private void handleOriginalServiceUnregistering(Long orgServiceID) {
         // If the service queued up to be proxied, remove it.
         for (Iterator<CreateProxyRunnable> i = createProxyQueue.iterator(); i.hasNext(); ) {
@@ -308,14 +334,10 @@ public class GuardProxyCatalog implements ServiceListener {
         boolean definitionFound = false;
         Set<String> allRoles = new HashSet<>();
 
-        // This can probably be optimized. Maybe we can cache the config object relevant instead of
-        // walking through all of the ones that have 'service.guard'.
-        for (Configuration config : getServiceGuardConfigs()) {
-            Dictionary<String, Object> properties = config.getProperties();
-            Object guardFilter = properties.get(SERVICE_GUARD_KEY);
-            if (guardFilter instanceof String) {
-                Filter filter = getFilter((String) guardFilter);
-                if (filter.match(serviceReference)) {
+        for (ServiceGuardConfig config : getCompiledServiceGuardConfigs()) {
+            Dictionary<String, Object> properties = config.properties;
+            if (config.filter != null) {
+                if (config.filter.match(serviceReference)) {
                     definitionFound = true;
                     for (Enumeration<String> e = properties.keys(); e.hasMoreElements(); ) {
                         String key = e.nextElement();
@@ -355,6 +377,40 @@ public class GuardProxyCatalog implements ServiceListener {
         return filter;
     }
 
+    // Returns the service guard configurations with their filters and ACLs compiled. The result is
+    // kept until a configuration event invalidates it.
+    List<ServiceGuardConfig> getCompiledServiceGuardConfigs() throws IOException, InvalidSyntaxException {
+        List<ServiceGuardConfig> configs = serviceGuardConfigs;
+        if (configs == null) {
+            long version;
+            synchronized (this) {
+                version = serviceGuardConfigsVersion;
+            }
+            configs = new ArrayList<>();
+            for (Configuration config : getServiceGuardConfigs()) {
+                configs.add(new ServiceGuardConfig(config.getProperties()));
+            }
+            configs = Collections.unmodifiableList(configs);
+            synchronized (this) {
+                // Don't keep configurations which have been modified while they were being compiled
+                if (version == serviceGuardConfigsVersion) {
+                    serviceGuardConfigs = configs;
+                }
+            }
+        }
+        return configs;
+    }
+
+    ServicePolicy getServicePolicy(ServiceReference<?> serviceReference) throws IOException, InvalidSyntaxException {
+        List<ServiceGuardConfig> configs = getCompiledServiceGuardConfigs();
+        ServicePolicy policy = servicePolicies.get(serviceReference);
+        if (policy == null || policy.configs != configs) {
+            policy = new ServicePolicy(configs, serviceReference);
+            servicePolicies.put(serviceReference, policy);
+        }
+        return policy;
+    }
+
     // Ensures that it never returns null
     private Configuration[] getServiceGuardConfigs() throws IOException, InvalidSyntaxException {
         ConfigurationAdmin ca = null;
@@ -392,6 +448,108 @@ public class GuardProxyCatalog implements ServiceListener {
         return JaasHelper.currentUserHasRole(reqRole);
     }
 
+    class ServiceGuardConfig {
+        final Dictionary<String, Object> properties;
+        final Object guardFilter;
+        final Filter filter;
+        final CompiledACLConfiguration acl;
+
+        ServiceGuardConfig(Dictionary<String, Object> properties) throws InvalidSyntaxException {
+            this.properties = properties;
+            this.guardFilter = properties.get(SERVICE_GUARD_KEY);
+            if (guardFilter instanceof String) {
+                this.filter = getFilter((String) guardFilter);
+                this.acl = ACLConfigurationParser.compile(properties);
+            } else {
+                this.filter = null;
+                this.acl = null;
+            }
+        }
+    }
+
+    // The access policy of a service, computed from the service guard configurations matching the service.
+    class ServicePolicy {
+        final List<ServiceGuardConfig> configs;
+        final List<CompiledACLConfiguration> matchingConfigs = new ArrayList<>();
+        // The roles required when no configuration matches, null if anyone can invoke the service
+        final List<String> defaultRoles;
+        final ConcurrentMap<Method, MethodPolicy> methodPolicies = new ConcurrentHashMap<>();
+
+        ServicePolicy(List<ServiceGuardConfig> configs, ServiceReference<?> serviceReference) {
+            this.configs = configs;
+            Object guardFilter = null;
+            for (ServiceGuardConfig config : configs) {
+                guardFilter = config.guardFilter;
+                if (config.filter != null && config.filter.match(serviceReference)) {
+                    matchingConfigs.add(config.acl);
+                }
+            }
+            if (matchingConfigs.isEmpty() && compulsoryRoles != null && (guardFilter instanceof String)
+                && ((String) guardFilter).indexOf("osgi.command.scope") > 0
+                && ((String) guardFilter).indexOf("osgi.command.functio") > 0) {
+                //use compulsoryRoles roles for those karaf command without any ACL
+                defaultRoles = ACLConfigurationParser.parseRoles(compulsoryRoles);
+            } else {
+                defaultRoles = null;
+            }
+        }
+
+        MethodPolicy getMethodPolicy(Method m, Object[] args) {
+            MethodPolicy policy = methodPolicies.get(m);
+            if (policy == null) {
+                policy = new MethodPolicy(this, m, args);
+                methodPolicies.put(m, policy);
+            }
+            return policy;
+        }
+
+        // Returns the roles allowed to invoke the method, null if anyone can invoke it
+        List<String> getAllowedRoles(String methodName, Object[] args, String[] sig) {
+            if (matchingConfigs.isEmpty()) {
+                return defaultRoles;
+            }
+
+            // The ordering of the keys is important because the first value when iterating has the highest specificity
+            TreeMap<Specificity, List<String>> roleMappings = new TreeMap<>();
+            for (CompiledACLConfiguration config : matchingConfigs) {
+                List<String> roles = new ArrayList<>();
+                Specificity s = config.getRolesForInvocation(methodName, args, sig, roles);
+                if (s != Specificity.NO_MATCH) {
+                    roleMappings.put(s, roles);
+                    if (s == Specificity.ARGUMENT_MATCH) {
+                        // No more specific mapping can be found
+                        break;
+                    }
+                }
+            }
+
+            // The first entry on the map has the highest significance because the keys are sorted in the order of
+            // the Specificity enum.
+            return roleMappings.isEmpty() ? Collections.emptyList() : roleMappings.values().iterator().next();
+        }
+    }
+
+    // The roles of a method are only computed once, unless they depend on the arguments of the invocation.
+    static class MethodPolicy {
+        final String[] signature;
+        final boolean argumentRules;
+        final List<String> allowedRoles;
+
+        MethodPolicy(ServicePolicy servicePolicy, Method m, Object[] args) {
+            Class<?>[] types = m.getParameterTypes();
+            signature = new String[types.length];
+            for (int i = 0; i < types.length; i++) {
+                signature[i] = types[i].getName();
+            }
+            boolean rules = false;
+            for (CompiledACLConfiguration config : servicePolicy.matchingConfigs) {
+                rules |= config.hasArgumentRules(m.getName());
+            }
+            argumentRules = rules;
+            allowedRoles = argumentRules ? null : servicePolicy.getAllowedRoles(m.getName(), args, signature);
+        }
+    }
+
     static class ServiceRegistrationHolder {
         volatile ServiceRegistration<?> registration;
     }
@@ -460,58 +618,22 @@ public class GuardProxyCatalog implements ServiceListener {
 
         @Override
         public Object preInvoke(Object proxy, Method m, Object[] args) throws Throwable {
-            String[] sig = new String[m.getParameterTypes().length];
-            for (int i = 0; i < m.getParameterTypes().length; i++) {
-                sig[i] = m.getParameterTypes()[i].getName();
-            }
-
-            // The ordering of the keys is important because the first value when iterating has the highest specificity
-            TreeMap<Specificity, List<String>> roleMappings = new TreeMap<>();
-            boolean foundMatchingConfig = false;
-
-            // This can probably be optimized. Maybe we can cache the config object relevant instead of
-            // walking through all of the ones that have 'service.guard'.
-            Object guardFilter = null;
-            for (Configuration config : getServiceGuardConfigs()) {
-                guardFilter = config.getProperties().get(SERVICE_GUARD_KEY);
-                if (guardFilter instanceof String) {
-                    Filter filter = myBundleContext.createFilter((String) guardFilter);
-                    if (filter.match(serviceReference)) {
-                        foundMatchingConfig = true;
-                        List<String> roles = new ArrayList<>();
-                        Specificity s = ACLConfigurationParser.
-                                getRolesForInvocation(m.getName(), args, sig, config.getProperties(), roles);
-                        if (s != Specificity.NO_MATCH) {
-                            roleMappings.put(s, roles);
-                            if (s == Specificity.ARGUMENT_MATCH) {
-                                // No more specific mapping can be found
-                                break;
-                            }
-                        }
-                    }
-                }
+            ServicePolicy servicePolicy = getServicePolicy(serviceReference);
+            MethodPolicy methodPolicy = servicePolicy.getMethodPolicy(m, args);
+            List<String> allowedRoles = methodPolicy.argumentRules
+                    ? servicePolicy.getAllowedRoles(m.getName(), args, methodPolicy.signature)
+                    : methodPolicy.allowedRoles;
+
+            if (allowedRoles == null) {
+                // No mappings for this service, anyone can invoke
+                return null;
             }
 
-            if (!foundMatchingConfig) {
-                if (compulsoryRoles != null && (guardFilter instanceof String) 
-                    && ((String)guardFilter).indexOf("osgi.command.scope") > 0 
-                    && ((String)guardFilter).indexOf("osgi.command.functio") > 0) {
-                    //use compulsoryRoles roles for those karaf command without any ACL
-                    roleMappings.put(Specificity.NAME_MATCH, ACLConfigurationParser.parseRoles(compulsoryRoles));
-                } else {
-                    // No mappings for this service, anyone can invoke
-                    return null;
-                }
-            }
-
-            if (roleMappings.size() == 0) {
+            if (allowedRoles.isEmpty()) {
                 LOG.info("Service {} has role mapping, but assigned no roles to method {}", serviceReference, m);
                 throw new SecurityException("Insufficient credentials.");
             }
 
-            // The first entry on the map has the highest significance because the keys are sorted in the order of
-            // the Specificity enum.
-            List<String> allowedRoles = roleMappings.values().iterator().next();
             for (String role : allowedRoles) {
                 if (currentUserHasRole(role)) {
                     LOG.trace("Allow user with role {} to invoke service {} method {}", role, serviceReference, m);
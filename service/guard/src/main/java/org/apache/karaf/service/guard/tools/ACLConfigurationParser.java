@@ -85,68 +85,19 @@ public class ACLConfigurationParser {
      */
     public static Specificity getRolesForInvocation(String methodName, Object[] params, String[] signature,
                                                     Dictionary<String, Object> config, List<String> addToRoles) {
-        Dictionary<String, Object> properties = trimKeys(config);
-
-        Specificity s = getRolesBasedOnSignature(methodName, params, signature, properties, addToRoles);
-        if (s != Specificity.NO_MATCH) {
-            return s;
-        }
-
-        s = getRolesBasedOnSignature(methodName, params, null, properties, addToRoles);
-        if (s != Specificity.NO_MATCH) {
-            return s;
-        }
-
-        List<String> roles = getMethodNameWildcardRoles(properties, methodName);
-        if (roles != null) {
-            addToRoles.addAll(roles);
-            return Specificity.WILDCARD_MATCH;
-        } else if (compulsoryRoles != null){
-            addToRoles.addAll(ACLConfigurationParser.parseRoles(compulsoryRoles));
-            return Specificity.NAME_MATCH;
-        } else {
-            return Specificity.NO_MATCH;
-        }
-            
+        return compile(config).getRolesForInvocation(methodName, params, signature, addToRoles);
     }
 
-    private static Specificity getRolesBasedOnSignature(String methodName, Object[] params, String[] signature,
-                                                        Dictionary<String, Object> properties, List<String> roles) {
-        if (params != null) {
-            boolean foundExactOrRegex = false;
-            Object exactArgMatchRoles = properties.get(getExactArgSignature(methodName, signature, params));
-            if (exactArgMatchRoles instanceof String) {
-                roles.addAll(parseRoles((String) exactArgMatchRoles));
-                foundExactOrRegex = true;
-            }
-
-            List<String> r = getRegexRoles(properties, methodName, signature, params);
-            if (r != null) {
-                foundExactOrRegex = true;
-                roles.addAll(r);
-            }
-
-            if (foundExactOrRegex) {
-                // since we have the actual parameters we can match them and if they do we won't look for any
-                // more generic rules...
-                return Specificity.ARGUMENT_MATCH;
-            }
-        } else {
-            // this is used in the case where parameters aren't known yet and the system wants to find out
-            // what roles in principle can invoke this method
-            List<String> r = getExactArgOrRegexRoles(properties, methodName, signature);
-            if (r != null) {
-               roles.addAll(r);
-            }
-        }
-
-        Object signatureRoles = properties.get(getSignature(methodName, signature));
-        if (signatureRoles instanceof String) {
-            roles.addAll(parseRoles((String) signatureRoles));
-            return signature == null ? Specificity.NAME_MATCH : Specificity.SIGNATURE_MATCH;
-        }
-
-        return Specificity.NO_MATCH;
+    /**
+     * Compile the given configuration so that it can be matched against many invocations
+     * without parsing its keys and compiling its regular expressions again.
+     *
+     * @param config the configuration to compile.
+     * @return the compiled configuration.
+     * @see #getRolesForInvocation(String, Object[], String[], Dictionary, List)
+     */
+    public static CompiledACLConfiguration compile(Dictionary<String, Object> config) {
+        return new CompiledACLConfiguration(trimKeys(config));
     }
 
     private static Dictionary<String, Object> trimKeys(Dictionary<String, Object> properties) {
@@ -205,7 +156,7 @@ public class ACLConfigurationParser {
         return roles;
     }
 
-    private static Object getExactArgSignature(String methodName, String[] signature, Object[] params) {
+    static String getExactArgSignature(String methodName, String[] signature, Object[] params) {
         StringBuilder sb = new StringBuilder(getSignature(methodName, signature));
         sb.append('[');
         boolean first = true;
@@ -223,7 +174,7 @@ public class ACLConfigurationParser {
         return sb.toString();
     }
 
-    private static String getSignature(String methodName, String[] signature) {
+    static String getSignature(String methodName, String[] signature) {
         StringBuilder sb = new StringBuilder(methodName);
         if (signature == null)
             return sb.toString();
@@ -241,96 +192,7 @@ public class ACLConfigurationParser {
         return sb.toString();
     }
 
-    private static List<String> getRegexRoles(Dictionary<String, Object> properties, String methodName, String[] signature, Object[] params) {
-        List<String> roles = new ArrayList<>();
-        boolean matchFound = false;
-        String methodSig = getSignature(methodName, signature);
-        String prefix = methodSig + "[/";
-        for (Enumeration<String> e = properties.keys(); e.hasMoreElements(); ) {
-            String key = e.nextElement().trim();
-            if (key.startsWith(prefix) && key.endsWith("/]")) {
-                List<String> regexArgs = getRegexDecl(key.substring(methodSig.length()));
-                if (allParamsMatch(regexArgs, params)) {
-                    matchFound = true;
-                    Object roleStr = properties.get(key);
-                    if (roleStr instanceof String) {
-                        roles.addAll(parseRoles((String) roleStr));
-                    }
-                }
-            }
-        }
-        return matchFound ? roles : null;
-    }
-
-    private static List<String> getExactArgOrRegexRoles(Dictionary<String, Object> properties, String methodName, String[] signature) {
-        List<String> roles = new ArrayList<>();
-        boolean matchFound = false;
-        String methodSig = getSignature(methodName, signature);
-        String prefix = methodSig + "[";
-        for (Enumeration<String> e = properties.keys(); e.hasMoreElements(); ) {
-            String key = e.nextElement().trim();
-            if (key.startsWith(prefix) && key.endsWith("]")) {
-                matchFound = true;
-                Object roleStr = properties.get(key);
-                if (roleStr instanceof String) {
-                    roles.addAll(parseRoles((String) roleStr));
-                }
-            }
-        }
-        return matchFound ? roles : null;
-    }
-
-    private static List<String> getMethodNameWildcardRoles(Dictionary<String, Object> properties, String methodName) {
-        SortedMap<String, String> wildcardRules = new TreeMap<>((s1, s2) -> {
-            // returns longer entries before shorter ones...
-            return s2.length() - s1.length();
-        });
-        
-        for (Enumeration<String> e = properties.keys(); e.hasMoreElements(); ) {
-            String key = e.nextElement();
-            if (key.endsWith("*")) {
-                String prefix = key.substring(0, key.length() - 1);
-                if (methodName.startsWith(prefix)) {
-                    wildcardRules.put(prefix, properties.get(key).toString());
-                }
-            }
-            if (key.startsWith("*")) {
-                String suffix = key.substring(1);
-                if (methodName.endsWith(suffix)) {
-                    wildcardRules.put(suffix, properties.get(key).toString());
-                }
-            }
-            if (key.startsWith("*") && key.endsWith("*") && key.length() > 1) {
-                String middle = key.substring(1, key.length() - 1);
-                if (methodName.contains(middle)) {
-                    wildcardRules.put(middle, properties.get(key).toString());
-                }
-            }
-        }
-
-        if (wildcardRules.size() != 0) {
-            return parseRoles(wildcardRules.values().iterator().next());
-        } else {
-            return null;
-        }
-    }
-
-    private static boolean allParamsMatch(List<String> regexArgs, Object[] params) {
-        if (regexArgs.size() != params.length)
-            return false;
-
-        for (int i = 0; i < regexArgs.size(); i++) {
-            if (params[i] == null)
-                return false;
-            if (!params[i].toString().trim().matches(regexArgs.get(i))) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    private static List<String> getRegexDecl(String key) {
+    static List<String> getRegexDecl(String key) {
         List<String> l = new ArrayList<>();
 
         boolean inRegex = false;
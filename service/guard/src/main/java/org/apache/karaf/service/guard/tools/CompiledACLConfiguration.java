@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.service.guard.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.karaf.service.guard.tools.ACLConfigurationParser.Specificity;
+
+/**
+ * An ACL configuration compiled once for many invocations: the keys are trimmed, the roles
+ * parsed and the argument regular expressions compiled when the configuration is created.
+ * Instances are immutable and can be shared between threads.
+ *
+ * @see ACLConfigurationParser#getRolesForInvocation(String, Object[], String[], Dictionary, List)
+ */
+public class CompiledACLConfiguration {
+
+    private final Map<String, Object> properties = new HashMap<>();
+    private final Map<String, List<String>> roles = new HashMap<>();
+    // keys ending with ']', in the order of the trimmed configuration
+    private final List<ArgumentRule> argumentRules = new ArrayList<>();
+    // keys starting or ending with '*', in the order of the trimmed configuration
+    private final List<String> wildcardKeys = new ArrayList<>();
+    // names of the methods having argument rules
+    private final Set<String> argumentMethods = new HashSet<>();
+
+    CompiledACLConfiguration(Dictionary<String, Object> trimmed) {
+        for (Enumeration<String> e = trimmed.keys(); e.hasMoreElements(); ) {
+            String key = e.nextElement();
+            Object value = trimmed.get(key);
+            properties.put(key, value);
+            if (value instanceof String) {
+                roles.put(key, Collections.unmodifiableList(ACLConfigurationParser.parseRoles((String) value)));
+            }
+            if (key.endsWith("]")) {
+                argumentRules.add(new ArgumentRule(key));
+                argumentMethods.add(getMethodName(key));
+            }
+            if (key.startsWith("*") || key.endsWith("*")) {
+                wildcardKeys.add(key);
+            }
+        }
+    }
+
+    private static String getMethodName(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '(' || c == '[') {
+                return key.substring(0, i);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Returns <code>true</code> if the roles returned for the given method depend on the invocation arguments.
+     */
+    public boolean hasArgumentRules(String methodName) {
+        return argumentMethods.contains(methodName);
+    }
+
+    /**
+     * Same as {@link ACLConfigurationParser#getRolesForInvocation(String, Object[], String[], Dictionary, List)}
+     * for this configuration.
+     */
+    public Specificity getRolesForInvocation(String methodName, Object[] params, String[] signature, List<String> addToRoles) {
+        Specificity s = getRolesBasedOnSignature(methodName, params, signature, addToRoles);
+        if (s != Specificity.NO_MATCH) {
+            return s;
+        }
+
+        s = getRolesBasedOnSignature(methodName, params, null, addToRoles);
+        if (s != Specificity.NO_MATCH) {
+            return s;
+        }
+
+        List<String> r = getMethodNameWildcardRoles(methodName);
+        if (r != null) {
+            addToRoles.addAll(r);
+            return Specificity.WILDCARD_MATCH;
+        } else if (ACLConfigurationParser.compulsoryRoles != null) {
+            addToRoles.addAll(ACLConfigurationParser.parseRoles(ACLConfigurationParser.compulsoryRoles));
+            return Specificity.NAME_MATCH;
+        } else {
+            return Specificity.NO_MATCH;
+        }
+    }
+
+    private Specificity getRolesBasedOnSignature(String methodName, Object[] params, String[] signature, List<String> r) {
+        String methodSig = ACLConfigurationParser.getSignature(methodName, signature);
+        if (params != null) {
+            boolean foundExactOrRegex = false;
+            List<String> exactArgMatchRoles = roles.get(ACLConfigurationParser.getExactArgSignature(methodName, signature, params));
+            if (exactArgMatchRoles != null) {
+                r.addAll(exactArgMatchRoles);
+                foundExactOrRegex = true;
+            }
+
+            String prefix = methodSig + "[/";
+            for (ArgumentRule rule : argumentRules) {
+                if (rule.key.startsWith(prefix) && rule.key.endsWith("/]") && rule.matches(methodSig.length(), params)) {
+                    foundExactOrRegex = true;
+                    List<String> ruleRoles = roles.get(rule.key);
+                    if (ruleRoles != null) {
+                        r.addAll(ruleRoles);
+                    }
+                }
+            }
+
+            if (foundExactOrRegex) {
+                // since we have the actual parameters we can match them and if they do we won't look for any
+                // more generic rules...
+                return Specificity.ARGUMENT_MATCH;
+            }
+        } else {
+            // this is used in the case where parameters aren't known yet and the system wants to find out
+            // what roles in principle can invoke this method
+            String prefix = methodSig + "[";
+            for (ArgumentRule rule : argumentRules) {
+                if (rule.key.startsWith(prefix)) {
+                    List<String> ruleRoles = roles.get(rule.key);
+                    if (ruleRoles != null) {
+                        r.addAll(ruleRoles);
+                    }
+                }
+            }
+        }
+
+        List<String> signatureRoles = roles.get(methodSig);
+        if (signatureRoles != null) {
+            r.addAll(signatureRoles);
+            return signature == null ? Specificity.NAME_MATCH : Specificity.SIGNATURE_MATCH;
+        }
+
+        return Specificity.NO_MATCH;
+    }
+
+    private List<String> getMethodNameWildcardRoles(String methodName) {
+        if (wildcardKeys.isEmpty()) {
+            return null;
+        }
+        SortedMap<String, String> wildcardRules = new TreeMap<>((s1, s2) -> {
+            // returns longer entries before shorter ones...
+            return s2.length() - s1.length();
+        });
+
+        for (String key : wildcardKeys) {
+            if (key.endsWith("*")) {
+                String prefix = key.substring(0, key.length() - 1);
+                if (methodName.startsWith(prefix)) {
+                    wildcardRules.put(prefix, properties.get(key).toString());
+                }
+            }
+            if (key.startsWith("*")) {
+                String suffix = key.substring(1);
+                if (methodName.endsWith(suffix)) {
+                    wildcardRules.put(suffix, properties.get(key).toString());
+                }
+            }
+            if (key.startsWith("*") && key.endsWith("*") && key.length() > 1) {
+                String middle = key.substring(1, key.length() - 1);
+                if (methodName.contains(middle)) {
+                    wildcardRules.put(middle, properties.get(key).toString());
+                }
+            }
+        }
+
+        if (wildcardRules.size() != 0) {
+            return ACLConfigurationParser.parseRoles(wildcardRules.values().iterator().next());
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * A key matching the invocation arguments, with its regular expressions compiled.
+     * Invalid expressions are kept so that matching them fails with a
+     * {@link PatternSyntaxException} as it did before they were compiled.
+     */
+    private static final class ArgumentRule {
+        final String key;
+        final int offset;
+        final List<String> regexes;
+        final List<Pattern> patterns;
+
+        ArgumentRule(String key) {
+            this.key = key;
+            this.offset = key.indexOf("[/");
+            this.regexes = offset >= 0 ? ACLConfigurationParser.getRegexDecl(key.substring(offset)) : null;
+            this.patterns = regexes != null ? compile(regexes) : null;
+        }
+
+        boolean matches(int offset, Object[] params) {
+            List<String> r = regexes;
+            List<Pattern> p = patterns;
+            if (offset != this.offset) {
+                r = ACLConfigurationParser.getRegexDecl(key.substring(offset));
+                p = compile(r);
+            }
+            if (p == null || p.size() != params.length) {
+                return false;
+            }
+            for (int i = 0; i < p.size(); i++) {
+                if (params[i] == null) {
+                    return false;
+                }
+                // an invalid expression is compiled again to report its syntax error
+                Pattern pattern = p.get(i) != null ? p.get(i) : Pattern.compile(r.get(i));
+                if (!pattern.matcher(params[i].toString().trim()).matches()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static List<Pattern> compile(List<String> regexes) {
+            List<Pattern> patterns = new ArrayList<>(regexes.size());
+            for (String regex : regexes) {
+                Pattern pattern;
+                try {
+                    pattern = Pattern.compile(regex);
+                } catch (PatternSyntaxException e) {
+                    pattern = null;
+                }
+                patterns.add(pattern);
+            }
+            return patterns;
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -62,6 +63,7 @@ import org.osgi.framework.ServiceRegistration;
 import org.osgi.framework.wiring.BundleWiring;
 import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
 
 public class GuardProxyCatalogTest {
     // Some assertions fail when run under a code coverage tool, they are skipped when this is set to true
@@ -564,6 +566,48 @@ public class GuardProxyCatalogTest {
         });
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testServicePolicyCache() throws Exception {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(Constants.SERVICE_PID, GuardProxyCatalog.SERVICE_ACL_PREFIX + "foo");
+        config.put(GuardProxyCatalog.SERVICE_GUARD_KEY, "(objectClass=" + TestServiceAPI.class.getName() + ")");
+        config.put("doit", "a,b");
+        config.put("doit(java.lang.String)[/x.*/]", "c");
+        BundleContext bc = mockConfigAdminBundleContext(config);
+        GuardProxyCatalog gpc = new GuardProxyCatalog(bc);
+
+        Dictionary<String, Object> props = new Hashtable<>();
+        props.put(Constants.SERVICE_ID, 17L);
+        props.put(Constants.OBJECTCLASS, new String[] {TestServiceAPI.class.getName()});
+        ServiceReference<?> sr = mockServiceReference(props);
+
+        GuardProxyCatalog.ServicePolicy policy = gpc.getServicePolicy(sr);
+        assertEquals(1, policy.matchingConfigs.size());
+        assertSame("The policy should be cached", policy, gpc.getServicePolicy(sr));
+
+        GuardProxyCatalog.MethodPolicy doit = policy.getMethodPolicy(TestServiceAPI.class.getMethod("doit"), null);
+        assertFalse(doit.argumentRules);
+        assertEquals(Arrays.asList("a", "b"), doit.allowedRoles);
+
+        GuardProxyCatalog.MethodPolicy doitWithArg =
+                policy.getMethodPolicy(TestServiceAPI2.class.getMethod("doit", String.class), new Object[] {"xyz"});
+        assertTrue(doitWithArg.argumentRules);
+        assertEquals(Collections.singletonList("c"),
+                policy.getAllowedRoles("doit", new Object[] {"xyz"}, doitWithArg.signature));
+        assertEquals(Arrays.asList("a", "b"),
+                policy.getAllowedRoles("doit", new Object[] {"abc"}, doitWithArg.signature));
+
+        ConfigurationEvent event = new ConfigurationEvent(EasyMock.createMock(ServiceReference.class),
+                ConfigurationEvent.CM_UPDATED, null, GuardProxyCatalog.SERVICE_ACL_PREFIX + "foo");
+        gpc.configurationEvent(event);
+        assertNotSame("The policy should be recomputed after a configuration change", policy, gpc.getServicePolicy(sr));
+
+        policy = gpc.getServicePolicy(sr);
+        gpc.serviceChanged(new ServiceEvent(ServiceEvent.MODIFIED, sr));
+        assertNotSame("The policy should be recomputed after a service change", policy, gpc.getServicePolicy(sr));
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void testCustomRole() throws Exception {
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.regex.PatternSyntaxException;
 
 import org.apache.karaf.service.guard.tools.ACLConfigurationParser.Specificity;
 import org.junit.Test;
@@ -101,4 +102,12 @@ public class ACLConfigurationParserTest {
                 ACLConfigurationParser.getRolesForInvocation("barr", new Object [] {42}, new String [] {"int"}, config, roles10));
         assertEquals(Arrays.asList("rg"), roles10);
     }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void testInvalidRegex() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("bar(java.lang.String)[/aa(/]", "ra");
+        ACLConfigurationParser.getRolesForInvocation("bar", new Object [] {"aa"}, new String [] {"java.lang.String"},
+                config, new ArrayList<>());
+    }
 }
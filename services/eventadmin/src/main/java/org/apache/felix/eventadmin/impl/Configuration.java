@@ -30,6 +30,8 @@ import org.apache.felix.eventadmin.impl.adapter.ServiceEventAdapter;
 import org.apache.felix.eventadmin.impl.handler.EventAdminImpl;
 import org.apache.felix.eventadmin.impl.security.SecureEventAdminFactory;
 import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
+import org.apache.felix.eventadmin.impl.tasks.OrderedAsyncDeliverTasks;
+import org.apache.felix.eventadmin.impl.tasks.OrderedAsyncDeliverTasksMBean;
 import org.apache.felix.eventadmin.impl.util.LogWrapper;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
@@ -89,6 +91,21 @@ import org.osgi.service.metatype.MetaTypeProvider;
  * all handlers in this package and all subpackages are ignored. If the string neither
  * ends with a dot nor with a start, this is assumed to define an exact class name.</p>
  *
+ * <p>
+ *      <tt>org.apache.felix.eventadmin.AsyncDelivery</tt> - The asynchronous delivery
+ *          mode, <tt>pool</tt> or <tt>ordered</tt>.
+ * </p>
+ *
+ * <p>The default is <tt>pool</tt>. In <tt>ordered</tt> mode, each handler has its own
+ * queue of posted events: events are delivered to a handler in the order they have been
+ * posted, while different handlers receive them in parallel and a slow handler only
+ * delays its own events. The consecutive events of a handler are delivered in batches of
+ * at most <tt>org.apache.felix.eventadmin.AsyncBatchSize</tt> (default 32) events. The
+ * executor is configured with <tt>org.apache.felix.eventadmin.AsyncExecutor</tt>, either
+ * <tt>pool</tt> (the default, using the asynchronous thread pool size) or <tt>virtual</tt>
+ * to use a virtual thread per batch when the JVM supports it. The queue depth and the
+ * handler latencies are exposed by the <tt>org.apache.karaf:type=eventadmin</tt> MBean.</p>
+ *
  * <p>These properties are read at startup and serve as a default configuration.
  * If a configuration admin is configured, the event admin can be configured
  * through the config admin.</p>
@@ -109,6 +126,12 @@ public class Configuration
     static final String PROP_LOG_LEVEL = "org.apache.felix.eventadmin.LogLevel";
     static final String PROP_ADD_TIMESTAMP = "org.apache.felix.eventadmin.AddTimestamp";
     static final String PROP_ADD_SUBJECT = "org.apache.felix.eventadmin.AddSubject";
+    static final String PROP_ASYNC_DELIVERY = "org.apache.felix.eventadmin.AsyncDelivery";
+    static final String PROP_ASYNC_EXECUTOR = "org.apache.felix.eventadmin.AsyncExecutor";
+    static final String PROP_ASYNC_BATCH_SIZE = "org.apache.felix.eventadmin.AsyncBatchSize";
+
+    static final String ASYNC_DELIVERY_POOL = "pool";
+    static final String ASYNC_DELIVERY_ORDERED = "ordered";
 
     /** The bundle context. */
     private final BundleContext m_bundleContext;
@@ -133,6 +156,12 @@ public class Configuration
 
     private boolean m_addSubject;
 
+    private String m_asyncDelivery;
+
+    private String m_asyncExecutor;
+
+    private int m_asyncBatchSize;
+
     // The thread pool used - this is a member because we need to close it on stop
     private volatile DefaultThreadPool m_sync_pool;
 
@@ -144,6 +173,12 @@ public class Configuration
     // the wrapper).
     private volatile EventAdminImpl m_admin;
 
+    // The ordered asynchronous delivery, if enabled
+    private volatile OrderedAsyncDeliverTasks m_orderedPostManager;
+
+    // The registration of the ordered asynchronous delivery MBean
+    private volatile ServiceRegistration m_orderedPostManagerReg;
+
     // The registration of the security decorator factory (i.e., the service)
     private volatile ServiceRegistration m_registration;
 
@@ -278,6 +313,12 @@ public class Configuration
                     m_bundleContext.getProperty(PROP_ADD_TIMESTAMP), false);
             m_addSubject = getBooleanProperty(
                     m_bundleContext.getProperty(PROP_ADD_SUBJECT), false);
+            m_asyncDelivery = getStringProperty(m_bundleContext.getProperty(PROP_ASYNC_DELIVERY),
+                    ASYNC_DELIVERY_POOL);
+            m_asyncExecutor = getStringProperty(m_bundleContext.getProperty(PROP_ASYNC_EXECUTOR),
+                    OrderedAsyncDeliverTasks.EXECUTOR_POOL);
+            m_asyncBatchSize = getIntProperty(PROP_ASYNC_BATCH_SIZE,
+                    m_bundleContext.getProperty(PROP_ASYNC_BATCH_SIZE), 32, 1);
         }
         else
         {
@@ -324,6 +365,10 @@ public class Configuration
                     config.get(PROP_ADD_TIMESTAMP), false);
             m_addSubject = getBooleanProperty(
                     config.get(PROP_ADD_SUBJECT), false);
+            m_asyncDelivery = getStringProperty(config.get(PROP_ASYNC_DELIVERY), ASYNC_DELIVERY_POOL);
+            m_asyncExecutor = getStringProperty(config.get(PROP_ASYNC_EXECUTOR),
+                    OrderedAsyncDeliverTasks.EXECUTOR_POOL);
+            m_asyncBatchSize = getIntProperty(PROP_ASYNC_BATCH_SIZE, config.get(PROP_ASYNC_BATCH_SIZE), 32, 1);
         }
         // a timeout less or equals to 100 means : disable timeout
         if ( m_timeout <= 100 )
@@ -348,6 +393,8 @@ public class Configuration
                 PROP_TIMEOUT + "=" + m_timeout);
         LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
                 PROP_REQUIRE_TOPIC + "=" + m_requireTopic);
+        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+                PROP_ASYNC_DELIVERY + "=" + m_asyncDelivery);
 
         // Note that this uses a lazy thread pool that will create new threads on
         // demand - in case none of its cached threads is free - until threadPoolSize
@@ -397,6 +444,61 @@ public class Configuration
             m_admin.update(m_timeout, m_ignoreTimeout, m_requireTopic, m_ignoreTopics, m_addTimestamp, m_addSubject);
         }
 
+        if ( ASYNC_DELIVERY_ORDERED.equals(m_asyncDelivery) )
+        {
+            if ( m_orderedPostManager == null )
+            {
+                m_orderedPostManager = new OrderedAsyncDeliverTasks(m_asyncExecutor, asyncThreadPoolSize,
+                        m_asyncBatchSize, m_timeout);
+                m_admin.setOrderedPostManager(m_orderedPostManager);
+                registerOrderedPostManager();
+            }
+            else
+            {
+                m_orderedPostManager.update(m_asyncExecutor, asyncThreadPoolSize, m_asyncBatchSize, m_timeout);
+            }
+        }
+        else if ( m_orderedPostManager != null )
+        {
+            m_admin.setOrderedPostManager(null);
+            closeOrderedPostManager();
+        }
+    }
+
+    private void registerOrderedPostManager()
+    {
+        try
+        {
+            final Dictionary<String, Object> props = new Hashtable<>();
+            props.put("jmx.objectname", "org.apache.karaf:type=eventadmin,name=" + System.getProperty("karaf.name"));
+            m_orderedPostManagerReg = m_bundleContext.registerService(
+                    OrderedAsyncDeliverTasksMBean.class.getName(), m_orderedPostManager, props);
+        }
+        catch ( final Exception e )
+        {
+            LogWrapper.getLogger().log(LogWrapper.LOG_WARNING, "Unable to register the event admin MBean", e);
+        }
+    }
+
+    private void closeOrderedPostManager()
+    {
+        if ( m_orderedPostManagerReg != null )
+        {
+            try
+            {
+                m_orderedPostManagerReg.unregister();
+            }
+            catch ( final IllegalStateException e )
+            {
+                // already unregistered
+            }
+            m_orderedPostManagerReg = null;
+        }
+        if ( m_orderedPostManager != null )
+        {
+            m_orderedPostManager.close();
+            m_orderedPostManager = null;
+        }
     }
 
     /**
@@ -433,6 +535,7 @@ public class Configuration
                 m_admin.stop();
                 m_admin = null;
             }
+            closeOrderedPostManager();
             if (m_async_pool != null )
             {
                 m_async_pool.close();
@@ -568,6 +671,22 @@ public class Configuration
         return defaultValue;
     }
 
+    /**
+     * Returns the trimmed, lower case value of the property if it is set or the default.
+     */
+    private String getStringProperty(final Object obj, final String defaultValue)
+    {
+        if ( null != obj )
+        {
+            final String value = obj.toString().trim().toLowerCase();
+            if ( value.length() > 0 )
+            {
+                return value;
+            }
+        }
+        return defaultValue;
+    }
+
     /**
      * Returns true if the value of the property is set and is either 1, true, or yes
      * Returns false if the value of the property is set and is either 0, false, or no
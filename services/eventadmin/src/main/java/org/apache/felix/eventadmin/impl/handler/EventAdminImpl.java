@@ -19,18 +19,29 @@
 package org.apache.felix.eventadmin.impl.handler;
 
 import java.security.AccessController;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.security.auth.Subject;
 
 import org.apache.felix.eventadmin.impl.handler.EventHandlerTracker.Matcher;
 import org.apache.felix.eventadmin.impl.tasks.AsyncDeliverTasks;
 import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
+import org.apache.felix.eventadmin.impl.tasks.OrderedAsyncDeliverTasks;
 import org.apache.felix.eventadmin.impl.tasks.SyncDeliverTasks;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
 
 /**
  * This is the actual implementation of the OSGi R4 Event Admin Service (see the
@@ -56,12 +67,27 @@ public class EventAdminImpl implements EventAdmin
     // The synchronous event dispatcher
     private final SyncDeliverTasks m_sendManager;
 
+    // The ordered asynchronous event dispatcher, replacing the asynchronous one when set
+    private volatile OrderedAsyncDeliverTasks m_orderedPostManager;
+
     // matchers for ignore topics
     private Matcher[] m_ignoreTopics;
 
     private boolean addTimestamp;
     private boolean addSubject;
 
+    // maximum number of topics kept in the topic cache
+    static final int MAX_CACHED_TOPICS = 1024;
+
+    // the ignore decision and handlers of the topics, keyed by topic
+    private final ConcurrentMap<String, TopicEntry> m_topicCache = new ConcurrentHashMap<>();
+
+    // the tracking count of the tracker when the topic cache was filled
+    private volatile int m_topicCacheTrackingCount = -1;
+
+    // whether one of the tracked handlers declares a filter
+    private volatile boolean m_filteredHandlers;
+
     /**
      * The constructor of the <code>EventAdmin</code> implementation.
      *
@@ -136,6 +162,114 @@ public class EventAdminImpl implements EventAdmin
         return result;
     }
 
+    /**
+     * Get the ignore decision and the handlers which may receive the events of the topic of
+     * the given event. The handlers are those returned by the tracker for the topic, they are
+     * computed once per topic and dropped as soon as the tracked handlers change. As the
+     * handlers returned by the tracker also depend on the properties of the event as soon as
+     * a handler declares a filter, the handlers are not cached while such a handler is tracked.
+     *
+     * @param event The event.
+     * @return The topic entry.
+     */
+    private TopicEntry getTopicEntry( final Event event )
+    {
+        final EventHandlerTracker localTracker = this.getTracker();
+        final int trackingCount = localTracker.getTrackingCount();
+        if ( trackingCount != this.m_topicCacheTrackingCount )
+        {
+            this.m_topicCache.clear();
+            this.m_filteredHandlers = this.checkHandlers(localTracker);
+            this.m_topicCacheTrackingCount = trackingCount;
+        }
+        final String topic = event.getTopic();
+        TopicEntry entry = this.m_topicCache.get(topic);
+        if ( entry == null )
+        {
+            final boolean ignored = !this.checkTopic(event);
+            final Collection<EventHandlerProxy> handlers;
+            if ( ignored || this.m_filteredHandlers )
+            {
+                handlers = null;
+            }
+            else
+            {
+                // no handler declares a filter, so the handlers only depend on the topic
+                handlers = localTracker.getHandlers(new Event(topic, (Map<String, ?>) null));
+            }
+            entry = new TopicEntry(ignored, handlers);
+            if ( this.m_topicCache.size() >= MAX_CACHED_TOPICS )
+            {
+                this.m_topicCache.clear();
+            }
+            // only cache the entry if the handlers did not change in the meantime
+            if ( localTracker.getTrackingCount() == trackingCount )
+            {
+                this.m_topicCache.put(topic, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Register the names of the tracked handlers in the ordered asynchronous dispatcher and
+     * check whether one of the tracked handlers declares a filter.
+     *
+     * @param localTracker The tracker.
+     * @return True if one of the tracked handlers declares a filter, false else.
+     */
+    private boolean checkHandlers( final EventHandlerTracker localTracker )
+    {
+        final OrderedAsyncDeliverTasks ordered = this.m_orderedPostManager;
+        final Map<ServiceReference<EventHandler>, EventHandlerProxy> tracked = localTracker.getTracked();
+        if ( ordered != null )
+        {
+            ordered.retain(tracked.values());
+        }
+        boolean filtered = false;
+        for ( final Map.Entry<ServiceReference<EventHandler>, EventHandlerProxy> e : tracked.entrySet() )
+        {
+            final ServiceReference<EventHandler> reference = e.getKey();
+            if ( reference.getProperty(EventConstants.EVENT_FILTER) != null )
+            {
+                filtered = true;
+            }
+            if ( ordered != null && e.getValue() != null )
+            {
+                ordered.register(e.getValue(), getName(reference));
+            }
+        }
+        return filtered;
+    }
+
+    private static String getName( final ServiceReference<EventHandler> reference )
+    {
+        final Bundle bundle = reference.getBundle();
+        final String id = "[" + reference.getProperty(Constants.SERVICE_ID) + "]";
+        return bundle != null ? bundle.getSymbolicName() + " " + id : id;
+    }
+
+    /**
+     * Get the handlers which can receive the given event.
+     */
+    private Collection<EventHandlerProxy> getHandlers( final TopicEntry entry, final Event event )
+    {
+        if ( entry.handlers == null )
+        {
+            return this.getTracker().getHandlers(event);
+        }
+        // the handlers may have been blacklisted since the entry was cached
+        final List<EventHandlerProxy> handlers = new ArrayList<>(entry.handlers.size());
+        for ( final EventHandlerProxy proxy : entry.handlers )
+        {
+            if ( proxy.canDeliver(event) )
+            {
+                handlers.add(proxy);
+            }
+        }
+        return handlers;
+    }
+
     static final String SUBJECT = "subject";
 
     private Event prepareEvent(Event event) {
@@ -175,9 +309,18 @@ public class EventAdminImpl implements EventAdmin
      */
     public void postEvent(final Event event)
     {
-        if ( checkTopic( event ) )
+        final TopicEntry entry = this.getTopicEntry( event );
+        if ( !entry.ignored )
         {
-            m_postManager.execute(this.getTracker().getHandlers(event), prepareEvent(event));
+            final OrderedAsyncDeliverTasks ordered = this.m_orderedPostManager;
+            if ( ordered != null )
+            {
+                ordered.execute(this.getHandlers(entry, event), prepareEvent(event));
+            }
+            else
+            {
+                m_postManager.execute(this.getHandlers(entry, event), prepareEvent(event));
+            }
         }
     }
 
@@ -191,12 +334,27 @@ public class EventAdminImpl implements EventAdmin
      */
     public void sendEvent(final Event event)
     {
-        if ( checkTopic( event ) )
+        final TopicEntry entry = this.getTopicEntry( event );
+        if ( !entry.ignored )
         {
-            m_sendManager.execute(this.getTracker().getHandlers(event), prepareEvent(event), false);
+            m_sendManager.execute(this.getHandlers(entry, event), prepareEvent(event), false);
         }
     }
 
+    /**
+     * Set the ordered asynchronous dispatcher used to post events, or <code>null</code>
+     * to use the default asynchronous dispatcher.
+     *
+     * @param orderedPostManager The ordered asynchronous dispatcher.
+     */
+    public void setOrderedPostManager(final OrderedAsyncDeliverTasks orderedPostManager)
+    {
+        this.m_orderedPostManager = orderedPostManager;
+        // register the names of the handlers again
+        this.m_topicCacheTrackingCount = -1;
+        this.m_topicCache.clear();
+    }
+
     /**
      * This method can be used to stop the delivery of events.
      */
@@ -204,6 +362,7 @@ public class EventAdminImpl implements EventAdmin
     {
         this.tracker.close();
         this.tracker = null;
+        this.m_topicCache.clear();
     }
 
     /**
@@ -230,6 +389,8 @@ public class EventAdminImpl implements EventAdmin
         this.m_sendManager.update(timeout);
         this.tracker.open();
         this.m_ignoreTopics = EventHandlerTracker.createMatchers(ignoreTopics);
+        this.m_topicCacheTrackingCount = -1;
+        this.m_topicCache.clear();
     }
 
     /**
@@ -248,4 +409,20 @@ public class EventAdminImpl implements EventAdmin
             throw new NullPointerException(name + " may not be null");
         }
     }
+
+    /**
+     * The cached resolution of a topic.
+     */
+    private static final class TopicEntry
+    {
+        final boolean ignored;
+        // the handlers of the topic, or null if they depend on the event
+        final Collection<EventHandlerProxy> handlers;
+
+        TopicEntry(final boolean ignored, final Collection<EventHandlerProxy> handlers)
+        {
+            this.ignored = ignored;
+            this.handlers = handlers;
+        }
+    }
 }
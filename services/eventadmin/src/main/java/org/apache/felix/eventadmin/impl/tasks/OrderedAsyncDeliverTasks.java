@@ -0,0 +1,548 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.tasks;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.MBeanException;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.apache.felix.eventadmin.impl.handler.EventHandlerProxy;
+import org.apache.felix.eventadmin.impl.util.LogWrapper;
+import org.osgi.service.event.Event;
+
+/**
+ * An alternative to the {@link AsyncDeliverTasks} which delivers the posted events
+ * to the event handlers in parallel. Each handler has its own queue, so events are
+ * delivered to a handler in the order they have been posted while a slow handler
+ * only delays its own events. The consecutive events queued for a handler are
+ * delivered in batches by a single task of the executor.
+ *
+ * The executor is either a pool of daemon threads or, when requested and available
+ * in the running JVM, an executor starting a virtual thread per task.
+ *
+ * Like the default asynchronous delivery, a handler which does not return within the
+ * timeout is blacklisted as soon as the timeout expires. Its pending events are dropped
+ * and, as the thread delivering the event is still blocked, the pool is grown by one
+ * thread until the handler returns, so that the other handlers keep being served.
+ */
+public class OrderedAsyncDeliverTasks implements OrderedAsyncDeliverTasksMBean
+{
+    /** Use a pool of platform threads. */
+    public static final String EXECUTOR_POOL = "pool";
+
+    /** Use a virtual thread per batch, falling back to the pool if not supported. */
+    public static final String EXECUTOR_VIRTUAL = "virtual";
+
+    /** The upper bounds (in milliseconds) of the latency histogram buckets. */
+    static final long[] LATENCY_BUCKETS = { 1, 10, 100, 1000 };
+
+    private static final String[] ITEM_NAMES = { "handler", "queued", "delivered", "averageLatency",
+            "maxLatency", "latencyUnder1ms", "latencyUnder10ms", "latencyUnder100ms", "latencyUnder1s",
+            "latencyOver1s" };
+
+    /** The queues of the event handlers. */
+    private final ConcurrentMap<EventHandlerProxy, HandlerQueue> m_queues = new ConcurrentHashMap<>();
+
+    /** The executor delivering the batches. */
+    private volatile ExecutorService m_executor;
+
+    /** The timer blacklisting the handlers which exceed the timeout. */
+    private final ScheduledThreadPoolExecutor m_watchdog;
+
+    /** The number of deliveries which exceeded the timeout and did not return yet. */
+    private final AtomicInteger m_hung = new AtomicInteger();
+
+    private volatile int m_poolSize;
+
+    private volatile String m_executorType;
+
+    private volatile int m_batchSize;
+
+    private volatile int m_timeout;
+
+    /**
+     * Create a new ordered asynchronous delivery.
+     *
+     * @param executorType The type of executor, {@link #EXECUTOR_POOL} or {@link #EXECUTOR_VIRTUAL}.
+     * @param poolSize The number of threads of the pool.
+     * @param batchSize The maximum number of events delivered to a handler in a row.
+     * @param timeout The delivery time after which a handler is blacklisted, 0 to disable.
+     */
+    public OrderedAsyncDeliverTasks(final String executorType, final int poolSize,
+            final int batchSize, final int timeout)
+    {
+        this.m_executorType = executorType;
+        this.m_poolSize = poolSize;
+        this.m_executor = createExecutor(executorType, poolSize);
+        this.m_batchSize = batchSize;
+        this.m_timeout = timeout;
+        this.m_watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread t = new Thread(r, "EventAdminTimeoutThread");
+            t.setDaemon(true);
+            return t;
+        });
+        this.m_watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Update the configuration. The executor is only replaced if its type changed.
+     */
+    public synchronized void update(final String executorType, final int poolSize,
+            final int batchSize, final int timeout)
+    {
+        this.m_batchSize = batchSize;
+        this.m_timeout = timeout;
+        this.m_poolSize = poolSize;
+        final ExecutorService old = this.m_executor;
+        if ( !executorType.equals(this.m_executorType) )
+        {
+            this.m_executorType = executorType;
+            this.m_executor = createExecutor(executorType, poolSize + this.m_hung.get());
+            old.shutdown();
+        }
+        else
+        {
+            this.resizePool();
+        }
+    }
+
+    /**
+     * Size the pool to the configured size plus the threads blocked by hung handlers.
+     */
+    private synchronized void resizePool()
+    {
+        final ExecutorService executor = this.m_executor;
+        if ( executor instanceof ThreadPoolExecutor )
+        {
+            final ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            final int size = this.m_poolSize + Math.max(0, this.m_hung.get());
+            if ( size > pool.getMaximumPoolSize() )
+            {
+                pool.setMaximumPoolSize(size);
+                pool.setCorePoolSize(size);
+            }
+            else
+            {
+                pool.setCorePoolSize(size);
+                pool.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    /**
+     * Stop the delivery. Pending events are dropped.
+     */
+    public void close()
+    {
+        this.m_executor.shutdownNow();
+        this.m_watchdog.shutdownNow();
+        this.m_queues.clear();
+    }
+
+    /**
+     * Register the name of a handler, used by the statistics.
+     *
+     * @param handler The handler.
+     * @param name The name of the handler.
+     */
+    public void register(final EventHandlerProxy handler, final String name)
+    {
+        this.m_queues.computeIfAbsent(handler, h -> new HandlerQueue(h, name));
+    }
+
+    /**
+     * Drop the queues of the handlers which are not part of the given ones anymore.
+     *
+     * @param handlers The current handlers.
+     */
+    public void retain(final Collection<EventHandlerProxy> handlers)
+    {
+        final Set<EventHandlerProxy> current = new HashSet<>(handlers);
+        this.m_queues.keySet().retainAll(current);
+    }
+
+    /**
+     * Queue the event for each of the given handlers.
+     *
+     * @param handlers The handlers to deliver the event to.
+     * @param event The event to deliver.
+     */
+    public void execute(final Collection<EventHandlerProxy> handlers, final Event event)
+    {
+        for ( final EventHandlerProxy handler : handlers )
+        {
+            HandlerQueue queue = this.m_queues.get(handler);
+            if ( queue == null )
+            {
+                queue = this.m_queues.computeIfAbsent(handler, h -> new HandlerQueue(h, null));
+            }
+            queue.add(event);
+        }
+    }
+
+    @Override
+    public long getQueueDepth()
+    {
+        long depth = 0;
+        for ( final HandlerQueue queue : this.m_queues.values() )
+        {
+            depth += queue.m_size.get();
+        }
+        return depth;
+    }
+
+    @Override
+    public TabularData getHandlers() throws MBeanException
+    {
+        try
+        {
+            final OpenType<?>[] types = new OpenType<?>[ITEM_NAMES.length];
+            types[0] = SimpleType.STRING;
+            types[1] = SimpleType.INTEGER;
+            types[2] = SimpleType.LONG;
+            types[3] = SimpleType.DOUBLE;
+            types[4] = SimpleType.DOUBLE;
+            for ( int i = 5; i < types.length; i++ )
+            {
+                types[i] = SimpleType.LONG;
+            }
+            final CompositeType type = new CompositeType("EventHandler", "Event handler delivery statistics",
+                    ITEM_NAMES,
+                    new String[] { "Event handler", "Queued events", "Delivered events", "Average latency (ms)",
+                            "Maximum latency (ms)", "Deliveries under 1ms", "Deliveries under 10ms",
+                            "Deliveries under 100ms", "Deliveries under 1s", "Deliveries over 1s" },
+                    types);
+            final TabularType tableType = new TabularType("EventHandlers", "Table of the event handlers",
+                    type, new String[] { "handler" });
+            final TabularData table = new TabularDataSupport(tableType);
+            for ( final HandlerQueue queue : this.m_queues.values() )
+            {
+                final Object[] values = new Object[ITEM_NAMES.length];
+                values[0] = queue.m_name;
+                values[1] = queue.m_size.get();
+                final long delivered = queue.m_delivered.get();
+                values[2] = delivered;
+                values[3] = delivered > 0 ? toMillis(queue.m_latency.get()) / delivered : 0.0;
+                values[4] = toMillis(queue.m_maxLatency.get());
+                for ( int i = 0; i < queue.m_histogram.length(); i++ )
+                {
+                    values[5 + i] = queue.m_histogram.get(i);
+                }
+                table.put(new CompositeDataSupport(type, ITEM_NAMES, values));
+            }
+            return table;
+        }
+        catch ( final Exception e )
+        {
+            throw new MBeanException(null, e.toString());
+        }
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        for ( final HandlerQueue queue : this.m_queues.values() )
+        {
+            queue.reset();
+        }
+    }
+
+    private static double toMillis(final long nanos)
+    {
+        return nanos / 1000000.0;
+    }
+
+    private static ExecutorService createExecutor(final String type, final int poolSize)
+    {
+        if ( EXECUTOR_VIRTUAL.equals(type) )
+        {
+            try
+            {
+                // only available on recent JVMs
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            }
+            catch ( final Exception e )
+            {
+                LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                        "Virtual threads are not supported by this JVM - Using a thread pool");
+            }
+        }
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadFactory factory = r -> {
+            final Thread t = new Thread(r, "EventAdminAsyncThread #" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory);
+    }
+
+    /**
+     * The queue of the events to deliver to a handler. At most one task of the
+     * executor delivers the events of a queue at any time, which keeps them ordered.
+     */
+    private final class HandlerQueue implements Runnable
+    {
+        private final EventHandlerProxy m_handler;
+
+        private final String m_name;
+
+        private final Queue<Event> m_events = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger m_size = new AtomicInteger();
+
+        private final AtomicBoolean m_scheduled = new AtomicBoolean();
+
+        private volatile boolean m_blacklisted;
+
+        private final AtomicLong m_delivered = new AtomicLong();
+
+        private final AtomicLong m_latency = new AtomicLong();
+
+        private final AtomicLong m_maxLatency = new AtomicLong();
+
+        private final AtomicLongArray m_histogram = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+
+        HandlerQueue(final EventHandlerProxy handler, final String name)
+        {
+            this.m_handler = handler;
+            this.m_name = name != null ? name : String.valueOf(handler);
+        }
+
+        void add(final Event event)
+        {
+            if ( this.m_blacklisted )
+            {
+                return;
+            }
+            this.m_events.add(event);
+            this.m_size.incrementAndGet();
+            this.schedule();
+        }
+
+        private void schedule()
+        {
+            if ( this.m_scheduled.compareAndSet(false, true) )
+            {
+                try
+                {
+                    m_executor.execute(this);
+                }
+                catch ( final RejectedExecutionException e )
+                {
+                    // the delivery has been stopped or the executor replaced
+                    this.m_scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                final int batchSize = m_batchSize;
+                for ( int i = 0; i < batchSize; i++ )
+                {
+                    final Event event = this.m_events.poll();
+                    if ( event == null )
+                    {
+                        break;
+                    }
+                    this.m_size.decrementAndGet();
+                    this.deliver(event);
+                }
+            }
+            finally
+            {
+                this.m_scheduled.set(false);
+            }
+            // events added during the batch, or left over, need another task
+            if ( !this.m_events.isEmpty() )
+            {
+                this.schedule();
+            }
+        }
+
+        private void deliver(final Event event)
+        {
+            if ( this.m_blacklisted )
+            {
+                return;
+            }
+            final int timeout = m_timeout;
+            Watchdog watchdog = null;
+            if ( timeout > 0 && this.m_handler.useTimeout() )
+            {
+                watchdog = new Watchdog(this, event, timeout);
+            }
+            final long start = System.nanoTime();
+            try
+            {
+                this.m_handler.sendEvent(event);
+            }
+            catch ( final Throwable t )
+            {
+                LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                        "Unable to deliver event " + event.getTopic() + " to " + this.m_name, t);
+            }
+            finally
+            {
+                if ( watchdog != null )
+                {
+                    watchdog.done();
+                }
+            }
+            this.record(System.nanoTime() - start);
+        }
+
+        /**
+         * Blacklist the handler after a delivery exceeded the timeout and drop its pending events.
+         */
+        void timedOut(final Event event, final int timeout)
+        {
+            LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                    "Event handler " + this.m_name + " did not handle event " + event.getTopic()
+                    + " within " + timeout + "ms - Blacklisting the handler");
+            this.m_blacklisted = true;
+            this.m_handler.blackListHandler();
+            while ( this.m_events.poll() != null )
+            {
+                this.m_size.decrementAndGet();
+            }
+        }
+
+        private void record(final long elapsed)
+        {
+            this.m_delivered.incrementAndGet();
+            this.m_latency.addAndGet(elapsed);
+            long max = this.m_maxLatency.get();
+            while ( elapsed > max && !this.m_maxLatency.compareAndSet(max, elapsed) )
+            {
+                max = this.m_maxLatency.get();
+            }
+            final long millis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            int bucket = 0;
+            while ( bucket < LATENCY_BUCKETS.length && millis >= LATENCY_BUCKETS[bucket] )
+            {
+                bucket++;
+            }
+            this.m_histogram.incrementAndGet(bucket);
+        }
+
+        void reset()
+        {
+            this.m_delivered.set(0);
+            this.m_latency.set(0);
+            this.m_maxLatency.set(0);
+            for ( int i = 0; i < this.m_histogram.length(); i++ )
+            {
+                this.m_histogram.set(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Blacklists the handler of a delivery when it does not return within the timeout,
+     * and grows the pool for as long as the delivering thread stays blocked.
+     */
+    private final class Watchdog implements Runnable
+    {
+        private final HandlerQueue m_queue;
+
+        private final Event m_event;
+
+        private final int m_timeout;
+
+        private final ScheduledFuture<?> m_future;
+
+        private final AtomicBoolean m_fired = new AtomicBoolean();
+
+        Watchdog(final HandlerQueue queue, final Event event, final int timeout)
+        {
+            this.m_queue = queue;
+            this.m_event = event;
+            this.m_timeout = timeout;
+            ScheduledFuture<?> future = null;
+            try
+            {
+                future = m_watchdog.schedule(this, timeout, TimeUnit.MILLISECONDS);
+            }
+            catch ( final RejectedExecutionException e )
+            {
+                // the delivery has been stopped
+            }
+            this.m_future = future;
+        }
+
+        @Override
+        public void run()
+        {
+            if ( this.m_fired.compareAndSet(false, true) )
+            {
+                m_hung.incrementAndGet();
+                resizePool();
+                this.m_queue.timedOut(this.m_event, this.m_timeout);
+            }
+        }
+
+        /**
+         * Called by the delivering thread once the handler returned.
+         */
+        void done()
+        {
+            if ( this.m_future != null )
+            {
+                this.m_future.cancel(false);
+            }
+            // if the timer fired, the delivering thread is not blocked anymore
+            if ( !this.m_fired.compareAndSet(false, true) )
+            {
+                m_hung.decrementAndGet();
+                resizePool();
+            }
+        }
+    }
+}
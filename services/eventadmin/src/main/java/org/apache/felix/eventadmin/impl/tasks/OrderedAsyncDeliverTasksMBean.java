@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.tasks;
+
+import javax.management.MBeanException;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Statistics of the ordered asynchronous event delivery.
+ */
+public interface OrderedAsyncDeliverTasksMBean
+{
+    /**
+     * Get the number of posted events waiting to be delivered, all handlers included.
+     *
+     * @return The number of queued events.
+     */
+    long getQueueDepth();
+
+    /**
+     * Get the delivery statistics of the event handlers: the number of queued and
+     * delivered events and the histogram of the delivery latencies.
+     *
+     * @return A {@link TabularData} containing a row per event handler.
+     * @throws MBeanException In case of MBean failure.
+     */
+    TabularData getHandlers() throws MBeanException;
+
+    /**
+     * Reset the delivery statistics of the event handlers.
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.handler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
+import org.osgi.service.event.Event;
+
+/**
+ * Measures the time spent sending (<code>sendEvent</code>) and posting (<code>postEvent</code>) events
+ * with 10, 100 and 1000 handlers, when the handlers of the topics are served from the topic cache of
+ * {@link EventAdminImpl} and when they are looked up in the handler tracker for each event, which is
+ * the case as soon as a handler declares a filter.  Posted events are measured until all of them have
+ * been delivered.
+ * <p>
+ * The handler counts, topics and events are given by the <code>handlers</code> (default 10,100,1000),
+ * <code>topics</code> (default 100) and <code>events</code> (default 100000) system properties.
+ * <p>
+ * This is not a unit test, run it from the IDE or with
+ * <code>mvn test-compile exec:java -Dexec.mainClass=org.apache.felix.eventadmin.impl.handler.EventAdminBenchmark -Dexec.classpathScope=test</code>.
+ */
+public class EventAdminBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String[] handlerCounts = System.getProperty("handlers", "10,100,1000").split(",");
+        int topics = Integer.getInteger("topics", 100);
+        int events = Integer.getInteger("events", 100000);
+        System.out.println("Topics: " + topics + ", events: " + events);
+
+        for (String handlerCount : handlerCounts) {
+            int handlers = Integer.parseInt(handlerCount.trim());
+            for (boolean post : new boolean[] { false, true }) {
+                for (boolean filtered : new boolean[] { false, true }) {
+                    // Warm up before measuring
+                    run(handlers, topics, events / 4, post, filtered, false);
+                    run(handlers, topics, events, post, filtered, true);
+                }
+            }
+        }
+    }
+
+    private static void run(int handlers, int topics, int events, boolean post, boolean filtered, boolean report)
+            throws InterruptedException {
+        HandlerRegistry registry = new HandlerRegistry();
+        DefaultThreadPool syncPool = new DefaultThreadPool(2, true);
+        DefaultThreadPool asyncPool = new DefaultThreadPool(4, false);
+        EventAdminImpl admin = new EventAdminImpl(registry.getContext(), syncPool, asyncPool, 0,
+                new String[0], true, new String[0], true, false);
+        try {
+            AtomicLong delivered = new AtomicLong();
+            for (int h = 0; h < handlers; h++) {
+                // a mix of exact, prefix and catch-all subscriptions
+                String topic;
+                switch (h % 10) {
+                    case 0:
+                        topic = "*";
+                        break;
+                    case 1:
+                    case 2:
+                        topic = "org/acme/t" + (h % topics) + "/*";
+                        break;
+                    default:
+                        topic = "org/acme/t" + (h % topics) + "/event";
+                        break;
+                }
+                registry.register(event -> delivered.incrementAndGet(), new String[] { topic }, null);
+            }
+            if (filtered) {
+                registry.register(event -> delivered.incrementAndGet(), new String[] { "org/other/*" }, "(type=x)");
+            }
+            Event[] sent = new Event[topics];
+            long[] deliveries = new long[topics];
+            for (int t = 0; t < topics; t++) {
+                Map<String, Object> props = new HashMap<>();
+                props.put("index", t);
+                sent[t] = new Event("org/acme/t" + t + "/event", props);
+                // count the deliveries of each topic, to know when the posted events are delivered
+                long before = delivered.get();
+                admin.sendEvent(sent[t]);
+                deliveries[t] = delivered.get() - before;
+            }
+            long expected = 0;
+            for (int i = 0; i < events; i++) {
+                expected += deliveries[i % topics];
+            }
+            delivered.set(0);
+
+            long t0 = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                if (post) {
+                    admin.postEvent(sent[i % topics]);
+                } else {
+                    admin.sendEvent(sent[i % topics]);
+                }
+            }
+            while (delivered.get() < expected) {
+                Thread.sleep(1);
+            }
+            long t1 = System.nanoTime();
+            if (report) {
+                System.out.printf("%5d handlers  %-4s  %-14s  %8.1f ns/event, %d deliveries/event%n",
+                        handlers, post ? "post" : "send", filtered ? "tracker lookup" : "topic cache",
+                        (t1 - t0) / (double) events, expected / events);
+            }
+        } finally {
+            admin.stop();
+            syncPool.close();
+            asyncPool.close();
+        }
+    }
+
+}
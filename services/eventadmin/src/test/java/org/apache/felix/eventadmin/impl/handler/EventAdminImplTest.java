@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventAdminImplTest {
+
+    private HandlerRegistry registry;
+    private DefaultThreadPool syncPool;
+    private DefaultThreadPool asyncPool;
+    private EventAdminImpl admin;
+
+    @Before
+    public void setUp() {
+        registry = new HandlerRegistry();
+        syncPool = new DefaultThreadPool(2, true);
+        asyncPool = new DefaultThreadPool(2, false);
+        admin = new EventAdminImpl(registry.getContext(), syncPool, asyncPool, 0,
+                new String[0], true, new String[] { "org/acme/ignored" }, false, false);
+    }
+
+    @After
+    public void tearDown() {
+        admin.stop();
+        syncPool.close();
+        asyncPool.close();
+    }
+
+    @Test
+    public void testWildcardTopics() {
+        RecordingHandler all = register(new String[] { "*" }, null);
+        RecordingHandler prefix = register(new String[] { "org/acme/*" }, null);
+        RecordingHandler exact = register(new String[] { "org/acme/foo", "org/other" }, null);
+        RecordingHandler other = register(new String[] { "org/acmefoo" }, null);
+
+        for (int i = 0; i < 2; i++) {
+            // the second round is served from the topic cache
+            send("org/acme/foo");
+            send("org/acme/bar/baz");
+            send("org/other");
+            send("org/acmefoo");
+        }
+
+        assertEquals(Arrays.asList("org/acme/foo", "org/acme/bar/baz", "org/other", "org/acmefoo",
+                "org/acme/foo", "org/acme/bar/baz", "org/other", "org/acmefoo"), all.topics);
+        assertEquals(Arrays.asList("org/acme/foo", "org/acme/bar/baz", "org/acme/foo", "org/acme/bar/baz"), prefix.topics);
+        assertEquals(Arrays.asList("org/acme/foo", "org/other", "org/acme/foo", "org/other"), exact.topics);
+        assertEquals(Arrays.asList("org/acmefoo", "org/acmefoo"), other.topics);
+    }
+
+    @Test
+    public void testIgnoredTopics() {
+        RecordingHandler all = register(new String[] { "*" }, null);
+        send("org/acme/ignored");
+        send("org/acme/ignored");
+        send("org/acme/foo");
+        assertEquals(Collections.singletonList("org/acme/foo"), all.topics);
+    }
+
+    @Test
+    public void testCacheInvalidatedOnRegister() {
+        RecordingHandler first = register(new String[] { "org/acme/*" }, null);
+        send("org/acme/foo");
+
+        RecordingHandler second = register(new String[] { "org/acme/foo" }, null);
+        send("org/acme/foo");
+
+        assertEquals(Arrays.asList("org/acme/foo", "org/acme/foo"), first.topics);
+        assertEquals(Collections.singletonList("org/acme/foo"), second.topics);
+    }
+
+    @Test
+    public void testCacheInvalidatedOnUnregister() {
+        RecordingHandler first = register(new String[] { "org/acme/*" }, null);
+        RecordingHandler second = new RecordingHandler();
+        ServiceReference<EventHandler> reference = registry.register(second, new String[] { "org/acme/foo" }, null);
+        send("org/acme/foo");
+
+        registry.unregister(reference);
+        send("org/acme/foo");
+
+        assertEquals(Arrays.asList("org/acme/foo", "org/acme/foo"), first.topics);
+        assertEquals(Collections.singletonList("org/acme/foo"), second.topics);
+    }
+
+    @Test
+    public void testFilteredHandlers() {
+        RecordingHandler plain = register(new String[] { "org/acme/*" }, null);
+        RecordingHandler filtered = new RecordingHandler();
+        ServiceReference<EventHandler> reference = registry.register(filtered, new String[] { "org/acme/*" }, "(type=x)");
+
+        send("org/acme/foo", Collections.singletonMap("type", "x"));
+        send("org/acme/foo", Collections.singletonMap("type", "y"));
+        assertEquals(Arrays.asList("org/acme/foo", "org/acme/foo"), plain.topics);
+        assertEquals(Collections.singletonList("org/acme/foo"), filtered.topics);
+
+        // once the filtered handler is gone, the topic can be cached again
+        registry.unregister(reference);
+        send("org/acme/foo", Collections.singletonMap("type", "x"));
+        send("org/acme/foo", Collections.singletonMap("type", "x"));
+        assertEquals(4, plain.topics.size());
+        assertEquals(1, filtered.topics.size());
+    }
+
+    private RecordingHandler register(String[] topics, String filter) {
+        RecordingHandler handler = new RecordingHandler();
+        registry.register(handler, topics, filter);
+        return handler;
+    }
+
+    private void send(String topic) {
+        send(topic, Collections.<String, Object>emptyMap());
+    }
+
+    private void send(String topic, Map<String, ?> properties) {
+        admin.sendEvent(new Event(topic, properties));
+    }
+
+    static class RecordingHandler implements EventHandler {
+        final List<String> topics = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void handleEvent(Event event) {
+            topics.add(event.getTopic());
+        }
+    }
+
+}
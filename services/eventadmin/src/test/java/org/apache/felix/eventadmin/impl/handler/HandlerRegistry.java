@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.handler;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Minimal service registry for the event handlers, providing the {@link BundleContext}
+ * used by the handler tracker.
+ */
+public class HandlerRegistry
+{
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<ServiceReference<?>, Object> services = new HashMap<>();
+    private final List<ServiceListener> listeners = new ArrayList<>();
+    private final BundleContext context;
+
+    public HandlerRegistry()
+    {
+        this.context = (BundleContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { BundleContext.class }, (proxy, method, args) ->
+        {
+            switch ( method.getName() )
+            {
+                case "createFilter":
+                    return FrameworkUtil.createFilter((String) args[0]);
+                case "addServiceListener":
+                    synchronized ( listeners )
+                    {
+                        listeners.add((ServiceListener) args[0]);
+                    }
+                    return null;
+                case "removeServiceListener":
+                    synchronized ( listeners )
+                    {
+                        listeners.remove(args[0]);
+                    }
+                    return null;
+                case "getServiceReferences":
+                case "getAllServiceReferences":
+                    synchronized ( services )
+                    {
+                        return services.isEmpty() ? null : services.keySet().toArray(new ServiceReference[services.size()]);
+                    }
+                case "getService":
+                    synchronized ( services )
+                    {
+                        return services.get(args[0]);
+                    }
+                case "ungetService":
+                    return true;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "HandlerRegistry";
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    public BundleContext getContext()
+    {
+        return this.context;
+    }
+
+    /**
+     * Register an event handler.
+     *
+     * @param handler The handler.
+     * @param topics The topics of the handler, or <code>null</code>.
+     * @param filter The filter of the handler, or <code>null</code>.
+     * @return The reference of the registered handler.
+     */
+    public ServiceReference<EventHandler> register(final EventHandler handler, final String[] topics, final String filter)
+    {
+        final Map<String, Object> props = new HashMap<>();
+        final long id = nextId.getAndIncrement();
+        props.put(Constants.SERVICE_ID, id);
+        props.put(Constants.OBJECTCLASS, new String[] { EventHandler.class.getName() });
+        if ( topics != null )
+        {
+            props.put(EventConstants.EVENT_TOPIC, topics);
+        }
+        if ( filter != null )
+        {
+            props.put(EventConstants.EVENT_FILTER, filter);
+        }
+        @SuppressWarnings("unchecked")
+        final ServiceReference<EventHandler> reference = (ServiceReference<EventHandler>) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] { ServiceReference.class }, (proxy, method, args) ->
+        {
+            switch ( method.getName() )
+            {
+                case "getProperty":
+                    return props.get(args[0]);
+                case "getPropertyKeys":
+                    return props.keySet().toArray(new String[props.size()]);
+                case "isAssignableTo":
+                    return true;
+                case "compareTo":
+                    // a lower service id ranks higher
+                    return Long.compare((Long) ((ServiceReference<?>) args[0]).getProperty(Constants.SERVICE_ID), id);
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "EventHandler[" + id + "]";
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+        synchronized ( services )
+        {
+            services.put(reference, handler);
+        }
+        fire(new ServiceEvent(ServiceEvent.REGISTERED, reference));
+        return reference;
+    }
+
+    /**
+     * Unregister an event handler.
+     *
+     * @param reference The reference of the handler.
+     */
+    public void unregister(final ServiceReference<EventHandler> reference)
+    {
+        fire(new ServiceEvent(ServiceEvent.UNREGISTERING, reference));
+        synchronized ( services )
+        {
+            services.remove(reference);
+        }
+    }
+
+    private void fire(final ServiceEvent event)
+    {
+        final List<ServiceListener> copy;
+        synchronized ( listeners )
+        {
+            copy = new ArrayList<>(listeners);
+        }
+        for ( final ServiceListener listener : copy )
+        {
+            listener.serviceChanged(event);
+        }
+    }
+
+    private static Object defaultValue(final Class<?> type)
+    {
+        if ( type == boolean.class )
+        {
+            return false;
+        }
+        if ( type == int.class )
+        {
+            return 0;
+        }
+        if ( type == long.class )
+        {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.tasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.eventadmin.impl.handler.EventHandlerProxy;
+import org.apache.felix.eventadmin.impl.handler.EventHandlerTracker;
+import org.apache.felix.eventadmin.impl.handler.HandlerRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OrderedAsyncDeliverTasksTest {
+
+    private HandlerRegistry registry;
+    private EventHandlerTracker tracker;
+    private OrderedAsyncDeliverTasks tasks;
+
+    @Before
+    public void setUp() {
+        registry = new HandlerRegistry();
+        tracker = new EventHandlerTracker(registry.getContext());
+        tracker.update(new String[0], true);
+        tracker.open();
+    }
+
+    @After
+    public void tearDown() {
+        if (tasks != null) {
+            tasks.close();
+        }
+        tracker.close();
+    }
+
+    @Test
+    public void testPerHandlerOrdering() throws Exception {
+        tasks = new OrderedAsyncDeliverTasks(OrderedAsyncDeliverTasks.EXECUTOR_POOL, 4, 8, 0);
+        int events = 1000;
+        CountDownLatch latch = new CountDownLatch(3 * events);
+        List<List<Integer>> received = new ArrayList<>();
+        for (int h = 0; h < 3; h++) {
+            List<Integer> list = Collections.synchronizedList(new ArrayList<Integer>());
+            received.add(list);
+            registry.register(event -> {
+                list.add((Integer) event.getProperty("index"));
+                latch.countDown();
+            }, new String[] { "org/acme/*" }, null);
+        }
+        Collection<EventHandlerProxy> handlers = handlers("org/acme/foo");
+        assertEquals(3, handlers.size());
+
+        for (int i = 0; i < events; i++) {
+            tasks.execute(handlers, new Event("org/acme/foo", Collections.singletonMap("index", i)));
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (List<Integer> list : received) {
+            assertEquals(events, list.size());
+            for (int i = 0; i < events; i++) {
+                assertEquals(Integer.valueOf(i), list.get(i));
+            }
+        }
+        assertEquals(0, tasks.getQueueDepth());
+    }
+
+    @Test
+    public void testBatching() throws Exception {
+        // a single thread, so the batches of the handlers are interleaved
+        tasks = new OrderedAsyncDeliverTasks(OrderedAsyncDeliverTasks.EXECUTOR_POOL, 1, 4, 0);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(16);
+        List<String> deliveries = Collections.synchronizedList(new ArrayList<String>());
+        registry.register(event -> await(gate), new String[] { "org/acme/gate" }, null);
+        registry.register(event -> {
+            deliveries.add("a");
+            done.countDown();
+        }, new String[] { "org/acme/a" }, null);
+        registry.register(event -> {
+            deliveries.add("b");
+            done.countDown();
+        }, new String[] { "org/acme/b" }, null);
+
+        // block the thread until all the events are queued
+        tasks.execute(handlers("org/acme/gate"), new Event("org/acme/gate", (Map<String, ?>) null));
+        for (int i = 0; i < 8; i++) {
+            tasks.execute(handlers("org/acme/a"), new Event("org/acme/a", (Map<String, ?>) null));
+        }
+        for (int i = 0; i < 8; i++) {
+            tasks.execute(handlers("org/acme/b"), new Event("org/acme/b", (Map<String, ?>) null));
+        }
+        gate.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("a", "a", "a", "a", "b", "b", "b", "b",
+                "a", "a", "a", "a", "b", "b", "b", "b"), deliveries);
+    }
+
+    @Test
+    public void testHungHandler() throws Exception {
+        // a single thread, which the hung handler blocks
+        tasks = new OrderedAsyncDeliverTasks(OrderedAsyncDeliverTasks.EXECUTOR_POOL, 1, 4, 200);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        List<Event> hungEvents = Collections.synchronizedList(new ArrayList<Event>());
+        registry.register(event -> {
+            hungEvents.add(event);
+            await(release);
+        }, new String[] { "org/acme/hung" }, null);
+        registry.register(event -> delivered.countDown(), new String[] { "org/acme/other" }, null);
+        Collection<EventHandlerProxy> hung = handlers("org/acme/hung");
+        Event hungEvent = new Event("org/acme/hung", (Map<String, ?>) null);
+
+        try {
+            tasks.execute(hung, hungEvent);
+            tasks.execute(hung, hungEvent);
+            tasks.execute(handlers("org/acme/other"), new Event("org/acme/other", (Map<String, ?>) null));
+
+            // the other handler is served although the only thread is blocked
+            assertTrue(delivered.await(10, TimeUnit.SECONDS));
+            for (EventHandlerProxy proxy : hung) {
+                assertFalse(proxy.canDeliver(hungEvent));
+            }
+            tasks.execute(hung, hungEvent);
+            assertEquals(0, tasks.getQueueDepth());
+        } finally {
+            release.countDown();
+        }
+        Thread.sleep(100);
+        assertEquals(1, hungEvents.size());
+    }
+
+    private Collection<EventHandlerProxy> handlers(String topic) {
+        return tracker.getHandlers(new Event(topic, (Map<String, ?>) null));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -37,6 +37,7 @@ import org.apache.felix.service.command.Function;
 import org.apache.felix.service.threadio.ThreadIO;
 import org.apache.karaf.jaas.boot.principal.RolePrincipal;
 import org.apache.karaf.service.guard.tools.ACLConfigurationParser;
+import org.apache.karaf.service.guard.tools.CompiledACLConfiguration;
 import org.apache.karaf.shell.api.console.Command;
 import org.apache.karaf.shell.impl.console.SessionFactoryImpl;
 import org.apache.karaf.util.tracker.SingleServiceTracker;
@@ -63,7 +64,8 @@ public class SecuredSessionFactoryImpl extends SessionFactoryImpl implements Con
     private static final Logger LOGGER = LoggerFactory.getLogger(SecuredSessionFactoryImpl.class);
 
     private BundleContext bundleContext;
-    private Map<String, Dictionary<String, Object>> scopes = new HashMap<>();
+    // command scope configurations, compiled once when they are added or updated
+    private Map<String, CompiledACLConfiguration> scopes = new HashMap<>();
     private SingleServiceTracker<ConfigurationAdmin> configAdminTracker;
     private ServiceRegistration<ConfigurationListener> registration;
 
@@ -109,10 +111,10 @@ public class SecuredSessionFactoryImpl extends SessionFactoryImpl implements Con
     }
 
     protected boolean isVisible(String scope, String name) {
-        Dictionary<String, Object> config = getScopeConfig(scope);
+        CompiledACLConfiguration config = getScopeConfig(scope);
         if (config != null) {
             List<String> roles = new ArrayList<>();
-            ACLConfigurationParser.getRolesForInvocation(name, null, null, config, roles);
+            config.getRolesForInvocation(name, null, null, roles);
             if (roles.isEmpty()) {
                 return true;
             } else {
@@ -128,13 +130,13 @@ public class SecuredSessionFactoryImpl extends SessionFactoryImpl implements Con
     }
 
     void checkSecurity(String scope, String name, List<Object> arguments) {
-        Dictionary<String, Object> config = getScopeConfig(scope);
+        CompiledACLConfiguration config = getScopeConfig(scope);
         if (config != null) {
             if (!isVisible(scope, name)) {
                 throw new CommandNotFoundException(scope + ":" + name);
             }
             List<String> roles = new ArrayList<>();
-            ACLConfigurationParser.Specificity s = ACLConfigurationParser.getRolesForInvocation(name, new Object[] { arguments.toString() }, null, config, roles);
+            ACLConfigurationParser.Specificity s = config.getRolesForInvocation(name, new Object[] { arguments.toString() }, null, roles);
             if (s == ACLConfigurationParser.Specificity.NO_MATCH) {
                 return;
             }
@@ -213,8 +215,10 @@ public class SecuredSessionFactoryImpl extends SessionFactoryImpl implements Con
             return;
         }
         scope = scope.trim();
+        Dictionary<String, Object> properties = config.getProperties();
+        CompiledACLConfiguration compiled = properties != null ? ACLConfigurationParser.compile(properties) : null;
         synchronized (scopes) {
-            scopes.put(scope, config.getProperties());
+            scopes.put(scope, compiled);
         }
     }
 
@@ -224,7 +228,7 @@ public class SecuredSessionFactoryImpl extends SessionFactoryImpl implements Con
         }
     }
 
-    private Dictionary<String, Object> getScopeConfig(String scope) {
+    private CompiledACLConfiguration getScopeConfig(String scope) {
         synchronized (scopes) {
             return scopes.get(scope);
         }
@@ -34,6 +34,7 @@ import org.apache.karaf.util.tracker.annotation.Managed;
 import org.apache.karaf.util.tracker.annotation.RequireService;
 import org.apache.karaf.util.tracker.annotation.Services;
 import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.common.io.IoServiceFactoryFactory;
 import org.apache.sshd.common.keyprovider.KeyPairProvider;
 import org.apache.sshd.server.SshServer;
 import org.apache.sshd.server.forward.AcceptAllForwardingFilter;
@@ -59,6 +60,7 @@ public class Activator extends BaseActivator implements ManagedService {
     ServiceTracker<Session, Session> sessionTracker;
     SessionFactory sessionFactory;
     SshServer server;
+    ExecPool execPool;
 
     @Override
     protected void doOpen() throws Exception {
@@ -116,6 +118,9 @@ public class Activator extends BaseActivator implements ManagedService {
         if (server == null) {
             return; // can result from bad specification.
         }
+        if (execPool != null) {
+            registerMBean(execPool, "type=ssh,area=exec");
+        }
         try {
             server.start();
         } catch (IOException e) {
@@ -137,6 +142,10 @@ public class Activator extends BaseActivator implements ManagedService {
             }
             server = null;
         }
+        if (execPool != null) {
+            execPool.shutdown();
+            execPool = null;
+        }
         super.doStop();
     }
 
@@ -156,6 +165,14 @@ public class Activator extends BaseActivator implements ManagedService {
         String[] kexAlgorithms = getStringArray("kexAlgorithms", "diffie-hellman-group-exchange-sha256,ecdh-sha2-nistp521,ecdh-sha2-nistp384,ecdh-sha2-nistp256,diffie-hellman-group-exchange-sha1,diffie-hellman-group1-sha1");
         String welcomeBanner   = getString("welcomeBanner", null);
         String moduliUrl       = getString("moduli-url", null);
+        int execThreads        = getInt("execThreads", 16);
+        int execQueueSize      = getInt("execQueueSize", 256);
+        String ioBackend       = getString("ioBackend", null);
+        long windowSize        = getLong("windowSize", 0);
+        long maxPacketSize     = getLong("maxPacketSize", 0);
+        int nio2ReadBufferSize = getInt("nio2ReadBufferSize", 0);
+        int scpBufferSize      = getInt("scpBufferSize", 0);
+        int sftpReadDataLength = getInt("sftpReadDataLength", 0);
         
         Path serverKeyPath = Paths.get(hostKey);
         KeyPairProvider keyPairProvider = new OpenSSHKeyPairProvider(serverKeyPath.toFile(), algorithm, keySize);
@@ -170,7 +187,17 @@ public class Activator extends BaseActivator implements ManagedService {
         server.setCipherFactories(SshUtils.buildCiphers(ciphers));
         server.setKeyExchangeFactories(SshUtils.buildKexAlgorithms(kexAlgorithms));
         server.setShellFactory(new ShellFactoryImpl(sessionFactory));
-        server.setCommandFactory(new ScpCommandFactory.Builder().withDelegate(cmd -> new ShellCommand(sessionFactory, cmd)).build());
+        ExecPool pool = new ExecPool(execThreads, execQueueSize);
+        ScriptCache scriptCache = new ScriptCache();
+        if (execPool != null) {
+            execPool.shutdown();
+        }
+        execPool = pool;
+        ScpCommandFactory.Builder scpBuilder = new ScpCommandFactory.Builder().withDelegate(cmd -> new ShellCommand(sessionFactory, cmd, pool, scriptCache));
+        if (scpBufferSize > 0) {
+            scpBuilder.withSendBufferSize(scpBufferSize).withReceiveBufferSize(scpBufferSize);
+        }
+        server.setCommandFactory(scpBuilder.build());
         server.setSubsystemFactories(Collections.singletonList(new SftpSubsystemFactory()));
         server.setKeyPairProvider(keyPairProvider);
         server.setPasswordAuthenticator(authenticator);
@@ -181,6 +208,11 @@ public class Activator extends BaseActivator implements ManagedService {
         server.setTcpipForwardingFilter(AcceptAllForwardingFilter.INSTANCE);
         server.getProperties().put(SshServer.IDLE_TIMEOUT, Long.toString(sshIdleTimeout));
         server.getProperties().put(SshServer.NIO_WORKERS, Integer.toString(nioWorkers));
+        SshUtils.configureTransport(server, windowSize, maxPacketSize, nio2ReadBufferSize, sftpReadDataLength);
+        IoServiceFactoryFactory ioServiceFactoryFactory = SshUtils.buildIoServiceFactoryFactory(ioBackend);
+        if (ioServiceFactoryFactory != null) {
+            server.setIoServiceFactoryFactory(ioServiceFactoryFactory);
+        }
         if (moduliUrl != null) {
             server.getProperties().put(SshServer.MODULI_URL, moduliUrl);
         }
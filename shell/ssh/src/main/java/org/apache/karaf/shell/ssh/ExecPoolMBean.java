@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.shell.ssh;
+
+/**
+ * Statistics of the pool executing the SSH exec commands.
+ */
+public interface ExecPoolMBean {
+
+    /**
+     * @return the maximum number of exec commands running concurrently.
+     */
+    int getPoolSize();
+
+    /**
+     * @return the number of exec commands currently running.
+     */
+    int getActiveCount();
+
+    /**
+     * @return the number of exec commands waiting for a thread.
+     */
+    int getQueueSize();
+
+    /**
+     * @return the number of exec commands executed since the SSH server has been started.
+     */
+    long getCompletedCount();
+
+    /**
+     * @return the number of exec commands rejected because the pool and its queue were full.
+     */
+    long getRejectedCount();
+
+}
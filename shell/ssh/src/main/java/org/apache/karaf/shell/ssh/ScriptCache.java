@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.shell.ssh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of the init scripts content, so that the script files are only read again
+ * when their modification time or size changed.
+ */
+public class ScriptCache {
+
+    private final ConcurrentMap<Path, Script> scripts = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the content of the given script, with its lines joined by new lines.
+     */
+    public String getScript(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+        Script script = scripts.get(path);
+        if (script == null || script.lastModified != lastModified || script.size != size) {
+            script = new Script(lastModified, size, String.join("\n", Files.readAllLines(path)));
+            scripts.put(path, script);
+        }
+        return script.content;
+    }
+
+    public void clear() {
+        scripts.clear();
+    }
+
+    private static class Script {
+        final long lastModified;
+        final long size;
+        final String content;
+
+        Script(long lastModified, long size, String content) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.content = content;
+        }
+    }
+
+}
@@ -22,11 +22,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.security.auth.Subject;
 
@@ -65,10 +66,18 @@ public class ShellCommand implements Command, SessionAware {
     private ServerSession session;
     private SessionFactory sessionFactory;
     private Environment env;
+    private Executor executor;
+    private ScriptCache scriptCache;
 
     public ShellCommand(SessionFactory sessionFactory, String command) {
+        this(sessionFactory, command, null, new ScriptCache());
+    }
+
+    public ShellCommand(SessionFactory sessionFactory, String command, Executor executor, ScriptCache scriptCache) {
         this.sessionFactory = sessionFactory;
         this.command = command;
+        this.executor = executor;
+        this.scriptCache = scriptCache;
     }
 
     public void setInputStream(InputStream in) {
@@ -93,7 +102,24 @@ public class ShellCommand implements Command, SessionAware {
 
     public void start(final Environment env) throws IOException {
         this.env = env;
-        new Thread(this::run).start();
+        if (executor == null) {
+            new Thread(this::run).start();
+            return;
+        }
+        try {
+            executor.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Too many concurrent SSH exec commands, rejecting command");
+            try {
+                err.write("Too many concurrent commands, try again later\n".getBytes());
+                err.flush();
+            } catch (IOException ioe) {
+                // ignore
+            } finally {
+                StreamUtils.close(in, out, err);
+                callback.onExit(1);
+            }
+        }
     }
 
     public void run() {
@@ -154,9 +180,7 @@ public class ShellCommand implements Command, SessionAware {
 
     private void doExecuteScript(Session session, Path scriptFileName) {
         try {
-            String script = String.join("\n",
-                    Files.readAllLines(scriptFileName));
-            session.execute(script);
+            session.execute(scriptCache.getScript(scriptFileName));
         } catch (Exception e) {
             LOGGER.debug("Error in initialization script {}", scriptFileName, e);
             System.err.println("Error in initialization script: " + scriptFileName + ": " + e.getMessage());
@@ -24,8 +24,11 @@ import java.util.List;
 
 import org.apache.sshd.server.ServerBuilder;
 import org.apache.sshd.server.SshServer;
+import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.NamedFactory;
 import org.apache.sshd.common.cipher.Cipher;
+import org.apache.sshd.common.io.IoServiceFactoryFactory;
+import org.apache.sshd.common.io.nio2.Nio2ServiceFactoryFactory;
 import org.apache.sshd.common.kex.KeyExchange;
 import org.apache.sshd.common.mac.Mac;
 
@@ -36,6 +39,14 @@ public class SshUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SshUtils.class);
 
+    /**
+     * Maximum length of the data returned by a single SFTP read, read by the SFTP subsystem
+     * from the session properties.
+     */
+    public static final String SFTP_MAX_READDATA_PACKET_LENGTH = "sftp-max-readdata-packet-length";
+
+    private static final String MINA_SERVICE_FACTORY_FACTORY = "org.apache.sshd.common.io.mina.MinaServiceFactoryFactory";
+
     public static <S> List<NamedFactory<S>> filter(Class<S> type,
             Collection<NamedFactory<S>> factories, String[] names) {
         List<NamedFactory<S>> list = new ArrayList<>();
@@ -74,6 +85,57 @@ public class SshUtils {
         return filter(KeyExchange.class, avail, names);
     }
 
+    /**
+     * Build the I/O backend of the given name: <code>nio2</code>, <code>mina</code> (if MINA is available)
+     * or the class name of an {@link IoServiceFactoryFactory}.
+     *
+     * @return the I/O backend, or <code>null</code> to use the SSHD default one.
+     */
+    public static IoServiceFactoryFactory buildIoServiceFactoryFactory(String name) {
+        if (name == null || name.trim().isEmpty() || "default".equalsIgnoreCase(name.trim())) {
+            return null;
+        }
+        name = name.trim();
+        if ("nio2".equalsIgnoreCase(name)) {
+            return new Nio2ServiceFactoryFactory();
+        }
+        String className = "mina".equalsIgnoreCase(name) ? MINA_SERVICE_FACTORY_FACTORY : name;
+        try {
+            // load through the SSHD class loader, which sees the optional MINA dependency
+            Class<?> clazz = IoServiceFactoryFactory.class.getClassLoader().loadClass(className);
+            return (IoServiceFactoryFactory) clazz.newInstance();
+        } catch (Exception | LinkageError e) {
+            LOGGER.warn("Configured I/O backend '" + name + "' not available, using the default one");
+            return null;
+        }
+    }
+
+    /**
+     * Set the transport properties of the given client or server. Values less or equal
+     * to zero keep the SSHD defaults.
+     *
+     * @param manager the SSH client or server.
+     * @param windowSize the channel window size, in bytes.
+     * @param maxPacketSize the maximum packet size, in bytes.
+     * @param nio2ReadBufferSize the read buffer size of the NIO2 backend, in bytes.
+     * @param sftpReadDataLength the maximum length of the data returned by a SFTP read, in bytes.
+     */
+    public static void configureTransport(FactoryManager manager, long windowSize, long maxPacketSize,
+                                          int nio2ReadBufferSize, int sftpReadDataLength) {
+        if (windowSize > 0) {
+            manager.getProperties().put(FactoryManager.WINDOW_SIZE, Long.toString(windowSize));
+        }
+        if (maxPacketSize > 0) {
+            manager.getProperties().put(FactoryManager.MAX_PACKET_SIZE, Long.toString(maxPacketSize));
+        }
+        if (nio2ReadBufferSize > 0) {
+            manager.getProperties().put(FactoryManager.NIO2_READ_BUFFER_SIZE, Integer.toString(nio2ReadBufferSize));
+        }
+        if (sftpReadDataLength > 0) {
+            manager.getProperties().put(SFTP_MAX_READDATA_PACKET_LENGTH, Integer.toString(sftpReadDataLength));
+        }
+    }
+
     /**
      * Simple helper class to avoid duplicating available configuration entries.
      */
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.shell.ssh;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScriptCacheTest {
+
+    @Test
+    public void testScriptReloadedOnChange() throws Exception {
+        Path script = Files.createTempFile("init", ".script");
+        try {
+            Files.write(script, Arrays.asList("echo a", "echo b"));
+            ScriptCache cache = new ScriptCache();
+            String content = cache.getScript(script);
+            Assert.assertEquals("echo a\necho b", content);
+            Assert.assertSame(content, cache.getScript(script));
+
+            Files.write(script, Arrays.asList("echo c"));
+            Files.setLastModifiedTime(script, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+            Assert.assertEquals("echo c", cache.getScript(script));
+        } finally {
+            Files.delete(script);
+        }
+    }
+
+}
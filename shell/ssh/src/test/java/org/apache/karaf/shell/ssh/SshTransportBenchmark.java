@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.karaf.shell.ssh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.karaf.shell.ssh.keygenerator.OpenSSHKeyPairProvider;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.channel.ChannelExec;
+import org.apache.sshd.client.channel.ClientChannelEvent;
+import org.apache.sshd.client.scp.ScpClient;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.client.subsystem.sftp.SftpClient;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.common.helpers.AbstractFactoryManager;
+import org.apache.sshd.common.io.IoServiceFactoryFactory;
+import org.apache.sshd.server.Command;
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.scp.ScpCommandFactory;
+import org.apache.sshd.server.subsystem.sftp.SftpSubsystemFactory;
+
+/**
+ * Loopback benchmark of the SSH transport settings: measures the SCP and SFTP upload and
+ * download throughput and the exec round-trip time against an in-process SSH server.
+ * <p>
+ * The settings are given as system properties named like the <code>org.apache.karaf.shell</code>
+ * configuration ones: <code>ioBackend</code>, <code>nio-workers</code>, <code>windowSize</code>,
+ * <code>maxPacketSize</code>, <code>nio2ReadBufferSize</code>, <code>scpBufferSize</code> and
+ * <code>sftpReadDataLength</code>. The size of the transferred file is given by
+ * <code>payloadSize</code> (in MB, default 64) and the number of exec commands by
+ * <code>execCount</code> (default 500).
+ * <p>
+ * This is not a unit test, run it from the IDE or with
+ * <code>mvn test-compile exec:java -Dexec.mainClass=org.apache.karaf.shell.ssh.SshTransportBenchmark -Dexec.classpathScope=test</code>.
+ */
+public class SshTransportBenchmark {
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    public static void main(String[] args) throws Exception {
+        int payloadSize = Integer.getInteger("payloadSize", 64) * 1024 * 1024;
+        int execCount = Integer.getInteger("execCount", 500);
+
+        Path root = Files.createTempDirectory("ssh-benchmark");
+        Path payload = root.resolve("payload.bin");
+        byte[] block = new byte[1024 * 1024];
+        new Random(0).nextBytes(block);
+        try (OutputStream os = Files.newOutputStream(payload)) {
+            for (int i = 0; i < payloadSize; i += block.length) {
+                os.write(block, 0, Math.min(block.length, payloadSize - i));
+            }
+        }
+        Path serverDir = Files.createDirectory(root.resolve("server"));
+
+        SshServer server = createServer(root.resolve("host.key").toFile(), serverDir);
+        server.start();
+        SshClient client = SshClient.setUpDefaultClient();
+        configure(client);
+        client.start();
+        try (ClientSession session = client.connect("karaf", "localhost", server.getPort())
+                .verify(TIMEOUT).getSession()) {
+            session.addPasswordIdentity("karaf");
+            session.auth().verify(TIMEOUT);
+
+            System.out.println("Settings: ioBackend=" + System.getProperty("ioBackend", "default")
+                    + " nio-workers=" + Integer.getInteger("nio-workers", 2)
+                    + " windowSize=" + Long.getLong("windowSize", 0)
+                    + " maxPacketSize=" + Long.getLong("maxPacketSize", 0)
+                    + " nio2ReadBufferSize=" + Integer.getInteger("nio2ReadBufferSize", 0)
+                    + " scpBufferSize=" + Integer.getInteger("scpBufferSize", 0)
+                    + " sftpReadDataLength=" + Integer.getInteger("sftpReadDataLength", 0));
+
+            ScpClient scp = session.createScpClient();
+            long t0 = System.nanoTime();
+            scp.upload(payload, "/scp.bin");
+            report("SCP upload", payloadSize, System.nanoTime() - t0);
+            t0 = System.nanoTime();
+            scp.download("/scp.bin", root.resolve("scp-download.bin"));
+            report("SCP download", payloadSize, System.nanoTime() - t0);
+
+            try (SftpClient sftp = session.createSftpClient()) {
+                t0 = System.nanoTime();
+                try (InputStream is = Files.newInputStream(payload);
+                     OutputStream os = sftp.write("/sftp.bin")) {
+                    copy(is, os);
+                }
+                report("SFTP upload", payloadSize, System.nanoTime() - t0);
+                t0 = System.nanoTime();
+                try (InputStream is = sftp.read("/sftp.bin");
+                     OutputStream os = Files.newOutputStream(root.resolve("sftp-download.bin"))) {
+                    copy(is, os);
+                }
+                report("SFTP download", payloadSize, System.nanoTime() - t0);
+            }
+
+            t0 = System.nanoTime();
+            for (int i = 0; i < execCount; i++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (ChannelExec channel = session.createExecChannel("echo")) {
+                    channel.setOut(out);
+                    channel.open().verify(TIMEOUT);
+                    channel.waitFor(EnumSet.of(ClientChannelEvent.CLOSED), TIMEOUT);
+                }
+            }
+            long elapsed = System.nanoTime() - t0;
+            System.out.printf("Exec round-trip: %.3f ms%n", elapsed / 1e6 / execCount);
+        } finally {
+            client.stop();
+            server.stop(true);
+            delete(root.toFile());
+        }
+    }
+
+    private static SshServer createServer(File hostKey, Path root) {
+        SshServer server = SshServer.setUpDefaultServer();
+        server.setPort(0);
+        server.setHost("localhost");
+        server.setKeyPairProvider(new OpenSSHKeyPairProvider(hostKey, "RSA", 2048));
+        server.setPasswordAuthenticator((username, password, session) -> true);
+        ScpCommandFactory.Builder scpBuilder = new ScpCommandFactory.Builder().withDelegate(cmd -> new EchoCommand());
+        int scpBufferSize = Integer.getInteger("scpBufferSize", 0);
+        if (scpBufferSize > 0) {
+            scpBuilder.withSendBufferSize(scpBufferSize).withReceiveBufferSize(scpBufferSize);
+        }
+        server.setCommandFactory(scpBuilder.build());
+        server.setSubsystemFactories(Collections.singletonList(new SftpSubsystemFactory()));
+        server.setFileSystemFactory(new VirtualFileSystemFactory(root));
+        server.getProperties().put(SshServer.NIO_WORKERS, Integer.toString(Integer.getInteger("nio-workers", 2)));
+        configure(server);
+        return server;
+    }
+
+    private static void configure(AbstractFactoryManager manager) {
+        SshUtils.configureTransport(manager,
+                Long.getLong("windowSize", 0),
+                Long.getLong("maxPacketSize", 0),
+                Integer.getInteger("nio2ReadBufferSize", 0),
+                Integer.getInteger("sftpReadDataLength", 0));
+        IoServiceFactoryFactory ioServiceFactoryFactory =
+                SshUtils.buildIoServiceFactoryFactory(System.getProperty("ioBackend"));
+        if (ioServiceFactoryFactory != null) {
+            manager.setIoServiceFactoryFactory(ioServiceFactoryFactory);
+        }
+    }
+
+    private static void copy(InputStream is, OutputStream os) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        int len;
+        while ((len = is.read(buffer)) >= 0) {
+            os.write(buffer, 0, len);
+        }
+    }
+
+    private static void report(String name, long bytes, long nanos) {
+        System.out.printf("%s: %.1f MB/s%n", name, bytes / 1024.0 / 1024.0 / (nanos / 1e9));
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Exec command writing its name back and exiting, to measure the channel round-trip.
+     */
+    private static class EchoCommand implements Command {
+        private OutputStream out;
+        private ExitCallback callback;
+
+        public void setInputStream(InputStream in) {
+        }
+
+        public void setOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        public void setErrorStream(OutputStream err) {
+        }
+
+        public void setExitCallback(ExitCallback callback) {
+            this.callback = callback;
+        }
+
+        public void start(Environment env) throws IOException {
+            out.write("echo\n".getBytes());
+            out.flush();
+            callback.onExit(0);
+        }
+
+        public void destroy() {
+        }
+    }
+
+}